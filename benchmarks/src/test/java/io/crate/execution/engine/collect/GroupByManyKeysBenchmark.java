@@ -0,0 +1,169 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
+import io.crate.data.Row;
+import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.execution.engine.aggregation.impl.AggregationImplModule;
+import io.crate.execution.engine.aggregation.impl.SumAggregation;
+import io.crate.expression.reference.doc.lucene.BytesRefColumnReference;
+import io.crate.expression.reference.doc.lucene.CollectorContext;
+import io.crate.metadata.Functions;
+import io.crate.metadata.Reference;
+import io.crate.metadata.ReferenceIdent;
+import io.crate.metadata.RelationName;
+import io.crate.metadata.RowGranularity;
+import io.crate.metadata.functions.Signature;
+import io.crate.types.DataTypes;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.inject.ModulesBuilder;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares grouping on the ordinals of several keyword columns ({@link OrdinalGroupKeys}) with grouping on their values.
+ *
+ * Q: select country, device, status, sum(amount) from t group by 1, 2, 3
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class GroupByManyKeysBenchmark {
+
+    private static final int NUM_DOCS = 2_000_000;
+    private static final String[] KEY_COLUMNS = new String[] {"country", "device", "status"};
+    private static final String[] STATUSES = new String[] {"ok", "failed", "timeout", "cancelled"};
+
+    /**
+     * The number of distinct devices, the tuples are nearly unique with the higher number
+     */
+    @Param({"8", "1000000"})
+    public int numDevices;
+
+    private IndexSearcher indexSearcher;
+    private List<Reference> keyRefs;
+    @SuppressWarnings("rawtypes")
+    private List<DocValueAggregator> aggregators;
+
+    @Setup
+    public void createIndex() throws Exception {
+        Functions functions = new ModulesBuilder().add(new AggregationImplModule())
+            .createInjector().getInstance(Functions.class);
+        SumAggregation<?> sumAggregation = (SumAggregation<?>) functions.getQualified(
+            Signature.aggregate(
+                SumAggregation.NAME,
+                DataTypes.LONG.getTypeSignature(),
+                DataTypes.LONG.getTypeSignature()
+            ),
+            List.of(DataTypes.LONG),
+            DataTypes.LONG
+        );
+        var amountField = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        amountField.setName("amount");
+        aggregators = List.of(sumAggregation.getDocValueAggregator(List.of(DataTypes.LONG), List.of(amountField)));
+
+        keyRefs = new ArrayList<>(KEY_COLUMNS.length);
+        for (String column : KEY_COLUMNS) {
+            keyRefs.add(new Reference(
+                new ReferenceIdent(RelationName.fromIndexName("t"), column),
+                RowGranularity.DOC,
+                DataTypes.STRING,
+                null,
+                null
+            ));
+        }
+
+        String[] countries = Locale.getISOCountries();
+        Random random = new Random(42);
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (int i = 0; i < NUM_DOCS; i++) {
+            Document doc = new Document();
+            doc.add(new SortedSetDocValuesField("country", new BytesRef(countries[random.nextInt(countries.length)])));
+            doc.add(new SortedSetDocValuesField("device", new BytesRef("device-" + random.nextInt(numDevices))));
+            doc.add(new SortedSetDocValuesField("status", new BytesRef(STATUSES[random.nextInt(STATUSES.length)])));
+            doc.add(new NumericDocValuesField("amount", i));
+            iw.addDocument(doc);
+        }
+        iw.commit();
+        indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
+    }
+
+    @Benchmark
+    public void measureGroupByOrdinalTuples(Blackhole blackhole) throws Exception {
+        BatchIterator<Row> it = DocValuesGroupByOptimizedIterator.GroupByIterator.getOrdinalsIterator(
+            aggregators,
+            indexSearcher,
+            keyRefs,
+            RamAccounting.NO_ACCOUNTING,
+            (statesByKey, key) -> {},
+            new MatchAllDocsQuery()
+        );
+        blackhole.consume(BatchIterators.collect(it, Collectors.counting()).get());
+    }
+
+    @Benchmark
+    public void measureGroupByKeyValues(Blackhole blackhole) throws Exception {
+        BatchIterator<Row> it = DocValuesGroupByOptimizedIterator.GroupByIterator.getKeyValuesIterator(
+            aggregators,
+            indexSearcher,
+            List.of(
+                new BytesRefColumnReference("country"),
+                new BytesRefColumnReference("device"),
+                new BytesRefColumnReference("status")
+            ),
+            RamAccounting.NO_ACCOUNTING,
+            (statesByKey, key) -> {},
+            new MatchAllDocsQuery(),
+            new CollectorContext()
+        );
+        blackhole.consume(BatchIterators.collect(it, Collectors.counting()).get());
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class StreamBucketBenchmark {
+
+    private static final int NUM_ROWS = 100_000;
+
+    private final Streamer<?>[] streamers = new Streamer[] {
+        DataTypes.LONG.streamer(),
+        DataTypes.STRING.streamer(),
+        DataTypes.DOUBLE.streamer(),
+        DataTypes.TIMESTAMPZ.streamer(),
+        DataTypes.STRING.streamer()
+    };
+    private List<Row> rows;
+    private BytesReference serialized;
+
+    @Setup
+    public void prepareData() throws Exception {
+        Random rnd = new Random(42);
+        String[] countries = {"Austria", "Germany", "Switzerland", "France", "Italy"};
+        long now = 1_600_000_000_000L;
+        rows = new ArrayList<>(NUM_ROWS);
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows.add(new RowN(
+                (long) i,
+                countries[rnd.nextInt(countries.length)],
+                rnd.nextDouble(),
+                now + i * 1000L,
+                rnd.nextBoolean() ? null : "user-" + rnd.nextInt(1000)
+            ));
+        }
+        BytesStreamOutput out = new BytesStreamOutput();
+        build().writeTo(out);
+        serialized = out.bytes();
+    }
+
+    private StreamBucket build() {
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, RamAccounting.NO_ACCOUNTING);
+        for (int i = 0; i < rows.size(); i++) {
+            builder.add(rows.get(i));
+        }
+        return builder.build();
+    }
+
+    @Benchmark
+    public StreamBucket measureBuild() {
+        return build();
+    }
+
+    @Benchmark
+    public int measureBuildAndSerialize() throws Exception {
+        // A built bucket compresses its columns on the first send only
+        BytesStreamOutput out = new BytesStreamOutput();
+        build().writeTo(out);
+        return out.size();
+    }
+
+    @Benchmark
+    public void measureRead(Blackhole blackhole) throws Exception {
+        StreamBucket received = new StreamBucket(serialized.streamInput(), streamers);
+        for (Row row : received) {
+            blackhole.consume(row.get(0));
+        }
+    }
+
+    @Benchmark
+    public void measureBuildSerializeAndRead(Blackhole blackhole) throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        build().writeTo(out);
+        StreamBucket received = new StreamBucket(out.bytes().streamInput(), streamers);
+        for (Row row : received) {
+            blackhole.consume(row.get(0));
+        }
+    }
+}
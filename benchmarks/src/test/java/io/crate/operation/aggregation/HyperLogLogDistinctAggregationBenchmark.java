@@ -33,6 +33,7 @@ import io.crate.execution.engine.collect.InputCollectExpression;
 import io.crate.expression.symbol.AggregateMode;
 import io.crate.expression.symbol.Literal;
 import io.crate.memory.OffHeapMemoryManager;
+import io.crate.memory.OffHeapMemoryPool;
 import io.crate.memory.OnHeapMemoryManager;
 import io.crate.metadata.Functions;
 import io.crate.metadata.functions.Signature;
@@ -73,6 +74,7 @@ public class HyperLogLogDistinctAggregationBenchmark {
     private HyperLogLogPlusPlus hyperLogLogPlusPlus;
     private AggregateCollector onHeapCollector;
     private OnHeapMemoryManager onHeapMemoryManager;
+    private OffHeapMemoryPool offHeapMemoryPool;
     private OffHeapMemoryManager offHeapMemoryManager;
     private AggregateCollector offHeapCollector;
     private MurmurHash3.Hash128 hash;
@@ -94,7 +96,9 @@ public class HyperLogLogDistinctAggregationBenchmark {
             DataTypes.STRING
         );
         onHeapMemoryManager = new OnHeapMemoryManager(bytes -> {});
-        offHeapMemoryManager = new OffHeapMemoryManager();
+        offHeapMemoryPool = new OffHeapMemoryPool(OffHeapMemoryPool.MAX_RETAINED_SETTING.getDefault().getBytes());
+        offHeapMemoryPool.start();
+        offHeapMemoryManager = new OffHeapMemoryManager(offHeapMemoryPool, bytes -> {});
         hyperLogLogPlusPlus = new HyperLogLogPlusPlus(HyperLogLogPlusPlus.DEFAULT_PRECISION, onHeapMemoryManager::allocate);
         onHeapCollector = new AggregateCollector(
             Collections.singletonList(inExpr0),
@@ -124,6 +128,7 @@ public class HyperLogLogDistinctAggregationBenchmark {
     public void tearDown() {
         onHeapMemoryManager.close();
         offHeapMemoryManager.close();
+        offHeapMemoryPool.close();
     }
 
     @Benchmark
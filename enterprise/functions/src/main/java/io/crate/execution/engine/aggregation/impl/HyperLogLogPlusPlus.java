@@ -21,12 +21,15 @@
 package io.crate.execution.engine.aggregation.impl;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import org.apache.lucene.util.packed.PackedInts;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.Consumer;
 import java.util.function.IntFunction;
 
 /**
@@ -137,7 +140,7 @@ public final class HyperLogLogPlusPlus {
     private final int p;
     private final int m;
     private final double alphaMM;
-    private final ByteBuf runLens;
+    private ByteBuf runLens;
 
     public HyperLogLogPlusPlus(int precision, IntFunction<ByteBuf> allocateByteBuf) {
         if (precision < MIN_PRECISION) {
@@ -169,6 +172,17 @@ public final class HyperLogLogPlusPlus {
         return p;
     }
 
+    /**
+     * Moves the registers to a heap buffer which isn't accounted and passes the previous buffer to {@code release}.
+     * The sketch remains usable afterwards.
+     */
+    public void detach(Consumer<ByteBuf> release) {
+        ByteBuf previous = runLens;
+        runLens = Unpooled.buffer(m);
+        runLens.setBytes(0, previous, 0, m);
+        release.accept(previous);
+    }
+
     public void merge(HyperLogLogPlusPlus other) {
         if (p != other.p) {
             throw new IllegalArgumentException();
@@ -457,6 +471,34 @@ public final class HyperLogLogPlusPlus {
 
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        HyperLogLogPlusPlus that = (HyperLogLogPlusPlus) o;
+        if (p != that.p || algorithm != that.algorithm) {
+            return false;
+        }
+        if (algorithm == LINEAR_COUNTING) {
+            // The position of a hash within the set depends on the insertion order
+            int[] values = hashSet.values();
+            int[] otherValues = that.hashSet.values();
+            Arrays.sort(values);
+            Arrays.sort(otherValues);
+            return Arrays.equals(values, otherValues);
+        }
+        return ByteBufUtil.equals(runLens, 0, that.runLens, 0, m);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * p + Boolean.hashCode(algorithm);
+    }
+
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVInt(p);
         if (algorithm == LINEAR_COUNTING) {
@@ -24,8 +24,13 @@ import io.crate.Streamer;
 import io.crate.breaker.RamAccounting;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.execution.engine.aggregation.impl.BinaryDocValueAggregator;
 import io.crate.execution.engine.aggregation.impl.HyperLogLogPlusPlus;
+import io.crate.execution.engine.aggregation.impl.SortedNumericDocValueAggregator;
+import io.crate.expression.symbol.Literal;
 import io.crate.memory.MemoryManager;
+import io.crate.memory.OnHeapMemoryManager;
 import io.crate.metadata.functions.Signature;
 import io.crate.module.EnterpriseFunctionsModule;
 import io.crate.types.BooleanType;
@@ -40,16 +45,22 @@ import io.crate.types.LongType;
 import io.crate.types.ShortType;
 import io.crate.types.StringType;
 import io.crate.types.TimestampType;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.hash.MurmurHash3;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.index.mapper.MappedFieldType;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
 
 public class HyperLogLogDistinctAggregation extends AggregationFunction<HyperLogLogDistinctAggregation.HllState, Long> {
 
@@ -133,6 +144,11 @@ public class HyperLogLogDistinctAggregation extends AggregationFunction<HyperLog
         return state1;
     }
 
+    @Override
+    public void releaseState(HllState state, MemoryManager memoryManager) {
+        state.release(memoryManager);
+    }
+
     @Override
     public Long terminatePartial(RamAccounting ramAccounting, HllState state) {
         if (state.isInitialized()) {
@@ -156,14 +172,72 @@ public class HyperLogLogDistinctAggregation extends AggregationFunction<HyperLog
         return boundSignature;
     }
 
+    @Nullable
+    @Override
+    public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes,
+                                                       List<MappedFieldType> fieldTypes,
+                                                       List<Literal<?>> optionalParams,
+                                                       Version minNodeVersion) {
+        if (fieldTypes.size() != 1 || optionalParams.size() > 1) {
+            return null;
+        }
+        final int precision;
+        if (optionalParams.isEmpty()) {
+            precision = HyperLogLogPlusPlus.DEFAULT_PRECISION;
+        } else {
+            Integer value = DataTypes.INTEGER.sanitizeValue(optionalParams.get(0).value());
+            if (value == null || value < HyperLogLogPlusPlus.MIN_PRECISION || value > HyperLogLogPlusPlus.MAX_PRECISION) {
+                // Let the regular aggregation raise the error once it sees the first row
+                return null;
+            }
+            precision = value;
+        }
+        boolean allOn4_1 = minNodeVersion.onOrAfter(Version.V_4_1_0);
+        Function<RamAccounting, HllState> stateInitializer = ramAccounting -> {
+            HllState state = new HllState(dataType, allOn4_1);
+            state.init(new OnHeapMemoryManager(ramAccounting::addBytes), precision);
+            return state;
+        };
+        switch (dataType.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+                return new SortedNumericDocValueAggregator<>(
+                    fieldTypes.get(0).name(),
+                    stateInitializer,
+                    (values, state) -> state.addLong(values.nextValue())
+                );
+            case FloatType.ID:
+                return new SortedNumericDocValueAggregator<>(
+                    fieldTypes.get(0).name(),
+                    stateInitializer,
+                    (values, state) -> state.addDouble(NumericUtils.sortableIntToFloat((int) values.nextValue()))
+                );
+            case DoubleType.ID:
+                return new SortedNumericDocValueAggregator<>(
+                    fieldTypes.get(0).name(),
+                    stateInitializer,
+                    (values, state) -> state.addDouble(NumericUtils.sortableLongToDouble(values.nextValue()))
+                );
+            case StringType.ID:
+                return new BinaryDocValueAggregator<>(
+                    fieldTypes.get(0).name(),
+                    stateInitializer,
+                    (values, state) -> state.addBytes(values.nextValue())
+                );
+            default:
+                return null;
+        }
+    }
+
     public static class HllState implements Comparable<HllState>, Writeable {
 
         private final DataType<?> dataType;
         private final Murmur3Hash murmur3Hash;
         private final boolean allOn4_1;
 
-        // Although HyperLogLogPlus implements Releasable we do not close instances.
-        // We're using BigArrays.NON_RECYCLING_INSTANCE and instances created using it are not accounted / recycled
         private HyperLogLogPlusPlus hyperLogLogPlusPlus;
 
         HllState(DataType<?> dataType, boolean allOn4_1) {
@@ -198,10 +272,40 @@ public class HyperLogLogDistinctAggregation extends AggregationFunction<HyperLog
             return hyperLogLogPlusPlus != null;
         }
 
+        /**
+         * Releases the memory allocated in {@link #init(MemoryManager, int)}, keeping a heap copy of the sketch.
+         */
+        void release(MemoryManager memoryManager) {
+            if (hyperLogLogPlusPlus != null) {
+                hyperLogLogPlusPlus.detach(memoryManager::release);
+            }
+        }
+
         void add(Object value) {
             hyperLogLogPlusPlus.collect(murmur3Hash.hash(value));
         }
 
+        /**
+         * Like {@link #add(Object)} for types which are hashed as long, without boxing the value.
+         */
+        void addLong(long value) {
+            hyperLogLogPlusPlus.collect(Murmur3Hash.Long.hashLong(value));
+        }
+
+        /**
+         * Like {@link #add(Object)} for types which are hashed as double, without boxing the value.
+         */
+        void addDouble(double value) {
+            hyperLogLogPlusPlus.collect(Murmur3Hash.Double.hashDouble(value));
+        }
+
+        /**
+         * Like {@link #add(Object)} for types which are hashed by their UTF-8 bytes, without decoding them.
+         */
+        void addBytes(BytesRef value) {
+            hyperLogLogPlusPlus.collect(murmur3Hash.hash(value));
+        }
+
         void merge(HllState state) {
             hyperLogLogPlusPlus.merge(state.hyperLogLogPlusPlus);
         }
@@ -215,6 +319,24 @@ public class HyperLogLogDistinctAggregation extends AggregationFunction<HyperLog
             return java.lang.Long.compare(hyperLogLogPlusPlus.cardinality(), o.hyperLogLogPlusPlus.cardinality());
         }
 
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            HllState that = (HllState) o;
+            return dataType.equals(that.dataType) &&
+                   Objects.equals(hyperLogLogPlusPlus, that.hyperLogLogPlusPlus);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dataType, hyperLogLogPlusPlus);
+        }
+
         @Override
         public String toString() {
             return String.valueOf(value());
@@ -315,13 +437,24 @@ public class HyperLogLogDistinctAggregation extends AggregationFunction<HyperLog
 
         abstract long hash(Object val);
 
+        /**
+         * Hashes the UTF-8 bytes of a value, equal to {@link #hash(Object)} of the decoded string.
+         */
+        long hash(BytesRef bytes) {
+            throw new UnsupportedOperationException(getClass().getSimpleName() + " cannot hash bytes");
+        }
+
         private static class Long extends Murmur3Hash {
 
             private static final Long INSTANCE = new Long();
 
+            static long hashLong(long val) {
+                return BitMixer.mix64(val);
+            }
+
             @Override
             long hash(Object val) {
-                return BitMixer.mix64(DataTypes.LONG.sanitizeValue(val));
+                return hashLong(DataTypes.LONG.sanitizeValue(val));
             }
         }
 
@@ -329,10 +462,13 @@ public class HyperLogLogDistinctAggregation extends AggregationFunction<HyperLog
 
             private static final Double INSTANCE = new Double();
 
+            static long hashDouble(double val) {
+                return BitMixer.mix64(java.lang.Double.doubleToLongBits(val));
+            }
+
             @Override
             long hash(Object val) {
-                return BitMixer.mix64(
-                    java.lang.Double.doubleToLongBits(DataTypes.DOUBLE.sanitizeValue(val)));
+                return hashDouble(DataTypes.DOUBLE.sanitizeValue(val));
             }
         }
 
@@ -345,6 +481,11 @@ public class HyperLogLogDistinctAggregation extends AggregationFunction<HyperLog
                 byte[] bytes = DataTypes.STRING.implicitCast(val).getBytes(StandardCharsets.UTF_8);
                 return MurmurHash3.hash64(bytes, bytes.length);
             }
+
+            @Override
+            long hash(BytesRef bytes) {
+                return MurmurHash3.hash64(bytes);
+            }
         }
 
         static class Bytes extends Murmur3Hash {
@@ -357,6 +498,12 @@ public class HyperLogLogDistinctAggregation extends AggregationFunction<HyperLog
                 MurmurHash3.hash128(bytes, 0, bytes.length, 0, hash);
                 return hash.h1;
             }
+
+            @Override
+            long hash(BytesRef bytes) {
+                MurmurHash3.hash128(bytes.bytes, bytes.offset, bytes.length, 0, hash);
+                return hash.h1;
+            }
         }
     }
 }
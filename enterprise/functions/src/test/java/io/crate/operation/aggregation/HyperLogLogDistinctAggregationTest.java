@@ -19,24 +19,58 @@
 package io.crate.operation.aggregation;
 
 import io.crate.Streamer;
+import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.execution.engine.aggregation.AggregationContext;
+import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.execution.engine.aggregation.GroupingProjector;
 import io.crate.execution.engine.aggregation.impl.HyperLogLogPlusPlus;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.InputColumn;
 import io.crate.expression.symbol.Literal;
+import io.crate.memory.OnHeapMemoryManager;
 import io.crate.metadata.FunctionImplementation;
 import io.crate.metadata.SearchPath;
 import io.crate.metadata.functions.Signature;
 import io.crate.module.EnterpriseFunctionsModule;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import io.crate.testing.TestingBatchIterators;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.junit.Before;
 import org.junit.Test;
 
 import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import static io.crate.testing.TestingHelpers.createNodeContext;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class HyperLogLogDistinctAggregationTest extends AggregationTest {
 
@@ -149,6 +183,105 @@ public class HyperLogLogDistinctAggregationTest extends AggregationTest {
             is(6044143379282500354L));
     }
 
+    @Test
+    public void test_hash_of_bytes_equals_hash_of_decoded_string() {
+        BytesRef bytes = new BytesRef("__foo__".getBytes(StandardCharsets.UTF_8), 2, 3);
+        for (boolean allOn4_1 : new boolean[] {true, false}) {
+            var murmur3Hash = HyperLogLogDistinctAggregation.Murmur3Hash.getForType(DataTypes.STRING, allOn4_1);
+            assertThat(murmur3Hash.hash(bytes), is(murmur3Hash.hash("foo")));
+        }
+    }
+
+    @Test
+    public void test_function_implements_doc_values_aggregator_for_numeric_and_string_types() {
+        for (var dataType : List.of(
+            DataTypes.BYTE,
+            DataTypes.SHORT,
+            DataTypes.INTEGER,
+            DataTypes.LONG,
+            DataTypes.TIMESTAMPZ,
+            DataTypes.FLOAT,
+            DataTypes.DOUBLE,
+            DataTypes.STRING)) {
+            assertHasDocValueAggregator(HyperLogLogDistinctAggregation.NAME, List.of(dataType));
+        }
+    }
+
+    @Test
+    public void test_doc_values_state_equals_row_state_for_long_values() throws Exception {
+        assertDocValuesStateEqualsRowState(
+            DataTypes.LONG,
+            value -> new SortedNumericDocValuesField("x", (Long) value),
+            1L, 2L, 2L, Long.MIN_VALUE, Long.MAX_VALUE
+        );
+    }
+
+    @Test
+    public void test_doc_values_state_equals_row_state_for_double_values() throws Exception {
+        assertDocValuesStateEqualsRowState(
+            DataTypes.DOUBLE,
+            value -> new SortedNumericDocValuesField("x", NumericUtils.doubleToSortableLong((Double) value)),
+            0.5d, -1.25d, 0.5d, Double.MAX_VALUE
+        );
+    }
+
+    @Test
+    public void test_doc_values_state_equals_row_state_for_string_values() throws Exception {
+        assertDocValuesStateEqualsRowState(
+            DataTypes.STRING,
+            value -> new SortedSetDocValuesField("x", new BytesRef((String) value)),
+            "foo", "bar", "foo", "ü"
+        );
+    }
+
+    /**
+     * Aggregates the values via the DocValueAggregator and via the regular aggregation,
+     * and asserts that both result in the same partial state.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void assertDocValuesStateEqualsRowState(DataType<?> dataType,
+                                                    Function<Object, IndexableField> toField,
+                                                    Object... values) throws Exception {
+        var function = (AggregationFunction) nodeCtx.functions().get(
+            null,
+            HyperLogLogDistinctAggregation.NAME,
+            List.of(new InputColumn(0, dataType)),
+            SearchPath.pathWithPGCatalogAndDoc()
+        );
+        MappedFieldType fieldType = mock(MappedFieldType.class);
+        when(fieldType.name()).thenReturn("x");
+        var docValueAggregator = (DocValueAggregator) function.getDocValueAggregator(
+            List.of(dataType),
+            List.of(fieldType),
+            List.of(),
+            Version.CURRENT
+        );
+        assertThat(docValueAggregator, notNullValue());
+
+        Object rowState = function.newState(RAM_ACCOUNTING, Version.CURRENT, Version.CURRENT, memoryManager);
+        try (var directory = new ByteBuffersDirectory();
+             var writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (Object value : values) {
+                Document doc = new Document();
+                doc.add(toField.apply(value));
+                writer.addDocument(doc);
+                Input<Object> input = () -> value;
+                rowState = function.iterate(RAM_ACCOUNTING, memoryManager, rowState, input);
+            }
+            writer.commit();
+            try (var reader = DirectoryReader.open(writer)) {
+                Object docValuesState = docValueAggregator.initialState(RAM_ACCOUNTING);
+                for (LeafReaderContext leaf : reader.leaves()) {
+                    docValueAggregator.loadDocValues(leaf.reader());
+                    for (int doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+                        docValueAggregator.apply(RAM_ACCOUNTING, doc, docValuesState);
+                    }
+                }
+                assertThat(docValueAggregator.partialResult(RAM_ACCOUNTING, docValuesState), is(rowState));
+            }
+        }
+    }
+
     @Test
     public void testStreaming() throws Exception {
         HyperLogLogDistinctAggregation.HllState hllState1 = new HyperLogLogDistinctAggregation.HllState(DataTypes.IP, true);
@@ -163,4 +296,44 @@ public class HyperLogLogDistinctAggregationTest extends AggregationTest {
         hllState2.add("127.0.0.1");
         assertThat(hllState2.value(), is(hllState1.value()));
     }
+
+    @Test
+    public void test_states_of_flushed_partial_groups_are_released() throws Exception {
+        int numGroups = 1_000;
+        long bytesPerState = HyperLogLogPlusPlus.memoryUsage(HyperLogLogPlusPlus.DEFAULT_PRECISION);
+        AtomicLong usedBytes = new AtomicLong();
+        AtomicLong peakBytes = new AtomicLong();
+        var memoryManager = new OnHeapMemoryManager(
+            bytes -> peakBytes.accumulateAndGet(usedBytes.addAndGet(bytes), Math::max));
+        var function = (AggregationFunction<?, ?>) nodeCtx.functions().get(
+            null,
+            HyperLogLogDistinctAggregation.NAME,
+            List.of(new InputColumn(0, DataTypes.INTEGER)),
+            SearchPath.pathWithPGCatalogAndDoc()
+        );
+        InputCollectExpression key = new InputCollectExpression(0);
+        InputCollectExpression value = new InputCollectExpression(0);
+        var projector = new GroupingProjector(
+            List.of(new InputColumn(0, DataTypes.INTEGER)),
+            List.of(key),
+            new CollectExpression[] {key, value},
+            AggregateMode.ITER_PARTIAL,
+            new AggregationContext[] {new AggregationContext(function, Literal.BOOLEAN_TRUE, List.of(value))},
+            new ConcurrentRamAccounting(bytes -> {}, bytes -> {}),
+            memoryManager,
+            Version.CURRENT,
+            Version.CURRENT,
+            1024L
+        );
+        BatchIterator<Row> it = projector.apply(TestingBatchIterators.range(0, numGroups));
+        int numRows = 0;
+        while (it.moveNext()) {
+            numRows++;
+        }
+        it.close();
+
+        assertThat(numRows, is(numGroups));
+        assertThat(peakBytes.get(), lessThan(numGroups * bytesPerState / 10));
+        assertThat(usedBytes.get(), is(0L));
+    }
 }
@@ -19,6 +19,7 @@
 package io.crate.operation.language;
 
 import io.crate.expression.udf.UDFLanguage;
+import io.crate.common.annotations.VisibleForTesting;
 import io.crate.expression.udf.UserDefinedFunctionMetadata;
 import io.crate.expression.udf.UserDefinedFunctionService;
 import io.crate.metadata.Scalar;
@@ -35,7 +36,9 @@ import org.graalvm.polyglot.Value;
 import javax.annotation.Nullable;
 import javax.script.ScriptException;
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 public class JavaScriptLanguage implements UDFLanguage {
@@ -50,6 +53,8 @@ public class JavaScriptLanguage implements UDFLanguage {
         .allowArrayAccess(true)
         .build();
 
+    private final PolyglotContextPool contextPool = new PolyglotContextPool();
+
     @Inject
     public JavaScriptLanguage(UserDefinedFunctionService udfService) {
         udfService.registerLanguage(this);
@@ -57,13 +62,13 @@ public class JavaScriptLanguage implements UDFLanguage {
 
     public Scalar createFunctionImplementation(UserDefinedFunctionMetadata meta,
                                                Signature signature) throws ScriptException {
-        return new JavaScriptUserDefinedFunction(signature, meta.definition());
+        return new JavaScriptUserDefinedFunction(signature, meta.definition(), contextPool);
     }
 
     @Nullable
     public String validate(UserDefinedFunctionMetadata meta) {
-        try {
-            resolvePolyglotFunctionValue(meta.name(), meta.definition());
+        try (var context = newContext()) {
+            evalFunction(context, meta.name(), meta.definition());
             return null;
         } catch (IllegalArgumentException | IOException | PolyglotException t) {
             return String.format(Locale.ENGLISH, "Invalid JavaScript in function '%s.%s(%s)' AS '%s': %s",
@@ -76,11 +81,26 @@ public class JavaScriptLanguage implements UDFLanguage {
         }
     }
 
-    static Value resolvePolyglotFunctionValue(String functionName, String script) throws IOException {
-        var context = Context.newBuilder("js")
+    @Override
+    public void updateFunctions(String schema, Map<Signature, UserDefinedFunctionMetadata> functions) {
+        Map<Signature, String> scripts = new HashMap<>();
+        for (Map.Entry<Signature, UserDefinedFunctionMetadata> entry : functions.entrySet()) {
+            UserDefinedFunctionMetadata udf = entry.getValue();
+            if (NAME.equals(udf.language())) {
+                scripts.put(entry.getKey(), udf.definition());
+            }
+        }
+        contextPool.invalidate(schema, scripts);
+    }
+
+    static Context newContext() {
+        return Context.newBuilder("js")
             .engine(ENGINE)
             .allowHostAccess(HOST_ACCESS)
             .build();
+    }
+
+    static Value evalFunction(Context context, String functionName, String script) throws IOException {
         var source = Source.newBuilder("js", script, functionName).build();
         context.eval(source);
         var polyglotFunctionValue = context.getBindings("js").getMember(functionName);
@@ -95,4 +115,9 @@ public class JavaScriptLanguage implements UDFLanguage {
     public String name() {
         return NAME;
     }
+
+    @VisibleForTesting
+    PolyglotContextPool contextPool() {
+        return contextPool;
+    }
 }
@@ -21,6 +21,7 @@ package io.crate.operation.language;
 import io.crate.common.collections.Lists2;
 import io.crate.data.Input;
 import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.BatchScalar;
 import io.crate.metadata.NodeContext;
 import io.crate.metadata.Scalar;
 import io.crate.metadata.TransactionContext;
@@ -29,29 +30,34 @@ import io.crate.types.DataType;
 import io.crate.types.TypeSignature;
 import org.graalvm.polyglot.PolyglotException;
 import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
-import static io.crate.operation.language.JavaScriptLanguage.resolvePolyglotFunctionValue;
-
-public class JavaScriptUserDefinedFunction extends Scalar<Object, Object> {
+public class JavaScriptUserDefinedFunction extends Scalar<Object, Object> implements BatchScalar<Object, Object> {
 
     private final Signature signature;
     private final String script;
+    private final PolyglotContextPool contextPool;
+    private final List<DataType<?>> argumentTypes;
+    private final DataType<?> returnType;
 
-    JavaScriptUserDefinedFunction(Signature signature, String script) {
+    JavaScriptUserDefinedFunction(Signature signature, String script, PolyglotContextPool contextPool) {
         this.signature = signature;
         this.script = script;
+        this.contextPool = contextPool;
+        this.argumentTypes = Lists2.map(signature.getArgumentTypes(), TypeSignature::createType);
+        this.returnType = signature.getReturnType().createType();
     }
 
     @Override
     public Scalar<Object, Object> compile(List<Symbol> arguments) {
         try {
-            return new CompiledFunction(
-                resolvePolyglotFunctionValue(
-                    signature.getName().name(),
-                    script));
+            // Evaluates the script upfront in the context of the current thread to fail early on errors
+            contextPool.execute(signature, script, function -> null);
+            return new CompiledFunction();
         } catch (PolyglotException | IOException e) {
             // this should not happen if the script was validated upfront
             throw new io.crate.exceptions.ScriptException(
@@ -65,14 +71,12 @@ public class JavaScriptUserDefinedFunction extends Scalar<Object, Object> {
     @Override
     public Object evaluate(TransactionContext txnCtx, NodeContext nodeCtx, Input<Object>[] args) {
         try {
-            var function = resolvePolyglotFunctionValue(signature.getName().name(), script);
-            Object[] polyglotValueArgs = PolyglotValuesConverter.toPolyglotValues(
-                args,
-                Lists2.map(signature.getArgumentTypes(), TypeSignature::createType)
+            Object[] polyglotValueArgs = PolyglotValuesConverter.toPolyglotValues(args, argumentTypes);
+            return contextPool.execute(
+                signature,
+                script,
+                function -> toCrateObject(function.execute(polyglotValueArgs), returnType)
             );
-            return PolyglotValuesConverter.toCrateObject(
-                function.execute(polyglotValueArgs),
-                signature.getReturnType().createType());
         } catch (PolyglotException | IOException e) {
             throw new io.crate.exceptions.ScriptException(
                 e.getLocalizedMessage(),
@@ -82,6 +86,37 @@ public class JavaScriptUserDefinedFunction extends Scalar<Object, Object> {
         }
     }
 
+    /**
+     * Evaluates the function for many rows with a single invocation of the script, which receives the argument tuples
+     * as an array. Returns the results in the order of the given rows.
+     */
+    @Override
+    public List<Object> evaluateBatch(TransactionContext txnCtx, NodeContext nodeCtx, List<Input<Object>[]> rows) {
+        Object[] tuples = new Object[rows.size()];
+        for (int i = 0; i < tuples.length; i++) {
+            tuples[i] = ProxyArray.fromArray(PolyglotValuesConverter.toPolyglotValues(rows.get(i), argumentTypes));
+        }
+        try {
+            return contextPool.executeBatch(
+                signature,
+                script,
+                ProxyArray.fromArray(tuples),
+                results -> {
+                    List<Object> values = new ArrayList<>(tuples.length);
+                    for (int i = 0; i < tuples.length; i++) {
+                        values.add(toCrateObject(results.getArrayElement(i), returnType));
+                    }
+                    return values;
+                }
+            );
+        } catch (PolyglotException | IOException e) {
+            throw new io.crate.exceptions.ScriptException(
+                e.getLocalizedMessage(),
+                e,
+                JavaScriptLanguage.NAME
+            );
+        }
+    }
 
     @Override
     public Signature signature() {
@@ -93,31 +128,20 @@ public class JavaScriptUserDefinedFunction extends Scalar<Object, Object> {
         return signature();
     }
 
-    private class CompiledFunction extends Scalar<Object, Object> {
-
-        private final Value function;
+    /**
+     * Evaluates the function with the context of the current thread, like the not compiled function, but without
+     * checking upfront whether the script is valid.
+     */
+    private class CompiledFunction extends Scalar<Object, Object> implements BatchScalar<Object, Object> {
 
-        private CompiledFunction(Value function) {
-            this.function = function;
+        @Override
+        public final Object evaluate(TransactionContext txnCtx, NodeContext nodeCtx, Input<Object>[] args) {
+            return JavaScriptUserDefinedFunction.this.evaluate(txnCtx, nodeCtx, args);
         }
 
         @Override
-        public final Object evaluate(TransactionContext txnCtx, NodeContext nodeCtx, Input<Object>[] args) {
-            Object[] polyglotValueArgs = PolyglotValuesConverter.toPolyglotValues(
-                args,
-                Lists2.map(signature.getArgumentTypes(), TypeSignature::createType)
-            );
-            try {
-                return toCrateObject(
-                    function.execute(polyglotValueArgs),
-                    signature.getReturnType().createType());
-            } catch (PolyglotException e) {
-                throw new io.crate.exceptions.ScriptException(
-                    e.getLocalizedMessage(),
-                    e,
-                    JavaScriptLanguage.NAME
-                );
-            }
+        public List<Object> evaluateBatch(TransactionContext txnCtx, NodeContext nodeCtx, List<Input<Object>[]> rows) {
+            return JavaScriptUserDefinedFunction.this.evaluateBatch(txnCtx, nodeCtx, rows);
         }
 
         @Override
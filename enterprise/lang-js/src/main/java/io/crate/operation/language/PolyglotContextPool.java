@@ -0,0 +1,196 @@
+/*
+ * This file is part of a module with proprietary Enterprise Features.
+ *
+ * Licensed to Crate.io Inc. ("Crate.io") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.
+ *
+ * Unauthorized copying of this file, via any medium is strictly prohibited.
+ *
+ * To use this file, Crate.io must have given you permission to enable and
+ * use such Enterprise Features and you must have a valid Enterprise or
+ * Subscription Agreement with Crate.io.  If you enable or use the Enterprise
+ * Features, you represent and warrant that you have a valid Enterprise or
+ * Subscription Agreement with Crate.io.  Your use of the Enterprise Features
+ * if governed by the terms and conditions of your Enterprise or Subscription
+ * Agreement with Crate.io.
+ */
+
+package io.crate.operation.language;
+
+import io.crate.common.annotations.VisibleForTesting;
+import io.crate.metadata.functions.Signature;
+import org.graalvm.polyglot.Context;
+import org.graalvm.polyglot.Value;
+import org.graalvm.polyglot.proxy.ProxyArray;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Keeps the evaluated scripts of JavaScript functions per thread.
+ *
+ * A polyglot {@link Context} must not be used by multiple threads at the same time and creating a context and
+ * evaluating the script of a function is much more expensive than invoking the function. Each thread therefore keeps
+ * its own contexts, one per function, which are reused as long as the definition of the function does not change.
+ *
+ * Contexts of dropped or replaced functions are closed by {@link #invalidate(String, Map)}, which is called with the
+ * current functions of a schema whenever the user-defined functions change.
+ */
+final class PolyglotContextPool {
+
+    private static final int MAX_FUNCTIONS_PER_THREAD = 64;
+
+    /**
+     * Applies a function to each of the given argument tuples and returns the results as an array, so that a batch of
+     * rows crosses into the guest language only once.
+     */
+    private static final String BATCH_FUNCTION =
+        "(function (fn, tuples) {\n" +
+        "    var results = new Array(tuples.length);\n" +
+        "    for (var i = 0; i < tuples.length; i++) {\n" +
+        "        results[i] = fn.apply(null, Array.from(tuples[i]));\n" +
+        "    }\n" +
+        "    return results;\n" +
+        "})";
+
+    /**
+     * The functions of all threads, so that they can be closed by any thread once they are invalidated
+     */
+    private final Set<PooledFunction> pooledFunctions = ConcurrentHashMap.newKeySet();
+
+    private final ThreadLocal<Map<Signature, PooledFunction>> functions = ThreadLocal.withInitial(
+        () -> new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Signature, PooledFunction> eldest) {
+                if (size() > MAX_FUNCTIONS_PER_THREAD) {
+                    close(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        });
+
+    /**
+     * Invokes the function of the given signature and script, evaluated in a context of the current thread.
+     * The function and the values created from it must only be used within the invocation, the context may be closed
+     * afterwards.
+     */
+    <T> T execute(Signature signature, String script, Function<Value, T> invocation) throws IOException {
+        while (true) {
+            PooledFunction pooledFunction = pooledFunction(signature, script);
+            synchronized (pooledFunction) {
+                if (!pooledFunction.closed) {
+                    return invocation.apply(pooledFunction.function);
+                }
+            }
+            // The function has been invalidated concurrently, its context is evaluated again
+        }
+    }
+
+    /**
+     * Invokes the function of the given signature and script once for all argument tuples, like
+     * {@link #execute(Signature, String, Function)}. The invocation receives the results as an array.
+     */
+    <T> T executeBatch(Signature signature,
+                       String script,
+                       ProxyArray tuples,
+                       Function<Value, T> invocation) throws IOException {
+        while (true) {
+            PooledFunction pooledFunction = pooledFunction(signature, script);
+            synchronized (pooledFunction) {
+                if (!pooledFunction.closed) {
+                    if (pooledFunction.batchFunction == null) {
+                        pooledFunction.batchFunction = pooledFunction.context.eval("js", BATCH_FUNCTION);
+                    }
+                    return invocation.apply(pooledFunction.batchFunction.execute(pooledFunction.function, tuples));
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the contexts of all functions of the schema whose definition is not contained in the given functions.
+     *
+     * @param scripts the scripts of the current functions of the schema by their signature
+     */
+    void invalidate(String schema, Map<Signature, String> scripts) {
+        for (PooledFunction pooledFunction : pooledFunctions) {
+            Signature signature = pooledFunction.signature;
+            if (schema.equals(signature.getName().schema())
+                && !pooledFunction.script.equals(scripts.get(signature))) {
+                close(pooledFunction);
+            }
+        }
+    }
+
+    /**
+     * @return the number of open contexts of all threads for functions of the given schema
+     */
+    @VisibleForTesting
+    int numContexts(String schema) {
+        int numContexts = 0;
+        for (PooledFunction pooledFunction : pooledFunctions) {
+            if (schema.equals(pooledFunction.signature.getName().schema())) {
+                numContexts++;
+            }
+        }
+        return numContexts;
+    }
+
+    private PooledFunction pooledFunction(Signature signature, String script) throws IOException {
+        Map<Signature, PooledFunction> functionsOfThread = functions.get();
+        PooledFunction pooledFunction = functionsOfThread.get(signature);
+        if (pooledFunction != null) {
+            if (!pooledFunction.closed && pooledFunction.script.equals(script)) {
+                return pooledFunction;
+            }
+            // The function has been dropped or replaced, the old definition is never used again
+            functionsOfThread.remove(signature);
+            close(pooledFunction);
+        }
+        Context context = JavaScriptLanguage.newContext();
+        try {
+            Value function = JavaScriptLanguage.evalFunction(context, signature.getName().name(), script);
+            pooledFunction = new PooledFunction(signature, script, context, function);
+        } catch (IOException | RuntimeException e) {
+            context.close();
+            throw e;
+        }
+        pooledFunctions.add(pooledFunction);
+        functionsOfThread.put(signature, pooledFunction);
+        return pooledFunction;
+    }
+
+    private void close(PooledFunction pooledFunction) {
+        pooledFunctions.remove(pooledFunction);
+        synchronized (pooledFunction) {
+            if (!pooledFunction.closed) {
+                pooledFunction.closed = true;
+                pooledFunction.context.close();
+            }
+        }
+    }
+
+    private static final class PooledFunction {
+
+        private final Signature signature;
+        private final String script;
+        private final Context context;
+        private final Value function;
+        private Value batchFunction;
+        private volatile boolean closed = false;
+
+        private PooledFunction(Signature signature, String script, Context context, Value function) {
+            this.signature = signature;
+            this.script = script;
+            this.context = context;
+            this.function = function;
+        }
+    }
+}
@@ -35,6 +35,7 @@ import java.util.Collection;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.greaterThan;
 
 @ESIntegTestCase.ClusterScope(numDataNodes = 2, numClientNodes = 0)
 public class JavaScriptUDFIntegrationTest extends SQLTransportIntegrationTest {
@@ -74,6 +75,27 @@ public class JavaScriptUDFIntegrationTest extends SQLTransportIntegrationTest {
         assertThat(response.rows()[1][0], is(3L));
     }
 
+    @Test
+    public void test_pooled_contexts_are_closed_if_the_only_function_of_a_schema_is_dropped() throws Exception {
+        execute("CREATE FUNCTION udf_only.add_one(LONG) " +
+                "RETURNS LONG LANGUAGE JAVASCRIPT AS 'function add_one(x) { return x + 1; }'");
+        assertFunctionIsCreatedOnAll("udf_only", "add_one", List.of(DataTypes.LONG));
+        execute("SELECT udf_only.add_one(a) FROM test ORDER BY a ASC");
+        assertThat(TestingHelpers.printedTable(response.rows()), is("6\n11\n"));
+        assertThat(numContexts("udf_only"), greaterThan(0));
+
+        execute("DROP FUNCTION udf_only.add_one(LONG)");
+        assertBusy(() -> assertThat(numContexts("udf_only"), is(0)));
+    }
+
+    private static int numContexts(String schema) {
+        int numContexts = 0;
+        for (JavaScriptLanguage language : internalCluster().getInstances(JavaScriptLanguage.class)) {
+            numContexts += language.contextPool().numContexts(schema);
+        }
+        return numContexts;
+    }
+
     @Test
     public void testBuiltinFunctionOverloadWithOrderBy() throws Exception {
         // this is a regression test that shows that the correct user-defined function implementations are returned
@@ -19,13 +19,16 @@
 package io.crate.operation.language;
 
 import io.crate.analyze.FunctionArgumentDefinition;
+import io.crate.data.Input;
 import io.crate.expression.scalar.AbstractScalarFunctionsTest;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.udf.UserDefinedFunctionMetadata;
 import io.crate.expression.udf.UserDefinedFunctionService;
 import io.crate.metadata.FunctionProvider;
 import io.crate.metadata.FunctionName;
+import io.crate.metadata.Scalar;
 import io.crate.metadata.Schemas;
+import io.crate.metadata.functions.Signature;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.elasticsearch.cluster.service.ClusterService;
@@ -37,11 +40,13 @@ import org.locationtech.spatial4j.shape.impl.PointImpl;
 
 import javax.script.ScriptException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static io.crate.testing.SymbolMatchers.isLiteral;
 import static org.hamcrest.Matchers.containsString;
@@ -377,4 +382,63 @@ public class JavascriptUserDefinedFunctionTest extends AbstractScalarFunctionsTe
             "function f(a) { return a.type; }");
         assertEvaluate("f('POINT(1 2)')", is("Point"));
     }
+
+    @Test
+    public void test_function_is_evaluated_with_the_new_definition_after_it_was_replaced() {
+        var contextPool = new PolyglotContextPool();
+        var signature = Signature.scalar(
+            new FunctionName(Schemas.DOC_SCHEMA_NAME, "f"),
+            DataTypes.INTEGER.getTypeSignature());
+        var function = new JavaScriptUserDefinedFunction(signature, "function f() { return 1; }", contextPool);
+        assertThat(function.evaluate(txnCtx, sqlExpressions.nodeCtx), is(1));
+        assertThat(function.compile(List.of()).evaluate(txnCtx, sqlExpressions.nodeCtx), is(1));
+
+        var replacedFunction = new JavaScriptUserDefinedFunction(signature, "function f() { return 2; }", contextPool);
+        assertThat(replacedFunction.evaluate(txnCtx, sqlExpressions.nodeCtx), is(2));
+        assertThat(replacedFunction.compile(List.of()).evaluate(txnCtx, sqlExpressions.nodeCtx), is(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_evaluate_batch_returns_result_for_each_argument_tuple() {
+        var signature = Signature.scalar(
+            new FunctionName(Schemas.DOC_SCHEMA_NAME, "add"),
+            DataTypes.LONG.getTypeSignature(),
+            DataTypes.LONG.getTypeSignature(),
+            DataTypes.LONG.getTypeSignature());
+        var function = new JavaScriptUserDefinedFunction(
+            signature,
+            "function add(a, b) { return b === null ? undefined : a + b; }",
+            new PolyglotContextPool());
+        List<Input<Object>[]> rows = List.of(
+            new Input[]{Literal.of(1L), Literal.of(2L)},
+            new Input[]{Literal.of(10L), Literal.of(DataTypes.LONG, null)},
+            new Input[]{Literal.of(-5L), Literal.of(5L)}
+        );
+        assertThat(function.evaluateBatch(txnCtx, sqlExpressions.nodeCtx, rows), is(Arrays.asList(3L, null, 0L)));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void test_pooled_context_is_closed_once_the_function_is_dropped() {
+        UserDefinedFunctionMetadata udf = new UserDefinedFunctionMetadata(
+            Schemas.DOC_SCHEMA_NAME,
+            "counter",
+            List.of(),
+            DataTypes.INTEGER,
+            JS,
+            "var n = 0; function counter() { n = n + 1; return n; }");
+        FunctionProvider provider = udfService.buildFunctionResolver(udf);
+        var function = (Scalar<Object, Object>) provider.getFactory().apply(
+            provider.getSignature(), provider.getSignature());
+        // The global state of the script lives as long as its context is pooled
+        assertThat(function.evaluate(txnCtx, sqlExpressions.nodeCtx), is(1));
+        assertThat(function.evaluate(txnCtx, sqlExpressions.nodeCtx), is(2));
+
+        udfService.updateImplementations(Schemas.DOC_SCHEMA_NAME, Stream.of(udf));
+        assertThat(function.evaluate(txnCtx, sqlExpressions.nodeCtx), is(3));
+
+        udfService.updateImplementations(Schemas.DOC_SCHEMA_NAME, Stream.of());
+        assertThat(function.evaluate(txnCtx, sqlExpressions.nodeCtx), is(1));
+    }
 }
@@ -22,6 +22,7 @@ import io.crate.action.sql.SQLOperations;
 import io.crate.auth.AlwaysOKNullAuthentication;
 import io.crate.auth.user.AccessControl;
 import io.crate.protocols.ssl.SslContextProvider;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.test.ESTestCase;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
@@ -57,6 +58,7 @@ public class SslReqHandlerTest extends ESTestCase {
                 mock(SQLOperations.class),
                 sessionContext -> AccessControl.DISABLED,
                 new AlwaysOKNullAuthentication(),
+                NoopCircuitBreaker::new,
                 // use a simple ssl context
                 getSelfSignedSslContextProvider());
 
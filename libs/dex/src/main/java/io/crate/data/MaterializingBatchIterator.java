@@ -0,0 +1,143 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+import io.crate.exceptions.Exceptions;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * BatchIterator which consumes a source that does all of its work within {@link BatchIterator#moveNext()}
+ * (like reading and parsing files) in {@link #loadNextBatch()} and materializes up to {@code batchSize} rows.
+ *
+ * <p>
+ * This moves the work of the source into {@code loadNextBatch} so that a composite like
+ * {@link CompositeBatchIterator#asyncComposite} can consume multiple of these sources concurrently.
+ * </p>
+ */
+public final class MaterializingBatchIterator implements BatchIterator<Row> {
+
+    private final BatchIterator<Row> source;
+    private final int batchSize;
+    private final ArrayList<Object[]> rows;
+    private final ArrayRow row = new ArrayRow();
+
+    private volatile Throwable killed = null;
+    private int idx = -1;
+    private boolean sourceExhausted = false;
+
+    public MaterializingBatchIterator(BatchIterator<Row> source, int batchSize) {
+        assert batchSize > 0 : "batchSize must be greater than 0";
+        this.source = source;
+        this.batchSize = batchSize;
+        this.rows = new ArrayList<>(batchSize);
+    }
+
+    @Override
+    public Row currentElement() {
+        return row;
+    }
+
+    @Override
+    public void moveToStart() {
+        raiseIfKilled();
+        source.moveToStart();
+        rows.clear();
+        idx = -1;
+        sourceExhausted = false;
+    }
+
+    @Override
+    public boolean moveNext() {
+        raiseIfKilled();
+        if (idx + 1 < rows.size()) {
+            idx++;
+            row.cells(rows.get(idx));
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        rows.clear();
+        source.close();
+        killed = BatchIterator.CLOSED;
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() throws Exception {
+        raiseIfKilled();
+        if (sourceExhausted) {
+            throw new IllegalStateException("BatchIterator already fully loaded");
+        }
+        rows.clear();
+        idx = -1;
+        return fill();
+    }
+
+    private CompletionStage<?> fill() throws Exception {
+        while (rows.size() < batchSize) {
+            if (source.moveNext()) {
+                rows.add(source.currentElement().materialize());
+            } else if (source.allLoaded()) {
+                sourceExhausted = true;
+                break;
+            } else {
+                return source.loadNextBatch().thenCompose(ignored -> {
+                    try {
+                        return fill();
+                    } catch (Exception e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                });
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return sourceExhausted;
+    }
+
+    @Override
+    public boolean hasLazyResultSet() {
+        return source.hasLazyResultSet();
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        killed = throwable;
+        source.kill(throwable);
+    }
+
+    private void raiseIfKilled() {
+        if (killed != null) {
+            Exceptions.rethrowUnchecked(killed);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.data;
+
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchIterators;
+import io.crate.testing.TestingRowConsumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class MaterializingBatchIteratorTest {
+
+    private final List<Object[]> expectedResult = IntStream.range(0, 10)
+        .mapToObj(i -> new Object[]{i})
+        .collect(Collectors.toList());
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testMaterializingBatchIterator() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new MaterializingBatchIterator(TestingBatchIterators.range(0, 10), 3)
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testMaterializingBatchIteratorWithPagedSource() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> new MaterializingBatchIterator(
+                new BatchSimulatingIterator<>(TestingBatchIterators.range(0, 10), 2, 5, executor), 3)
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testRowsAreOnlyReadFromSourceInLoadNextBatch() throws Exception {
+        BatchIterator<Row> source = TestingBatchIterators.range(0, 10);
+        MaterializingBatchIterator it = new MaterializingBatchIterator(source, 4);
+
+        assertThat(it.allLoaded(), is(false));
+        assertThat(it.moveNext(), is(false));
+
+        it.loadNextBatch().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        assertThat(it.moveNext(), is(true));
+        assertThat(it.currentElement().get(0), is(0));
+        assertThat(source.currentElement().get(0), is(3));
+
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(it, null);
+        assertThat(consumer.getResult().size(), is(9));
+    }
+}
@@ -184,7 +184,11 @@ public final class SqlFormatter {
             append(indent, "COPY ");
             copyFrom.table().accept(this, indent);
             append(indent, " FROM ");
-            copyFrom.path().accept(this, indent);
+            if (copyFrom.isFromStdin()) {
+                append(indent, "STDIN");
+            } else {
+                copyFrom.path().accept(this, indent);
+            }
             if (!copyFrom.properties().isEmpty()) {
                 append(indent, " ");
                 copyFrom.properties().accept(this, indent);
@@ -30,6 +30,7 @@ import io.crate.sql.tree.ArrayLiteral;
 import io.crate.sql.tree.Assignment;
 import io.crate.sql.tree.ComparisonExpression;
 import io.crate.sql.tree.CopyFrom;
+import io.crate.sql.tree.CopyTo;
 import io.crate.sql.tree.CreateFunction;
 import io.crate.sql.tree.CreateTable;
 import io.crate.sql.tree.CreateUser;
@@ -1067,6 +1068,8 @@ public class TestStatementBuilder {
         printStatement("copy schemah.foo from '/folder/file.extension'");
         printStatement("copy schemah.foo from '/folder/file.extension' return summary");
         printStatement("copy schemah.foo from '/folder/file.extension' with (some_property=1) return summary");
+        printStatement("copy foo from stdin");
+        printStatement("copy foo partition (a='x') from stdin with (format='csv')");
 
         printStatement("copy foo (nae) to '/folder/file.extension'");
         printStatement("copy foo to '/folder/file.extension'");
@@ -1077,6 +1080,23 @@ public class TestStatementBuilder {
         printStatement("copy foo partition (a=?) to DIRECTORY '/folder' with (some_param=4)");
 
         printStatement("copy foo where a = 'x' to DIRECTORY '/folder'");
+        printStatement("copy foo (a, b) where a = 'x' to stdout");
+        printStatement("copy foo to stdout with (format='json_array')");
+    }
+
+    @Test
+    public void testCopyFromStdinAndToStdout() {
+        CopyFrom<?> copyFrom = (CopyFrom<?>) SqlParser.createStatement("copy foo from stdin");
+        assertThat(copyFrom.isFromStdin(), is(true));
+        assertThat(copyFrom.path(), nullValue());
+
+        // STDIN is not reserved, so it can still be used as a column name
+        copyFrom = (CopyFrom<?>) SqlParser.createStatement("copy foo from \"stdin\"");
+        assertThat(copyFrom.isFromStdin(), is(false));
+
+        CopyTo<?> copyTo = (CopyTo<?>) SqlParser.createStatement("copy foo to stdout");
+        assertThat(copyTo.isToStdout(), is(true));
+        assertThat(copyTo.targetUri(), nullValue());
     }
 
     @Test
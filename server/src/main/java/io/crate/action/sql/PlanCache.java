@@ -0,0 +1,275 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.crate.analyze.AnalyzedStatement;
+import io.crate.analyze.relations.AnalyzedRelation;
+import io.crate.auth.user.User;
+import io.crate.metadata.SearchPath;
+import io.crate.planner.Plan;
+import io.crate.planner.optimizer.Rule;
+import io.crate.sql.tree.Statement;
+import io.crate.statistics.TableStats;
+import io.crate.types.DataType;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A node wide cache of analyzed SELECT statements and their plans, shared by all sessions.
+ * <p>
+ * Entries are keyed by the query text, the parameter types and the session settings which influence the analysis
+ * and planning. A plan is parameterized, the parameter values are only bound once the plan is executed.
+ * All entries are invalidated if the cluster metadata changes, as they may refer to tables, views, functions or
+ * privileges which no longer exist, and if the table statistics change, as the plans depend on them.
+ */
+@Singleton
+public class PlanCache extends AbstractLifecycleComponent implements ClusterStateListener {
+
+    public static final Setting<Integer> SIZE_SETTING = Setting.intSetting(
+        "node.sql.plan_cache.size",
+        1000,
+        0,
+        Setting.Property.NodeScope);
+
+    @Nullable
+    private final ClusterService clusterService;
+    @Nullable
+    private final TableStats tableStats;
+    private final Runnable onTableStatsUpdate = this::invalidateAll;
+    @Nullable
+    private final Cache<Key, Entry> cache;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    @Inject
+    public PlanCache(Settings settings, ClusterService clusterService, TableStats tableStats) {
+        this(SIZE_SETTING.get(settings), clusterService, tableStats);
+    }
+
+    PlanCache(int size, @Nullable ClusterService clusterService, @Nullable TableStats tableStats) {
+        this.clusterService = clusterService;
+        this.tableStats = tableStats;
+        if (size > 0) {
+            cache = CacheBuilder.newBuilder()
+                .maximumSize(size)
+                .build();
+        } else {
+            cache = null;
+        }
+    }
+
+    /**
+     * @return true if the statement is safe to be shared across sessions and executions.
+     */
+    static boolean isCacheable(AnalyzedStatement analyzedStatement) {
+        return analyzedStatement instanceof AnalyzedRelation && analyzedStatement.isWriteOperation() == false;
+    }
+
+    /**
+     * Looks up the analyzed statement for the given key.
+     * Each lookup is counted as hit or miss in the {@link #stats()}.
+     *
+     * @return the entry or null if the statement isn't cached or has been analyzed using an outdated metadata version.
+     */
+    @Nullable
+    Entry get(Key key, long metadataVersion) {
+        if (cache == null) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null || entry.metadataVersion != metadataVersion) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry;
+    }
+
+    /**
+     * Caches the analyzed statement if caching is enabled and the statement is cacheable.
+     *
+     * @return the cached entry or null if the statement hasn't been cached.
+     */
+    @Nullable
+    Entry put(Key key, Statement statement, AnalyzedStatement analyzedStatement, long metadataVersion) {
+        if (cache == null || isCacheable(analyzedStatement) == false) {
+            return null;
+        }
+        Entry entry = new Entry(statement, analyzedStatement, metadataVersion);
+        cache.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * Looks up the plan of a cached statement. The lookup isn't counted in the {@link #stats()}.
+     *
+     * @return the plan or null if it hasn't been created yet or the metadata has changed since the statement
+     *         was analyzed.
+     */
+    @Nullable
+    Plan getPlan(Entry entry, long metadataVersion) {
+        Plan plan = entry.plan;
+        if (plan == null || entry.metadataVersion != metadataVersion) {
+            return null;
+        }
+        return plan;
+    }
+
+    void putPlan(Entry entry, Plan plan, long metadataVersion) {
+        if (entry.metadataVersion == metadataVersion) {
+            entry.plan = plan;
+        }
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public PlanCacheStats stats() {
+        return new PlanCacheStats(cache == null ? 0L : cache.size(), hits.sum(), misses.sum());
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.metadataChanged()) {
+            invalidateAll();
+        }
+    }
+
+    @Override
+    protected void doStart() {
+        if (cache == null) {
+            return;
+        }
+        if (clusterService != null) {
+            clusterService.addListener(this);
+        }
+        if (tableStats != null) {
+            tableStats.addUpdateListener(onTableStatsUpdate);
+        }
+    }
+
+    @Override
+    protected void doStop() {
+        if (cache == null) {
+            return;
+        }
+        if (clusterService != null) {
+            clusterService.removeListener(this);
+        }
+        if (tableStats != null) {
+            tableStats.removeUpdateListener(onTableStatsUpdate);
+        }
+    }
+
+    @Override
+    protected void doClose() {
+        invalidateAll();
+    }
+
+    static final class Entry {
+
+        private final Statement statement;
+        private final AnalyzedStatement analyzedStatement;
+        private final long metadataVersion;
+
+        @Nullable
+        private volatile Plan plan;
+
+        private Entry(Statement statement, AnalyzedStatement analyzedStatement, long metadataVersion) {
+            this.statement = statement;
+            this.analyzedStatement = analyzedStatement;
+            this.metadataVersion = metadataVersion;
+        }
+
+        Statement statement() {
+            return statement;
+        }
+
+        AnalyzedStatement analyzedStatement() {
+            return analyzedStatement;
+        }
+    }
+
+    static final class Key {
+
+        private final String query;
+        private final List<DataType> paramTypes;
+        private final User sessionUser;
+        private final SearchPath searchPath;
+        private final boolean hashJoinEnabled;
+        private final Set<Class<? extends Rule<?>>> excludedOptimizerRules;
+        private final int hashCode;
+
+        Key(String query, List<DataType> paramTypes, SessionContext sessionContext) {
+            this.query = query;
+            // may contain null entries for parameters whose type is unknown
+            this.paramTypes = new ArrayList<>(paramTypes);
+            this.sessionUser = sessionContext.sessionUser();
+            this.searchPath = sessionContext.searchPath();
+            this.hashJoinEnabled = sessionContext.isHashJoinEnabled();
+            this.excludedOptimizerRules = Set.copyOf(sessionContext.excludedOptimizerRules());
+            this.hashCode = Objects.hash(
+                query, this.paramTypes, sessionUser, searchPath, hashJoinEnabled, excludedOptimizerRules);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashJoinEnabled == key.hashJoinEnabled &&
+                   query.equals(key.query) &&
+                   paramTypes.equals(key.paramTypes) &&
+                   Objects.equals(sessionUser, key.sessionUser) &&
+                   searchPath.equals(key.searchPath) &&
+                   excludedOptimizerRules.equals(key.excludedOptimizerRules);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -36,16 +36,20 @@ public class PreparedStmt {
     private final Statement parsedStatement;
     private final String rawStatement;
     @Nullable
+    private final PlanCache.Entry cacheEntry;
+    @Nullable
     private DataType[] describedParameterTypes;
 
     PreparedStmt(Statement parsedStatement,
                  AnalyzedStatement analyzedStatement,
                  String query,
-                 ParamTypeHints paramTypeHints) {
+                 ParamTypeHints paramTypeHints,
+                 @Nullable PlanCache.Entry cacheEntry) {
         this.parsedStatement = parsedStatement;
         this.analyzedStatement = analyzedStatement;
         this.paramTypeHints = paramTypeHints;
         this.rawStatement = query;
+        this.cacheEntry = cacheEntry;
     }
 
     public AnalyzedStatement analyzedStatement() {
@@ -60,6 +64,15 @@ public class PreparedStmt {
         this.describedParameterTypes = describedParameters;
     }
 
+    /**
+     * @return the entry of the {@link PlanCache} which holds the plan of this statement,
+     *         or null if the statement isn't cacheable.
+     */
+    @Nullable
+    PlanCache.Entry cacheEntry() {
+        return cacheEntry;
+    }
+
     Statement parsedStatement() {
         return parsedStatement;
     }
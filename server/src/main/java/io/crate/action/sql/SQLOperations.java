@@ -55,6 +55,7 @@ public class SQLOperations {
     private final JobsLogs jobsLogs;
     private final ClusterService clusterService;
     private final UserManager userManager;
+    private final PlanCache planCache;
     private final boolean isReadOnly;
     private volatile boolean disabled;
 
@@ -66,7 +67,8 @@ public class SQLOperations {
                          JobsLogs jobsLogs,
                          Settings settings,
                          ClusterService clusterService,
-                         Provider<UserManager> userManagerProvider) {
+                         Provider<UserManager> userManagerProvider,
+                         PlanCache planCache) {
         this.nodeCtx = nodeCtx;
         this.analyzer = analyzer;
         this.planner = planner;
@@ -74,6 +76,7 @@ public class SQLOperations {
         this.jobsLogs = jobsLogs;
         this.clusterService = clusterService;
         this.userManager = userManagerProvider.get();
+        this.planCache = planCache;
         this.isReadOnly = NODE_READ_ONLY_SETTING.get(settings);
     }
 
@@ -89,7 +92,8 @@ public class SQLOperations {
             isReadOnly,
             executorProvider.get(),
             userManager.getAccessControl(sessionContext),
-            sessionContext);
+            sessionContext,
+            planCache);
     }
 
     public Session newSystemSession() {
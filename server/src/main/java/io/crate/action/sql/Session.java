@@ -136,6 +136,8 @@ public class Session implements AutoCloseable {
     private final JobsLogs jobsLogs;
     private final boolean isReadOnly;
     private final ParameterTypeExtractor parameterTypeExtractor;
+    @Nullable
+    private final PlanCache planCache;
 
     private TransactionState currentTransactionState = TransactionState.IDLE;
 
@@ -147,6 +149,18 @@ public class Session implements AutoCloseable {
                    DependencyCarrier executor,
                    AccessControl accessControl,
                    SessionContext sessionContext) {
+        this(nodeCtx, analyzer, planner, jobsLogs, isReadOnly, executor, accessControl, sessionContext, null);
+    }
+
+    public Session(NodeContext nodeCtx,
+                   Analyzer analyzer,
+                   Planner planner,
+                   JobsLogs jobsLogs,
+                   boolean isReadOnly,
+                   DependencyCarrier executor,
+                   AccessControl accessControl,
+                   SessionContext sessionContext,
+                   @Nullable PlanCache planCache) {
         this.nodeCtx = nodeCtx;
         this.analyzer = analyzer;
         this.planner = planner;
@@ -156,6 +170,7 @@ public class Session implements AutoCloseable {
         this.accessControl = accessControl;
         this.sessionContext = sessionContext;
         this.parameterTypeExtractor = new ParameterTypeExtractor();
+        this.planCache = planCache;
     }
 
     /**
@@ -174,11 +189,23 @@ public class Session implements AutoCloseable {
      */
     public void quickExec(String statement, Function<String, Statement> parse, ResultReceiver<?> resultReceiver, Row params) {
         CoordinatorTxnCtx txnCtx = new CoordinatorTxnCtx(sessionContext);
-        Statement parsedStmt = parse.apply(statement);
-        AnalyzedStatement analyzedStatement = analyzer.analyze(parsedStmt, sessionContext, ParamTypeHints.EMPTY);
+        ClusterState clusterState = planner.currentClusterState();
+        long metadataVersion = clusterState.metadata().version();
+        PlanCache.Key cacheKey = planCache == null ? null : new PlanCache.Key(statement, List.of(), sessionContext);
+        PlanCache.Entry cacheEntry = cacheKey == null ? null : planCache.get(cacheKey, metadataVersion);
+        AnalyzedStatement analyzedStatement;
+        if (cacheEntry == null) {
+            Statement parsedStmt = parse.apply(statement);
+            analyzedStatement = analyzer.analyze(parsedStmt, sessionContext, ParamTypeHints.EMPTY);
+            if (cacheKey != null) {
+                cacheEntry = planCache.put(cacheKey, parsedStmt, analyzedStatement, metadataVersion);
+            }
+        } else {
+            analyzedStatement = cacheEntry.analyzedStatement();
+            accessControl.ensureMayExecute(analyzedStatement);
+        }
         RoutingProvider routingProvider = new RoutingProvider(Randomness.get().nextInt(), planner.getAwarenessAttributes());
         UUID jobId = UUID.randomUUID();
-        ClusterState clusterState = planner.currentClusterState();
         PlannerContext plannerContext = new PlannerContext(
             clusterState,
             routingProvider,
@@ -190,7 +217,7 @@ public class Session implements AutoCloseable {
         );
         Plan plan;
         try {
-            plan = planner.plan(analyzedStatement, plannerContext);
+            plan = plan(cacheEntry, analyzedStatement, plannerContext);
         } catch (Throwable t) {
             jobsLogs.logPreExecutionFailure(jobId, statement, SQLExceptions.messageOf(t), sessionContext.sessionUser());
             throw t;
@@ -243,6 +270,24 @@ public class Session implements AutoCloseable {
         plan.execute(executor, plannerContext, consumer, params, SubQueryResults.EMPTY);
     }
 
+    /**
+     * Plans the statement, re-using the plan of the {@link PlanCache} if the statement is cached.
+     */
+    private Plan plan(@Nullable PlanCache.Entry cacheEntry,
+                      AnalyzedStatement analyzedStatement,
+                      PlannerContext plannerContext) {
+        if (planCache == null || cacheEntry == null) {
+            return planner.plan(analyzedStatement, plannerContext);
+        }
+        long metadataVersion = plannerContext.clusterState().metadata().version();
+        Plan plan = planCache.getPlan(cacheEntry, metadataVersion);
+        if (plan == null) {
+            plan = planner.plan(analyzedStatement, plannerContext);
+            planCache.putPlan(cacheEntry, plan, metadataVersion);
+        }
+        return plan;
+    }
+
     private Portal getSafePortal(String portalName) {
         Portal portal = portals.get(portalName);
         if (portal == null) {
@@ -260,6 +305,31 @@ public class Session implements AutoCloseable {
             LOGGER.debug("method=parse stmtName={} query={} paramTypes={}", statementName, query, paramTypes);
         }
 
+        var paramTypeHints = new ParamTypeHints(paramTypes);
+        PlanCache.Key cacheKey = null;
+        long metadataVersion = -1L;
+        if (planCache != null) {
+            metadataVersion = planner.currentClusterState().metadata().version();
+            cacheKey = new PlanCache.Key(query, paramTypes, sessionContext);
+            PlanCache.Entry cacheEntry = planCache.get(cacheKey, metadataVersion);
+            if (cacheEntry != null) {
+                try {
+                    accessControl.ensureMayExecute(cacheEntry.analyzedStatement());
+                } catch (Throwable t) {
+                    jobsLogs.logPreExecutionFailure(
+                        UUID.randomUUID(),
+                        query,
+                        SQLExceptions.messageOf(t),
+                        sessionContext.sessionUser());
+                    throw t;
+                }
+                preparedStatements.put(
+                    statementName,
+                    new PreparedStmt(cacheEntry.statement(), cacheEntry.analyzedStatement(), query, paramTypeHints, cacheEntry));
+                return;
+            }
+        }
+
         Statement statement;
         try {
             statement = SqlParser.createStatement(query);
@@ -272,7 +342,6 @@ public class Session implements AutoCloseable {
             }
         }
 
-        var paramTypeHints = new ParamTypeHints(paramTypes);
         AnalyzedStatement analyzedStatement;
         try {
             analyzedStatement = analyzer.analyze(
@@ -287,9 +356,12 @@ public class Session implements AutoCloseable {
                 sessionContext.sessionUser());
             throw t;
         }
+        PlanCache.Entry cacheEntry = cacheKey == null || statement == EMPTY_STMT
+            ? null
+            : planCache.put(cacheKey, statement, analyzedStatement, metadataVersion);
         preparedStatements.put(
             statementName,
-            new PreparedStmt(statement, analyzedStatement, query, paramTypeHints));
+            new PreparedStmt(statement, analyzedStatement, query, paramTypeHints, cacheEntry));
     }
 
     public void bind(String portalName,
@@ -397,7 +469,8 @@ public class Session implements AutoCloseable {
             resultReceiver.allFinished(false);
         } else if (analyzedStmt instanceof AnalyzedDiscard) {
             AnalyzedDiscard discard = (AnalyzedDiscard) analyzedStmt;
-            // We don't cache plans, don't have sequences or temporary tables
+            // Cached plans are shared across sessions and invalidated on metadata changes.
+            // We don't have sequences or temporary tables
             // See https://www.postgresql.org/docs/current/sql-discard.html
             if (discard.target() == Target.ALL) {
                 close();
@@ -583,7 +656,7 @@ public class Session implements AutoCloseable {
         }
         Plan plan;
         try {
-            plan = planner.plan(analyzedStmt, plannerContext);
+            plan = plan(portal.preparedStmt().cacheEntry(), analyzedStmt, plannerContext);
         } catch (Throwable t) {
             jobsLogs.logPreExecutionFailure(jobId, rawStatement, SQLExceptions.messageOf(t), sessionContext.sessionUser());
             throw t;
@@ -633,6 +706,10 @@ public class Session implements AutoCloseable {
         return getSafePortal(portalName).preparedStmt().rawStatement();
     }
 
+    public AnalyzedStatement getAnalyzedStatement(String portalName) {
+        return getSafePortal(portalName).analyzedStatement();
+    }
+
     public DataType<?> getParamType(String statementName, int idx) {
         PreparedStmt stmt = getSafeStmt(statementName);
         return stmt.getEffectiveParameterType(idx);
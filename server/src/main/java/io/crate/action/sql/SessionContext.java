@@ -23,9 +23,11 @@
 package io.crate.action.sql;
 
 import io.crate.auth.user.User;
+import io.crate.execution.engine.collect.files.StdinLines;
 import io.crate.metadata.SearchPath;
 import io.crate.planner.optimizer.Rule;
 
+import javax.annotation.Nullable;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -42,6 +44,10 @@ public class SessionContext {
     private boolean hashJoinEnabled = true;
     private Set<Class<? extends Rule<?>>> excludedOptimizerRules;
 
+    private boolean supportsCopyStdio = false;
+    @Nullable
+    private StdinLines copyInStream;
+
     /**
      * Creates a new SessionContext suitable to use as system SessionContext
      */
@@ -103,6 +109,35 @@ public class SessionContext {
         return excludedOptimizerRules;
     }
 
+    /**
+     * @return true if the client protocol can stream data for COPY FROM STDIN and COPY TO STDOUT.
+     */
+    public boolean supportsCopyStdio() {
+        return supportsCopyStdio;
+    }
+
+    public void setSupportsCopyStdio(boolean supportsCopyStdio) {
+        this.supportsCopyStdio = supportsCopyStdio;
+    }
+
+    /**
+     * Sets the stream with the data the client sends for the next COPY FROM STDIN.
+     */
+    public void setCopyInStream(@Nullable StdinLines copyInStream) {
+        this.copyInStream = copyInStream;
+    }
+
+    /**
+     * Returns the stream set by {@link #setCopyInStream(StdinLines)} and resets it,
+     * so that every stream is consumed by a single statement.
+     */
+    @Nullable
+    public StdinLines takeCopyInStream() {
+        StdinLines stream = copyInStream;
+        copyInStream = null;
+        return stream;
+    }
+
     public void resetToDefaults() {
         resetSchema();
         hashJoinEnabled = true;
@@ -37,6 +37,7 @@ import io.crate.types.DataTypes;
 import io.crate.types.ObjectType;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.List;
 
 public class AnalyzedCopyFromReturnSummary extends AnalyzedCopyFrom implements AnalyzedRelation {
@@ -46,7 +47,7 @@ public class AnalyzedCopyFromReturnSummary extends AnalyzedCopyFrom implements A
     AnalyzedCopyFromReturnSummary(DocTableInfo tableInfo,
                                   Table<Symbol> table,
                                   GenericProperties<Symbol> properties,
-                                  Symbol uri) {
+                                  @Nullable Symbol uri) {
         super(tableInfo, table, properties, uri);
         this.fields = List.of(
             new ScopedSymbol(tableInfo.ident(), new ColumnIdent("node"), ObjectType.builder()
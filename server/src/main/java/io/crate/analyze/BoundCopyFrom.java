@@ -37,6 +37,7 @@ public class BoundCopyFrom {
     @Nullable
     private final String partitionIdent;
     private final Settings settings;
+    @Nullable
     private final Symbol uri;
     private final FileUriCollectPhase.InputFormat inputFormat;
     private final Predicate<DiscoveryNode> nodeFilters;
@@ -44,7 +45,7 @@ public class BoundCopyFrom {
     public BoundCopyFrom(DocTableInfo tableInfo,
                          @Nullable String partitionIdent,
                          Settings settings,
-                         Symbol uri,
+                         @Nullable Symbol uri,
                          FileUriCollectPhase.InputFormat inputFormat,
                          Predicate<DiscoveryNode> nodeFilters) {
         this.tableInfo = tableInfo;
@@ -72,6 +73,10 @@ public class BoundCopyFrom {
         return inputFormat;
     }
 
+    /**
+     * @return the uri to read from, or null if the data is read from STDIN.
+     */
+    @Nullable
     public Symbol uri() {
         return uri;
     }
@@ -78,27 +78,29 @@ class CopyAnalyzer {
         Table<Symbol> table = node.table().map(t -> exprAnalyzerWithFieldsAsString.convert(t, exprCtx));
         GenericProperties<Symbol> properties = node.properties().map(t -> exprAnalyzerWithoutFields.convert(t,
                                                                                                             exprCtx));
-        Symbol uri = exprAnalyzerWithoutFields.convert(node.path(), exprCtx);
+        Symbol uri = node.isFromStdin()
+            ? null
+            : normalizer.normalize(exprAnalyzerWithoutFields.convert(node.path(), exprCtx), txnCtx);
 
         if (node.isReturnSummary()) {
             return new AnalyzedCopyFromReturnSummary(
                 tableInfo,
                 table,
                 properties,
-                normalizer.normalize(uri, txnCtx));
+                uri);
         } else {
             return new AnalyzedCopyFrom(
                 tableInfo,
                 table,
                 properties,
-                normalizer.normalize(uri, txnCtx));
+                uri);
         }
     }
 
     AnalyzedCopyTo analyzeCopyTo(CopyTo<Expression> node,
                                  ParamTypeHints paramTypeHints,
                                  CoordinatorTxnCtx txnCtx) {
-        if (!node.directoryUri()) {
+        if (!node.directoryUri() && !node.isToStdout()) {
             throw new UnsupportedOperationException("Using COPY TO without specifying a DIRECTORY is not supported");
         }
 
@@ -130,7 +132,9 @@ class CopyAnalyzer {
             FieldProvider.FIELDS_AS_LITERAL,
             null);
 
-        var uri = expressionAnalyzer.convert(node.targetUri(), exprCtx);
+        var uri = node.isToStdout()
+            ? null
+            : normalizer.normalize(expressionAnalyzer.convert(node.targetUri(), exprCtx), txnCtx);
         var table = node.table().map(x -> exprAnalyzerWithFieldsAsString.convert(x, exprCtx));
         var properties = node.properties().map(x -> expressionAnalyzer.convert(x, exprCtx));
         var columns = Lists2.map(
@@ -142,7 +146,7 @@ class CopyAnalyzer {
         return new AnalyzedCopyTo(
             tableInfo,
             table,
-            normalizer.normalize(uri, txnCtx),
+            uri,
             properties,
             columns,
             whereClause);
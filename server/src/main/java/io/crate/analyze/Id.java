@@ -99,6 +99,15 @@ public class Id {
         return compileWithNullValidation(numPks, idx);
     }
 
+    /**
+     * Returns true if the ids for the given primary key columns are randomly generated, see
+     * {@link #compileWithNullValidation(List, ColumnIdent)}. Such ids are unique and never conflict with the id of
+     * another document.
+     */
+    public static boolean isAutoGenerated(List<ColumnIdent> pkColumns) {
+        return pkColumns.isEmpty() || (pkColumns.size() == 1 && pkColumns.get(0).equals(DocSysColumns.ID));
+    }
+
     @Nonnull
     private static <T> T ensureNonNull(@Nullable T pkValue) throws IllegalArgumentException {
         if (pkValue == null) {
@@ -36,6 +36,7 @@ import org.elasticsearch.common.lucene.uid.Versions;
 import io.crate.common.unit.TimeValue;
 import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.Translog;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
@@ -76,6 +77,14 @@ public final class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, S
     @Nullable
     private Symbol[] returnValues;
 
+    /**
+     * Set if the ids of all items are randomly generated and have not been used before. The items are then appended to
+     * the index without looking up existing versions of the documents.
+     */
+    private long autoGeneratedIdTimestamp = Translog.UNSET_AUTO_GENERATED_TIMESTAMP;
+
+    private boolean isRetry = false;
+
     public ShardUpsertRequest(
         ShardId shardId,
         UUID jobId,
@@ -134,6 +143,10 @@ public final class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, S
                 }
             }
         }
+        if (in.getVersion().onOrAfter(Version.V_4_4_0)) {
+            autoGeneratedIdTimestamp = in.readLong();
+            isRetry = in.readBoolean();
+        }
     }
 
     @Override
@@ -179,6 +192,10 @@ public final class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, S
                 out.writeVInt(0);
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_4_4_0)) {
+            out.writeLong(autoGeneratedIdTimestamp);
+            out.writeBoolean(isRetry);
+        }
     }
 
     @Nullable
@@ -213,6 +230,29 @@ public final class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, S
         return duplicateKeyAction;
     }
 
+    public long autoGeneratedIdTimestamp() {
+        return autoGeneratedIdTimestamp;
+    }
+
+    public ShardUpsertRequest autoGeneratedIdTimestamp(long autoGeneratedIdTimestamp) {
+        assert autoGeneratedIdTimestamp >= 0 || autoGeneratedIdTimestamp == Translog.UNSET_AUTO_GENERATED_TIMESTAMP
+            : "autoGeneratedIdTimestamp must be positive or unset";
+        this.autoGeneratedIdTimestamp = autoGeneratedIdTimestamp;
+        return this;
+    }
+
+    /**
+     * Whether the request may have been executed before, e.g. by a primary shard that failed afterwards
+     */
+    public boolean isRetry() {
+        return isRetry;
+    }
+
+    @Override
+    public void onRetry() {
+        isRetry = true;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -227,6 +267,8 @@ public final class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, S
         ShardUpsertRequest items = (ShardUpsertRequest) o;
         return continueOnError == items.continueOnError &&
                validateConstraints == items.validateConstraints &&
+               autoGeneratedIdTimestamp == items.autoGeneratedIdTimestamp &&
+               isRetry == items.isRetry &&
                Objects.equals(sessionSettings, items.sessionSettings) &&
                duplicateKeyAction == items.duplicateKeyAction &&
                Arrays.equals(updateColumns, items.updateColumns) &&
@@ -240,7 +282,9 @@ public final class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, S
                                   sessionSettings,
                                   duplicateKeyAction,
                                   continueOnError,
-                                  validateConstraints);
+                                  validateConstraints,
+                                  autoGeneratedIdTimestamp,
+                                  isRetry);
         result = 31 * result + Arrays.hashCode(updateColumns);
         result = 31 * result + Arrays.hashCode(insertColumns);
         result = 31 * result + Arrays.hashCode(returnValues);
@@ -402,6 +446,7 @@ public final class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, S
         private final boolean validateGeneratedColumns;
         @Nullable
         private final Symbol[] returnValues;
+        private final boolean autoGeneratedIds;
 
         public Builder(SessionSettings sessionSettings,
                        TimeValue timeout,
@@ -412,6 +457,37 @@ public final class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, S
                        @Nullable Symbol[] returnValue,
                        UUID jobId,
                        boolean validateGeneratedColumns) {
+            this(sessionSettings,
+                 timeout,
+                 duplicateKeyAction,
+                 continueOnError,
+                 assignmentsColumns,
+                 missingAssignmentsColumns,
+                 returnValue,
+                 jobId,
+                 validateGeneratedColumns,
+                 false);
+        }
+
+        /**
+         * @param autoGeneratedIds true if the ids of all items are randomly generated, see
+         *                         {@link io.crate.analyze.Id#isAutoGenerated(java.util.List)}.
+         *                         Only these items skip the version lookup of the engine. Items of tables with a
+         *                         primary key may conflict with existing documents and are still resolved one by one.
+         */
+        public Builder(SessionSettings sessionSettings,
+                       TimeValue timeout,
+                       DuplicateKeyAction duplicateKeyAction,
+                       boolean continueOnError,
+                       @Nullable String[] assignmentsColumns,
+                       @Nullable Reference[] missingAssignmentsColumns,
+                       @Nullable Symbol[] returnValue,
+                       UUID jobId,
+                       boolean validateGeneratedColumns,
+                       boolean autoGeneratedIds) {
+            assert !autoGeneratedIds || assignmentsColumns == null
+                : "Items with auto generated ids cannot conflict with existing documents and must not be updated";
+            this.autoGeneratedIds = autoGeneratedIds;
             this.sessionSettings = sessionSettings;
             this.timeout = timeout;
             this.duplicateKeyAction = duplicateKeyAction;
@@ -424,7 +500,7 @@ public final class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, S
         }
 
         public ShardUpsertRequest newRequest(ShardId shardId) {
-            return new ShardUpsertRequest(
+            ShardUpsertRequest request = new ShardUpsertRequest(
                 shardId,
                 jobId,
                 continueOnError,
@@ -435,6 +511,12 @@ public final class ShardUpsertRequest extends ShardRequest<ShardUpsertRequest, S
                 missingAssignmentsColumns,
                 returnValues
             ).timeout(timeout);
+            if (autoGeneratedIds) {
+                // A retried request keeps its timestamp, which lets the engine detect
+                // that documents with this or an older timestamp may have been indexed before
+                request.autoGeneratedIdTimestamp(Math.max(0, System.currentTimeMillis()));
+            }
+            return request;
         }
     }
 }
@@ -148,6 +148,10 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
             ? null
             : new ReturnValueGen(txnCtx, nodeCtx, tableInfo, request.returnValues());
 
+        // Items are indexed one by one, each with its own translog entry.
+        // Items with auto generated ids are indexed append-only, without a version lookup (see insert).
+        // Items with a primary key and updates (ON CONFLICT DO UPDATE, UPDATE by id) are resolved by the engine per
+        // document, under its per-id lock and against the live version map.
         Translog.Location translogLocation = null;
         for (ShardUpsertRequest.Item item : request.items()) {
             int location = item.location();
@@ -223,8 +227,8 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
             Engine.IndexResult indexResult = indexShard.applyIndexOperationOnReplica(
                 item.seqNo(),
                 item.version(),
-                Translog.UNSET_AUTO_GENERATED_TIMESTAMP,
-                false,
+                request.autoGeneratedIdTimestamp(),
+                request.isRetry(),
                 sourceToParse
             );
             if (indexResult.getResultType() == Engine.Result.Type.MAPPING_UPDATE_REQUIRED) {
@@ -331,7 +335,17 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
         long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
         long primaryTerm = SequenceNumbers.UNASSIGNED_PRIMARY_TERM;
 
-        Engine.IndexResult indexResult = index(item, indexShard, isRetry, seqNo, primaryTerm, version);
+        // With auto generated ids the engine appends the document without looking up an existing version,
+        // unless the request is retried and the document may have been indexed before.
+        Engine.IndexResult indexResult = index(
+            item,
+            indexShard,
+            isRetry || request.isRetry(),
+            seqNo,
+            primaryTerm,
+            version,
+            request.autoGeneratedIdTimestamp()
+        );
         Object[] returnvalues = null;
         if (returnGen != null) {
             // This optimizes for the case where the insert value is already string-based, so only parse the source
@@ -366,6 +380,7 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
                                        @Nullable ReturnValueGen returnGen,
                                        UpdateSourceGen updateSourceGen) throws Exception {
         assert updateSourceGen != null : "UpdateSourceGen must not be null";
+        // A realtime get per item; it sees the documents indexed by the previous items of the same request
         Doc fetchedDoc = getDocument(indexShard, item.id(), item.version(), item.seqNo(), item.primaryTerm());
         Map<String, Object> source = updateSourceGen.generateSource(
             fetchedDoc,
@@ -378,7 +393,15 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
         long primaryTerm = item.primaryTerm();
         long version = Versions.MATCH_ANY;
 
-        Engine.IndexResult indexResult = index(item, indexShard, isRetry, seqNo, primaryTerm, version);
+        Engine.IndexResult indexResult = index(
+            item,
+            indexShard,
+            isRetry,
+            seqNo,
+            primaryTerm,
+            version,
+            Translog.UNSET_AUTO_GENERATED_TIMESTAMP
+        );
         Object[] returnvalues = null;
         if (returnGen != null) {
             returnvalues = returnGen.generateReturnValues(
@@ -402,7 +425,8 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
                                      boolean isRetry,
                                      long seqNo,
                                      long primaryTerm,
-                                     long version) throws Exception {
+                                     long version,
+                                     long autoGeneratedIdTimestamp) throws Exception {
         SourceToParse sourceToParse = new SourceToParse(
             indexShard.shardId().getIndexName(),
             item.id(),
@@ -418,7 +442,7 @@ public class TransportShardUpsertAction extends TransportShardAction<ShardUpsert
                 sourceToParse,
                 seqNo,
                 primaryTerm,
-                Translog.UNSET_AUTO_GENERATED_TIMESTAMP,
+                autoGeneratedIdTimestamp,
                 isRetry
             ),
             e -> indexShard.getFailedIndexResult(e, Versions.MATCH_ANY)
@@ -26,6 +26,7 @@ import io.crate.expression.symbol.Symbol;
 import io.crate.expression.symbol.Symbols;
 import io.crate.planner.distribution.DistributionInfo;
 import io.crate.execution.dsl.projection.Projection;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 
@@ -45,6 +46,8 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
     private final Boolean sharedStorage;
     private DistributionInfo distributionInfo = DistributionInfo.DEFAULT_BROADCAST;
     private InputFormat inputFormat;
+    @Nullable
+    private final List<String> targetColumns;
 
     public FileUriCollectPhase(UUID jobId,
                                int phaseId,
@@ -55,7 +58,8 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
                                List<Projection> projections,
                                String compression,
                                Boolean sharedStorage,
-                               InputFormat inputFormat) {
+                               InputFormat inputFormat,
+                               @Nullable List<String> targetColumns) {
         super(jobId, phaseId, name, projections);
         this.executionNodes = executionNodes;
         this.targetUri = targetUri;
@@ -63,12 +67,14 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         this.compression = compression;
         this.sharedStorage = sharedStorage;
         this.inputFormat = inputFormat;
+        this.targetColumns = targetColumns;
         outputTypes = extractOutputTypes(toCollect, projections);
     }
 
     public enum InputFormat {
         JSON,
-        CSV
+        CSV,
+        PARQUET
     }
 
     public Symbol targetUri() {
@@ -103,6 +109,14 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         return inputFormat;
     }
 
+    /**
+     * The top-level columns which need to be read from files of a columnar format, or null if all columns are needed.
+     */
+    @Nullable
+    public List<String> targetColumns() {
+        return targetColumns;
+    }
+
     public FileUriCollectPhase(StreamInput in) throws IOException {
         super(in);
         compression = in.readOptionalString();
@@ -117,6 +131,12 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         this.executionNodes = nodes;
         toCollect = Symbols.listFromStream(in);
         inputFormat = InputFormat.values()[in.readVInt()];
+        if (in.getVersion().onOrAfter(Version.V_4_4_0)) {
+            String[] columns = in.readOptionalStringArray();
+            targetColumns = columns == null ? null : List.of(columns);
+        } else {
+            targetColumns = null;
+        }
     }
 
     @Override
@@ -131,6 +151,9 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
         }
         Symbols.toStream(toCollect, out);
         out.writeVInt(inputFormat.ordinal());
+        if (out.getVersion().onOrAfter(Version.V_4_4_0)) {
+            out.writeOptionalStringArray(targetColumns == null ? null : targetColumns.toArray(new String[0]));
+        }
     }
 
     @Override
@@ -143,6 +166,7 @@ public class FileUriCollectPhase extends AbstractProjectionsPhase implements Col
                ", compression=" + compression +
                ", sharedStorageDefault=" + sharedStorage +
                ", inputFormat=" + inputFormat +
+               ", targetColumns=" + targetColumns +
                '}';
     }
 
@@ -82,6 +82,12 @@ public class WriterProjection extends Projection {
         DataTypes.STRING
     );
 
+    public static final Symbol DIRECTORY_TO_PARQUET_FILENAME = new Function(
+        FormatFunction.SIGNATURE,
+        List.of(Literal.of("%s_%s_%s.parquet"), TABLE_NAME_REF, SHARD_ID_REF, PARTITION_IDENT_REF),
+        DataTypes.STRING
+    );
+
     private final Symbol uri;
     private final List<Symbol> inputs;
 
@@ -98,7 +104,8 @@ public class WriterProjection extends Projection {
 
     public enum OutputFormat {
         JSON_OBJECT,
-        JSON_ARRAY
+        JSON_ARRAY,
+        PARQUET
     }
 
     private final CompressionType compressionType;
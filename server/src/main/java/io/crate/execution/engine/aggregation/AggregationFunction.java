@@ -24,6 +24,7 @@ package io.crate.execution.engine.aggregation;
 
 import io.crate.breaker.RamAccounting;
 import io.crate.data.Input;
+import io.crate.expression.symbol.Literal;
 import io.crate.memory.MemoryManager;
 import io.crate.metadata.FunctionImplementation;
 import io.crate.types.DataType;
@@ -88,6 +89,14 @@ public abstract class AggregationFunction<TPartial, TFinal> implements FunctionI
 
     public abstract DataType<?> partialType();
 
+    /**
+     * Called once a partial state was emitted and is no longer used by the aggregation,
+     * to release the memory the state allocated via the {@link MemoryManager} of {@link #newState}.
+     * The state must remain readable, as consumers of the emitted state may still hold a reference to it.
+     */
+    public void releaseState(TPartial state, MemoryManager memoryManager) {
+    }
+
     /**
      * Executing aggregations as window functions might require different runtime implementations in order to still be
      * performant. This attempts to compile a new implementation that will be optimized for the window functions
@@ -107,6 +116,15 @@ public abstract class AggregationFunction<TPartial, TFinal> implements FunctionI
         return false;
     }
 
+    /**
+     * Indicates if {@link #reduce(RamAccounting, Object, Object)} leaves both input states unchanged.
+     * States of such functions can be combined repeatedly, which allows to compute the aggregation of sliding window
+     * frames by combining pre-aggregated states of the partition instead of re-aggregating each frame.
+     */
+    public boolean isReduceSideEffectFree() {
+        return false;
+    }
+
     public TPartial removeFromAggregatedState(RamAccounting ramAccounting,
                                               TPartial previousAggState,
                                               Input[] stateToRemove) {
@@ -118,4 +136,22 @@ public abstract class AggregationFunction<TPartial, TFinal> implements FunctionI
     public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes, List<MappedFieldType> fieldTypes) {
         return null;
     }
+
+    /**
+     * Like {@link #getDocValueAggregator(List, List)} but for aggregations which take literal arguments in addition
+     * to the columns they aggregate, like the fraction of a percentile.
+     *
+     * @param optionalParams the literal arguments which follow the column arguments.
+     * @param minNodeVersion the lowest version of all nodes in the cluster, this is useful for BWC of partial states.
+     */
+    @Nullable
+    public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes,
+                                                       List<MappedFieldType> fieldTypes,
+                                                       List<Literal<?>> optionalParams,
+                                                       Version minNodeVersion) {
+        if (!optionalParams.isEmpty()) {
+            return null;
+        }
+        return getDocValueAggregator(argumentTypes, fieldTypes);
+    }
 }
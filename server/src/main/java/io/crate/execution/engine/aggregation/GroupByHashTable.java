@@ -0,0 +1,259 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import com.carrotsearch.hppc.BitMixer;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.memory.MemoryManager;
+import io.netty.buffer.ByteBuf;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.io.stream.ByteBufferStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A hash table mapping group keys to aggregation states, used for GROUP BY on keys which
+ * cannot be stored in one of the primitive maps of {@link GroupByMaps}.
+ *
+ * <p>
+ * Instead of holding the key values as objects, keys are serialized with the {@link Streamer}s of the key types
+ * and appended to pages allocated via the {@link MemoryManager}. Entries are located using open addressing with
+ * linear probing over an int array of group ids, with the hash codes of the serialized keys cached next to them,
+ * so that neither probing nor growing the table needs to read the keys.
+ * </p>
+ *
+ * <p>
+ * Each group is identified by a sequential group id. The aggregation states of all groups are kept in a single
+ * flat array indexed by {@code groupId * numAggregations + aggregationIdx}.
+ * </p>
+ *
+ * Two keys are considered equal if their serialized representation is equal, so this must only be used for
+ * types where this matches the equality of their values.
+ */
+final class GroupByHashTable {
+
+    static final int PAGE_SIZE = 64 * 1024;
+
+    private static final int INITIAL_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final int EMPTY = 0;
+
+    private final MemoryManager memoryManager;
+    private final RamAccounting ramAccounting;
+    private final Streamer[] keyStreamers;
+    private final int numAggregations;
+    private final BytesStreamOutput keyOut = new BytesStreamOutput();
+    private final ArrayList<ByteBuf> pages = new ArrayList<>();
+
+    /**
+     * Group id + 1 of the entry occupying a slot, or {@link #EMPTY}.
+     */
+    private int[] slots;
+    private int[] slotHashes;
+    private int mask;
+    private int resizeThreshold;
+
+    /**
+     * (page index << 32 | offset) of the serialized key of each group
+     */
+    private long[] keyAddresses;
+    private Object[] states;
+    private int size = 0;
+
+    @SuppressWarnings("rawtypes")
+    GroupByHashTable(MemoryManager memoryManager,
+                     RamAccounting ramAccounting,
+                     Streamer[] keyStreamers,
+                     int numAggregations) {
+        this.memoryManager = memoryManager;
+        this.ramAccounting = ramAccounting;
+        this.keyStreamers = keyStreamers;
+        this.numAggregations = numAggregations;
+        initSlots(INITIAL_CAPACITY);
+        keyAddresses = new long[resizeThreshold];
+        states = new Object[resizeThreshold * numAggregations];
+        ramAccounting.addBytes(
+            RamUsageEstimator.sizeOf(slots)
+            + RamUsageEstimator.sizeOf(slotHashes)
+            + RamUsageEstimator.sizeOf(keyAddresses)
+            + RamUsageEstimator.shallowSizeOf(states)
+        );
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Hands the pages holding the serialized keys back to the {@link MemoryManager}.
+     * The table must not be used afterwards.
+     */
+    void close() {
+        for (ByteBuf page : pages) {
+            memoryManager.release(page);
+        }
+        pages.clear();
+    }
+
+    /**
+     * Looks up the group of the given key and adds a new group if there is none yet.
+     *
+     * @return the group id of an existing group or {@code -(groupId + 1)} if a new group was added.
+     */
+    @SuppressWarnings("unchecked")
+    int findOrInsert(Object[] key) {
+        keyOut.reset();
+        try {
+            for (int i = 0; i < keyStreamers.length; i++) {
+                keyStreamers[i].writeValueTo(keyOut, key[i]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        BytesRef keyBytes = keyOut.bytes().toBytesRef();
+        int hash = BitMixer.mix32(keyBytes.hashCode());
+        int slot = hash & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == EMPTY) {
+                break;
+            }
+            int groupId = entry - 1;
+            if (slotHashes[slot] == hash && keyEquals(keyAddresses[groupId], keyBytes)) {
+                return groupId;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int groupId = size;
+        ensureGroupCapacity(groupId + 1);
+        keyAddresses[groupId] = append(keyBytes);
+        slots[slot] = groupId + 1;
+        slotHashes[slot] = hash;
+        size++;
+        if (size > resizeThreshold) {
+            resizeSlots();
+        }
+        return -(groupId + 1);
+    }
+
+    Object state(int groupId, int aggregationIdx) {
+        return states[groupId * numAggregations + aggregationIdx];
+    }
+
+    void state(int groupId, int aggregationIdx, Object state) {
+        states[groupId * numAggregations + aggregationIdx] = state;
+    }
+
+    /**
+     * Deserializes the key of a group into {@code cells[0..numKeys)}
+     */
+    void readKey(int groupId, Object[] cells) {
+        long address = keyAddresses[groupId];
+        ByteBuf page = pages.get((int) (address >>> 32));
+        int offset = (int) address;
+        int length = page.getInt(offset);
+        ByteBufferStreamInput in = new ByteBufferStreamInput(page.nioBuffer(offset + Integer.BYTES, length));
+        try {
+            for (int i = 0; i < keyStreamers.length; i++) {
+                cells[i] = keyStreamers[i].readValueFrom(in);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean keyEquals(long address, BytesRef keyBytes) {
+        ByteBuf page = pages.get((int) (address >>> 32));
+        int offset = (int) address;
+        if (page.getInt(offset) != keyBytes.length) {
+            return false;
+        }
+        int start = offset + Integer.BYTES;
+        byte[] bytes = keyBytes.bytes;
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (page.getByte(start + i) != bytes[keyBytes.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long append(BytesRef keyBytes) {
+        int entrySize = Integer.BYTES + keyBytes.length;
+        ByteBuf page = pages.isEmpty() ? null : pages.get(pages.size() - 1);
+        if (page == null || page.writableBytes() < entrySize) {
+            // Keys larger than a page get a page of their own
+            page = memoryManager.allocate(Math.max(PAGE_SIZE, entrySize));
+            pages.add(page);
+        }
+        int offset = page.writerIndex();
+        page.writeInt(keyBytes.length);
+        page.writeBytes(keyBytes.bytes, keyBytes.offset, keyBytes.length);
+        return ((long) (pages.size() - 1) << 32) | offset;
+    }
+
+    private void ensureGroupCapacity(int numGroups) {
+        if (numGroups <= keyAddresses.length) {
+            return;
+        }
+        int newCapacity = keyAddresses.length * 2;
+        ramAccounting.addBytes(
+            (long) (newCapacity - keyAddresses.length) * (Long.BYTES + numAggregations * RamUsageEstimator.NUM_BYTES_OBJECT_REF)
+        );
+        keyAddresses = Arrays.copyOf(keyAddresses, newCapacity);
+        states = Arrays.copyOf(states, newCapacity * numAggregations);
+    }
+
+    private void resizeSlots() {
+        int[] oldSlots = slots;
+        int[] oldSlotHashes = slotHashes;
+        initSlots(oldSlots.length * 2);
+        ramAccounting.addBytes((long) (slots.length - oldSlots.length) * Integer.BYTES * 2);
+        for (int i = 0; i < oldSlots.length; i++) {
+            int entry = oldSlots[i];
+            if (entry == EMPTY) {
+                continue;
+            }
+            int hash = oldSlotHashes[i];
+            int slot = hash & mask;
+            while (slots[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry;
+            slotHashes[slot] = hash;
+        }
+    }
+
+    private void initSlots(int capacity) {
+        slots = new int[capacity];
+        slotHashes = new int[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+}
@@ -69,6 +69,24 @@ public final class GroupByMaps {
         }
     }
 
+    /**
+     * @return true if {@link #mapForType(DataType)} returns a map specialized for primitive keys of the given type.
+     */
+    public static boolean hasPrimitiveMap(DataType<?> type) {
+        switch (type.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
     public static <K, V> Supplier<Map<K, V>> mapForType(DataType<K> type) {
         switch (type.id()) {
             case ByteType.ID:
@@ -32,12 +32,18 @@ import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.expression.symbol.AggregateMode;
 import io.crate.expression.symbol.Symbol;
 import io.crate.memory.MemoryManager;
+import io.crate.memory.OffHeapMemoryManager;
 import io.crate.types.ArrayType;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.elasticsearch.Version;
 
+import javax.annotation.Nullable;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collector;
 
 import static io.crate.expression.symbol.Symbols.typeView;
@@ -46,6 +52,9 @@ public class GroupingProjector implements Projector {
 
     private final Collector<Row, ?, Iterable<Row>> collector;
 
+    @Nullable
+    private final UnaryOperator<BatchIterator<Row>> partialGrouping;
+
 
     public GroupingProjector(List<? extends Symbol> keys,
                              List<Input<?>> keyInputs,
@@ -56,6 +65,36 @@ public class GroupingProjector implements Projector {
                              MemoryManager memoryManager,
                              Version minNodeVersion,
                              Version indexVersionCreated) {
+        this(
+            keys,
+            keyInputs,
+            collectExpressions,
+            mode,
+            aggregations,
+            ramAccounting,
+            memoryManager,
+            minNodeVersion,
+            indexVersionCreated,
+            -1L
+        );
+    }
+
+    /**
+     * @param maxPartialBytes if >= 0 and the mode is {@link AggregateMode#ITER_PARTIAL}, groups are emitted
+     *                        while consuming the source, see {@link PartialGroupingBatchIterator}.
+     *                        The {@code ramAccounting} is released after each flush of the groups
+     *                        and must not be shared with other components in that case.
+     */
+    public GroupingProjector(List<? extends Symbol> keys,
+                             List<Input<?>> keyInputs,
+                             CollectExpression<Row, ?>[] collectExpressions,
+                             AggregateMode mode,
+                             AggregationContext[] aggregations,
+                             RamAccounting ramAccounting,
+                             MemoryManager memoryManager,
+                             Version minNodeVersion,
+                             Version indexVersionCreated,
+                             long maxPartialBytes) {
         assert keys.size() == keyInputs.size() : "number of key types must match with number of key inputs";
         ensureAllTypesSupported(keys);
 
@@ -68,9 +107,37 @@ public class GroupingProjector implements Projector {
             inputs[i] = aggregation.inputs();
             filters[i] = aggregation.filter();
         }
-        if (keys.size() == 1) {
+        List<DataType<?>> keyTypes = typeView(keys);
+        boolean adaptivePartial = mode == AggregateMode.ITER_PARTIAL && maxPartialBytes >= 0;
+        if (useSerializedKeys(memoryManager, keyTypes)) {
+            var serializedKeyCollector = new SerializedKeyGroupingCollector(
+                collectExpressions,
+                mode,
+                functions,
+                inputs,
+                filters,
+                ramAccounting,
+                memoryManager,
+                minNodeVersion,
+                keyInputs,
+                keyTypes,
+                indexVersionCreated
+            );
+            collector = serializedKeyCollector;
+            partialGrouping = adaptivePartial
+                ? partialGrouping(
+                    serializedKeyCollector,
+                    GroupByHashTable::size,
+                    table -> {
+                        releaseStates(functions, memoryManager, table);
+                        table.close();
+                    },
+                    ramAccounting,
+                    maxPartialBytes)
+                : null;
+        } else if (keys.size() == 1) {
             Symbol key = keys.get(0);
-            collector = GroupingCollector.singleKey(
+            var singleKeyCollector = GroupingCollector.singleKey(
                 collectExpressions,
                 mode,
                 functions,
@@ -83,9 +150,18 @@ public class GroupingProjector implements Projector {
                 key.valueType(),
                 indexVersionCreated
             );
+            collector = singleKeyCollector;
+            partialGrouping = adaptivePartial
+                ? partialGrouping(
+                    singleKeyCollector,
+                    Map::size,
+                    map -> releaseStates(functions, memoryManager, map.values()),
+                    ramAccounting,
+                    maxPartialBytes)
+                : null;
         } else {
             //noinspection unchecked
-            collector = (GroupingCollector<Object>) (GroupingCollector) GroupingCollector.manyKeys(
+            var manyKeysCollector = (GroupingCollector<Object>) (GroupingCollector) GroupingCollector.manyKeys(
                 collectExpressions,
                 mode,
                 functions,
@@ -95,12 +171,71 @@ public class GroupingProjector implements Projector {
                 memoryManager,
                 minNodeVersion,
                 keyInputs,
-                typeView(keys),
+                keyTypes,
                 indexVersionCreated
             );
+            collector = manyKeysCollector;
+            partialGrouping = adaptivePartial
+                ? partialGrouping(
+                    manyKeysCollector,
+                    Map::size,
+                    map -> releaseStates(functions, memoryManager, map.values()),
+                    ramAccounting,
+                    maxPartialBytes)
+                : null;
+        }
+    }
+
+    private static <S> UnaryOperator<BatchIterator<Row>> partialGrouping(Collector<Row, S, Iterable<Row>> collector,
+                                                                         ToIntFunction<S> numGroups,
+                                                                         Consumer<S> closeState,
+                                                                         RamAccounting ramAccounting,
+                                                                         long maxBytes) {
+        return source -> new PartialGroupingBatchIterator<>(
+            source, collector, numGroups, closeState, ramAccounting, maxBytes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void releaseStates(AggregationFunction[] functions,
+                                      MemoryManager memoryManager,
+                                      Iterable<Object[]> statesPerGroup) {
+        for (Object[] states : statesPerGroup) {
+            for (int i = 0; i < functions.length; i++) {
+                if (states[i] != null) {
+                    functions[i].releaseState(states[i], memoryManager);
+                }
+            }
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static void releaseStates(AggregationFunction[] functions,
+                                      MemoryManager memoryManager,
+                                      GroupByHashTable table) {
+        for (int groupId = 0; groupId < table.size(); groupId++) {
+            for (int i = 0; i < functions.length; i++) {
+                Object state = table.state(groupId, i);
+                if (state != null) {
+                    functions[i].releaseState(state, memoryManager);
+                }
+            }
+        }
+    }
+
+    /**
+     * Groups with serialized keys stored off-heap are only used if off-heap memory allocation is enabled
+     * and the keys cannot use one of the primitive maps.
+     */
+    private static boolean useSerializedKeys(MemoryManager memoryManager, List<DataType<?>> keyTypes) {
+        if (!(memoryManager instanceof OffHeapMemoryManager)) {
+            return false;
+        }
+        if (keyTypes.size() == 1 && GroupByMaps.hasPrimitiveMap(keyTypes.get(0))) {
+            return false;
+        }
+        return SerializedKeyGroupingCollector.supportsKeyTypes(keyTypes);
+    }
+
     private static void ensureAllTypesSupported(Iterable<? extends Symbol> keys) {
         for (Symbol key : keys) {
             DataType type = key.valueType();
@@ -112,6 +247,9 @@ public class GroupingProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
+        if (partialGrouping != null) {
+            return partialGrouping.apply(batchIterator);
+        }
         return CollectingBatchIterator.newInstance(batchIterator, collector);
     }
 
@@ -121,6 +259,7 @@ public class GroupingProjector implements Projector {
 
     @Override
     public boolean providesIndependentScroll() {
-        return true;
+        // Partial groups are emitted while consuming the source, moveToStart has to re-consume the source
+        return partialGrouping == null;
     }
 }
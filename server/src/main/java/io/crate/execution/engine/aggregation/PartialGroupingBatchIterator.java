@@ -0,0 +1,232 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.common.annotations.VisibleForTesting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.exceptions.Exceptions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+/**
+ * BatchIterator for partial ({@link io.crate.expression.symbol.AggregateMode#ITER_PARTIAL}) group by aggregations.
+ *
+ * <p>
+ * Instead of aggregating all source rows before emitting any group, the groups are flushed downstream and
+ * the hash table is restarted whenever:
+ * </p>
+ *
+ * <ul>
+ *     <li>The memory used by the hash table exceeds {@code maxBytes}.</li>
+ *     <li>The table contains {@link #BYPASS_FLUSH_ROWS} rows and the bypass mode is active.
+ *     The bypass mode is activated if the first {@link #SAMPLE_ROWS} rows were reduced to more than
+ *     {@link #BYPASS_MIN_GROUPS_RATIO} groups per row. In that case the keys are (almost) unique,
+ *     and a full partial aggregation would cost memory and latency without reducing the number of rows
+ *     the final aggregation has to process.</li>
+ * </ul>
+ *
+ * <p>
+ * Emitting the same key more than once is fine, because the final aggregation merges all partial results.
+ * </p>
+ */
+final class PartialGroupingBatchIterator<S> implements BatchIterator<Row> {
+
+    @VisibleForTesting
+    static final int SAMPLE_ROWS = 10_000;
+
+    @VisibleForTesting
+    static final int BYPASS_FLUSH_ROWS = 1_000;
+
+    static final double BYPASS_MIN_GROUPS_RATIO = 0.9;
+
+    private final BatchIterator<Row> source;
+    private final Supplier<S> supplier;
+    private final BiConsumer<S, Row> accumulator;
+    private final Function<S, Iterable<Row>> finisher;
+    private final ToIntFunction<S> numGroups;
+    private final Consumer<S> closeState;
+    private final RamAccounting ramAccounting;
+    private final long maxBytes;
+
+    private S state;
+    private long rowsInState = 0;
+    private long rowsSeen = 0;
+    private boolean bypass = false;
+    private boolean sourceExhausted = false;
+
+    @Nullable
+    private Iterator<Row> flushedRows = null;
+    private Row current = null;
+    private volatile Throwable killed = null;
+
+    /**
+     * @param closeState called with each state once its groups are flushed or the iterator is reset or closed,
+     *                   to release resources which aren't freed by the garbage collector.
+     * @param ramAccounting accounting used by the collector. It is released after each flush,
+     *                      so it must not be shared with other components.
+     */
+    PartialGroupingBatchIterator(BatchIterator<Row> source,
+                                 Collector<Row, S, Iterable<Row>> collector,
+                                 ToIntFunction<S> numGroups,
+                                 Consumer<S> closeState,
+                                 RamAccounting ramAccounting,
+                                 long maxBytes) {
+        this.source = source;
+        this.supplier = collector.supplier();
+        this.accumulator = collector.accumulator();
+        this.finisher = collector.finisher();
+        this.numGroups = numGroups;
+        this.closeState = closeState;
+        this.ramAccounting = ramAccounting;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public Row currentElement() {
+        return current;
+    }
+
+    @Override
+    public void moveToStart() {
+        raiseIfKilled();
+        source.moveToStart();
+        flushedRows = null;
+        closeState();
+        current = null;
+        rowsInState = 0;
+        rowsSeen = 0;
+        bypass = false;
+        sourceExhausted = false;
+    }
+
+    @Override
+    public boolean moveNext() {
+        raiseIfKilled();
+        while (true) {
+            if (flushedRows != null) {
+                if (flushedRows.hasNext()) {
+                    current = flushedRows.next();
+                    return true;
+                }
+                flushedRows = null;
+                closeState();
+            }
+            if (sourceExhausted) {
+                current = null;
+                return false;
+            }
+            if (state == null) {
+                state = supplier.get();
+                rowsInState = 0;
+            }
+            boolean flush = false;
+            while (source.moveNext()) {
+                accumulator.accept(state, source.currentElement());
+                rowsInState++;
+                if (shouldFlush()) {
+                    flush = true;
+                    break;
+                }
+            }
+            if (flush == false) {
+                if (source.allLoaded() == false) {
+                    current = null;
+                    return false;
+                }
+                sourceExhausted = true;
+            }
+            flushedRows = finisher.apply(state).iterator();
+        }
+    }
+
+    private boolean shouldFlush() {
+        rowsSeen++;
+        if (rowsSeen == SAMPLE_ROWS) {
+            bypass = numGroups.applyAsInt(state) > SAMPLE_ROWS * BYPASS_MIN_GROUPS_RATIO;
+        }
+        return (bypass && rowsInState >= BYPASS_FLUSH_ROWS) || ramAccounting.totalBytes() >= maxBytes;
+    }
+
+    private void closeState() {
+        if (state != null) {
+            closeState.accept(state);
+            state = null;
+        }
+        ramAccounting.release();
+    }
+
+    @VisibleForTesting
+    boolean isBypassed() {
+        return bypass;
+    }
+
+    @Override
+    public void close() {
+        source.close();
+        flushedRows = null;
+        closeState();
+        killed = BatchIterator.CLOSED;
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() throws Exception {
+        if (sourceExhausted) {
+            return CompletableFuture.failedFuture(new IllegalStateException("BatchIterator already fully loaded"));
+        }
+        return source.loadNextBatch();
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return sourceExhausted || source.allLoaded();
+    }
+
+    @Override
+    public boolean hasLazyResultSet() {
+        return true;
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        killed = throwable;
+        source.kill(throwable);
+    }
+
+    private void raiseIfKilled() {
+        if (killed != null) {
+            Exceptions.rethrowUnchecked(killed);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.InputCondition;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.memory.MemoryManager;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+/**
+ * Like {@link GroupingCollector}, but uses a {@link GroupByHashTable} which stores the serialized keys in memory
+ * obtained from the {@link MemoryManager} instead of a {@link java.util.HashMap} with a key object per group.
+ */
+final class SerializedKeyGroupingCollector implements Collector<Row, GroupByHashTable, Iterable<Row>> {
+
+    private final CollectExpression<Row, ?>[] expressions;
+    private final AggregationFunction[] aggregations;
+    private final AggregateMode mode;
+    private final Input[][] inputs;
+    private final Input<Boolean>[] filters;
+    private final RamAccounting ramAccounting;
+    private final MemoryManager memoryManager;
+    private final Version minNodeVersion;
+    private final Version indexVersionCreated;
+    private final List<Input<?>> keyInputs;
+    private final Streamer<?>[] keyStreamers;
+    private final Object[] key;
+    private final BiConsumer<GroupByHashTable, Row> accumulator;
+
+    /**
+     * @return true if keys of the given types can be grouped using their serialized representation.
+     */
+    static boolean supportsKeyTypes(List<? extends DataType<?>> keyTypes) {
+        for (DataType<?> keyType : keyTypes) {
+            if (!DataTypes.isPrimitive(keyType)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    SerializedKeyGroupingCollector(CollectExpression<Row, ?>[] expressions,
+                                   AggregateMode mode,
+                                   AggregationFunction[] aggregations,
+                                   Input[][] inputs,
+                                   Input<Boolean>[] filters,
+                                   RamAccounting ramAccounting,
+                                   MemoryManager memoryManager,
+                                   Version minNodeVersion,
+                                   List<Input<?>> keyInputs,
+                                   List<? extends DataType<?>> keyTypes,
+                                   Version indexVersionCreated) {
+        assert supportsKeyTypes(keyTypes) : "Key types must be supported: " + keyTypes;
+        this.expressions = expressions;
+        this.aggregations = aggregations;
+        this.mode = mode;
+        this.inputs = inputs;
+        this.filters = filters;
+        this.ramAccounting = ramAccounting;
+        this.memoryManager = memoryManager;
+        this.minNodeVersion = minNodeVersion;
+        this.indexVersionCreated = indexVersionCreated;
+        this.keyInputs = keyInputs;
+        this.keyStreamers = DataTypes.getStreamers(keyTypes);
+        this.key = new Object[keyInputs.size()];
+        this.accumulator = mode == AggregateMode.PARTIAL_FINAL ? this::reduce : this::iter;
+    }
+
+    @Override
+    public Supplier<GroupByHashTable> supplier() {
+        return () -> new GroupByHashTable(memoryManager, ramAccounting, keyStreamers, aggregations.length);
+    }
+
+    @Override
+    public BiConsumer<GroupByHashTable, Row> accumulator() {
+        return accumulator;
+    }
+
+    @Override
+    public BinaryOperator<GroupByHashTable> combiner() {
+        return (state1, state2) -> {
+            throw new UnsupportedOperationException("combine not supported");
+        };
+    }
+
+    @Override
+    public Function<GroupByHashTable, Iterable<Row>> finisher() {
+        return this::tableToRows;
+    }
+
+    @Override
+    public Set<Characteristics> characteristics() {
+        return Collections.emptySet();
+    }
+
+    private int findOrInsertGroup(GroupByHashTable table, Row row) {
+        for (CollectExpression<Row, ?> expression : expressions) {
+            expression.setNextRow(row);
+        }
+        for (int i = 0; i < key.length; i++) {
+            key[i] = keyInputs.get(i).value();
+        }
+        return table.findOrInsert(key);
+    }
+
+    private void reduce(GroupByHashTable table, Row row) {
+        int groupId = findOrInsertGroup(table, row);
+        if (groupId < 0) {
+            groupId = -(groupId + 1);
+            for (int i = 0; i < aggregations.length; i++) {
+                table.state(groupId, i, inputs[i][0].value());
+            }
+        } else {
+            for (int i = 0; i < aggregations.length; i++) {
+                //noinspection unchecked
+                table.state(groupId, i, aggregations[i].reduce(ramAccounting, table.state(groupId, i), inputs[i][0].value()));
+            }
+        }
+    }
+
+    private void iter(GroupByHashTable table, Row row) {
+        int groupId = findOrInsertGroup(table, row);
+        boolean newGroup = groupId < 0;
+        if (newGroup) {
+            groupId = -(groupId + 1);
+        }
+        for (int i = 0; i < aggregations.length; i++) {
+            AggregationFunction aggregation = aggregations[i];
+            Object state = newGroup
+                ? aggregation.newState(ramAccounting, indexVersionCreated, minNodeVersion, memoryManager)
+                : table.state(groupId, i);
+            if (InputCondition.matches(filters[i])) {
+                //noinspection unchecked
+                state = aggregation.iterate(ramAccounting, memoryManager, state, inputs[i]);
+            }
+            table.state(groupId, i, state);
+        }
+    }
+
+    private Iterable<Row> tableToRows(GroupByHashTable table) {
+        int numKeys = key.length;
+        return () -> new Iterator<>() {
+
+            final Object[] cells = new Object[numKeys + aggregations.length];
+            final RowN row = new RowN(cells);
+            int groupId = 0;
+
+            @Override
+            public boolean hasNext() {
+                return groupId < table.size();
+            }
+
+            @Override
+            public Row next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("Iterator is exhausted");
+                }
+                table.readKey(groupId, cells);
+                for (int i = 0; i < aggregations.length; i++) {
+                    cells[numKeys + i] = mode.finishCollect(ramAccounting, aggregations[i], table.state(groupId, i));
+                }
+                groupId++;
+                return row;
+            }
+        };
+    }
+}
@@ -26,21 +26,38 @@ import io.crate.breaker.SizeEstimator;
 import io.crate.breaker.SizeEstimatorFactory;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.aggregation.DocValueAggregator;
 import io.crate.memory.MemoryManager;
 import io.crate.metadata.functions.Signature;
 import io.crate.types.ArrayType;
+import io.crate.types.ByteType;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
 import io.crate.types.UncheckedObjectType;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.NumericUtils;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.index.mapper.MappedFieldType;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.LongFunction;
 
 public class CollectSetAggregation extends AggregationFunction<Map<Object, Object>, List<Object>> {
 
@@ -104,12 +121,7 @@ public class CollectSetAggregation extends AggregationFunction<Map<Object, Objec
         if (value == null) {
             return state;
         }
-        if (state.put(value, PRESENT) == null) {
-            ramAccounting.addBytes(
-                // values size + 32 bytes for entry, 4 bytes for increased capacity
-                RamUsageEstimator.alignObjectSize(innerTypeEstimator.estimateSize(value) + 36L)
-            );
-        }
+        addValue(ramAccounting, state, value);
         return state;
     }
 
@@ -153,6 +165,124 @@ public class CollectSetAggregation extends AggregationFunction<Map<Object, Objec
         return false;
     }
 
+    @Nullable
+    @Override
+    public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes,
+                                                       List<MappedFieldType> fieldTypes) {
+        DataType<?> dataType = argumentTypes.get(0);
+        switch (dataType.id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                return new NumericCollectSetDocValueAggregator(
+                    fieldTypes.get(0).name(),
+                    dataType::sanitizeValue
+                );
+            case FloatType.ID:
+                return new NumericCollectSetDocValueAggregator(
+                    fieldTypes.get(0).name(),
+                    value -> NumericUtils.sortableIntToFloat((int) value)
+                );
+            case DoubleType.ID:
+                return new NumericCollectSetDocValueAggregator(
+                    fieldTypes.get(0).name(),
+                    NumericUtils::sortableLongToDouble
+                );
+            case StringType.ID:
+                return new BinaryCollectSetDocValueAggregator(fieldTypes.get(0).name());
+            default:
+                return null;
+        }
+    }
+
+    private void addValue(RamAccounting ramAccounting, Map<Object, Object> state, Object value) {
+        if (state.put(value, PRESENT) == null) {
+            ramAccounting.addBytes(
+                // values size + 32 bytes for entry, 4 bytes for increased capacity
+                RamUsageEstimator.alignObjectSize(innerTypeEstimator.estimateSize(value) + 36L)
+            );
+        }
+    }
+
+    private class NumericCollectSetDocValueAggregator implements DocValueAggregator<Map<Object, Object>> {
+
+        private final String columnName;
+        private final LongFunction<Object> toValue;
+
+        private SortedNumericDocValues values;
+
+        NumericCollectSetDocValueAggregator(String columnName, LongFunction<Object> toValue) {
+            this.columnName = columnName;
+            this.toValue = toValue;
+        }
+
+        @Override
+        public Map<Object, Object> initialState(RamAccounting ramAccounting) {
+            return newState(ramAccounting, Version.CURRENT, Version.CURRENT, null);
+        }
+
+        @Override
+        public void loadDocValues(LeafReader reader) throws IOException {
+            values = DocValues.getSortedNumeric(reader, columnName);
+        }
+
+        @Override
+        public void apply(RamAccounting ramAccounting, int doc, Map<Object, Object> state) throws IOException {
+            if (values.advanceExact(doc) && values.docValueCount() == 1) {
+                addValue(ramAccounting, state, toValue.apply(values.nextValue()));
+            }
+        }
+
+        @Nullable
+        @Override
+        public Object partialResult(RamAccounting ramAccounting, Map<Object, Object> state) {
+            return state;
+        }
+    }
+
+    /**
+     * Reads the terms of a keyword column via their ordinals, without loading the document source.
+     */
+    private class BinaryCollectSetDocValueAggregator implements DocValueAggregator<Map<Object, Object>> {
+
+        private final String columnName;
+
+        private SortedSetDocValues values;
+
+        BinaryCollectSetDocValueAggregator(String columnName) {
+            this.columnName = columnName;
+        }
+
+        @Override
+        public Map<Object, Object> initialState(RamAccounting ramAccounting) {
+            return newState(ramAccounting, Version.CURRENT, Version.CURRENT, null);
+        }
+
+        @Override
+        public void loadDocValues(LeafReader reader) throws IOException {
+            values = DocValues.getSortedSet(reader, columnName);
+        }
+
+        @Override
+        public void apply(RamAccounting ramAccounting, int doc, Map<Object, Object> state) throws IOException {
+            if (values.advanceExact(doc)) {
+                long ord = values.nextOrd();
+                if (values.nextOrd() == SortedSetDocValues.NO_MORE_ORDS) {
+                    addValue(ramAccounting, state, values.lookupOrd(ord).utf8ToString());
+                }
+            }
+        }
+
+        @Nullable
+        @Override
+        public Object partialResult(RamAccounting ramAccounting, Map<Object, Object> state) {
+            return state;
+        }
+    }
+
     /**
      * collect_set implementation that is removable cumulative. It tracks the number of occurrences for every key it
      * sees in order to be able to only remove a value from the aggregated state when it's occurrence count is 1.
@@ -331,4 +331,9 @@ public abstract class MaximumAggregation extends AggregationFunction<Comparable,
     public Comparable terminatePartial(RamAccounting ramAccounting, Comparable state) {
         return state;
     }
+
+    @Override
+    public boolean isReduceSideEffectFree() {
+        return true;
+    }
 }
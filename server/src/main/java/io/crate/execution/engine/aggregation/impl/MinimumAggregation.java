@@ -322,6 +322,11 @@ public abstract class MinimumAggregation extends AggregationFunction<Comparable,
         return state;
     }
 
+    @Override
+    public boolean isReduceSideEffectFree() {
+        return true;
+    }
+
     @Override
     public Comparable iterate(RamAccounting ramAccounting,
                               MemoryManager memoryManager,
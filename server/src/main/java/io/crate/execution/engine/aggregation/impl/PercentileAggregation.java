@@ -24,17 +24,28 @@ package io.crate.execution.engine.aggregation.impl;
 import io.crate.breaker.RamAccounting;
 import io.crate.data.Input;
 import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.aggregation.DocValueAggregator;
+import io.crate.expression.symbol.Literal;
 import io.crate.memory.MemoryManager;
 import io.crate.metadata.functions.Signature;
 import io.crate.types.ArrayType;
+import io.crate.types.ByteType;
 import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import org.apache.lucene.util.NumericUtils;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.index.mapper.MappedFieldType;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 
 class PercentileAggregation extends AggregationFunction<TDigestState, Object> {
 
@@ -112,15 +123,19 @@ class PercentileAggregation extends AggregationFunction<TDigestState, Object> {
 
     private void initState(TDigestState state, Object argValue) {
         if (argValue != null) {
-            if (argValue instanceof List) {
-                List values = (List) argValue;
-                if (values.isEmpty() || values.contains(null)) {
-                    throw new IllegalArgumentException("no fraction value specified");
-                }
-                state.fractions(toDoubleArray(values));
-            } else {
-                state.fractions(new double[]{DataTypes.DOUBLE.sanitizeValue(argValue)});
+            state.fractions(toFractions(argValue));
+        }
+    }
+
+    private static double[] toFractions(Object argValue) {
+        if (argValue instanceof List) {
+            List values = (List) argValue;
+            if (values.isEmpty() || values.contains(null)) {
+                throw new IllegalArgumentException("no fraction value specified");
             }
+            return toDoubleArray(values);
+        } else {
+            return new double[]{DataTypes.DOUBLE.sanitizeValue(argValue)};
         }
     }
 
@@ -175,4 +190,56 @@ class PercentileAggregation extends AggregationFunction<TDigestState, Object> {
     public DataType<?> partialType() {
         return TDigestStateType.INSTANCE;
     }
+
+    @Nullable
+    @Override
+    public DocValueAggregator<?> getDocValueAggregator(List<DataType<?>> argumentTypes,
+                                                       List<MappedFieldType> fieldTypes,
+                                                       List<Literal<?>> optionalParams,
+                                                       Version minNodeVersion) {
+        if (fieldTypes.size() != 1 || optionalParams.size() != 1) {
+            return null;
+        }
+        Object fractionValue = optionalParams.get(0).value();
+        if (fractionValue == null) {
+            return null;
+        }
+        final double[] fractions;
+        try {
+            fractions = toFractions(fractionValue);
+        } catch (IllegalArgumentException e) {
+            // Let the regular aggregation raise the error once it sees the first row
+            return null;
+        }
+        Function<RamAccounting, TDigestState> stateInitializer = ramAccounting -> {
+            TDigestState state = TDigestState.createEmptyState();
+            state.fractions(fractions);
+            return state;
+        };
+        switch (argumentTypes.get(0).id()) {
+            case ByteType.ID:
+            case ShortType.ID:
+            case IntegerType.ID:
+            case LongType.ID:
+                return new SortedNumericDocValueAggregator<>(
+                    fieldTypes.get(0).name(),
+                    stateInitializer,
+                    (values, state) -> state.add(values.nextValue())
+                );
+            case FloatType.ID:
+                return new SortedNumericDocValueAggregator<>(
+                    fieldTypes.get(0).name(),
+                    stateInitializer,
+                    (values, state) -> state.add(NumericUtils.sortableIntToFloat((int) values.nextValue()))
+                );
+            case DoubleType.ID:
+                return new SortedNumericDocValueAggregator<>(
+                    fieldTypes.get(0).name(),
+                    stateInitializer,
+                    (values, state) -> state.add(NumericUtils.sortableLongToDouble(values.nextValue()))
+                );
+            default:
+                return null;
+        }
+    }
 }
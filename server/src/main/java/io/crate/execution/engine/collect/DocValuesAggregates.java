@@ -23,7 +23,6 @@
 package io.crate.execution.engine.collect;
 
 import io.crate.breaker.RamAccounting;
-import io.crate.common.collections.Lists2;
 import io.crate.data.BatchIterator;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Row;
@@ -56,6 +55,7 @@ import org.apache.lucene.search.ScoreMode;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Weight;
 import org.apache.lucene.util.Bits;
+import org.elasticsearch.Version;
 import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexShard;
@@ -66,10 +66,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.function.Function;
 
 public class DocValuesAggregates {
 
@@ -91,7 +89,8 @@ public class DocValuesAggregates {
             aggregateProjection,
             fieldTypeLookup,
             phase.toCollect(),
-            collectTask.txnCtx().sessionSettings().searchPath()
+            collectTask.txnCtx().sessionSettings().searchPath(),
+            collectTask.minNodeVersion()
         );
         if (aggregators == null) {
             return null;
@@ -150,19 +149,32 @@ public class DocValuesAggregates {
         return mappedFieldType;
     }
 
+    @Nullable
+    private static Literal<?> resolveInputToLiteral(List<Symbol> toCollect, Symbol input) {
+        if (input instanceof InputColumn) {
+            input = toCollect.get(((InputColumn) input).index());
+        }
+        if (input instanceof Literal) {
+            return (Literal<?>) input;
+        }
+        return null;
+    }
+
     @Nullable
     @SuppressWarnings("rawtypes")
     private static List<DocValueAggregator> createAggregators(Functions functions,
                                                               AggregationProjection aggregateProjection,
                                                               FieldTypeLookup fieldTypeLookup,
                                                               List<Symbol> toCollect,
-                                                              SearchPath searchPath) {
+                                                              SearchPath searchPath,
+                                                              Version minNodeVersion) {
         return createAggregators(
             functions,
             aggregateProjection.aggregations(),
             fieldTypeLookup,
             toCollect,
-            searchPath
+            searchPath,
+            minNodeVersion
         );
     }
 
@@ -172,20 +184,29 @@ public class DocValuesAggregates {
                                                              List<Aggregation> aggregations,
                                                              FieldTypeLookup fieldTypeLookup,
                                                              List<Symbol> toCollect,
-                                                             SearchPath searchPath) {
+                                                             SearchPath searchPath,
+                                                             Version minNodeVersion) {
         ArrayList<DocValueAggregator> aggregator = new ArrayList<>(aggregations.size());
-        Function<Symbol, MappedFieldType> resolveFieldType =
-            symbol -> resolveInputToFieldType(fieldTypeLookup, toCollect, symbol);
-
         for (int i = 0; i < aggregations.size(); i++) {
             Aggregation aggregation = aggregations.get(i);
             if (!aggregation.filter().equals(Literal.BOOLEAN_TRUE)) {
                 return null;
             }
-            List<MappedFieldType> fieldTypes = Lists2.map(aggregation.inputs(), resolveFieldType);
-            if (fieldTypes.stream().anyMatch(Objects::isNull)) {
-                // We can extend this to instead return an adapter to the normal aggregation implementation
-                return null;
+            List<MappedFieldType> fieldTypes = new ArrayList<>(aggregation.inputs().size());
+            List<Literal<?>> optionalParams = new ArrayList<>();
+            for (Symbol input : aggregation.inputs()) {
+                Literal<?> literal = resolveInputToLiteral(toCollect, input);
+                if (literal != null) {
+                    optionalParams.add(literal);
+                    continue;
+                }
+                MappedFieldType fieldType = resolveInputToFieldType(fieldTypeLookup, toCollect, input);
+                if (fieldType == null || !optionalParams.isEmpty()) {
+                    // Only columns followed by literal arguments are supported, like `percentile(x, 0.95)`.
+                    // We can extend this to instead return an adapter to the normal aggregation implementation
+                    return null;
+                }
+                fieldTypes.add(fieldType);
             }
 
             FunctionImplementation func = functions.getQualified(aggregation, searchPath);
@@ -195,7 +216,9 @@ public class DocValuesAggregates {
             }
             DocValueAggregator<?> docValueAggregator = ((AggregationFunction<?, ?>) func).getDocValueAggregator(
                 Symbols.typeView(aggregation.inputs()),
-                fieldTypes
+                fieldTypes,
+                optionalParams,
+                minNodeVersion
             );
             if (docValueAggregator == null) {
                 return null;
@@ -124,7 +124,8 @@ final class DocValuesGroupByOptimizedIterator {
             groupProjection.values(),
             fieldTypeLookup,
             collectPhase.toCollect(),
-            collectTask.txnCtx().sessionSettings().searchPath()
+            collectTask.txnCtx().sessionSettings().searchPath(),
+            collectTask.minNodeVersion()
         );
         if (aggregators == null) {
             return null;
@@ -210,35 +211,126 @@ final class DocValuesGroupByOptimizedIterator {
                                                   RamAccounting ramAccounting,
                                                   Query query,
                                                   CollectorContext collectorContext) {
+            BiConsumer<Map<List<Object>, Object[]>, List<Object>> accountForNewKeyEntry = GroupByMaps.accountForNewEntry(
+                ramAccounting,
+                new MultiSizeEstimator(
+                    Lists2.map(keyColumnRefs, Reference::valueType)
+                ),
+                null
+            );
+            if (useOrdinals(indexSearcher, keyColumnRefs)) {
+                return GroupByIterator.getOrdinalsIterator(
+                    aggregators,
+                    indexSearcher,
+                    keyColumnRefs,
+                    ramAccounting,
+                    accountForNewKeyEntry,
+                    query
+                );
+            }
+            return GroupByIterator.getKeyValuesIterator(
+                aggregators,
+                indexSearcher,
+                keyExpressions,
+                ramAccounting,
+                accountForNewKeyEntry,
+                query,
+                collectorContext
+            );
+        }
+
+        private static boolean useOrdinals(IndexSearcher indexSearcher, List<Reference> keyColumnRefs) {
+            try {
+                return OrdinalGroupKeys.supports(keyColumnRefs)
+                    && OrdinalGroupKeys.hasLowCardinality(indexSearcher.getIndexReader(), keyColumnRefs);
+            } catch (IOException e) {
+                return false;
+            }
+        }
+
+        /**
+         * Groups the documents by the list of values of the key expressions.
+         */
+        @VisibleForTesting
+        static BatchIterator<Row> getKeyValuesIterator(
+            List<DocValueAggregator> aggregators,
+            IndexSearcher indexSearcher,
+            List<? extends LuceneCollectorExpression<?>> keyExpressions,
+            RamAccounting ramAccounting,
+            BiConsumer<Map<List<Object>, Object[]>, List<Object>> accountForNewKeyEntry,
+            Query query,
+            CollectorContext collectorContext) {
+
             return GroupByIterator.getIterator(
                 aggregators,
                 indexSearcher,
                 keyExpressions,
                 ramAccounting,
-                GroupByMaps.accountForNewEntry(
-                    ramAccounting,
-                    new MultiSizeEstimator(
-                        Lists2.map(keyColumnRefs, Reference::valueType)
-                    ),
-                    null
-                ),
+                accountForNewKeyEntry,
                 (expressions) -> {
-                    ArrayList<Object> key = new ArrayList<>(keyColumnRefs.size());
+                    ArrayList<Object> key = new ArrayList<>(expressions.size());
                     for (int i = 0; i < expressions.size(); i++) {
                         key.add(expressions.get(i).value());
                     }
                     return key;
                 },
-                (List<Object> keys, Object[] cells) -> {
-                    for (int i = 0; i < keys.size(); i++) {
-                        cells[i] = keys.get(i);
-                    }
-                },
+                GroupByIterator::applyKeysToCells,
                 query,
                 new CollectorContext(collectorContext.readerId())
             );
         }
 
+        /**
+         * Like {@link #getKeyValuesIterator(List, IndexSearcher, List, RamAccounting, BiConsumer, Query,
+         * CollectorContext)} but groups the documents of each segment by the ordinals and values of the keys in the
+         * doc values. See {@link OrdinalGroupKeys}.
+         */
+        @VisibleForTesting
+        static BatchIterator<Row> getOrdinalsIterator(
+            List<DocValueAggregator> aggregators,
+            IndexSearcher indexSearcher,
+            List<Reference> keyColumnRefs,
+            RamAccounting ramAccounting,
+            BiConsumer<Map<List<Object>, Object[]>, List<Object>> accountForNewKeyEntry,
+            Query query) {
+
+            AtomicReference<Throwable> killed = new AtomicReference<>();
+            return CollectingBatchIterator.newInstance(
+                () -> killed.set(BatchIterator.CLOSED),
+                killed::set,
+                () -> {
+                    try {
+                        return CompletableFuture.completedFuture(
+                            getRows(
+                                applyAggregatesGroupedByOrdinals(
+                                    aggregators,
+                                    indexSearcher,
+                                    keyColumnRefs,
+                                    accountForNewKeyEntry,
+                                    ramAccounting,
+                                    query,
+                                    killed
+                                ),
+                                keyColumnRefs.size(),
+                                GroupByIterator::applyKeysToCells,
+                                aggregators,
+                                ramAccounting
+                            )
+                        );
+                    } catch (Throwable t) {
+                        return CompletableFuture.failedFuture(t);
+                    }
+                },
+                true
+            );
+        }
+
+        private static void applyKeysToCells(List<Object> keys, Object[] cells) {
+            for (int i = 0; i < keys.size(); i++) {
+                cells[i] = keys.get(i);
+            }
+        }
+
         @VisibleForTesting
         static <K> BatchIterator<Row> getIterator(List<DocValueAggregator> aggregators,
                                                   IndexSearcher indexSearcher,
@@ -379,6 +471,71 @@ final class DocValuesGroupByOptimizedIterator {
             return statesByKey;
         }
 
+        private static Map<List<Object>, Object[]> applyAggregatesGroupedByOrdinals(
+            List<DocValueAggregator> aggregators,
+            IndexSearcher indexSearcher,
+            List<Reference> keyColumnRefs,
+            BiConsumer<Map<List<Object>, Object[]>, List<Object>> accountForNewKeyEntry,
+            RamAccounting ramAccounting,
+            Query query,
+            AtomicReference<Throwable> killed
+        ) throws IOException {
+
+            HashMap<List<Object>, Object[]> statesByKey = new HashMap<>();
+            OrdinalGroupKeys<Object[]> groupKeys = new OrdinalGroupKeys<>(
+                keyColumnRefs,
+                ramAccounting,
+                keys -> {
+                    Object[] states = statesByKey.get(keys);
+                    if (states == null) {
+                        states = new Object[aggregators.size()];
+                        for (int i = 0; i < aggregators.size(); i++) {
+                            states[i] = aggregators.get(i).initialState(ramAccounting);
+                        }
+                        accountForNewKeyEntry.accept(statesByKey, keys);
+                        statesByKey.put(keys, states);
+                    }
+                    return states;
+                }
+            );
+            Weight weight = indexSearcher.createWeight(
+                indexSearcher.rewrite(query),
+                ScoreMode.COMPLETE_NO_SCORES,
+                1f
+            );
+            List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
+            try {
+                for (var leaf : leaves) {
+                    raiseIfClosedOrKilled(killed);
+                    Scorer scorer = weight.scorer(leaf);
+                    if (scorer == null) {
+                        continue;
+                    }
+                    groupKeys.setNextReader(leaf.reader());
+                    for (int i = 0; i < aggregators.size(); i++) {
+                        aggregators.get(i).loadDocValues(leaf.reader());
+                    }
+
+                    DocIdSetIterator docs = scorer.iterator();
+                    Bits liveDocs = leaf.reader().getLiveDocs();
+                    for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+                        raiseIfClosedOrKilled(killed);
+                        if (docDeleted(liveDocs, doc)) {
+                            continue;
+                        }
+                        Object[] states = groupKeys.groupFor(doc);
+                        for (int i = 0; i < aggregators.size(); i++) {
+                            //noinspection unchecked
+                            aggregators.get(i).apply(ramAccounting, doc, states[i]);
+                        }
+                    }
+                }
+            } finally {
+                groupKeys.finish();
+            }
+            return statesByKey;
+        }
+
         private static boolean docDeleted(@Nullable Bits liveDocs, int doc) {
             return liveDocs != null && !liveDocs.get(doc);
         }
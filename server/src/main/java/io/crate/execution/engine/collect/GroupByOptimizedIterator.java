@@ -26,12 +26,14 @@ import static io.crate.execution.dsl.projection.Projections.shardProjections;
 import static io.crate.execution.engine.collect.LuceneShardCollectorProvider.formatSource;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -59,8 +61,10 @@ import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 
+import io.crate.breaker.MultiSizeEstimator;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.StringSizeEstimator;
+import io.crate.common.collections.Lists2;
 import io.crate.data.BatchIterator;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Row;
@@ -72,6 +76,7 @@ import io.crate.execution.dsl.projection.GroupProjection;
 import io.crate.execution.dsl.projection.Projection;
 import io.crate.execution.engine.aggregation.AggregationContext;
 import io.crate.execution.engine.aggregation.AggregationFunction;
+import io.crate.execution.engine.aggregation.GroupByMaps;
 import io.crate.execution.jobs.SharedShardContext;
 import io.crate.expression.InputCondition;
 import io.crate.expression.InputFactory;
@@ -107,7 +112,7 @@ final class GroupByOptimizedIterator {
      *
      * (+ being faster, - being slower)
      */
-    private static final double CARDINALITY_RATIO_THRESHOLD = 0.5;
+    static final double CARDINALITY_RATIO_THRESHOLD = 0.5;
     private static final long HASH_MAP_ENTRY_OVERHEAD = 32; // see private RamUsageEstimator.shallowSizeOfInstance(HashMap.Node.class)
 
     @Nullable
@@ -193,6 +198,142 @@ final class GroupByOptimizedIterator {
             groupProjection.mode());
     }
 
+    /**
+     * Like {@link #tryOptimizeSingleStringKey} but for GROUP BY on several keyword or numeric columns.
+     * The documents are grouped by the ordinals and values of the keys in the doc values, see {@link OrdinalGroupKeys}.
+     */
+    @Nullable
+    static BatchIterator<Row> tryOptimizeManyKeys(IndexShard indexShard,
+                                                  DocTableInfo table,
+                                                  LuceneQueryBuilder luceneQueryBuilder,
+                                                  FieldTypeLookup fieldTypeLookup,
+                                                  InputFactory inputFactory,
+                                                  DocInputFactory docInputFactory,
+                                                  RoutedCollectPhase collectPhase,
+                                                  CollectTask collectTask) {
+        Collection<? extends Projection> shardProjections = shardProjections(collectPhase.projections());
+        GroupProjection groupProjection = getManyKeysGroupProjection(shardProjections);
+        if (groupProjection == null) {
+            return null;
+        }
+        ArrayList<Reference> keyRefs = new ArrayList<>(groupProjection.keys().size());
+        for (Symbol key : groupProjection.keys()) {
+            Reference keyRef = getKeyRef(collectPhase.toCollect(), key);
+            if (keyRef == null) {
+                return null; // group by on non-reference
+            }
+            keyRef = (Reference) DocReferences.inverseSourceLookup(keyRef);
+            MappedFieldType keyFieldType = fieldTypeLookup.get(keyRef.column().fqn());
+            if (keyFieldType == null || !keyFieldType.hasDocValues()) {
+                return null;
+            }
+            keyRefs.add(keyRef);
+        }
+        if (!OrdinalGroupKeys.supports(keyRefs)) {
+            return null;
+        }
+        if (Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE)
+            || Symbols.containsColumn(collectPhase.where(), DocSysColumns.SCORE)) {
+            return null;
+        }
+        // acquire separate searcher, see hasHighCardinalityRatio
+        try (var searcher = indexShard.acquireSearcher("group-by-cardinality-check")) {
+            if (!OrdinalGroupKeys.hasLowCardinality(searcher.getIndexReader(), keyRefs)) {
+                return null;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+
+        ShardId shardId = indexShard.shardId();
+        SharedShardContext sharedShardContext = collectTask.sharedShardContexts().getOrCreateContext(shardId);
+        var searcher = sharedShardContext.acquireSearcher("group-by-ordinal-tuples:" + formatSource(collectPhase));
+        collectTask.addSearcher(sharedShardContext.readerId(), searcher);
+
+        final QueryShardContext queryShardContext = sharedShardContext.indexService().newQueryShardContext();
+
+        InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx = docInputFactory.getCtx(collectTask.txnCtx());
+        docCtx.add(collectPhase.toCollect().stream()::iterator);
+
+        InputFactory.Context<CollectExpression<Row, ?>> ctxForAggregations = inputFactory.ctxForAggregations(collectTask.txnCtx());
+        ctxForAggregations.add(groupProjection.values());
+
+        LuceneQueryBuilder.Context queryContext = luceneQueryBuilder.convert(
+            collectPhase.where(),
+            collectTask.txnCtx(),
+            indexShard.mapperService(),
+            indexShard.shardId().getIndexName(),
+            queryShardContext,
+            table,
+            sharedShardContext.indexService().cache()
+        );
+
+        return getManyKeysIterator(
+            searcher.item(),
+            keyRefs,
+            ctxForAggregations.aggregations(),
+            docCtx.expressions(),
+            ctxForAggregations.expressions(),
+            collectTask.getRamAccounting(),
+            collectTask.memoryManager(),
+            collectTask.minNodeVersion(),
+            new InputRow(docCtx.topLevelInputs()),
+            queryContext.query(),
+            new CollectorContext(sharedShardContext.readerId()),
+            groupProjection.mode());
+    }
+
+    static BatchIterator<Row> getManyKeysIterator(IndexSearcher indexSearcher,
+                                                  List<Reference> keyRefs,
+                                                  List<AggregationContext> aggregations,
+                                                  List<? extends LuceneCollectorExpression<?>> expressions,
+                                                  List<CollectExpression<Row, ?>> aggExpressions,
+                                                  RamAccounting ramAccounting,
+                                                  MemoryManager memoryManager,
+                                                  Version minNodeVersion,
+                                                  InputRow inputRow,
+                                                  Query query,
+                                                  CollectorContext collectorContext,
+                                                  AggregateMode aggregateMode) {
+        for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
+            expressions.get(i).startCollect(collectorContext);
+        }
+
+        AtomicReference<Throwable> killed = new AtomicReference<>();
+        return CollectingBatchIterator.newInstance(
+            () -> killed.set(BatchIterator.CLOSED),
+            killed::set,
+            () -> {
+                try {
+                    return CompletableFuture.completedFuture(
+                        getManyKeysRows(
+                            applyAggregatesGroupedByKeys(
+                                indexSearcher,
+                                keyRefs,
+                                aggregations,
+                                expressions,
+                                aggExpressions,
+                                ramAccounting,
+                                memoryManager,
+                                minNodeVersion,
+                                inputRow,
+                                query,
+                                killed
+                            ),
+                            keyRefs.size(),
+                            ramAccounting,
+                            aggregations,
+                            aggregateMode
+                        )
+                    );
+                } catch (Throwable t) {
+                    return CompletableFuture.failedFuture(t);
+                }
+            },
+            true
+        );
+    }
+
     static BatchIterator<Row> getIterator(BigArrays bigArrays,
                                           IndexSearcher indexSearcher,
                                           String keyColumnName,
@@ -270,6 +411,101 @@ final class GroupByOptimizedIterator {
             .iterator();
     }
 
+    private static Iterable<Row> getManyKeysRows(Map<List<Object>, Object[]> groupedStates,
+                                                 int numKeys,
+                                                 RamAccounting ramAccounting,
+                                                 List<AggregationContext> aggregations,
+                                                 AggregateMode mode) {
+        return () -> groupedStates.entrySet().stream()
+            .map(new Function<Map.Entry<List<Object>, Object[]>, Row>() {
+
+                final Object[] cells = new Object[numKeys + aggregations.size()];
+                final RowN row = new RowN(cells);
+
+                @Override
+                public Row apply(Map.Entry<List<Object>, Object[]> entry) {
+                    List<Object> keys = entry.getKey();
+                    for (int i = 0; i < numKeys; i++) {
+                        cells[i] = keys.get(i);
+                    }
+                    Object[] states = entry.getValue();
+                    for (int i = 0, c = numKeys; i < states.length; i++, c++) {
+                        //noinspection unchecked
+                        cells[c] = mode.finishCollect(ramAccounting, aggregations.get(i).function(), states[i]);
+                    }
+                    return row;
+                }
+            })
+            .iterator();
+    }
+
+    private static Map<List<Object>, Object[]> applyAggregatesGroupedByKeys(IndexSearcher indexSearcher,
+                                                                            List<Reference> keyRefs,
+                                                                            List<AggregationContext> aggregations,
+                                                                            List<? extends LuceneCollectorExpression<?>> expressions,
+                                                                            List<CollectExpression<Row, ?>> aggExpressions,
+                                                                            RamAccounting ramAccounting,
+                                                                            MemoryManager memoryManager,
+                                                                            Version minNodeVersion,
+                                                                            InputRow inputRow,
+                                                                            Query query,
+                                                                            AtomicReference<Throwable> killed) throws IOException {
+        final HashMap<List<Object>, Object[]> statesByKeys = new HashMap<>();
+        final BiConsumer<Map<List<Object>, Object[]>, List<Object>> accountForNewEntry = GroupByMaps.accountForNewEntry(
+            ramAccounting,
+            new MultiSizeEstimator(Lists2.map(keyRefs, Reference::valueType)),
+            null
+        );
+        // Unlike the single key variant, the states are shared by all segments.
+        // The keys are resolved once per distinct tuple and segment, so there is nothing to merge at segment boundaries.
+        final OrdinalGroupKeys<Object[]> groupKeys = new OrdinalGroupKeys<>(
+            keyRefs,
+            ramAccounting,
+            keys -> {
+                Object[] states = statesByKeys.get(keys);
+                if (states == null) {
+                    states = newStates(aggregations, ramAccounting, memoryManager, minNodeVersion);
+                    accountForNewEntry.accept(statesByKeys, keys);
+                    statesByKeys.put(keys, states);
+                }
+                return states;
+            }
+        );
+        final Weight weight = indexSearcher.createWeight(indexSearcher.rewrite(query), ScoreMode.COMPLETE_NO_SCORES, 1f);
+        final List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
+        try {
+            for (LeafReaderContext leaf : leaves) {
+                raiseIfClosedOrKilled(killed);
+                Scorer scorer = weight.scorer(leaf);
+                if (scorer == null) {
+                    continue;
+                }
+                for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
+                    expressions.get(i).setNextReader(leaf);
+                }
+                groupKeys.setNextReader(leaf.reader());
+                DocIdSetIterator docs = scorer.iterator();
+                Bits liveDocs = leaf.reader().getLiveDocs();
+                for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+                    raiseIfClosedOrKilled(killed);
+                    if (docDeleted(liveDocs, doc)) {
+                        continue;
+                    }
+                    for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
+                        expressions.get(i).setNextDocId(doc);
+                    }
+                    for (int i = 0, expressionsSize = aggExpressions.size(); i < expressionsSize; i++) {
+                        aggExpressions.get(i).setNextRow(inputRow);
+                    }
+                    aggregateValues(aggregations, ramAccounting, memoryManager, groupKeys.groupFor(doc));
+                }
+            }
+        } finally {
+            groupKeys.finish();
+        }
+        return statesByKeys;
+    }
+
     private static Map<BytesRef, Object[]> applyAggregatesGroupedByKey(BigArrays bigArrays,
                                                                        IndexSearcher indexSearcher,
                                                                        String keyColumnName,
@@ -403,6 +639,22 @@ final class GroupByOptimizedIterator {
         }
     }
 
+    private static Object[] newStates(List<AggregationContext> aggregations,
+                                      RamAccounting ramAccounting,
+                                      MemoryManager memoryManager,
+                                      Version minNodeVersion) {
+        Object[] states = new Object[aggregations.size()];
+        for (int i = 0; i < aggregations.size(); i++) {
+            states[i] = aggregations.get(i).function().newState(
+                ramAccounting,
+                Version.CURRENT,
+                minNodeVersion,
+                memoryManager
+            );
+        }
+        return states;
+    }
+
     private static Object[] initStates(List<AggregationContext> aggregations,
                                        RamAccounting ramAccounting,
                                        MemoryManager memoryManager,
@@ -454,6 +706,22 @@ final class GroupByOptimizedIterator {
         return groupProjection;
     }
 
+    @Nullable
+    private static GroupProjection getManyKeysGroupProjection(Collection<? extends Projection> shardProjections) {
+        if (shardProjections.size() != 1) {
+            return null;
+        }
+        Projection shardProjection = shardProjections.iterator().next();
+        if (!(shardProjection instanceof GroupProjection)) {
+            return null;
+        }
+        GroupProjection groupProjection = (GroupProjection) shardProjection;
+        if (groupProjection.keys().size() < 2) {
+            return null;
+        }
+        return groupProjection;
+    }
+
     private static void raiseIfClosedOrKilled(AtomicReference<Throwable> killed) {
         Throwable killedException = killed.get();
         if (killedException != null) {
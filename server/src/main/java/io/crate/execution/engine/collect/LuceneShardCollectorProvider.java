@@ -185,6 +185,19 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
         if (it != null) {
             return it;
         }
+        it = GroupByOptimizedIterator.tryOptimizeManyKeys(
+            indexShard,
+            table,
+            luceneQueryBuilder,
+            fieldTypeLookup,
+            new InputFactory(nodeCtx),
+            docInputFactory,
+            normalizedPhase,
+            collectTask
+        );
+        if (it != null) {
+            return it;
+        }
         return DocValuesAggregates.tryOptimize(
             nodeCtx.functions(),
             indexShard,
@@ -0,0 +1,328 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.PackedInts;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.common.annotations.VisibleForTesting;
+import io.crate.exceptions.GroupByOnArrayUnsupportedException;
+import io.crate.metadata.Reference;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import io.netty.util.collection.LongObjectHashMap;
+
+/**
+ * Groups the documents of a segment by the tuple of their key values in the doc values:
+ * the segment ordinals of keyword columns and the raw values of numeric columns.
+ *
+ * <p>
+ * The values of the keys are only looked up the first time a tuple is seen within a segment.
+ * The groups of all documents with the same tuple are then resolved with a single hash lookup,
+ * without materializing the keys for each document.
+ * If all keys are keyword columns and their ordinals fit into a long, the tuple is packed into a single long.
+ * </p>
+ *
+ * @param <G> the type of the group, e.g. the aggregation states of a key.
+ */
+final class OrdinalGroupKeys<G> {
+
+    /**
+     * One bit per key is used to mark missing numeric values
+     */
+    private static final int MAX_KEYS = Long.SIZE - 1;
+
+    private static final long PACKED_ENTRY_OVERHEAD = 24;
+    private static final long TUPLE_ENTRY_OVERHEAD = 36 + RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 4;
+
+    private final String[] columnNames;
+    private final DataType<?>[] types;
+    private final Function<List<Object>, G> getOrCreateGroup;
+    private final RamAccounting ramAccounting;
+
+    private final SortedSetDocValues[] ordinals;
+    private final SortedNumericDocValues[] numerics;
+    private final int[] shifts;
+    private final long[] tuple;
+    private final Tuple probe;
+    private final long tupleBytes;
+
+    private final LongObjectHashMap<G> groupsByPackedTuple = new LongObjectHashMap<>();
+    private final HashMap<Tuple, G> groupsByTuple = new HashMap<>();
+    private boolean packed;
+    private long segmentBytes = 0;
+
+    static boolean supports(List<Reference> keyRefs) {
+        if (keyRefs.isEmpty() || keyRefs.size() > MAX_KEYS) {
+            return false;
+        }
+        for (Reference keyRef : keyRefs) {
+            switch (keyRef.valueType().id()) {
+                case StringType.ID:
+                case ByteType.ID:
+                case ShortType.ID:
+                case IntegerType.ID:
+                case LongType.ID:
+                case TimestampType.ID_WITH_TZ:
+                case TimestampType.ID_WITHOUT_TZ:
+                case FloatType.ID:
+                case DoubleType.ID:
+                    break;
+
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Grouping on tuples only pays off if there are much fewer distinct tuples than documents: the values of the keys
+     * are resolved for each distinct tuple of each segment and numeric keys don't have ordinals to begin with.
+     *
+     * @return true if at least one key is a keyword column and none of the keyword columns has a high cardinality
+     *         ratio (see {@link GroupByOptimizedIterator#CARDINALITY_RATIO_THRESHOLD}) in any segment.
+     *         The number of distinct tuples is at least the number of distinct values of each key,
+     *         so a single key with many distinct values makes grouping on tuples slower than on the values.
+     */
+    static boolean hasLowCardinality(IndexReader reader, List<Reference> keyRefs) throws IOException {
+        boolean hasKeywordKey = false;
+        for (Reference keyRef : keyRefs) {
+            if (keyRef.valueType().id() != StringType.ID) {
+                continue;
+            }
+            hasKeywordKey = true;
+            String columnName = keyRef.column().fqn();
+            for (LeafReaderContext leaf : reader.leaves()) {
+                int numDocs = leaf.reader().numDocs();
+                if (numDocs == 0) {
+                    continue;
+                }
+                long valueCount = DocValues.getSortedSet(leaf.reader(), columnName).getValueCount();
+                if (valueCount / (double) numDocs > GroupByOptimizedIterator.CARDINALITY_RATIO_THRESHOLD) {
+                    return false;
+                }
+            }
+        }
+        return hasKeywordKey;
+    }
+
+    /**
+     * @param getOrCreateGroup called with the values of the keys once per distinct tuple and segment.
+     */
+    OrdinalGroupKeys(List<Reference> keyRefs,
+                     RamAccounting ramAccounting,
+                     Function<List<Object>, G> getOrCreateGroup) {
+        assert supports(keyRefs) : "Types of keys must be supported: " + keyRefs;
+        int numKeys = keyRefs.size();
+        this.columnNames = new String[numKeys];
+        this.types = new DataType<?>[numKeys];
+        for (int i = 0; i < numKeys; i++) {
+            Reference keyRef = keyRefs.get(i);
+            columnNames[i] = keyRef.column().fqn();
+            types[i] = keyRef.valueType();
+        }
+        this.ramAccounting = ramAccounting;
+        this.getOrCreateGroup = getOrCreateGroup;
+        this.ordinals = new SortedSetDocValues[numKeys];
+        this.numerics = new SortedNumericDocValues[numKeys];
+        this.shifts = new int[numKeys];
+        // The last element holds the bits of the missing numeric values
+        this.tuple = new long[numKeys + 1];
+        this.probe = new Tuple(tuple);
+        this.tupleBytes = RamUsageEstimator.sizeOf(tuple);
+    }
+
+    void setNextReader(LeafReader reader) throws IOException {
+        releaseSegmentGroups();
+        int bits = 0;
+        for (int i = 0; i < types.length; i++) {
+            if (types[i].id() == StringType.ID) {
+                ordinals[i] = DocValues.getSortedSet(reader, columnNames[i]);
+                shifts[i] = bits;
+                // ordinal + 1, 0 is used for missing values
+                bits += PackedInts.bitsRequired(ordinals[i].getValueCount());
+            } else {
+                numerics[i] = DocValues.getSortedNumeric(reader, columnNames[i]);
+                bits = Long.SIZE;
+            }
+        }
+        packed = bits < Long.SIZE;
+    }
+
+    G groupFor(int doc) throws IOException {
+        long missing = 0;
+        for (int i = 0; i < types.length; i++) {
+            SortedSetDocValues ords = ordinals[i];
+            if (ords == null) {
+                SortedNumericDocValues values = numerics[i];
+                if (values.advanceExact(doc)) {
+                    if (values.docValueCount() > 1) {
+                        throw new GroupByOnArrayUnsupportedException(columnNames[i]);
+                    }
+                    tuple[i] = values.nextValue();
+                } else {
+                    tuple[i] = 0;
+                    missing |= 1L << i;
+                }
+            } else if (ords.advanceExact(doc)) {
+                tuple[i] = ords.nextOrd();
+                if (ords.nextOrd() != SortedSetDocValues.NO_MORE_ORDS) {
+                    throw new GroupByOnArrayUnsupportedException(columnNames[i]);
+                }
+            } else {
+                tuple[i] = -1;
+            }
+        }
+        tuple[types.length] = missing;
+        if (packed) {
+            long packedTuple = 0;
+            for (int i = 0; i < types.length; i++) {
+                packedTuple |= (tuple[i] + 1) << shifts[i];
+            }
+            G group = groupsByPackedTuple.get(packedTuple);
+            if (group == null) {
+                group = getOrCreateGroup.apply(resolveKeys());
+                groupsByPackedTuple.put(packedTuple, group);
+                accountSegmentBytes(PACKED_ENTRY_OVERHEAD);
+            }
+            return group;
+        } else {
+            probe.rehash();
+            G group = groupsByTuple.get(probe);
+            if (group == null) {
+                group = getOrCreateGroup.apply(resolveKeys());
+                groupsByTuple.put(new Tuple(tuple.clone()), group);
+                accountSegmentBytes(TUPLE_ENTRY_OVERHEAD + tupleBytes);
+            }
+            return group;
+        }
+    }
+
+    /**
+     * @return true if the tuples of the current segment are packed into a single long
+     */
+    @VisibleForTesting
+    boolean packed() {
+        return packed;
+    }
+
+    /**
+     * Releases the groups of the current segment. The groups created by {@code getOrCreateGroup} are kept.
+     */
+    void finish() {
+        releaseSegmentGroups();
+    }
+
+    private List<Object> resolveKeys() throws IOException {
+        ArrayList<Object> keys = new ArrayList<>(types.length);
+        long missing = tuple[types.length];
+        for (int i = 0; i < types.length; i++) {
+            long value = tuple[i];
+            SortedSetDocValues ords = ordinals[i];
+            if (ords == null) {
+                keys.add((missing & (1L << i)) == 0 ? decodeNumeric(types[i], value) : null);
+            } else {
+                keys.add(value == -1 ? null : ords.lookupOrd(value).utf8ToString());
+            }
+        }
+        return keys;
+    }
+
+    private static Object decodeNumeric(DataType<?> type, long value) {
+        switch (type.id()) {
+            case FloatType.ID:
+                return NumericUtils.sortableIntToFloat((int) value);
+            case DoubleType.ID:
+                return NumericUtils.sortableLongToDouble(value);
+            default:
+                return type.sanitizeValue(value);
+        }
+    }
+
+    private void accountSegmentBytes(long bytes) {
+        ramAccounting.addBytes(bytes);
+        segmentBytes += bytes;
+    }
+
+    private void releaseSegmentGroups() {
+        groupsByPackedTuple.clear();
+        groupsByTuple.clear();
+        Arrays.fill(ordinals, null);
+        Arrays.fill(numerics, null);
+        if (segmentBytes > 0) {
+            ramAccounting.addBytes(-segmentBytes);
+            segmentBytes = 0;
+        }
+    }
+
+    private static final class Tuple {
+
+        private final long[] values;
+        private int hash;
+
+        Tuple(long[] values) {
+            this.values = values;
+            rehash();
+        }
+
+        /**
+         * Must be called after the values changed, only used for the probe which is never stored in a map.
+         */
+        void rehash() {
+            hash = Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Tuple && Arrays.equals(values, ((Tuple) o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
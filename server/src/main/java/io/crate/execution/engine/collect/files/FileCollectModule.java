@@ -33,5 +33,8 @@ public class FileCollectModule extends AbstractModule {
 
         binder.addBinding(LocalFsFileInputFactory.NAME).to(LocalFsFileInputFactory.class).asEagerSingleton();
         binder.addBinding(S3FileInputFactory.NAME).to(S3FileInputFactory.class).asEagerSingleton();
+
+        // The streams of COPY FROM STDIN are not a file input, they are only accessible to the job importing them
+        bind(StdinStreams.class).asEagerSingleton();
     }
 }
@@ -43,5 +43,22 @@ public interface FileInput {
 
     InputStream getStream(URI uri) throws IOException;
 
+    /**
+     * @return a stream of the file starting at the given byte offset
+     */
+    default InputStream getStream(URI uri, long offset) throws IOException {
+        InputStream stream = getStream(uri);
+        stream.skipNBytes(offset);
+        return stream;
+    }
+
+    /**
+     * @return the size of the file in bytes or -1 if it is unknown.
+     *         Only files with a known size can be split into ranges which are read in parallel.
+     */
+    default long size(URI uri) throws IOException {
+        return -1L;
+    }
+
     boolean sharedStorageDefault();
 }
@@ -21,6 +21,7 @@
 
 package io.crate.execution.engine.collect.files;
 
+import io.crate.breaker.RamAccounting;
 import io.crate.common.collections.Tuple;
 import io.crate.data.BatchIterator;
 import io.crate.data.Input;
@@ -28,6 +29,8 @@ import io.crate.data.Row;
 import io.crate.exceptions.Exceptions;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
 import io.crate.expression.InputRow;
+import io.crate.expression.reference.file.SourceLineNumberExpression;
+import io.crate.parquet.ParquetReader;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -65,7 +68,15 @@ public class FileReadingIterator implements BatchIterator<Row> {
     private final Boolean shared;
     private final int numReaders;
     private final int readerNumber;
+    private final int numLocalReaders;
+    private final int localReaderNumber;
+    private final long splitSizeInBytes;
+    private final LineCounter lineCounter;
+    @Nullable
+    private final Collection<String> targetColumns;
     private final boolean compressed;
+    private final boolean collectsLineNumbers;
+    private final RamAccounting ramAccounting;
 
     private static final Pattern HAS_GLOBS_PATTERN = Pattern.compile("(.*)[^\\\\]\\*.*");
     private static final Predicate<URI> MATCH_ALL_PREDICATE = (URI input) -> true;
@@ -77,9 +88,12 @@ public class FileReadingIterator implements BatchIterator<Row> {
     private FileUriCollectPhase.InputFormat inputFormat;
     private Iterator<Tuple<FileInput, UriWithGlob>> fileInputsIterator = null;
     private Tuple<FileInput, UriWithGlob> currentInput = null;
-    private Iterator<URI> currentInputIterator = null;
+    private Iterator<FileSplit> currentInputIterator = null;
+    private FileSplit currentSplit;
     private URI currentUri;
+    private long numSplitsSeen;
     private BufferedReader currentReader = null;
+    private ParquetReader currentParquetReader = null;
     private long currentLineNumber;
     private final Row row;
     private LineProcessor lineProcessor;
@@ -92,16 +106,29 @@ public class FileReadingIterator implements BatchIterator<Row> {
                                 Boolean shared,
                                 int numReaders,
                                 int readerNumber,
-                                FileUriCollectPhase.InputFormat inputFormat) {
+                                int numLocalReaders,
+                                int localReaderNumber,
+                                long splitSizeInBytes,
+                                LineCounter lineCounter,
+                                @Nullable Collection<String> targetColumns,
+                                FileUriCollectPhase.InputFormat inputFormat,
+                                RamAccounting ramAccounting) {
         this.compressed = compression != null && compression.equalsIgnoreCase("gzip");
         this.row = new InputRow(inputs);
         this.fileInputFactories = fileInputFactories;
         this.shared = shared;
         this.numReaders = numReaders;
         this.readerNumber = readerNumber;
+        this.numLocalReaders = numLocalReaders;
+        this.localReaderNumber = localReaderNumber;
+        this.splitSizeInBytes = splitSizeInBytes;
+        this.lineCounter = lineCounter;
+        this.targetColumns = targetColumns;
         this.urisWithGlob = getUrisWithGlob(fileUris);
         this.collectorExpressions = collectorExpressions;
+        this.collectsLineNumbers = collectsLineNumbers(collectorExpressions);
         this.inputFormat = inputFormat;
+        this.ramAccounting = ramAccounting;
         initCollectorState();
     }
 
@@ -124,8 +151,49 @@ public class FileReadingIterator implements BatchIterator<Row> {
                                                  int numReaders,
                                                  int readerNumber,
                                                  FileUriCollectPhase.InputFormat inputFormat) {
-        return new FileReadingIterator(fileUris, inputs, collectorExpressions,
-            compression, fileInputFactories, shared, numReaders, readerNumber, inputFormat);
+        return newInstance(fileUris, inputs, collectorExpressions, compression, fileInputFactories, shared,
+            numReaders, readerNumber, 1, 0, 0L, new LineCounter(), null, inputFormat, RamAccounting.NO_ACCOUNTING);
+    }
+
+    /**
+     * Creates a FileReadingIterator which only reads a part of the files assigned to this node, so that multiple
+     * readers on a node can read in parallel.
+     *
+     * @param numLocalReaders number of readers on this node
+     * @param localReaderNumber number of this reader on this node, in the range of [0, numLocalReaders)
+     * @param splitSizeInBytes uncompressed files with a known size larger than this are split into byte ranges
+     *                         which can be read by different readers. 0 to disable splitting.
+     * @param lineCounter counts the lines before the splits of the files, shared by the local readers of a node.
+     * @param targetColumns the columns which are read from files of a columnar format, or null to read all columns.
+     * @param ramAccounting accounts the memory used to read files of a columnar format.
+     */
+    public static BatchIterator<Row> newInstance(Collection<String> fileUris,
+                                                 List<Input<?>> inputs,
+                                                 Iterable<LineCollectorExpression<?>> collectorExpressions,
+                                                 String compression,
+                                                 Map<String, FileInputFactory> fileInputFactories,
+                                                 Boolean shared,
+                                                 int numReaders,
+                                                 int readerNumber,
+                                                 int numLocalReaders,
+                                                 int localReaderNumber,
+                                                 long splitSizeInBytes,
+                                                 LineCounter lineCounter,
+                                                 @Nullable Collection<String> targetColumns,
+                                                 FileUriCollectPhase.InputFormat inputFormat,
+                                                 RamAccounting ramAccounting) {
+        return new FileReadingIterator(fileUris, inputs, collectorExpressions, compression, fileInputFactories,
+            shared, numReaders, readerNumber, numLocalReaders, localReaderNumber, splitSizeInBytes, lineCounter,
+            targetColumns, inputFormat, ramAccounting);
+    }
+
+    private static boolean collectsLineNumbers(Iterable<LineCollectorExpression<?>> collectorExpressions) {
+        for (LineCollectorExpression<?> collectorExpression : collectorExpressions) {
+            if (collectorExpression instanceof SourceLineNumberExpression) {
+                return true;
+            }
+        }
+        return false;
     }
 
     private void initCollectorState() {
@@ -138,6 +206,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
             fileInputs.add(new Tuple<>(fileInput, fileUri));
         }
         fileInputsIterator = fileInputs.iterator();
+        numSplitsSeen = 0;
     }
 
     @Override
@@ -150,7 +219,14 @@ public class FileReadingIterator implements BatchIterator<Row> {
     public boolean moveNext() {
         raiseIfKilled();
         try {
-            if (currentReader != null) {
+            if (currentParquetReader != null) {
+                if (nextParquetRow()) {
+                    lineProcessor.process(currentParquetReader);
+                    return true;
+                }
+                closeCurrentReader();
+                return moveNext();
+            } else if (currentReader != null) {
                 String line = getLine(currentReader, currentLineNumber, 0);
                 if (line == null) {
                     closeCurrentReader();
@@ -159,7 +235,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
                 lineProcessor.process(line);
                 return true;
             } else if (currentInputIterator != null && currentInputIterator.hasNext()) {
-                advanceToNextUri(currentInput.v1());
+                advanceToNextSplit(currentInput.v1());
                 return moveNext();
             } else if (fileInputsIterator != null && fileInputsIterator.hasNext()) {
                 advanceToNextFileInput();
@@ -174,36 +250,139 @@ public class FileReadingIterator implements BatchIterator<Row> {
         }
     }
 
-    private void advanceToNextUri(FileInput fileInput) throws IOException {
-        currentUri = currentInputIterator.next();
-        initCurrentReader(fileInput, currentUri);
+    private boolean nextParquetRow() throws IOException {
+        try {
+            return currentParquetReader.nextRow();
+        } catch (IOException e) {
+            // Continue with the next split after reporting the failure
+            closeCurrentReader();
+            throw e;
+        }
+    }
+
+    private void advanceToNextSplit(FileInput fileInput) throws IOException {
+        currentSplit = currentInputIterator.next();
+        currentUri = currentSplit.uri;
+        initCurrentReader(fileInput, currentSplit);
     }
 
     private void advanceToNextFileInput() throws IOException {
         currentInput = fileInputsIterator.next();
         FileInput fileInput = currentInput.v1();
         UriWithGlob fileUri = currentInput.v2();
-        Predicate<URI> uriPredicate = generateUriPredicate(fileInput, fileUri.globPredicate);
+        Predicate<URI> uriPredicate = generateUriPredicate(fileUri.globPredicate);
         List<URI> uris = getUris(fileInput, fileUri.uri, fileUri.preGlobUri, uriPredicate);
 
         if (uris.size() > 0) {
-            currentInputIterator = uris.iterator();
-            advanceToNextUri(fileInput);
-        } else if (fileUri.preGlobUri != null) {
+            currentInputIterator = assignedSplits(fileInput, uris).iterator();
+        } else if (fileUri.preGlobUri != null && localReaderNumber == 0) {
+            // Only reported once per node
             lineProcessor.startWithUri(fileUri.uri);
             throw new IOException("Cannot find any URI matching: " + fileUri.uri.toString());
         }
     }
 
-    private void initCurrentReader(FileInput fileInput, URI uri) throws IOException {
+    /**
+     * Splits the files into ranges of {@link #splitSizeInBytes} and returns the splits which are read by this reader.
+     *
+     * <p>
+     * With shared storage the first split of a file is assigned to a node by the hash of the URI and the following
+     * splits to the following nodes. Without shared storage every node reads all splits of the files it sees.
+     * Within a node the splits are distributed round-robin across the local readers.
+     * All readers have to see the files in the same order for this.
+     * </p>
+     */
+    private List<FileSplit> assignedSplits(FileInput fileInput, List<URI> uris) throws IOException {
+        boolean sharedStorage = Objects.requireNonNullElse(shared, fileInput.sharedStorageDefault());
+        List<FileSplit> splits = new ArrayList<>();
+        for (URI uri : uris) {
+            long size = splitSizeInBytes > 0 && !compressed ? fileInput.size(uri) : -1L;
+            long numSplits = size > splitSizeInBytes ? (size + splitSizeInBytes - 1) / splitSizeInBytes : 1L;
+            int firstReader = sharedStorage ? readerOf(uri) : -1;
+            for (long i = 0; i < numSplits; i++) {
+                if (sharedStorage && (firstReader + i) % numReaders != readerNumber) {
+                    continue;
+                }
+                if (numSplitsSeen++ % numLocalReaders != localReaderNumber) {
+                    continue;
+                }
+                if (numSplits == 1) {
+                    splits.add(new FileSplit(uri, 0, -1L));
+                } else {
+                    long start = i * splitSizeInBytes;
+                    splits.add(new FileSplit(uri, start, Math.min(size, start + splitSizeInBytes)));
+                }
+            }
+        }
+        return splits;
+    }
+
+    private int readerOf(URI uri) {
+        int hash = uri.hashCode();
+        if (hash == Integer.MIN_VALUE) {
+            hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
+        }
+        return Math.abs(hash) % numReaders;
+    }
+
+    private void initCurrentReader(FileInput fileInput, FileSplit split) throws IOException {
+        URI uri = split.uri;
         lineProcessor.startWithUri(uri);
-        InputStream stream = fileInput.getStream(uri);
-        currentReader = createBufferedReader(stream);
         currentLineNumber = 0;
-        lineProcessor.readFirstLine(currentUri, inputFormat, currentReader);
+        if (LineParser.isInputParquet(inputFormat, uri)) {
+            initParquetReader(fileInput, split);
+            return;
+        }
+        if (split.isWholeFile()) {
+            currentReader = createBufferedReader(fileInput.getStream(uri));
+            lineProcessor.readFirstLine(uri, inputFormat, currentReader);
+            return;
+        }
+        boolean isCsv = LineParser.isInputCsv(inputFormat, uri);
+        if (split.start > 0 && collectsLineNumbers) {
+            // The lines before a split are only counted if the line numbers are collected, e.g. for RETURN SUMMARY
+            long linesBefore = lineCounter.linesBefore(fileInput, uri, split.start, splitSizeInBytes);
+            // The header of a CSV file is not counted as a line
+            lineProcessor.startWithUri(uri, isCsv ? Math.max(0, linesBefore - 1) : linesBefore);
+        }
+        currentReader = createBufferedReader(LineRangeInputStream.open(fileInput, uri, split.start, split.end));
+        if (split.start > 0 && isCsv) {
+            // The header is only contained in the first split
+            try (BufferedReader headerReader = createBufferedReader(fileInput.getStream(uri))) {
+                lineProcessor.readFirstLine(uri, inputFormat, headerReader);
+            }
+        } else {
+            lineProcessor.readFirstLine(uri, inputFormat, currentReader);
+        }
+    }
+
+    /**
+     * Parquet files are read by row groups; a split contains the row groups which start within its byte range.
+     */
+    private void initParquetReader(FileInput fileInput, FileSplit split) throws IOException {
+        URI uri = split.uri;
+        long size = fileInput.size(uri);
+        if (size < 0) {
+            throw new IOException("Cannot read parquet file, the size of the file is unknown: " + uri);
+        }
+        ParquetReader reader = ParquetReader.open(
+            offset -> fileInput.getStream(uri, offset), size, targetColumns, ramAccounting);
+        if (!split.isWholeFile()) {
+            long rowsBefore = reader.selectRowGroups(split.start, split.end);
+            lineProcessor.startWithUri(uri, rowsBefore);
+        }
+        currentParquetReader = reader;
     }
 
     private void closeCurrentReader() {
+        if (currentParquetReader != null) {
+            try {
+                currentParquetReader.close();
+            } catch (IOException e) {
+                LOGGER.error("Unable to close reader for {}", e, currentUri);
+            }
+            currentParquetReader = null;
+        }
         if (currentReader != null) {
             try {
                 currentReader.close();
@@ -235,7 +414,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
             } else {
                 long startLine = currentLineNumber + 1;
                 closeCurrentReader();
-                initCurrentReader(currentInput.v1(), currentUri);
+                initCurrentReader(currentInput.v1(), currentSplit);
                 return getLine(currentReader, startLine, retry + 1);
             }
         } catch (Exception e) {
@@ -259,6 +438,7 @@ public class FileReadingIterator implements BatchIterator<Row> {
         fileInputsIterator = null;
         currentInputIterator = null;
         currentInput = null;
+        currentSplit = null;
         currentUri = null;
     }
 
@@ -277,6 +457,25 @@ public class FileReadingIterator implements BatchIterator<Row> {
         return true;
     }
 
+    private static class FileSplit {
+        final URI uri;
+        final long start;
+        /**
+         * exclusive end of the byte range or -1 if the whole file is read
+         */
+        final long end;
+
+        FileSplit(URI uri, long start, long end) {
+            this.uri = uri;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean isWholeFile() {
+            return end == -1L;
+        }
+    }
+
     private static class UriWithGlob {
         final URI uri;
         final URI preGlobUri;
@@ -382,25 +581,11 @@ public class FileReadingIterator implements BatchIterator<Row> {
         return uris;
     }
 
-    private Predicate<URI> generateUriPredicate(FileInput fileInput, @Nullable Predicate<URI> globPredicate) {
-        Predicate<URI> moduloPredicate;
-        boolean sharedStorage = Objects.requireNonNullElse(shared, fileInput.sharedStorageDefault());
-        if (sharedStorage) {
-            moduloPredicate = input -> {
-                int hash = input.hashCode();
-                if (hash == Integer.MIN_VALUE) {
-                    hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
-                }
-                return Math.abs(hash) % numReaders == readerNumber;
-            };
-        } else {
-            moduloPredicate = MATCH_ALL_PREDICATE;
-        }
-
+    private static Predicate<URI> generateUriPredicate(@Nullable Predicate<URI> globPredicate) {
         if (globPredicate != null) {
-            return moduloPredicate.and(globPredicate);
+            return globPredicate;
         }
-        return moduloPredicate;
+        return MATCH_ALL_PREDICATE;
     }
 
     private void raiseIfKilled() {
@@ -0,0 +1,116 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counts the non-empty lines of files which start before the splits of the files.
+ * This allows a reader of a split to report line numbers relative to the beginning of the file.
+ *
+ * <p>
+ * A line counter is shared by the local readers of a node. The lines of a file are counted in a single pass up to
+ * the start of the last requested split, and the number of lines before each split passed is kept. Each byte of a
+ * file is read at most once, regardless of how many readers read its splits and in which order they request them.
+ * </p>
+ */
+public final class LineCounter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final ConcurrentMap<URI, FileLines> files = new ConcurrentHashMap<>();
+
+    /**
+     * @param splitStart the start of a split, a multiple of splitSizeInBytes
+     * @return the number of non-empty lines which start before the split
+     */
+    long linesBefore(FileInput fileInput, URI uri, long splitStart, long splitSizeInBytes) throws IOException {
+        assert splitSizeInBytes > 0 && splitStart % splitSizeInBytes == 0 : "splitStart must be the start of a split";
+        FileLines lines = files.computeIfAbsent(uri, u -> new FileLines());
+        return lines.linesBefore(fileInput, uri, splitStart, splitSizeInBytes);
+    }
+
+    private static final class FileLines {
+
+        /**
+         * The number of lines before the splits which were passed so far, by the start of the split
+         */
+        private final Map<Long, Long> linesBeforeSplit = new HashMap<>();
+
+        private long offset = 0;
+        private long completedLines = 0;
+        private boolean lineHasContent = false;
+
+        synchronized long linesBefore(FileInput fileInput,
+                                      URI uri,
+                                      long splitStart,
+                                      long splitSizeInBytes) throws IOException {
+            Long lines = linesBeforeSplit.get(splitStart);
+            if (lines != null) {
+                return lines;
+            }
+            if (splitStart > offset) {
+                try (InputStream in = fileInput.getStream(uri, offset)) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    while (offset < splitStart) {
+                        // Stops at the start of each split to keep the number of lines before it
+                        long nextSplitStart = (offset / splitSizeInBytes + 1) * splitSizeInBytes;
+                        int n = in.read(buffer, 0, (int) Math.min(buffer.length, nextSplitStart - offset));
+                        if (n == -1) {
+                            break;
+                        }
+                        for (int i = 0; i < n; i++) {
+                            byte b = buffer[i];
+                            if (b == '\n') {
+                                if (lineHasContent) {
+                                    completedLines++;
+                                }
+                                lineHasContent = false;
+                            } else if (b != '\r') {
+                                lineHasContent = true;
+                            }
+                        }
+                        offset += n;
+                        if (offset == nextSplitStart) {
+                            linesBeforeSplit.put(offset, currentLines());
+                        }
+                    }
+                }
+            }
+            return currentLines();
+        }
+
+        /**
+         * A line which starts before the current offset but ends after it is read by the previous split
+         */
+        private long currentLines() {
+            return lineHasContent ? completedLines + 1 : completedLines;
+        }
+    }
+}
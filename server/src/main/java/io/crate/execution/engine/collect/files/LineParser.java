@@ -58,7 +58,11 @@ public class LineParser {
         }
     }
 
-    private boolean isInputCsv(FileUriCollectPhase.InputFormat inputFormat, URI currentUri) {
+    static boolean isInputParquet(FileUriCollectPhase.InputFormat inputFormat, URI currentUri) {
+        return (inputFormat == FileUriCollectPhase.InputFormat.PARQUET) || currentUri.toString().endsWith(".parquet");
+    }
+
+    static boolean isInputCsv(FileUriCollectPhase.InputFormat inputFormat, URI currentUri) {
         return (inputFormat == FileUriCollectPhase.InputFormat.CSV) || currentUri.toString().endsWith(".csv");
     }
 }
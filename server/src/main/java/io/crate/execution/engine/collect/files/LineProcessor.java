@@ -23,6 +23,7 @@ package io.crate.execution.engine.collect.files;
 
 import io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat;
 import io.crate.expression.reference.file.LineContext;
+import io.crate.parquet.ParquetReader;
 
 import java.io.BufferedReader;
 import java.io.IOException;
@@ -32,6 +33,7 @@ public final class LineProcessor {
 
     private final LineContext lineContext = new LineContext();
     private final LineParser lineParser = new LineParser();
+    private final ParquetRowParser parquetRowParser = new ParquetRowParser();
 
     public void startCollect(Iterable<LineCollectorExpression<?>> collectorExpressions) {
         for (LineCollectorExpression<?> collectorExpression : collectorExpressions) {
@@ -44,6 +46,15 @@ public final class LineProcessor {
         lineContext.currentUri(currentUri);
     }
 
+    /**
+     * Like {@link #startWithUri(URI)} for a file which is read starting after the given number of lines,
+     * so that the line numbers stay relative to the beginning of the file.
+     */
+    void startWithUri(URI currentUri, long linesBefore) {
+        lineContext.currentLineNumber(linesBefore);
+        lineContext.currentUri(currentUri);
+    }
+
     void readFirstLine(URI currentUri, InputFormat inputFormat, BufferedReader currentReader) throws IOException {
         lineParser.readFirstLine(currentUri, inputFormat, currentReader);
     }
@@ -54,6 +65,11 @@ public final class LineProcessor {
         lineContext.rawSource(jsonByteArray);
     }
 
+    void process(ParquetReader reader) throws IOException {
+        lineContext.incrementCurrentLineNumber();
+        lineContext.rawSource(parquetRowParser.parse(reader));
+    }
+
     public void setFailure(String failure) {
         lineContext.setCurrentUriFailure(failure);
     }
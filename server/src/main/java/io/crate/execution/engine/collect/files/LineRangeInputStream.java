@@ -0,0 +1,112 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+/**
+ * InputStream over all lines of a file that start within the byte range {@code [start, end)}.
+ *
+ * <p>
+ * A line which starts before {@code start} is skipped, a line which starts before {@code end} is read completely,
+ * even if it extends beyond {@code end}. This way the ranges of a file can be read independently and each line is
+ * read exactly once.
+ * </p>
+ *
+ * Lines are terminated by {@code '\n'}, which can't be part of a multi-byte character in UTF-8.
+ */
+final class LineRangeInputStream extends InputStream {
+
+    private final InputStream in;
+    private final long end;
+    private long pos;
+    private boolean eof;
+
+    static InputStream open(FileInput fileInput, URI uri, long start, long end) throws IOException {
+        assert start >= 0 && start < end : "range must not be empty";
+        if (start == 0) {
+            return new LineRangeInputStream(new BufferedInputStream(fileInput.getStream(uri, 0)), 0, end);
+        }
+        // Start one byte before the range, if that is a line break the first line starts exactly at `start`
+        InputStream in = new BufferedInputStream(fileInput.getStream(uri, start - 1));
+        long pos = start - 1;
+        int b;
+        do {
+            b = in.read();
+            pos++;
+        } while (b != -1 && b != '\n');
+        LineRangeInputStream stream = new LineRangeInputStream(in, pos, end);
+        if (b == -1 || pos >= end) {
+            // The line crossing `start` also crosses `end` or ends the file; no line starts within the range
+            stream.eof = true;
+        }
+        return stream;
+    }
+
+    private LineRangeInputStream(InputStream in, long pos, long end) {
+        this.in = in;
+        this.pos = pos;
+        this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (eof) {
+            return -1;
+        }
+        int n = in.read(b, off, len);
+        if (n == -1) {
+            eof = true;
+            return -1;
+        }
+        // The last line of the range is terminated by the first line break at or after `end - 1`
+        long scanFrom = Math.max(0, end - 1 - pos);
+        for (long i = scanFrom; i < n; i++) {
+            if (b[off + (int) i] == '\n') {
+                n = (int) i + 1;
+                eof = true;
+                break;
+            }
+        }
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
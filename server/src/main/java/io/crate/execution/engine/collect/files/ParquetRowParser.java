@@ -0,0 +1,66 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.parquet.ParquetColumn;
+import io.crate.parquet.ParquetReader;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Converts the current row of a {@link ParquetReader} into a JSON object, like
+ * {@link io.crate.operation.collect.files.CSVLineParser} does for lines of CSV files.
+ */
+final class ParquetRowParser {
+
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    byte[] parse(ParquetReader reader) throws IOException {
+        List<ParquetColumn> columns = reader.columns();
+        out.reset();
+        XContentBuilder jsonBuilder = new XContentBuilder(JsonXContent.JSON_XCONTENT, out).startObject();
+        for (int i = 0; i < columns.size(); i++) {
+            ParquetColumn column = columns.get(i);
+            Object value = reader.get(i);
+            if (value != null && column.type() == ParquetColumn.Type.JSON) {
+                try (XContentParser parser = JsonXContent.JSON_XCONTENT.createParser(
+                    NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, (String) value)) {
+                    parser.nextToken();
+                    jsonBuilder.field(column.name());
+                    jsonBuilder.copyCurrentStructure(parser);
+                }
+            } else {
+                jsonBuilder.field(column.name(), value);
+            }
+        }
+        jsonBuilder.endObject().close();
+        return out.toByteArray();
+    }
+}
@@ -22,6 +22,7 @@
 package io.crate.execution.engine.collect.files;
 
 import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
 import com.amazonaws.services.s3.model.ObjectListing;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
@@ -33,7 +34,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 
 public class S3FileInput implements FileInput {
@@ -43,6 +46,9 @@ public class S3FileInput implements FileInput {
 
     final S3ClientHelper clientBuilder;
 
+    // sizes of the listed objects to avoid an additional request per object in size()
+    private final Map<URI, Long> listedSizes = new HashMap<>();
+
     public S3FileInput() {
         clientBuilder = new S3ClientHelper();
     }
@@ -77,6 +83,7 @@ public class S3FileInput implements FileInput {
                 URI keyUri = uri.resolve("/" + key);
                 if (uriPredicate.test(keyUri)) {
                     uris.add(keyUri);
+                    listedSizes.put(keyUri, summary.getSize());
                     if (LOGGER.isDebugEnabled()) {
                         LOGGER.debug("{}", keyUri);
                     }
@@ -98,6 +105,32 @@ public class S3FileInput implements FileInput {
         throw new IOException("Failed to load S3 URI: " + uri.toString());
     }
 
+    @Override
+    public InputStream getStream(URI uri, long offset) throws IOException {
+        if (client == null) {
+            client = clientBuilder.client(uri);
+        }
+        GetObjectRequest request = new GetObjectRequest(uri.getHost(), uri.getPath().substring(1))
+            .withRange(offset);
+        S3Object object = client.getObject(request);
+        if (object != null) {
+            return object.getObjectContent();
+        }
+        throw new IOException("Failed to load S3 URI: " + uri.toString());
+    }
+
+    @Override
+    public long size(URI uri) throws IOException {
+        Long size = listedSizes.get(uri);
+        if (size != null) {
+            return size;
+        }
+        if (client == null) {
+            client = clientBuilder.client(uri);
+        }
+        return client.getObjectMetadata(uri.getHost(), uri.getPath().substring(1)).getContentLength();
+    }
+
     @Override
     public boolean sharedStorageDefault() {
         return true;
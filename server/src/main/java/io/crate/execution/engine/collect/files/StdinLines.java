@@ -0,0 +1,57 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import javax.annotation.Nullable;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The lines of the data a client streams with {@code COPY ... FROM STDIN}.
+ *
+ * <p>
+ * The data arrives on the network threads, so none of the methods block waiting for it.
+ * Instead {@link #whenReadable()} signals once more lines can be polled.
+ * </p>
+ */
+public interface StdinLines {
+
+    /**
+     * @return the next line, without the line terminator, or null if no complete line is buffered.
+     *         The last line of the stream doesn't need to be terminated.
+     * @throws UncheckedIOException if the client aborted the stream or the stream was closed.
+     *         Unchecked, because these abort the import instead of failing a single line.
+     */
+    @Nullable
+    String poll();
+
+    /**
+     * @return true once the client finished the stream and all lines have been polled.
+     */
+    boolean isFinished();
+
+    /**
+     * @return a future which completes once {@link #poll()} can return a line, the stream is finished or failed.
+     */
+    CompletableFuture<?> whenReadable();
+}
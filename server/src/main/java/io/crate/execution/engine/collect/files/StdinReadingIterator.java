@@ -0,0 +1,159 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.exceptions.Exceptions;
+import io.crate.execution.dsl.phases.FileUriCollectPhase;
+import io.crate.expression.InputRow;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * BatchIterator over the lines a client streams with {@code COPY ... FROM STDIN}.
+ *
+ * <p>
+ * Unlike the {@link FileReadingIterator} this never blocks waiting for data: {@link #moveNext()} returns false
+ * if no complete line is buffered and {@link #loadNextBatch()} completes once the client sent more data
+ * or finished the stream. This way neither the threads delivering the data nor the threads of the consumer
+ * are parked by a slow or idle client.
+ * </p>
+ */
+public final class StdinReadingIterator implements BatchIterator<Row> {
+
+    private final StdinLines lines;
+    private final URI uri;
+    private final FileUriCollectPhase.InputFormat inputFormat;
+    private final Row row;
+    private final LineProcessor lineProcessor;
+
+    private boolean started = false;
+    private volatile Throwable killed;
+
+    public StdinReadingIterator(StdinLines lines,
+                                URI uri,
+                                List<? extends Input<?>> inputs,
+                                Iterable<LineCollectorExpression<?>> collectorExpressions,
+                                FileUriCollectPhase.InputFormat inputFormat) {
+        this.lines = lines;
+        this.uri = uri;
+        this.inputFormat = inputFormat;
+        this.row = new InputRow(inputs);
+        this.lineProcessor = new LineProcessor();
+        lineProcessor.startCollect(collectorExpressions);
+    }
+
+    @Override
+    public Row currentElement() {
+        return row;
+    }
+
+    @Override
+    public void moveToStart() {
+        throw new UnsupportedOperationException("Cannot move to start, the data streamed by the client is consumed");
+    }
+
+    @Override
+    public boolean moveNext() {
+        raiseIfKilled();
+        try {
+            if (!started) {
+                if (LineParser.isInputCsv(inputFormat, uri)) {
+                    String header = nextLine();
+                    if (header == null) {
+                        return false;
+                    }
+                    lineProcessor.startWithUri(uri);
+                    lineProcessor.readFirstLine(uri, inputFormat, new BufferedReader(new StringReader(header)));
+                } else {
+                    lineProcessor.startWithUri(uri);
+                    // Only CSV has a header to read
+                    lineProcessor.readFirstLine(uri, inputFormat, null);
+                }
+                started = true;
+            }
+            String line = nextLine();
+            if (line == null) {
+                return false;
+            }
+            lineProcessor.process(line);
+            return true;
+        } catch (IOException e) {
+            lineProcessor.setFailure(e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * @return the next non-empty line or null if none is buffered
+     */
+    private String nextLine() {
+        String line;
+        do {
+            line = lines.poll();
+        } while (line != null && line.isEmpty());
+        return line;
+    }
+
+    @Override
+    public void close() {
+        killed = BatchIterator.CLOSED;
+    }
+
+    @Override
+    public CompletableFuture<?> loadNextBatch() {
+        if (lines.isFinished()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("All batches already loaded"));
+        }
+        return lines.whenReadable();
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return lines.isFinished();
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        killed = throwable;
+    }
+
+    @Override
+    public boolean hasLazyResultSet() {
+        return true;
+    }
+
+    private void raiseIfKilled() {
+        if (killed != null) {
+            Exceptions.rethrowUnchecked(killed);
+        }
+    }
+}
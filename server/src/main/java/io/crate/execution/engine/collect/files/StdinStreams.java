@@ -0,0 +1,76 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import org.elasticsearch.common.inject.Singleton;
+
+import javax.annotation.Nullable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides the data a client streams with {@code COPY ... FROM STDIN} to the {@link StdinReadingIterator}.
+ *
+ * <p>
+ * A stream is registered under the id of the job which imports it, the uri of the stream is
+ * {@code stdin:///<jobId>}. Streams are only available on the node the client is connected to, and only to the
+ * job they are registered for. The scheme is not available to user supplied URIs of COPY FROM.
+ * </p>
+ */
+@Singleton
+public class StdinStreams {
+
+    public static final String NAME = "stdin";
+
+    private final Map<UUID, StdinLines> streams = new ConcurrentHashMap<>();
+
+    public static String uri(UUID jobId) {
+        return NAME + ":///" + jobId;
+    }
+
+    public static boolean isStdinUri(String uri) {
+        return uri.toLowerCase(Locale.ENGLISH).startsWith(NAME + ":");
+    }
+
+    public void register(UUID jobId, StdinLines stream) {
+        streams.put(jobId, stream);
+    }
+
+    @Nullable
+    public StdinLines unregister(UUID jobId) {
+        return streams.remove(jobId);
+    }
+
+    /**
+     * @return the stream registered for the job if the uri is the stdin uri of the job, otherwise null.
+     */
+    @Nullable
+    public StdinLines get(UUID jobId, String uri) {
+        if (!uri(jobId).equals(uri)) {
+            return null;
+        }
+        return streams.get(jobId);
+    }
+}
@@ -24,6 +24,8 @@ package io.crate.execution.engine.collect.sources;
 import io.crate.analyze.AnalyzedCopyFrom;
 import io.crate.analyze.SymbolEvaluator;
 import io.crate.data.BatchIterator;
+import io.crate.data.CompositeBatchIterator;
+import io.crate.data.MaterializingBatchIterator;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.CollectPhase;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
@@ -31,6 +33,10 @@ import io.crate.execution.engine.collect.CollectTask;
 import io.crate.execution.engine.collect.files.FileInputFactory;
 import io.crate.execution.engine.collect.files.FileReadingIterator;
 import io.crate.execution.engine.collect.files.LineCollectorExpression;
+import io.crate.execution.engine.collect.files.LineCounter;
+import io.crate.execution.engine.collect.files.StdinLines;
+import io.crate.execution.engine.collect.files.StdinReadingIterator;
+import io.crate.execution.engine.collect.files.StdinStreams;
 import io.crate.expression.InputFactory;
 import io.crate.expression.reference.file.FileLineReferenceResolver;
 import io.crate.expression.symbol.Symbol;
@@ -39,31 +45,76 @@ import io.crate.metadata.TransactionContext;
 import io.crate.planner.operators.SubQueryResults;
 import io.crate.types.ArrayType;
 import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.threadpool.ThreadPool;
 
+import java.net.URI;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.IntSupplier;
 
+import static io.crate.execution.support.ThreadPools.numIdleThreads;
+
+/**
+ * Creates the BatchIterator reading the files of a COPY FROM.
+ *
+ * <p>
+ * Each node reads a part of the files (see {@link FileReadingIterator}). Within a node the files, and the byte
+ * ranges of large uncompressed files, are distributed across multiple readers. The readers read and parse the lines
+ * concurrently in batches via {@link CompositeBatchIterator#asyncComposite}, while the projections (e.g. indexing)
+ * consume the previous batches.
+ * </p>
+ */
 @Singleton
 public class FileCollectSource implements CollectSource {
 
+    /**
+     * Size of the byte ranges into which large files are split
+     */
+    static final long SPLIT_SIZE_IN_BYTES = 64 * 1024 * 1024;
+
+    /**
+     * Number of lines a reader reads and parses per batch
+     */
+    private static final int BATCH_SIZE = 1000;
+
     private final ClusterService clusterService;
     private final Map<String, FileInputFactory> fileInputFactoryMap;
+    private final StdinStreams stdinStreams;
     private final InputFactory inputFactory;
     private final NodeContext nodeCtx;
+    private final Executor executor;
+    private final IntSupplier availableThreads;
+    private final int numProcessors;
 
     @Inject
-    public FileCollectSource(NodeContext nodeCtx, ClusterService clusterService, Map<String, FileInputFactory> fileInputFactoryMap) {
+    public FileCollectSource(NodeContext nodeCtx,
+                             ClusterService clusterService,
+                             Map<String, FileInputFactory> fileInputFactoryMap,
+                             StdinStreams stdinStreams,
+                             Settings settings,
+                             ThreadPool threadPool) {
         this.fileInputFactoryMap = fileInputFactoryMap;
+        this.stdinStreams = stdinStreams;
         this.nodeCtx = nodeCtx;
         this.inputFactory = new InputFactory(nodeCtx);
         this.clusterService = clusterService;
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.SEARCH);
+        this.numProcessors = EsExecutors.numberOfProcessors(settings);
+        this.availableThreads = numIdleThreads(executor, numProcessors);
+        this.executor = executor;
     }
 
     @Override
@@ -72,22 +123,70 @@ public class FileCollectSource implements CollectSource {
                                                              CollectTask collectTask,
                                                              boolean supportMoveToStart) {
         FileUriCollectPhase fileUriCollectPhase = (FileUriCollectPhase) collectPhase;
+        List<String> fileUris = targetUriToStringList(txnCtx, nodeCtx, fileUriCollectPhase.targetUri());
+        if (fileUris.size() == 1 && StdinStreams.isStdinUri(fileUris.get(0))) {
+            return CompletableFuture.completedFuture(
+                getStdinIterator(txnCtx, fileUriCollectPhase, fileUris.get(0)));
+        }
+        DiscoveryNodes nodes = clusterService.state().nodes();
+        int readerNumber = getReaderNumber(fileUriCollectPhase.nodeIds(), nodes.getLocalNodeId());
+
+        // Nodes of older versions read whole files, splitting them on other nodes would read lines twice
+        boolean canSplit = nodes.getMinNodeVersion().onOrAfter(Version.V_4_4_0);
+        int numLocalReaders = canSplit ? numProcessors : 1;
+        long splitSizeInBytes = canSplit ? SPLIT_SIZE_IN_BYTES : 0L;
+        // Counts the lines before the splits of a file once for all local readers
+        LineCounter lineCounter = new LineCounter();
+        @SuppressWarnings("unchecked")
+        BatchIterator<Row>[] readers = new BatchIterator[numLocalReaders];
+        for (int i = 0; i < numLocalReaders; i++) {
+            // Each reader needs its own expressions as they are bound to the line of the reader
+            InputFactory.Context<LineCollectorExpression<?>> ctx =
+                inputFactory.ctxForRefs(txnCtx, FileLineReferenceResolver::getImplementation);
+            ctx.add(collectPhase.toCollect());
+            BatchIterator<Row> reader = FileReadingIterator.newInstance(
+                fileUris,
+                ctx.topLevelInputs(),
+                ctx.expressions(),
+                fileUriCollectPhase.compression(),
+                fileInputFactoryMap,
+                fileUriCollectPhase.sharedStorage(),
+                fileUriCollectPhase.nodeIds().size(),
+                readerNumber,
+                numLocalReaders,
+                i,
+                splitSizeInBytes,
+                lineCounter,
+                fileUriCollectPhase.targetColumns(),
+                fileUriCollectPhase.inputFormat(),
+                collectTask.getRamAccounting()
+            );
+            readers[i] = numLocalReaders == 1 ? reader : new MaterializingBatchIterator(reader, BATCH_SIZE);
+        }
+        return CompletableFuture.completedFuture(
+            CompositeBatchIterator.asyncComposite(executor, availableThreads, readers));
+    }
+
+    /**
+     * The data of a COPY FROM STDIN is only available to the job it is streamed for
+     */
+    private BatchIterator<Row> getStdinIterator(TransactionContext txnCtx,
+                                                FileUriCollectPhase collectPhase,
+                                                String uri) {
+        StdinLines lines = stdinStreams.get(collectPhase.jobId(), uri);
+        if (lines == null) {
+            throw new IllegalArgumentException("No data is streamed from STDIN for " + uri);
+        }
         InputFactory.Context<LineCollectorExpression<?>> ctx =
             inputFactory.ctxForRefs(txnCtx, FileLineReferenceResolver::getImplementation);
         ctx.add(collectPhase.toCollect());
-
-        List<String> fileUris = targetUriToStringList(txnCtx, nodeCtx, fileUriCollectPhase.targetUri());
-        return CompletableFuture.completedFuture(FileReadingIterator.newInstance(
-            fileUris,
+        return new StdinReadingIterator(
+            lines,
+            URI.create(uri),
             ctx.topLevelInputs(),
             ctx.expressions(),
-            fileUriCollectPhase.compression(),
-            fileInputFactoryMap,
-            fileUriCollectPhase.sharedStorage(),
-            fileUriCollectPhase.nodeIds().size(),
-            getReaderNumber(fileUriCollectPhase.nodeIds(), clusterService.state().nodes().getLocalNodeId()),
-            fileUriCollectPhase.inputFormat()
-        ));
+            collectPhase.inputFormat()
+        );
     }
 
     private static int getReaderNumber(Collection<String> nodeIds, String localNodeId) {
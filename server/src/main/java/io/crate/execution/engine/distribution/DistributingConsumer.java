@@ -35,6 +35,7 @@ import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -49,8 +50,11 @@ import java.util.concurrent.atomic.AtomicInteger;
  * The rows from the source {@link BatchIterator} are "bucketed" using a {@link MultiBucketBuilder}. So a downstream
  * can either receive a part of the data or all data.
  *
- * Every time requests to the downstreams are made consumption of the source BatchIterator is stopped until a response
- * from all downstreams is received.
+ * At most one page is in flight at a time. While the requests of a page are in flight, the consumption of the source
+ * BatchIterator continues and the next page is built. Consumption is stopped once that page is complete and resumed
+ * after all downstreams responded to the in-flight page, at which point the completed page is sent.
+ * Together with downstreams which respond before they processed a page (see {@link
+ * io.crate.execution.jobs.CumulativePageBucketReceiver}) this keeps the source and the network busy at the same time.
  */
 public class DistributingConsumer implements RowConsumer {
 
@@ -62,16 +66,54 @@ public class DistributingConsumer implements RowConsumer {
     private final int bucketIdx;
     private final TransportDistributedResultAction distributedResultAction;
     private final int pageSize;
-    private final StreamBucket[] buckets;
     private final List<Downstream> downstreams;
     private final boolean traceEnabled;
     private final CompletableFuture<Void> completionFuture;
+    private final Object lock = new Object();
 
     @VisibleForTesting
     final MultiBucketBuilder multiBucketBuilder;
 
     private volatile Throwable failure;
 
+    /**
+     * Set if the consumer must stop, because the downstreams don't need more data or because of a failure.
+     */
+    private volatile boolean stopConsuming = false;
+
+    @GuardedBy("lock")
+    private boolean requestsInFlight = false;
+
+    /**
+     * Page which has been built while the requests of the previous page were still in flight
+     */
+    @GuardedBy("lock")
+    @Nullable
+    private StreamBucket[] pendingPage = null;
+
+    @GuardedBy("lock")
+    private boolean pendingPageIsLast = false;
+
+    @GuardedBy("lock")
+    private ConsumerState consumerState = ConsumerState.RUNNING;
+
+    private enum ConsumerState {
+        /**
+         * The source is being consumed, or is loading its next batch
+         */
+        RUNNING,
+
+        /**
+         * Consumption is paused until the pending page can be sent
+         */
+        PAUSED,
+
+        /**
+         * The source is consumed completely or consumption failed
+         */
+        DONE
+    }
+
     public DistributingConsumer(Executor responseExecutor,
                                 UUID jobId,
                                 MultiBucketBuilder multiBucketBuilder,
@@ -90,7 +132,6 @@ public class DistributingConsumer implements RowConsumer {
         this.bucketIdx = bucketIdx;
         this.distributedResultAction = distributedResultAction;
         this.pageSize = pageSize;
-        this.buckets = new StreamBucket[downstreamNodeIds.size()];
         this.completionFuture = new CompletableFuture<>();
         downstreams = new ArrayList<>(downstreamNodeIds.size());
         for (String downstreamNodeId : downstreamNodeIds) {
@@ -116,25 +157,107 @@ public class DistributingConsumer implements RowConsumer {
     private void consumeIt(BatchIterator<Row> it) {
         try {
             while (it.moveNext()) {
+                if (stopConsuming) {
+                    stopConsumer(it);
+                    return;
+                }
                 multiBucketBuilder.add(it.currentElement());
                 if (multiBucketBuilder.size() >= pageSize || multiBucketBuilder.ramBytesUsed() >= Paging.MAX_PAGE_BYTES) {
-                    forwardResults(it, false);
-                    return;
+                    if (sendOrQueuePage(it, false) == false) {
+                        return;
+                    }
                 }
             }
-            if (it.allLoaded()) {
-                forwardResults(it, true);
+            if (stopConsuming) {
+                stopConsumer(it);
+            } else if (it.allLoaded()) {
+                sendOrQueuePage(it, true);
             } else {
                 it.loadNextBatch().whenComplete((r, t) -> {
                     if (t == null) {
                         consumeIt(it);
                     } else {
-                        forwardFailure(it, t);
+                        onConsumerFailure(it, t);
                     }
                 });
             }
         } catch (Throwable t) {
-            forwardFailure(it, t);
+            onConsumerFailure(it, t);
+        }
+    }
+
+    /**
+     * Sends the page built by the {@link #multiBucketBuilder} or keeps it as pending page if the requests of the
+     * previous page are still in flight.
+     *
+     * @return true if the consumer can continue to consume the source
+     */
+    private boolean sendOrQueuePage(BatchIterator<Row> it, boolean isLast) {
+        StreamBucket[] page = new StreamBucket[downstreams.size()];
+        multiBucketBuilder.build(page);
+        boolean finish = false;
+        synchronized (lock) {
+            if (stopConsuming) {
+                consumerState = ConsumerState.DONE;
+                finish = requestsInFlight == false;
+            } else if (requestsInFlight) {
+                pendingPage = page;
+                pendingPageIsLast = isLast;
+                consumerState = isLast ? ConsumerState.DONE : ConsumerState.PAUSED;
+                return false;
+            } else {
+                requestsInFlight = true;
+                consumerState = isLast ? ConsumerState.DONE : ConsumerState.RUNNING;
+            }
+        }
+        if (finish) {
+            finish(it);
+            return false;
+        }
+        forwardResults(it, page, isLast);
+        return isLast == false;
+    }
+
+    private void stopConsumer(BatchIterator<Row> it) {
+        synchronized (lock) {
+            consumerState = ConsumerState.DONE;
+            if (requestsInFlight) {
+                // finished once the responses are received
+                return;
+            }
+        }
+        finish(it);
+    }
+
+    private void onConsumerFailure(BatchIterator<Row> it, Throwable t) {
+        failure = t;
+        synchronized (lock) {
+            consumerState = ConsumerState.DONE;
+            if (requestsInFlight) {
+                // forwarded once the responses are received, to not send the failure and a page concurrently
+                return;
+            }
+        }
+        forwardFailure(it, t);
+    }
+
+    /**
+     * Closes the source and completes the consumer, or forwards the failure if there is one and there are downstreams
+     * which still wait for data.
+     */
+    private void finish(BatchIterator<Row> it) {
+        Throwable f = failure;
+        if (f != null && downstreams.stream().anyMatch(Downstream::needsMoreData)) {
+            forwardFailure(it, f);
+        } else {
+            // If we've a failure we either communicated it to the other downstreams already,
+            // or were able to send results to all downstreams. In either case, *this* operation succeeded and the
+            // downstreams need to deal with failures.
+
+            // The NodeDisconnectJobMonitorService takes care of node disconnects, so we don't have to manage
+            // that scenario.
+            it.close();
+            completionFuture.complete(null);
         }
     }
 
@@ -188,14 +311,12 @@ public class DistributingConsumer implements RowConsumer {
         }
     }
 
-    private void forwardResults(BatchIterator<Row> it, boolean isLast) {
-        multiBucketBuilder.build(buckets);
-
+    private void forwardResults(BatchIterator<Row> it, StreamBucket[] buckets, boolean isLast) {
         AtomicInteger numActiveRequests = new AtomicInteger(downstreams.size());
         for (int i = 0; i < downstreams.size(); i++) {
             Downstream downstream = downstreams.get(i);
             if (downstream.needsMoreData == false) {
-                countdownAndMaybeContinue(it, numActiveRequests, true);
+                countdownAndMaybeContinue(it, numActiveRequests);
                 continue;
             }
             if (traceEnabled) {
@@ -209,7 +330,7 @@ public class DistributingConsumer implements RowConsumer {
                     @Override
                     public void onResponse(DistributedResultResponse response) {
                         downstream.needsMoreData = response.needMore();
-                        countdownAndMaybeContinue(it, numActiveRequests, false);
+                        countdownAndMaybeContinue(it, numActiveRequests);
                     }
 
                     @Override
@@ -217,40 +338,57 @@ public class DistributingConsumer implements RowConsumer {
                         failure = e;
                         downstream.needsMoreData = false;
                         // continue because it's necessary to send something to downstreams still waiting for data
-                        countdownAndMaybeContinue(it, numActiveRequests, false);
+                        countdownAndMaybeContinue(it, numActiveRequests);
                     }
                 }
             );
         }
     }
 
-    private void countdownAndMaybeContinue(BatchIterator<Row> it, AtomicInteger numActiveRequests, boolean sameExecutor) {
+    private void countdownAndMaybeContinue(BatchIterator<Row> it, AtomicInteger numActiveRequests) {
         if (numActiveRequests.decrementAndGet() == 0) {
-            if (downstreams.stream().anyMatch(Downstream::needsMoreData)) {
-                if (failure == null) {
-                    if (sameExecutor) {
-                        consumeIt(it);
-                    } else {
-                        // try to dispatch to different executor, if it fails, forward the error in the same thread
-                        try {
-                            responseExecutor.execute(() -> consumeIt(it));
-                        } catch (EsRejectedExecutionException e) {
-                            failure = e;
-                            forwardFailure(it, failure);
-                        }
-                    }
-                } else {
-                    forwardFailure(it, failure);
-                }
-            } else {
-                // If we've a failure we either communicated it to the other downstreams already,
-                // or were able to send results to all downstreams. In either case, *this* operation succeeded and the
-                // downstreams need to deal with failures.
+            onAllResponsesReceived(it);
+        }
+    }
 
-                // The NodeDisconnectJobMonitorService takes care of node disconnects, so we don't have to manage
-                // that scenario.
-                it.close();
-                completionFuture.complete(null);
+    private void onAllResponsesReceived(BatchIterator<Row> it) {
+        StreamBucket[] page = null;
+        boolean pageIsLast = false;
+        boolean resumeConsumer = false;
+        synchronized (lock) {
+            requestsInFlight = false;
+            if (failure != null || downstreams.stream().noneMatch(Downstream::needsMoreData)) {
+                pendingPage = null;
+                if (consumerState == ConsumerState.RUNNING) {
+                    // the consumer finishes once it notices the flag
+                    stopConsuming = true;
+                    return;
+                }
+            } else if (pendingPage != null) {
+                page = pendingPage;
+                pageIsLast = pendingPageIsLast;
+                pendingPage = null;
+                requestsInFlight = true;
+                if (consumerState == ConsumerState.PAUSED) {
+                    consumerState = ConsumerState.RUNNING;
+                    resumeConsumer = true;
+                }
+            } else if (consumerState == ConsumerState.RUNNING) {
+                // the consumer is still building the next page
+                return;
+            }
+        }
+        if (page == null) {
+            finish(it);
+            return;
+        }
+        forwardResults(it, page, pageIsLast);
+        if (resumeConsumer) {
+            // try to dispatch to different executor, if it fails, forward the error once the page is acknowledged
+            try {
+                responseExecutor.execute(() -> consumeIt(it));
+            } catch (EsRejectedExecutionException e) {
+                onConsumerFailure(it, e);
             }
         }
     }
@@ -258,7 +396,7 @@ public class DistributingConsumer implements RowConsumer {
     private static class Downstream {
 
         private final String nodeId;
-        private boolean needsMoreData = true;
+        private volatile boolean needsMoreData = true;
 
         Downstream(String nodeId) {
             this.nodeId = nodeId;
@@ -24,11 +24,27 @@ package io.crate.execution.engine.distribution;
 
 import io.crate.Streamer;
 import io.crate.breaker.RamAccounting;
+import io.crate.breaker.StringSizeEstimator;
 import io.crate.data.Bucket;
 import io.crate.data.Row;
 import io.crate.data.RowN;
+import io.crate.types.ByteType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteArrayDataOutput;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.compress.LZ4;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
@@ -36,61 +52,320 @@ import org.elasticsearch.common.io.stream.Writeable;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * A bucket which holds the serialized values of its rows. The rows are de-serialized lazily on iteration.
+ *
+ * <p>
+ * Buckets created by the {@link Builder} lay out the values column by column: All values of the first column are
+ * followed by all values of the second column and so on. Values of the same type and with similar content are
+ * next to each other, which compresses a lot better than values of different columns mixed together.
+ * String columns are dictionary encoded: Each distinct value of a page is written once and the rows refer to it
+ * by its ordinal. Numeric and timestamp columns have a bitmap of their nulls, followed by the first value and the
+ * bit packed deltas between the following values. The columns of large pages are compressed with LZ4 once when
+ * they're sent to other nodes and decompressed block by block while they're iterated. The decompression only holds
+ * heap buffers, so an iteration which is stopped early doesn't leak any resources.
+ * </p>
+ */
 public class StreamBucket implements Bucket, Writeable {
 
+    /**
+     * Pages with at least this amount of bytes are compressed when sent to other nodes
+     */
+    static final int COMPRESSION_THRESHOLD_BYTES = 256 * 1024;
+
+    /**
+     * Compressed columns are split into blocks of this size, so that they can be decompressed while they're read
+     */
+    private static final int COMPRESSION_BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * Maximum number of distinct values of a dictionary encoded column per page.
+     * Further distinct values are written as they are.
+     */
+    static final int MAX_DICTIONARY_SIZE = 4096;
+
+    /**
+     * Estimated memory of a dictionary entry besides its value: The hash map entry and the boxed ordinal
+     */
+    private static final long DICTIONARY_ENTRY_BYTES = 56L;
+
+    private static final byte ROW_LAYOUT = 0;
+    private static final byte COLUMNAR_LAYOUT = 1;
+
+    // Flags of the columns of the columnar layout
+    private static final byte DICTIONARY_ENCODED = 1;
+    private static final byte COMPRESSED = 2;
+    private static final byte PACKED = 4;
+
+    // Ordinals of dictionary encoded values
+    private static final int NULL_ORDINAL = 0;
+    private static final int NOT_IN_DICTIONARY_ORDINAL = 1;
+    private static final int FIRST_DICTIONARY_ORDINAL = 2;
+
     private Streamer<?>[] streamers;
     private int size = -1;
+
+    /**
+     * The values row by row, null if laid out column by column
+     */
+    @Nullable
     private BytesReference bytes;
 
+    /**
+     * The values of each column, null if laid out row by row. See {@link #columnFlags} for their encoding.
+     */
+    @Nullable
+    private BytesReference[] columns;
+    @Nullable
+    private byte[] columnFlags;
+
+    /**
+     * The columns as they're sent to other nodes. Created on the first send, guarded by this bucket.
+     */
+    @Nullable
+    private BytesReference[] wireColumns;
+    @Nullable
+    private byte[] wireColumnFlags;
+
     public static class Builder implements Accountable {
 
         private static final int INITIAL_PAGE_SIZE = 1024;
         private final RamAccounting ramAccounting;
         private final Streamer<?>[] streamers;
 
+        /**
+         * The ordinals of the distinct values of the dictionary encoded columns, null for other columns
+         */
+        private final Map<String, Integer>[] dictionaries;
+
+        /**
+         * The type of the columns whose values are delta encoded and bit packed, null for other columns
+         */
+        private final PackedType[] packedTypes;
+        private final long[][] packedValues;
+        private final int[] numPackedValues;
+        /**
+         * A set bit marks a null value of the row. Allocated on the first null of a packed column.
+         */
+        private final byte[][] nullBitmaps;
+
         private int size = 0;
-        private BytesStreamOutput out;
-        private int prevOutSize = 0;
+        private BytesStreamOutput[] columns;
+        private BytesStreamOutput[] dictionaryValues;
+        private long dictionaryBytes = 0;
+        private long prevOutSize = 0;
 
+        @SuppressWarnings("unchecked")
         public Builder(Streamer<?>[] streamers, RamAccounting ramAccounting) {
             this.ramAccounting = requireNonNull(ramAccounting, "RamAccounting must not be null");
             assert validStreamers(streamers) : "streamers must not be null and they shouldn't be of undefinedType";
             this.streamers = streamers;
-            out = new BytesStreamOutput(INITIAL_PAGE_SIZE);
+            columns = new BytesStreamOutput[streamers.length];
+            dictionaries = new Map[streamers.length];
+            dictionaryValues = new BytesStreamOutput[streamers.length];
+            packedTypes = new PackedType[streamers.length];
+            packedValues = new long[streamers.length][];
+            numPackedValues = new int[streamers.length];
+            nullBitmaps = new byte[streamers.length][];
+            int initialColumnSize = INITIAL_PAGE_SIZE / Math.max(streamers.length, 1);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = new BytesStreamOutput(initialColumnSize);
+                if (streamers[i] instanceof StringType) {
+                    dictionaries[i] = new HashMap<>();
+                    dictionaryValues[i] = new BytesStreamOutput(initialColumnSize);
+                }
+                packedTypes[i] = PackedType.of(streamers[i]);
+                if (packedTypes[i] != null) {
+                    packedValues[i] = new long[initialColumnSize / Long.BYTES];
+                }
+            }
         }
 
         public void add(Row row) {
             assert streamers.length == row.numColumns() : "number of streamer must match row size";
 
             size++;
+            long outSize = 0;
             for (int i = 0; i < row.numColumns(); i++) {
+                BytesStreamOutput column = columns[i];
                 try {
-                    //noinspection unchecked
-                    ((Streamer) streamers[i]).writeValueTo(out, row.get(i));
+                    if (packedTypes[i] != null) {
+                        addPacked(i, row.get(i));
+                        outSize += (long) packedValues[i].length * Long.BYTES
+                                   + (nullBitmaps[i] == null ? 0 : nullBitmaps[i].length);
+                        continue;
+                    } else if (dictionaries[i] == null) {
+                        //noinspection unchecked
+                        ((Streamer) streamers[i]).writeValueTo(column, row.get(i));
+                    } else {
+                        writeDictionaryEncoded(i, (String) row.get(i));
+                    }
                 } catch (IOException e) {
                     throw new RuntimeException(e);
                 }
+                outSize += column.size();
+            }
+            outSize += dictionaryBytes;
+            ramAccounting.addBytes(outSize - prevOutSize);
+            prevOutSize = outSize;
+        }
+
+        private void writeDictionaryEncoded(int columnIdx, @Nullable String value) throws IOException {
+            BytesStreamOutput column = columns[columnIdx];
+            if (value == null) {
+                column.writeVInt(NULL_ORDINAL);
+                return;
+            }
+            Map<String, Integer> dictionary = dictionaries[columnIdx];
+            Integer ordinal = dictionary.get(value);
+            if (ordinal == null) {
+                if (dictionary.size() == MAX_DICTIONARY_SIZE) {
+                    column.writeVInt(NOT_IN_DICTIONARY_ORDINAL);
+                    column.writeString(value);
+                    return;
+                }
+                ordinal = FIRST_DICTIONARY_ORDINAL + dictionary.size();
+                dictionary.put(value, ordinal);
+                BytesStreamOutput values = dictionaryValues[columnIdx];
+                long valuesSize = values.size();
+                values.writeString(value);
+                dictionaryBytes += values.size() - valuesSize
+                                   + StringSizeEstimator.estimate(value)
+                                   + DICTIONARY_ENTRY_BYTES;
+            }
+            column.writeVInt(ordinal);
+        }
+
+        private void addPacked(int columnIdx, @Nullable Object value) {
+            int rowIdx = size - 1;
+            if (value == null) {
+                byte[] nulls = nullBitmaps[columnIdx];
+                int byteIdx = rowIdx >> 3;
+                if (nulls == null || nulls.length <= byteIdx) {
+                    nulls = ArrayUtil.grow(nulls == null ? BytesRef.EMPTY_BYTES : nulls, byteIdx + 1);
+                    nullBitmaps[columnIdx] = nulls;
+                }
+                nulls[byteIdx] |= (byte) (1 << (rowIdx & 7));
+                return;
             }
-            ramAccounting.addBytes(out.size() - prevOutSize);
-            prevOutSize = out.size();
+            int numValues = numPackedValues[columnIdx];
+            long[] values = packedValues[columnIdx];
+            if (numValues == values.length) {
+                values = ArrayUtil.grow(values, numValues + 1);
+                packedValues[columnIdx] = values;
+            }
+            values[numValues] = packedTypes[columnIdx].toLong(value);
+            numPackedValues[columnIdx] = numValues + 1;
+        }
+
+        /**
+         * Writes the number of non-null values, the null bitmap if there are nulls, the first value and the deltas
+         * to the following values. The deltas are written as their offsets to the smallest delta, bit packed with
+         * the bit width of the largest offset.
+         */
+        private BytesReference encodePacked(int columnIdx) throws IOException {
+            long[] values = packedValues[columnIdx];
+            int numValues = numPackedValues[columnIdx];
+            BytesStreamOutput out = new BytesStreamOutput(16 + numValues);
+            out.writeVInt(numValues);
+            if (numValues < size) {
+                byte[] nulls = nullBitmaps[columnIdx];
+                int bitmapLength = (size + 7) / 8;
+                out.writeBytes(nulls, 0, Math.min(nulls.length, bitmapLength));
+                for (int i = nulls.length; i < bitmapLength; i++) {
+                    out.writeByte((byte) 0);
+                }
+            }
+            if (numValues == 0) {
+                return out.bytes();
+            }
+            out.writeZLong(values[0]);
+            if (numValues == 1) {
+                return out.bytes();
+            }
+            // The deltas and offsets may overflow, they're restored by the same wrapping arithmetic
+            long minDelta = Long.MAX_VALUE;
+            for (int i = 1; i < numValues; i++) {
+                minDelta = Math.min(minDelta, values[i] - values[i - 1]);
+            }
+            long maxOffset = 0;
+            for (int i = 1; i < numValues; i++) {
+                long offset = values[i] - values[i - 1] - minDelta;
+                if (Long.compareUnsigned(offset, maxOffset) > 0) {
+                    maxOffset = offset;
+                }
+            }
+            int bitWidth = Long.SIZE - Long.numberOfLeadingZeros(maxOffset);
+            out.writeZLong(minDelta);
+            out.writeByte((byte) bitWidth);
+            BitPacker packer = new BitPacker(out);
+            for (int i = 1; i < numValues; i++) {
+                packer.write(values[i] - values[i - 1] - minDelta, bitWidth);
+            }
+            packer.flush();
+            return out.bytes();
         }
 
         public StreamBucket build() {
             StreamBucket sb = new StreamBucket(streamers);
             sb.size = size;
-            sb.bytes = out.bytes();
+            sb.columns = new BytesReference[columns.length];
+            sb.columnFlags = new byte[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                Map<String, Integer> dictionary = dictionaries[i];
+                if (packedTypes[i] != null) {
+                    try {
+                        sb.columns[i] = encodePacked(i);
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    sb.columnFlags[i] = PACKED;
+                } else if (dictionary == null) {
+                    sb.columns[i] = columns[i].bytes();
+                } else {
+                    // The dictionary is followed by the ordinals
+                    BytesStreamOutput dictionarySize = new BytesStreamOutput(5);
+                    try {
+                        dictionarySize.writeVInt(dictionary.size());
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                    sb.columns[i] = new CompositeBytesReference(
+                        dictionarySize.bytes(),
+                        dictionaryValues[i].bytes(),
+                        columns[i].bytes()
+                    );
+                    sb.columnFlags[i] = DICTIONARY_ENCODED;
+                }
+            }
             return sb;
         }
 
         public void reset() {
-            out = new BytesStreamOutput(size); // next bucket is probably going to have the same size
+            for (int i = 0; i < columns.length; i++) {
+                // next bucket is probably going to have the same size
+                columns[i] = new BytesStreamOutput(columns[i].size());
+                if (dictionaries[i] != null) {
+                    dictionaries[i].clear();
+                    dictionaryValues[i] = new BytesStreamOutput(dictionaryValues[i].size());
+                }
+                numPackedValues[i] = 0;
+                if (nullBitmaps[i] != null) {
+                    Arrays.fill(nullBitmaps[i], (byte) 0);
+                }
+            }
+            dictionaryBytes = 0;
             size = 0;
         }
 
@@ -135,15 +410,28 @@ public class StreamBucket implements Bucket, Writeable {
 
         private final Streamer<?>[] streamers;
         private final int size;
-        private final StreamInput input;
+        private final StreamInput[] inputs;
+        private final String[][] dictionaries;
+        private final PackedColumnReader[] packedColumns;
         private final Object[] current;
         private final RowN row;
         private int pos = 0;
 
-        private RowIterator(StreamInput streamInput, Streamer<?>[] streamers, int size) {
+        /**
+         * @param inputs one input per column. For the row layout it's the same input for all columns.
+         * @param dictionaries the dictionary of each dictionary encoded column, null for other columns
+         * @param packedColumns the reader of each packed column, null for other columns
+         */
+        private RowIterator(StreamInput[] inputs,
+                            String[][] dictionaries,
+                            PackedColumnReader[] packedColumns,
+                            Streamer<?>[] streamers,
+                            int size) {
             this.streamers = streamers;
             this.size = size;
-            input = streamInput;
+            this.inputs = inputs;
+            this.dictionaries = dictionaries;
+            this.packedColumns = packedColumns;
             current = new Object[streamers.length];
             row = new RowN(current);
         }
@@ -155,17 +443,43 @@ public class StreamBucket implements Bucket, Writeable {
 
         @Override
         public Row next() {
-            for (int c = 0; c < streamers.length; c++) {
-                try {
-                    current[c] = streamers[c].readValueFrom(input);
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
+            try {
+                for (int c = 0; c < streamers.length; c++) {
+                    String[] dictionary = dictionaries[c];
+                    if (packedColumns[c] != null) {
+                        current[c] = packedColumns[c].next();
+                    } else if (dictionary == null) {
+                        current[c] = streamers[c].readValueFrom(inputs[c]);
+                    } else {
+                        current[c] = readDictionaryEncoded(inputs[c], dictionary);
+                    }
                 }
+                pos++;
+                if (pos == size) {
+                    // Releases the buffers of the inputs of compressed columns
+                    for (StreamInput input : inputs) {
+                        input.close();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            pos++;
             return row;
         }
 
+        @Nullable
+        private static String readDictionaryEncoded(StreamInput in, String[] dictionary) throws IOException {
+            int ordinal = in.readVInt();
+            switch (ordinal) {
+                case NULL_ORDINAL:
+                    return null;
+                case NOT_IN_DICTIONARY_ORDINAL:
+                    return in.readString();
+                default:
+                    return dictionary[ordinal - FIRST_DICTIONARY_ORDINAL];
+            }
+        }
+
         @Override
         public void remove() {
         }
@@ -179,7 +493,37 @@ public class StreamBucket implements Bucket, Writeable {
         }
         assert streamers != null : "streamers must not be null";
         try {
-            return new RowIterator(bytes.streamInput(), streamers, size);
+            StreamInput[] inputs = new StreamInput[streamers.length];
+            String[][] dictionaries = new String[streamers.length][];
+            PackedColumnReader[] packedColumns = new PackedColumnReader[streamers.length];
+            if (columns == null) {
+                Arrays.fill(inputs, bytes.streamInput());
+            } else {
+                assert columns.length == streamers.length : "number of streamers must match number of columns";
+                for (int i = 0; i < columns.length; i++) {
+                    StreamInput in = columns[i].streamInput();
+                    if ((columnFlags[i] & COMPRESSED) != 0) {
+                        // Decompressed while the rows are read, without a decompressed copy of the column
+                        in = new LZ4BlockInput(in);
+                    }
+                    if ((columnFlags[i] & DICTIONARY_ENCODED) != 0) {
+                        String[] dictionary = new String[in.readVInt()];
+                        for (int j = 0; j < dictionary.length; j++) {
+                            dictionary[j] = in.readString();
+                        }
+                        dictionaries[i] = dictionary;
+                    }
+                    if ((columnFlags[i] & PACKED) != 0) {
+                        PackedType type = PackedType.of(streamers[i]);
+                        if (type == null) {
+                            throw new IllegalStateException("Packed column requires a numeric or timestamp streamer");
+                        }
+                        packedColumns[i] = new PackedColumnReader(in, size, type);
+                    }
+                    inputs[i] = in;
+                }
+            }
+            return new RowIterator(inputs, dictionaries, packedColumns, streamers, size);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -201,7 +545,21 @@ public class StreamBucket implements Bucket, Writeable {
     public StreamBucket(StreamInput in) throws IOException {
         size = in.readVInt();
         if (size > 0) {
-            bytes = in.readBytesReference();
+            byte layout = in.getVersion().onOrAfter(Version.V_4_4_0) ? in.readByte() : ROW_LAYOUT;
+            if (layout == ROW_LAYOUT) {
+                bytes = in.readBytesReference();
+            } else {
+                int numColumns = in.readVInt();
+                columns = new BytesReference[numColumns];
+                columnFlags = new byte[numColumns];
+                for (int i = 0; i < numColumns; i++) {
+                    columnFlags[i] = in.readByte();
+                    columns[i] = in.readBytesReference();
+                }
+                // Received columns are sent to other nodes as they are
+                wireColumns = columns;
+                wireColumnFlags = columnFlags;
+            }
         }
     }
 
@@ -217,7 +575,402 @@ public class StreamBucket implements Bucket, Writeable {
         assert size > -1 : "size must be > -1";
         out.writeVInt(size);
         if (size > 0) {
-            out.writeBytesReference(bytes);
+            if (out.getVersion().before(Version.V_4_4_0)) {
+                if (columns == null) {
+                    out.writeBytesReference(bytes);
+                } else {
+                    out.writeBytesReference(toRowLayout());
+                }
+                return;
+            }
+            if (columns == null) {
+                out.writeByte(ROW_LAYOUT);
+                out.writeBytesReference(bytes);
+                return;
+            }
+            BytesReference[] sentColumns;
+            byte[] sentColumnFlags;
+            synchronized (this) {
+                if (wireColumns == null) {
+                    compressColumns();
+                }
+                sentColumns = wireColumns;
+                sentColumnFlags = wireColumnFlags;
+            }
+            out.writeByte(COLUMNAR_LAYOUT);
+            out.writeVInt(sentColumns.length);
+            for (int i = 0; i < sentColumns.length; i++) {
+                out.writeByte(sentColumnFlags[i]);
+                out.writeBytesReference(sentColumns[i]);
+            }
+        }
+    }
+
+    /**
+     * Compresses the columns of a large page which become smaller by it. This is done once, also if the bucket
+     * is sent to several nodes.
+     */
+    private void compressColumns() throws IOException {
+        assert Thread.holdsLock(this) : "must be called while holding the lock of the bucket";
+        BytesReference[] compressedColumns = columns.clone();
+        byte[] compressedColumnFlags = columnFlags.clone();
+        long totalBytes = 0;
+        for (BytesReference column : columns) {
+            totalBytes += column.length();
+        }
+        if (totalBytes >= COMPRESSION_THRESHOLD_BYTES) {
+            for (int i = 0; i < columns.length; i++) {
+                if ((columnFlags[i] & COMPRESSED) == 0) {
+                    BytesReference compressed = compress(columns[i]);
+                    if (compressed.length() < columns[i].length()) {
+                        compressedColumns[i] = compressed;
+                        compressedColumnFlags[i] |= COMPRESSED;
+                    }
+                }
+            }
+        }
+        wireColumns = compressedColumns;
+        wireColumnFlags = compressedColumnFlags;
+    }
+
+    /**
+     * Nodes before 4.4 expect the values row by row
+     */
+    private BytesReference toRowLayout() throws IOException {
+        if (streamers == null) {
+            throw new IllegalStateException("streamers are required to send a columnar StreamBucket to an older node");
+        }
+        BytesStreamOutput rowOut = new BytesStreamOutput();
+        for (Row row : this) {
+            for (int i = 0; i < streamers.length; i++) {
+                //noinspection unchecked
+                ((Streamer) streamers[i]).writeValueTo(rowOut, row.get(i));
+            }
+        }
+        return rowOut.bytes();
+    }
+
+    /**
+     * Compresses the bytes block by block. Each block is prefixed by its length and compressed length,
+     * a length of 0 marks the end.
+     */
+    private static BytesReference compress(BytesReference bytes) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput(bytes.length() / 2);
+        LZ4.FastCompressionHashTable hashTable = new LZ4.FastCompressionHashTable();
+        byte[] block = new byte[Math.min(bytes.length(), COMPRESSION_BLOCK_SIZE)];
+        byte[] compressed = new byte[maxCompressedLength(block.length)];
+        StreamInput in = bytes.streamInput();
+        for (int offset = 0; offset < bytes.length(); offset += COMPRESSION_BLOCK_SIZE) {
+            int length = Math.min(COMPRESSION_BLOCK_SIZE, bytes.length() - offset);
+            in.readBytes(block, 0, length);
+            ByteArrayDataOutput compressedOut = new ByteArrayDataOutput(compressed);
+            LZ4.compress(block, 0, length, compressedOut, hashTable);
+            out.writeVInt(length);
+            out.writeVInt(compressedOut.getPosition());
+            out.writeBytes(compressed, 0, compressedOut.getPosition());
+        }
+        out.writeVInt(0);
+        return out.bytes();
+    }
+
+    private static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Decompresses the blocks written by {@link #compress(BytesReference)} while they're read
+     */
+    private static final class LZ4BlockInput extends StreamInput {
+
+        private final StreamInput in;
+        private final ByteArrayDataInput compressedIn = new ByteArrayDataInput();
+        private byte[] compressed = BytesRef.EMPTY_BYTES;
+        private byte[] block = BytesRef.EMPTY_BYTES;
+        private int blockLength = 0;
+        private int pos = 0;
+        private boolean eof = false;
+
+        LZ4BlockInput(StreamInput in) {
+            this.in = in;
+        }
+
+        private boolean ensureAvailable() throws IOException {
+            if (pos < blockLength) {
+                return true;
+            }
+            if (eof) {
+                return false;
+            }
+            int length = in.readVInt();
+            if (length == 0) {
+                eof = true;
+                return false;
+            }
+            int compressedLength = in.readVInt();
+            if (length < 0 || length > COMPRESSION_BLOCK_SIZE
+                || compressedLength < 0 || compressedLength > maxCompressedLength(length)) {
+                throw new IOException("Invalid compressed block of length " + length + " and compressed length "
+                                      + compressedLength);
+            }
+            if (block.length == 0) {
+                compressed = new byte[maxCompressedLength(COMPRESSION_BLOCK_SIZE)];
+                block = new byte[COMPRESSION_BLOCK_SIZE];
+            }
+            in.readBytes(compressed, 0, compressedLength);
+            compressedIn.reset(compressed, 0, compressedLength);
+            LZ4.decompress(compressedIn, length, block, 0);
+            blockLength = length;
+            pos = 0;
+            return true;
+        }
+
+        @Override
+        public byte readByte() throws IOException {
+            if (!ensureAvailable()) {
+                throw new EOFException();
+            }
+            return block[pos++];
+        }
+
+        @Override
+        public void readBytes(byte[] b, int offset, int len) throws IOException {
+            while (len > 0) {
+                if (!ensureAvailable()) {
+                    throw new EOFException();
+                }
+                int n = Math.min(len, blockLength - pos);
+                System.arraycopy(block, pos, b, offset, n);
+                pos += n;
+                offset += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            return ensureAvailable() ? block[pos++] & 0xff : -1;
+        }
+
+        @Override
+        public void close() throws IOException {
+            compressed = BytesRef.EMPTY_BYTES;
+            block = BytesRef.EMPTY_BYTES;
+            blockLength = 0;
+            pos = 0;
+            eof = true;
+            in.close();
+        }
+
+        @Override
+        public int available() {
+            return blockLength - pos;
+        }
+
+        @Override
+        protected void ensureCanReadBytes(int length) {
+            // The total length is only known after decompressing all blocks
+        }
+    }
+
+    /**
+     * The numeric and timestamp types whose values are delta encoded and bit packed as longs
+     */
+    private enum PackedType {
+        BYTE {
+            @Override
+            long toLong(Object value) {
+                return ((Number) value).longValue();
+            }
+
+            @Override
+            Object fromLong(long value) {
+                return (byte) value;
+            }
+        },
+        SHORT {
+            @Override
+            long toLong(Object value) {
+                return ((Number) value).longValue();
+            }
+
+            @Override
+            Object fromLong(long value) {
+                return (short) value;
+            }
+        },
+        INTEGER {
+            @Override
+            long toLong(Object value) {
+                return ((Number) value).longValue();
+            }
+
+            @Override
+            Object fromLong(long value) {
+                return (int) value;
+            }
+        },
+        LONG {
+            @Override
+            long toLong(Object value) {
+                return ((Number) value).longValue();
+            }
+
+            @Override
+            Object fromLong(long value) {
+                return value;
+            }
+        },
+        FLOAT {
+            @Override
+            long toLong(Object value) {
+                return Float.floatToRawIntBits(((Number) value).floatValue());
+            }
+
+            @Override
+            Object fromLong(long value) {
+                return Float.intBitsToFloat((int) value);
+            }
+        },
+        DOUBLE {
+            @Override
+            long toLong(Object value) {
+                return Double.doubleToRawLongBits(((Number) value).doubleValue());
+            }
+
+            @Override
+            Object fromLong(long value) {
+                return Double.longBitsToDouble(value);
+            }
+        };
+
+        abstract long toLong(Object value);
+
+        abstract Object fromLong(long value);
+
+        @Nullable
+        static PackedType of(Streamer<?> streamer) {
+            if (streamer instanceof LongType || streamer instanceof TimestampType) {
+                return LONG;
+            } else if (streamer instanceof IntegerType) {
+                return INTEGER;
+            } else if (streamer instanceof ShortType) {
+                return SHORT;
+            } else if (streamer instanceof ByteType) {
+                return BYTE;
+            } else if (streamer instanceof DoubleType) {
+                return DOUBLE;
+            } else if (streamer instanceof FloatType) {
+                return FLOAT;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Writes values with a fixed number of bits, starting with the lowest bit
+     */
+    private static final class BitPacker {
+
+        private final StreamOutput out;
+        private int current = 0;
+        private int usedBits = 0;
+
+        BitPacker(StreamOutput out) {
+            this.out = out;
+        }
+
+        void write(long value, int bitWidth) throws IOException {
+            int written = 0;
+            while (written < bitWidth) {
+                int n = Math.min(8 - usedBits, bitWidth - written);
+                current |= (int) ((value >>> written) & ((1L << n) - 1)) << usedBits;
+                usedBits += n;
+                written += n;
+                if (usedBits == 8) {
+                    out.writeByte((byte) current);
+                    current = 0;
+                    usedBits = 0;
+                }
+            }
+        }
+
+        void flush() throws IOException {
+            if (usedBits > 0) {
+                out.writeByte((byte) current);
+                current = 0;
+                usedBits = 0;
+            }
+        }
+    }
+
+    /**
+     * Reads the values of a column written by {@link Builder#encodePacked(int)} row by row
+     */
+    private static final class PackedColumnReader {
+
+        private final StreamInput in;
+        private final PackedType type;
+        @Nullable
+        private final byte[] nulls;
+        private final long minDelta;
+        private final int bitWidth;
+        private long previous;
+        private boolean first = true;
+        private int row = 0;
+        private int current;
+        private int availableBits = 0;
+
+        PackedColumnReader(StreamInput in, int size, PackedType type) throws IOException {
+            this.in = in;
+            this.type = type;
+            int numValues = in.readVInt();
+            if (numValues < size) {
+                nulls = new byte[(size + 7) / 8];
+                in.readBytes(nulls, 0, nulls.length);
+            } else {
+                nulls = null;
+            }
+            previous = numValues > 0 ? in.readZLong() : 0L;
+            if (numValues > 1) {
+                minDelta = in.readZLong();
+                bitWidth = in.readByte();
+                if (bitWidth < 0 || bitWidth > Long.SIZE) {
+                    throw new IOException("Invalid bit width of a packed column: " + bitWidth);
+                }
+            } else {
+                minDelta = 0L;
+                bitWidth = 0;
+            }
+        }
+
+        @Nullable
+        Object next() throws IOException {
+            int rowIdx = row++;
+            if (nulls != null && (nulls[rowIdx >> 3] & (1 << (rowIdx & 7))) != 0) {
+                return null;
+            }
+            if (first) {
+                first = false;
+            } else {
+                previous += minDelta + readBits();
+            }
+            return type.fromLong(previous);
+        }
+
+        private long readBits() throws IOException {
+            long value = 0;
+            int read = 0;
+            while (read < bitWidth) {
+                if (availableBits == 0) {
+                    current = in.readByte() & 0xff;
+                    availableBits = 8;
+                }
+                int n = Math.min(availableBits, bitWidth - read);
+                value |= (long) ((current >>> (8 - availableBits)) & ((1 << n) - 1)) << read;
+                availableBits -= n;
+                read += n;
+            }
+            return value;
         }
     }
 }
@@ -23,6 +23,7 @@
 package io.crate.execution.engine.export;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import io.crate.breaker.RamAccounting;
 import io.crate.common.annotations.VisibleForTesting;
 import io.crate.data.Input;
 import io.crate.data.Row;
@@ -33,6 +34,19 @@ import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.execution.dsl.projection.WriterProjection;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.metadata.ColumnIdent;
+import io.crate.parquet.ParquetColumn;
+import io.crate.parquet.ParquetWriter;
+import io.crate.types.BooleanType;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentHelper;
@@ -43,6 +57,7 @@ import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -67,6 +82,9 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
 
     private final Iterable<CollectExpression<Row, ?>> collectExpressions;
     private final List<Input<?>> inputs;
+    private final List<DataType<?>> inputTypes;
+    @Nullable
+    private final WriterProjection.CompressionType compressionType;
     private final Map<String, Object> overwrites;
     @Nullable
     private final List<String> outputNames;
@@ -74,30 +92,39 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
     private Output output;
 
     private final RowWriter rowWriter;
+    private final RamAccounting ramAccounting;
 
     FileWriterCountCollector(Executor executor,
                              String uri,
                              @Nullable WriterProjection.CompressionType compressionType,
                              @Nullable List<Input<?>> inputs,
+                             List<DataType<?>> inputTypes,
                              Iterable<CollectExpression<Row, ?>> collectExpressions,
                              Map<ColumnIdent, Object> overwrites,
                              @Nullable List<String> outputNames,
-                             WriterProjection.OutputFormat outputFormat) {
+                             WriterProjection.OutputFormat outputFormat,
+                             RamAccounting ramAccounting) {
         this.collectExpressions = collectExpressions;
         this.inputs = inputs;
+        this.inputTypes = inputTypes;
+        this.compressionType = compressionType;
         this.overwrites = toNestedStringObjectMap(overwrites);
         this.outputNames = outputNames;
         this.outputFormat = outputFormat;
+        this.ramAccounting = ramAccounting;
         URI uri1;
         try {
             uri1 = new URI(uri);
         } catch (URISyntaxException e) {
             throw new SQLParseException(String.format(Locale.ENGLISH, "Invalid uri '%s'", uri), e);
         }
+        // The pages of a parquet file are compressed by the writer
+        WriterProjection.CompressionType outputCompressionType =
+            outputFormat == WriterProjection.OutputFormat.PARQUET ? null : compressionType;
         if (uri1.getScheme() == null || uri1.getScheme().equals("file")) {
-            this.output = new OutputFile(uri1, compressionType);
+            this.output = new OutputFile(uri1, outputCompressionType);
         } else if (uri1.getScheme().equalsIgnoreCase("s3")) {
-            this.output = new OutputS3(executor, uri1, compressionType);
+            this.output = new OutputS3(executor, uri1, outputCompressionType);
         } else {
             throw new UnsupportedFeatureException(String.format(Locale.ENGLISH, "Unknown scheme '%s'", uri1.getScheme()));
         }
@@ -144,21 +171,46 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
 
     private RowWriter initWriter() {
         try {
-            if (!overwrites.isEmpty()) {
-                return new DocWriter(
-                    output.acquireOutputStream(), collectExpressions, overwrites);
-            } else if (outputFormat.equals(WriterProjection.OutputFormat.JSON_ARRAY)) {
-                return new ColumnRowWriter(output.acquireOutputStream(), collectExpressions, inputs);
-            } else if (outputNames != null && outputFormat.equals(WriterProjection.OutputFormat.JSON_OBJECT)) {
-                return new ColumnRowObjectWriter(output.acquireOutputStream(), collectExpressions, inputs, outputNames);
+            if (outputFormat.equals(WriterProjection.OutputFormat.PARQUET)) {
+                return new ParquetRowWriter(
+                    output.acquireOutputStream(),
+                    collectExpressions,
+                    inputs,
+                    parquetColumns(outputNames, inputTypes),
+                    compressionType == WriterProjection.CompressionType.GZIP
+                        ? ParquetWriter.Compression.GZIP
+                        : ParquetWriter.Compression.UNCOMPRESSED,
+                    ramAccounting);
             } else {
-                return new RawRowWriter(output.acquireOutputStream());
+                return newJsonRowWriter(
+                    output.acquireOutputStream(), outputFormat, collectExpressions, inputs, outputNames, overwrites);
             }
         } catch (IOException e) {
             throw new UnhandledServerException(String.format(Locale.ENGLISH, "Failed to open output: '%s'", e.getMessage()), e);
         }
     }
 
+    /**
+     * Creates a writer which writes each row as a line of JSON, or as is if the row contains the raw source.
+     * Also used by {@link JsonLineFormatter} to format the lines of {@code COPY TO STDOUT}.
+     */
+    static RowWriter newJsonRowWriter(OutputStream outputStream,
+                                      WriterProjection.OutputFormat outputFormat,
+                                      Iterable<CollectExpression<Row, ?>> collectExpressions,
+                                      List<Input<?>> inputs,
+                                      @Nullable List<String> outputNames,
+                                      Map<String, Object> overwrites) throws IOException {
+        if (!overwrites.isEmpty()) {
+            return new DocWriter(outputStream, collectExpressions, overwrites);
+        } else if (outputFormat.equals(WriterProjection.OutputFormat.JSON_ARRAY)) {
+            return new ColumnRowWriter(outputStream, collectExpressions, inputs);
+        } else if (outputNames != null && outputFormat.equals(WriterProjection.OutputFormat.JSON_OBJECT)) {
+            return new ColumnRowObjectWriter(outputStream, collectExpressions, inputs, outputNames);
+        } else {
+            return new RawRowWriter(outputStream);
+        }
+    }
+
     private void closeWriterAndOutput() {
         try {
             if (rowWriter != null) {
@@ -204,6 +256,49 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
         return Collections.emptySet();
     }
 
+    @VisibleForTesting
+    static List<ParquetColumn> parquetColumns(@Nullable List<String> outputNames, List<DataType<?>> types) {
+        if (outputNames == null) {
+            throw new UnsupportedFeatureException("The parquet format requires the columns to export");
+        }
+        assert outputNames.size() == types.size() : "There must be a type for each output name";
+        List<ParquetColumn> columns = new ArrayList<>(outputNames.size());
+        for (int i = 0; i < outputNames.size(); i++) {
+            columns.add(new ParquetColumn(outputNames.get(i), parquetType(types.get(i))));
+        }
+        return columns;
+    }
+
+    /**
+     * Types without an equivalent parquet type are written as JSON
+     */
+    private static ParquetColumn.Type parquetType(DataType<?> type) {
+        switch (type.id()) {
+            case BooleanType.ID:
+                return ParquetColumn.Type.BOOLEAN;
+            case ByteType.ID:
+                return ParquetColumn.Type.BYTE;
+            case ShortType.ID:
+                return ParquetColumn.Type.SHORT;
+            case IntegerType.ID:
+                return ParquetColumn.Type.INTEGER;
+            case LongType.ID:
+                return ParquetColumn.Type.LONG;
+            case FloatType.ID:
+                return ParquetColumn.Type.FLOAT;
+            case DoubleType.ID:
+                return ParquetColumn.Type.DOUBLE;
+            case TimestampType.ID_WITHOUT_TZ:
+                return ParquetColumn.Type.TIMESTAMP;
+            case TimestampType.ID_WITH_TZ:
+                return ParquetColumn.Type.TIMESTAMP_WITH_TIME_ZONE;
+            case StringType.ID:
+                return ParquetColumn.Type.STRING;
+            default:
+                return ParquetColumn.Type.JSON;
+        }
+    }
+
     @VisibleForTesting
     static XContentBuilder createJsonBuilder(OutputStream outputStream) throws IOException {
         XContentBuilder builder = XContentFactory.jsonBuilder(outputStream);
@@ -352,4 +447,52 @@ public class FileWriterCountCollector implements Collector<Row, long[], Iterable
             }
         }
     }
+
+    static class ParquetRowWriter implements RowWriter {
+
+        private final Iterable<CollectExpression<Row, ?>> collectExpressions;
+        private final List<Input<?>> inputs;
+        private final List<ParquetColumn> columns;
+        private final ParquetWriter writer;
+        private final Object[] values;
+
+        ParquetRowWriter(OutputStream outputStream,
+                         Iterable<CollectExpression<Row, ?>> collectExpressions,
+                         List<Input<?>> inputs,
+                         List<ParquetColumn> columns,
+                         ParquetWriter.Compression compression,
+                         RamAccounting ramAccounting) throws IOException {
+            this.collectExpressions = collectExpressions;
+            this.inputs = inputs;
+            this.columns = columns;
+            this.writer = new ParquetWriter(outputStream, columns, compression, ramAccounting);
+            this.values = new Object[inputs.size()];
+        }
+
+        @Override
+        public void write(Row row) {
+            for (CollectExpression<Row, ?> collectExpression : collectExpressions) {
+                collectExpression.setNextRow(row);
+            }
+            try {
+                for (int i = 0; i < values.length; i++) {
+                    Object value = inputs.get(i).value();
+                    if (value != null && columns.get(i).type() == ParquetColumn.Type.JSON) {
+                        XContentBuilder builder = XContentFactory.jsonBuilder();
+                        builder.value(value);
+                        value = Strings.toString(builder);
+                    }
+                    values[i] = value;
+                }
+                writer.write(values);
+            } catch (IOException e) {
+                throw new UnhandledServerException("Failed to write row to output", e);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
 }
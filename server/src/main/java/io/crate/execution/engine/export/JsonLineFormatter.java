@@ -0,0 +1,113 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.export;
+
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.exceptions.UnhandledServerException;
+import io.crate.execution.dsl.projection.WriterProjection;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.metadata.ColumnIdent;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Formats rows into the lines {@link FileWriterCountCollector} writes into files, using the same row writers.
+ * Used by {@code COPY TO STDOUT} to stream the lines to the client instead.
+ *
+ * <p>
+ * The source row contains either the columns to export or the {@code _raw}/{@code _doc} column,
+ * followed by the values of the {@code overwriteColumns}. The result is a row with the line as single column.
+ * </p>
+ */
+public final class JsonLineFormatter implements Function<Row, Row> {
+
+    private final WriterProjection.OutputFormat outputFormat;
+    @Nullable
+    private final List<String> outputNames;
+    private final List<ColumnIdent> overwriteColumns;
+    private final List<CollectExpression<Row, ?>> expressions;
+    private final List<Input<?>> inputs;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final Object[] cells = new Object[1];
+    private final RowN line = new RowN(cells);
+
+    public JsonLineFormatter(WriterProjection.OutputFormat outputFormat,
+                             @Nullable List<String> outputNames,
+                             List<ColumnIdent> overwriteColumns) {
+        this.outputFormat = outputFormat;
+        this.outputNames = outputNames;
+        this.overwriteColumns = overwriteColumns;
+        int numColumns = outputNames == null ? 0 : outputNames.size();
+        this.expressions = new ArrayList<>(numColumns);
+        this.inputs = new ArrayList<>(numColumns);
+        for (int i = 0; i < numColumns; i++) {
+            InputCollectExpression expression = new InputCollectExpression(i);
+            expressions.add(expression);
+            inputs.add(expression);
+        }
+    }
+
+    @Override
+    public Row apply(Row row) {
+        out.reset();
+        try {
+            // The overwrites differ per row, so does the writer. Writers are cheap, they only wrap the stream
+            FileWriterCountCollector.newJsonRowWriter(
+                out,
+                outputFormat,
+                expressions,
+                inputs,
+                outputNames,
+                overwrites(row)
+            ).write(row);
+        } catch (IOException e) {
+            throw new UnhandledServerException("Failed to write row to output", e);
+        }
+        String written = out.toString(StandardCharsets.UTF_8);
+        // Strip the line break which terminates each row
+        cells[0] = written.substring(0, written.length() - 1);
+        return line;
+    }
+
+    private Map<String, Object> overwrites(Row row) {
+        if (overwriteColumns.isEmpty()) {
+            return Map.of();
+        }
+        Map<ColumnIdent, Object> overwrites = new HashMap<>();
+        for (int i = 0; i < overwriteColumns.size(); i++) {
+            overwrites.put(overwriteColumns.get(i), row.get(i + 1));
+        }
+        return FileWriterCountCollector.toNestedStringObjectMap(overwrites);
+    }
+}
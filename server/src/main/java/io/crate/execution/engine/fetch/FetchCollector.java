@@ -23,16 +23,20 @@
 package io.crate.execution.engine.fetch;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import com.carrotsearch.hppc.IntContainer;
-import com.carrotsearch.hppc.cursors.IntCursor;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
 
 import io.crate.Streamer;
 import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.RowN;
 import io.crate.exceptions.Exceptions;
 import io.crate.execution.engine.distribution.StreamBucket;
 import io.crate.expression.InputRow;
@@ -45,19 +49,26 @@ class FetchCollector {
     private final InputRow row;
     private final Streamer<?>[] streamers;
     private final RamAccounting ramAccounting;
+    private final RowAccounting<Object[]> rowAccounting;
     private final int readerId;
     private final FetchTask fetchTask;
 
+    /**
+     * @param rowAccounting used for the rows which are materialized to restore the requested order of the docIds.
+     *                      It is released at the end of each {@link #collect(IntContainer)} call.
+     */
     FetchCollector(List<LuceneCollectorExpression<?>> collectorExpressions,
                    Streamer<?>[] streamers,
                    FetchTask fetchTask,
                    RamAccounting ramAccounting,
+                   RowAccounting<Object[]> rowAccounting,
                    int readerId) {
         this.fetchTask = fetchTask;
         // use toArray to avoid iterator allocations in docIds loop
         this.collectorExpressions = collectorExpressions.toArray(new LuceneCollectorExpression[0]);
         this.streamers = streamers;
         this.ramAccounting = ramAccounting;
+        this.rowAccounting = rowAccounting;
         this.readerId = readerId;
         CollectorContext collectorContext = new CollectorContext(readerId);
         for (LuceneCollectorExpression<?> collectorExpression : this.collectorExpressions) {
@@ -67,33 +78,90 @@ class FetchCollector {
 
     }
 
-    private void setNextDocId(LeafReaderContext readerContext, int doc) throws IOException {
-        for (LuceneCollectorExpression<?> e : collectorExpressions) {
-            e.setNextReader(readerContext);
-            e.setNextDocId(doc);
-        }
-    }
-
     public StreamBucket collect(IntContainer docIds) {
         StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccounting);
+        int[] ids = docIds.toArray();
         try (var borrowed = fetchTask.searcher(readerId)) {
             var searcher = borrowed.item();
             List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
-            for (IntCursor cursor : docIds) {
-                int docId = cursor.value;
+            long[] sortedIds = sortedWithPositions(ids);
+            if (sortedIds == null) {
+                LeafReaderContext leaf = null;
+                for (int docId : ids) {
+                    leaf = setNextDocId(leaves, leaf, docId);
+                    builder.add(row);
+                }
+            } else {
+                // Read the documents in ascending order to access the stored fields and doc values of each segment
+                // sequentially, and restore the requested order afterwards
+                Object[][] rows = new Object[ids.length][];
+                try {
+                    LeafReaderContext leaf = null;
+                    for (long sortedId : sortedIds) {
+                        leaf = setNextDocId(leaves, leaf, (int) (sortedId >>> 32));
+                        Object[] cells = row.materialize();
+                        rowAccounting.accountForAndMaybeBreak(cells);
+                        rows[(int) sortedId] = cells;
+                    }
+                    RowN rowN = new RowN(collectorExpressions.length);
+                    for (Object[] cells : rows) {
+                        rowN.cells(cells);
+                        builder.add(rowN);
+                    }
+                } finally {
+                    rowAccounting.release();
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the docIds in the upper and their position in the lower 32 bits, sorted by docId.
+     *         Null if the docIds are already in ascending order.
+     */
+    @Nullable
+    private static long[] sortedWithPositions(int[] docIds) {
+        boolean ascending = true;
+        for (int i = 1; i < docIds.length && ascending; i++) {
+            ascending = docIds[i - 1] < docIds[i];
+        }
+        if (ascending) {
+            return null;
+        }
+        long[] sortedIds = new long[docIds.length];
+        for (int i = 0; i < docIds.length; i++) {
+            sortedIds[i] = ((long) docIds[i] << 32) | i;
+        }
+        Arrays.sort(sortedIds);
+        return sortedIds;
+    }
+
+    /**
+     * Positions the expressions on the given document. Must be called with ascending docIds.
+     *
+     * @param leaf the segment of the previous document or null
+     * @return the segment of the document
+     */
+    private LeafReaderContext setNextDocId(List<LeafReaderContext> leaves, @Nullable LeafReaderContext leaf, int docId) {
+        try {
+            if (leaf == null || docId >= leaf.docBase + leaf.reader().maxDoc()) {
                 int readerIndex = ReaderUtil.subIndex(docId, leaves);
                 if (readerIndex == -1) {
                     throw new IllegalStateException("jobId=" + fetchTask.jobId() + " docId " + docId + " doesn't fit to leaves of searcher " + readerId + " fetchTask=" + fetchTask);
                 }
-                LeafReaderContext subReaderContext = leaves.get(readerIndex);
-                try {
-                    setNextDocId(subReaderContext, docId - subReaderContext.docBase);
-                } catch (IOException e) {
-                    Exceptions.rethrowRuntimeException(e);
+                leaf = leaves.get(readerIndex);
+                for (LuceneCollectorExpression<?> e : collectorExpressions) {
+                    e.setNextReader(leaf);
                 }
-                builder.add(row);
             }
+            int doc = docId - leaf.docBase;
+            for (LuceneCollectorExpression<?> e : collectorExpressions) {
+                e.setNextDocId(doc);
+            }
+        } catch (IOException e) {
+            Exceptions.rethrowRuntimeException(e);
         }
-        return builder.build();
+        return leaf;
     }
 }
@@ -45,6 +45,8 @@ import io.crate.Streamer;
 import io.crate.breaker.BlockBasedRamAccounting;
 import io.crate.breaker.ConcurrentRamAccounting;
 import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RowCellsAccountingWithEstimators;
+import io.crate.common.collections.Lists2;
 import io.crate.exceptions.SQLExceptions;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.execution.engine.distribution.StreamBucket;
@@ -89,11 +91,17 @@ public class NodeFetchOperation {
             for (Reference reference : refs) {
                 exprs.add(resolver.getImplementation(reference));
             }
+            var rowAccounting = new RowCellsAccountingWithEstimators(
+                Lists2.map(refs, Reference::valueType),
+                new ConcurrentRamAccounting(ramAccounting::addBytes, bytes -> ramAccounting.addBytes(- bytes)),
+                0
+            );
             return new FetchCollector(
                 exprs,
                 streamers,
                 fetchTask,
                 ramAccounting,
+                rowAccounting,
                 readerId
             );
         }
@@ -22,6 +22,7 @@
 
 package io.crate.execution.engine.indexing;
 
+import io.crate.analyze.Id;
 import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
 import io.crate.data.CollectingBatchIterator;
@@ -110,7 +111,8 @@ public class ColumnIndexWriterProjector implements Projector {
             columnReferences.toArray(new Reference[columnReferences.size()]),
             returnValues.isEmpty() ? null : returnValues.toArray(new Symbol[0]),
             jobId,
-            true);
+            true,
+            updateAssignments == null && Id.isAutoGenerated(primaryKeyIdents));
 
         InputRow insertValues = new InputRow(insertInputs);
         Function<String, ShardUpsertRequest.Item> itemFactory =
@@ -22,6 +22,7 @@
 
 package io.crate.execution.engine.indexing;
 
+import io.crate.analyze.Id;
 import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
 import io.crate.data.CollectingBatchIterator;
@@ -113,7 +114,8 @@ public class IndexWriterProjector implements Projector {
             new Reference[]{rawSourceReference},
             null,
             jobId,
-            false);
+            false,
+            Id.isAutoGenerated(primaryKeyIdents));
 
         Function<String, ShardUpsertRequest.Item> itemFactory =
             id -> new ShardUpsertRequest.Item(id, null, new Object[]{source.value()}, null, null, null);
@@ -88,8 +88,8 @@ public final class ShardedRequests<TReq extends ShardRequest<TReq, TItem>, TItem
     }
 
     void addFailedUri(String sourceUri, String uriReadFailure) {
-        assert sourceUrisWithFailure.get(sourceUri) == null : "A failure was already stored for this URI, should happen only once";
-        sourceUrisWithFailure.put(sourceUri, uriReadFailure);
+        // Multiple readers may fail to read the same URI if it is read in splits, the first failure is kept
+        sourceUrisWithFailure.putIfAbsent(sourceUri, uriReadFailure);
     }
 
     @Override
@@ -217,6 +217,8 @@ public class ShardingUpsertExecutor
                     if (isDebugEnabled) {
                         LOGGER.debug("Executing retry Listener for nodeId: {} request: {}", nodeId, request);
                     }
+                    // Items with auto generated ids must not be appended blindly if they may have been indexed before
+                    request.onRetry();
                     requestExecutor.execute(request, l);
                 },
                 listener,
@@ -0,0 +1,390 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.hppc.BitMixer;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RowAccounting;
+import io.crate.common.io.IOUtils;
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.data.UnsafeArrayRow;
+import io.crate.data.join.CombinedRow;
+import io.crate.data.join.JoinBatchIterator;
+import io.crate.exceptions.Exceptions;
+import io.crate.execution.engine.spill.RowSpillFile;
+import io.netty.util.collection.IntObjectHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A hash join which partitions both sides by the hash of the join condition inputs into temporary files and then
+ * joins partition by partition. Used instead of {@link HashInnerJoinBatchIterator} if the left side is expected to
+ * not fit into the memory available to the circuit breaker.
+ *
+ * <pre>
+ *     Partition Phase:
+ *     for (leftRow in left) {
+ *         write leftRow into leftPartitions[hash(leftRow) % numPartitions]
+ *     }
+ *     for (rightRow in right) {
+ *         write rightRow into rightPartitions[hash(rightRow) % numPartitions]
+ *     }
+ *
+ *     Probe Phase:
+ *     for (partition in partitions) {
+ *         for (block in leftPartitions[partition]) {    // usually exactly one block
+ *             load block into Buffer (HashMap)
+ *             for (rightRow in rightPartitions[partition]) {
+ *                 for (row in matchedInBuffer) {
+ *                     if (joinCondition matches) {
+ *                         emmit(combinedRow)
+ *                     }
+ *                 }
+ *             }
+ *         }
+ *     }
+ * </pre>
+ * <p>
+ * Both sides are consumed exactly once. Rows with the same hash end up in the same partition, so a partition only
+ * needs to be matched against the partition of the other side with the same index.
+ * If a partition is larger than the block size (e.g. because of skewed data), the partition is processed in blocks
+ * and the corresponding right partition is re-read from disk for each block.
+ */
+public class GraceHashJoinBatchIterator extends JoinBatchIterator<Row, Row, Row> {
+
+    static final int MAX_PARTITIONS = 256;
+
+    private final RowAccounting<Object[]> leftRowAccounting;
+    private final RamAccounting writeBufferRamAccounting;
+    private final Predicate<Row> joinCondition;
+    private final ToIntFunction<Row> hashBuilderForLeft;
+    private final ToIntFunction<Row> hashBuilderForRight;
+    private final IntSupplier calculateBlockSize;
+    private final Path spillDirectory;
+    private final Streamer<?>[] leftStreamers;
+    private final Streamer<?>[] rightStreamers;
+    private final int numPartitions;
+    private final IntObjectHashMap<List<Object[]>> buffer = new IntObjectHashMap<>();
+
+    /**
+     * Used to avoid instantiating multiple times RowN in {@link #findMatchingRows()}
+     */
+    private final UnsafeArrayRow leftRow = new UnsafeArrayRow();
+    private final UnsafeArrayRow unsafeArrayRow = new UnsafeArrayRow();
+
+    @Nullable
+    private RowSpillFile[] leftPartitions;
+    @Nullable
+    private RowSpillFile[] rightPartitions;
+    private boolean leftPartitioned = false;
+    private boolean rightPartitioned = false;
+
+    private int partition = -1;
+    @Nullable
+    private RowSpillFile.Reader leftPartitionReader;
+    @Nullable
+    private RowSpillFile.Reader rightPartitionReader;
+    @Nullable
+    private Iterator<Object[]> leftMatchingRowsIterator;
+
+    private volatile Throwable killed = null;
+
+    /**
+     * @param writeBufferRamAccounting accounts the write buffers of the partitions of the side which is currently
+     *                                 partitioned. It is released once all partitions of the side are written.
+     */
+    public GraceHashJoinBatchIterator(BatchIterator<Row> left,
+                                      BatchIterator<Row> right,
+                                      RowAccounting<Object[]> leftRowAccounting,
+                                      RamAccounting writeBufferRamAccounting,
+                                      CombinedRow combiner,
+                                      Predicate<Row> joinCondition,
+                                      ToIntFunction<Row> hashBuilderForLeft,
+                                      ToIntFunction<Row> hashBuilderForRight,
+                                      IntSupplier calculateBlockSize,
+                                      Path spillDirectory,
+                                      Streamer<?>[] leftStreamers,
+                                      Streamer<?>[] rightStreamers,
+                                      int numPartitions) {
+        super(left, right, combiner);
+        assert numPartitions > 0 && numPartitions <= MAX_PARTITIONS
+            : "numPartitions must be between 1 and " + MAX_PARTITIONS;
+        this.leftRowAccounting = leftRowAccounting;
+        this.writeBufferRamAccounting = writeBufferRamAccounting;
+        this.joinCondition = joinCondition;
+        this.hashBuilderForLeft = hashBuilderForLeft;
+        this.hashBuilderForRight = hashBuilderForRight;
+        this.calculateBlockSize = calculateBlockSize;
+        this.spillDirectory = spillDirectory;
+        this.leftStreamers = leftStreamers;
+        this.rightStreamers = rightStreamers;
+        this.numPartitions = numPartitions;
+    }
+
+    @Override
+    public Row currentElement() {
+        return combiner.currentElement();
+    }
+
+    @Override
+    public void moveToStart() {
+        raiseIfKilled();
+        resetProbe();
+        if (leftPartitioned == false || rightPartitioned == false) {
+            // The partitions are incomplete, the sources have to be consumed again
+            left.moveToStart();
+            right.moveToStart();
+            deletePartitions();
+        }
+    }
+
+    @Override
+    public boolean moveNext() {
+        raiseIfKilled();
+        try {
+            if (leftPartitioned == false) {
+                if (leftPartitions == null) {
+                    leftPartitions = createPartitions("join-left-", leftStreamers);
+                }
+                if (partition(left, leftPartitions, hashBuilderForLeft) == false) {
+                    return false;
+                }
+                leftPartitioned = true;
+            }
+            if (rightPartitioned == false) {
+                if (rightPartitions == null) {
+                    rightPartitions = createPartitions("join-right-", rightStreamers);
+                }
+                if (partition(right, rightPartitions, hashBuilderForRight) == false) {
+                    return false;
+                }
+                rightPartitioned = true;
+            }
+            return probe();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() throws Exception {
+        if (left.allLoaded() == false) {
+            return left.loadNextBatch();
+        }
+        return right.loadNextBatch();
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return left.allLoaded() && right.allLoaded();
+    }
+
+    @Override
+    public void close() {
+        killed = BatchIterator.CLOSED;
+        try {
+            super.close();
+        } finally {
+            resetProbe();
+            deletePartitions();
+        }
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        killed = throwable;
+        super.kill(throwable);
+    }
+
+    static int partitionFor(int hash, int numPartitions) {
+        // The hash is also used as key in the buffer, so it has to be mixed to not end up with partitions
+        // containing only keys which share the lower bits
+        return Math.floorMod(BitMixer.mix32(hash), numPartitions);
+    }
+
+    private RowSpillFile[] createPartitions(String prefix, Streamer<?>[] streamers) throws IOException {
+        writeBufferRamAccounting.addBytes((long) numPartitions * RowSpillFile.BUFFER_SIZE);
+        RowSpillFile[] partitions = new RowSpillFile[numPartitions];
+        try {
+            for (int i = 0; i < numPartitions; i++) {
+                partitions[i] = new RowSpillFile(spillDirectory, prefix, streamers);
+            }
+        } catch (IOException e) {
+            closeAll(partitions);
+            throw e;
+        }
+        return partitions;
+    }
+
+    /**
+     * @return true if the source has been consumed completely, false if the next batch has to be loaded.
+     */
+    private boolean partition(BatchIterator<Row> source,
+                              RowSpillFile[] partitions,
+                              ToIntFunction<Row> hashBuilder) throws IOException {
+        while (source.moveNext()) {
+            Row row = source.currentElement();
+            partitions[partitionFor(hashBuilder.applyAsInt(row), numPartitions)].add(row);
+        }
+        if (source.allLoaded()) {
+            for (RowSpillFile partition : partitions) {
+                partition.finishWriting();
+            }
+            writeBufferRamAccounting.release();
+            return true;
+        }
+        return false;
+    }
+
+    private boolean probe() throws IOException {
+        while (true) {
+            // In case of multiple matches on the left side (duplicate values or hash collisions)
+            if (leftMatchingRowsIterator != null && findMatchingRows()) {
+                return true;
+            }
+            leftMatchingRowsIterator = null;
+            if (rightPartitionReader != null) {
+                while (rightPartitionReader.hasNext()) {
+                    Row rightRow = rightPartitionReader.next();
+                    List<Object[]> leftMatchingRows = buffer.get(hashBuilderForRight.applyAsInt(rightRow));
+                    if (leftMatchingRows != null) {
+                        leftMatchingRowsIterator = leftMatchingRows.iterator();
+                        combiner.setRight(rightRow);
+                        if (findMatchingRows()) {
+                            return true;
+                        }
+                    }
+                }
+                rightPartitionReader.close();
+                rightPartitionReader = null;
+            }
+            if (loadNextBlock() == false) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Loads the next block of left rows into the buffer and opens a reader on the matching right partition.
+     *
+     * @return false if all partitions have been processed.
+     */
+    private boolean loadNextBlock() throws IOException {
+        assert leftPartitions != null && rightPartitions != null : "partitions must exist in the probe phase";
+        clearBuffer();
+        while (leftPartitionReader == null || leftPartitionReader.hasNext() == false) {
+            if (leftPartitionReader != null) {
+                leftPartitionReader.close();
+                leftPartitionReader = null;
+            }
+            if (partition + 1 >= numPartitions) {
+                return false;
+            }
+            partition++;
+            // A partition without rows on either side cannot produce any matches
+            if (leftPartitions[partition].numRows() > 0 && rightPartitions[partition].numRows() > 0) {
+                leftPartitionReader = leftPartitions[partition].newReader();
+            }
+        }
+        int blockSize = calculateBlockSize.getAsInt();
+        int numberOfRowsInBuffer = 0;
+        while (numberOfRowsInBuffer < blockSize && leftPartitionReader.hasNext()) {
+            Object[] row = leftPartitionReader.next().materialize();
+            leftRowAccounting.accountForAndMaybeBreak(row);
+            addToBuffer(row, hashBuilderForLeft.applyAsInt(unsafeArrayRow.cells(row)));
+            numberOfRowsInBuffer++;
+        }
+        rightPartitionReader = rightPartitions[partition].newReader();
+        return true;
+    }
+
+    private void addToBuffer(Object[] currentRow, int hash) {
+        List<Object[]> existingRows = buffer.get(hash);
+        if (existingRows == null) {
+            existingRows = new ArrayList<>();
+            buffer.put(hash, existingRows);
+        }
+        existingRows.add(currentRow);
+    }
+
+    private boolean findMatchingRows() {
+        while (leftMatchingRowsIterator.hasNext()) {
+            leftRow.cells(leftMatchingRowsIterator.next());
+            combiner.setLeft(leftRow);
+            if (joinCondition.test(combiner.currentElement())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void clearBuffer() {
+        buffer.clear();
+        leftRowAccounting.release();
+    }
+
+    private void resetProbe() {
+        closeAll(leftPartitionReader, rightPartitionReader);
+        leftPartitionReader = null;
+        rightPartitionReader = null;
+        leftMatchingRowsIterator = null;
+        partition = -1;
+        clearBuffer();
+    }
+
+    private void deletePartitions() {
+        closeAll(leftPartitions);
+        closeAll(rightPartitions);
+        leftPartitions = null;
+        rightPartitions = null;
+        writeBufferRamAccounting.release();
+        leftPartitioned = false;
+        rightPartitioned = false;
+    }
+
+    private static void closeAll(@Nullable Closeable... closeables) {
+        if (closeables != null) {
+            IOUtils.closeWhileHandlingException(closeables);
+        }
+    }
+
+    private void raiseIfKilled() {
+        if (killed != null) {
+            Exceptions.rethrowUnchecked(killed);
+        }
+    }
+}
@@ -22,6 +22,8 @@
 
 package io.crate.execution.engine.join;
 
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.concurrent.CompletionListenable;
 import io.crate.data.BatchIterator;
@@ -36,6 +38,8 @@ import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.TransactionContext;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Predicate;
@@ -54,11 +58,15 @@ public class HashJoinOperation implements CompletionListenable {
                              List<Symbol> joinLeftInputs,
                              List<Symbol> joinRightInputs,
                              RowAccounting<Object[]> rowAccounting,
+                             RamAccounting writeBufferRamAccounting,
                              TransactionContext txnCtx,
                              InputFactory inputFactory,
                              CircuitBreaker circuitBreaker,
                              long estimatedRowSizeForLeft,
-                             long numberOfRowsForLeft) {
+                             long numberOfRowsForLeft,
+                             @Nullable Path spillDirectory,
+                             Streamer<?>[] leftStreamers,
+                             @Nullable Streamer<?>[] rightStreamers) {
 
         this.resultConsumer = nlResultConsumer;
         this.leftConsumer = new CapturingRowConsumer(false, nlResultConsumer.completionFuture());
@@ -77,12 +85,16 @@ public class HashJoinOperation implements CompletionListenable {
                             getHashBuilderFromSymbols(txnCtx, inputFactory, joinLeftInputs),
                             getHashBuilderFromSymbols(txnCtx, inputFactory, joinRightInputs),
                             rowAccounting,
+                            writeBufferRamAccounting,
                             new RamBlockSizeCalculator(
                                 Paging.PAGE_SIZE,
                                 circuitBreaker,
                                 estimatedRowSizeForLeft,
                                 numberOfRowsForLeft
-                            )
+                            ),
+                            spillDirectory,
+                            leftStreamers,
+                            rightStreamers
                         );
                         nlResultConsumer.accept(joinIterator, null);
                     } catch (Exception e) {
@@ -134,8 +146,33 @@ public class HashJoinOperation implements CompletionListenable {
                                                              ToIntFunction<Row> hashBuilderForLeft,
                                                              ToIntFunction<Row> hashBuilderForRight,
                                                              RowAccounting<Object[]> rowAccounting,
-                                                             RamBlockSizeCalculator blockSizeCalculator) {
+                                                             RamAccounting writeBufferRamAccounting,
+                                                             RamBlockSizeCalculator blockSizeCalculator,
+                                                             @Nullable Path spillDirectory,
+                                                             Streamer<?>[] leftStreamers,
+                                                             @Nullable Streamer<?>[] rightStreamers) {
         CombinedRow combiner = new CombinedRow(leftNumCols, rightNumCols);
+        if (spillDirectory != null && rightStreamers != null) {
+            // If the left side doesn't fit into memory, the block based join would have to read the right side once
+            // per block. Partitioning both sides to disk instead requires only a single pass over each side.
+            int numPartitions = blockSizeCalculator.numberOfPartitions(GraceHashJoinBatchIterator.MAX_PARTITIONS);
+            if (numPartitions > 1) {
+                return new GraceHashJoinBatchIterator(
+                    left,
+                    right,
+                    rowAccounting,
+                    writeBufferRamAccounting,
+                    combiner,
+                    joinCondition,
+                    hashBuilderForLeft,
+                    hashBuilderForRight,
+                    blockSizeCalculator,
+                    spillDirectory,
+                    leftStreamers,
+                    rightStreamers,
+                    numPartitions);
+            }
+        }
         return new HashInnerJoinBatchIterator(
             left,
             right,
@@ -71,6 +71,28 @@ public class RamBlockSizeCalculator implements IntSupplier {
         return blockSize <= 0 ? 10 : blockSize;
     }
 
+    /**
+     * Calculates the number of partitions the left side must be split into so that each partition is expected to fit
+     * into the memory which is currently available to the circuit breaker.
+     *
+     * @return 1 if the left side is expected to fit into memory as a whole or if no statistics are available,
+     *         otherwise a value between 2 and {@code maxPartitions}.
+     */
+    public int numberOfPartitions(int maxPartitions) {
+        if (statisticsUnavailable(circuitBreaker, estimatedRowSizeForLeft, numberOfRowsForLeft)) {
+            return 1;
+        }
+        long availableMemory = circuitBreaker.getLimit() - circuitBreaker.getUsed();
+        long numRowsFittingIntoAvailableMemory = Math.max(1, availableMemory / estimatedRowSizeForLeft);
+        if (numRowsFittingIntoAvailableMemory >= numberOfRowsForLeft) {
+            return 1;
+        }
+        // Use twice the number of partitions which would be required in theory,
+        // to leave room for skewed partitions and for other consumers of the circuit breaker.
+        long numPartitions = 2 * ((numberOfRowsForLeft + numRowsFittingIntoAvailableMemory - 1) / numRowsFittingIntoAvailableMemory);
+        return (int) Math.min(maxPartitions, numPartitions);
+    }
+
     private static boolean statisticsUnavailable(CircuitBreaker circuitBreaker,
                                                  long estimatedRowSizeForLeft,
                                                  long numberOfRowsForLeft) {
@@ -0,0 +1,162 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.pipeline;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
+import io.crate.data.FlatMapBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.expression.FunctionExpression;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Evaluates the functions which {@link FunctionExpression#supportsBatches() support batches} once for the
+ * rows of a batch instead of once per row.
+ *
+ * <p>
+ * The source rows are buffered in batches of {@link #BATCH_SIZE}. For every batch function, inner functions first,
+ * the arguments of all buffered rows are collected and the function is invoked once. The buffered rows are then
+ * emitted one by one, and while a row is current the batch functions return their result for that row. So the
+ * {@link Input}s on top of the rows are evaluated as usual, including other functions the batch functions are
+ * nested in.
+ * </p>
+ * <p>
+ * Batch functions within the arguments of conditional functions are not batched, see
+ * {@link FunctionExpression#collectBatchFunctions(List)}.
+ * </p>
+ */
+final class BatchFunctionEvaluator {
+
+    static final int BATCH_SIZE = 100;
+
+    private final List<FunctionExpression<?, ?>> batchFunctions;
+    private final List<? extends CollectExpression<Row, ?>> expressions;
+
+    /**
+     * @return an evaluator for the batch functions within {@code inputs} or null if there are none.
+     */
+    @Nullable
+    static BatchFunctionEvaluator of(List<? extends Input<?>> inputs,
+                                     List<? extends CollectExpression<Row, ?>> expressions) {
+        List<FunctionExpression<?, ?>> batchFunctions = new ArrayList<>();
+        for (int i = 0; i < inputs.size(); i++) {
+            Input<?> input = inputs.get(i);
+            if (input instanceof FunctionExpression) {
+                ((FunctionExpression<?, ?>) input).collectBatchFunctions(batchFunctions);
+            }
+        }
+        if (batchFunctions.isEmpty()) {
+            return null;
+        }
+        return new BatchFunctionEvaluator(batchFunctions, expressions);
+    }
+
+    private BatchFunctionEvaluator(List<FunctionExpression<?, ?>> batchFunctions,
+                                   List<? extends CollectExpression<Row, ?>> expressions) {
+        this.batchFunctions = batchFunctions;
+        this.expressions = expressions;
+    }
+
+    /**
+     * @return the rows of {@code source}; the batch functions return the results of the current row.
+     */
+    BatchIterator<Row> apply(BatchIterator<Row> source) {
+        BatchIterator<List<Object[]>> batches = BatchIterators.partition(
+            source,
+            BATCH_SIZE,
+            ArrayList::new,
+            (rows, row) -> rows.add(row.materialize()),
+            rows -> false
+        );
+        return new FlatMapBatchIterator<>(batches, this::evaluate);
+    }
+
+    private Iterator<Row> evaluate(List<Object[]> rows) {
+        int numRows = rows.size();
+        RowN row = new RowN(0);
+        Object[][] results = new Object[batchFunctions.size()][];
+        for (int f = 0; f < batchFunctions.size(); f++) {
+            List<Input<?>[]> arguments = new ArrayList<>(numRows);
+            FunctionExpression<?, ?> function = batchFunctions.get(f);
+            for (int r = 0; r < numRows; r++) {
+                // Functions nested in the arguments come first and return their results of the row
+                moveTo(row, rows.get(r), results, r, f);
+                arguments.add(function.argumentValues());
+            }
+            List<?> values = evaluateBatch(function, arguments);
+            assert values.size() == numRows : "batch function must return a result for each row";
+            results[f] = values.toArray();
+        }
+        return new Iterator<>() {
+
+            int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                if (position < numRows) {
+                    return true;
+                }
+                for (int f = 0; f < batchFunctions.size(); f++) {
+                    batchFunctions.get(f).clearBatchValue();
+                }
+                return false;
+            }
+
+            @Override
+            public Row next() {
+                if (position >= numRows) {
+                    throw new NoSuchElementException("All rows of the batch have been emitted");
+                }
+                row.cells(rows.get(position));
+                for (int f = 0; f < batchFunctions.size(); f++) {
+                    batchFunctions.get(f).batchValue(results[f][position]);
+                }
+                position++;
+                return row;
+            }
+        };
+    }
+
+    private void moveTo(RowN row, Object[] cells, Object[][] results, int position, int numEvaluated) {
+        row.cells(cells);
+        for (int e = 0; e < expressions.size(); e++) {
+            expressions.get(e).setNextRow(row);
+        }
+        for (int f = 0; f < numEvaluated; f++) {
+            batchFunctions.get(f).batchValue(results[f][position]);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<?> evaluateBatch(FunctionExpression<?, ?> function, List<Input<?>[]> arguments) {
+        return function.evaluateBatch((List) arguments);
+    }
+}
@@ -27,7 +27,9 @@ import io.crate.data.BatchIterator;
 import io.crate.data.FilteringBatchIterator;
 import io.crate.data.Projector;
 import io.crate.data.Row;
+import io.crate.expression.RowFilter;
 
+import java.util.List;
 import java.util.function.Predicate;
 
 class FilterProjector implements Projector {
@@ -40,6 +42,14 @@ class FilterProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
+        if (rowFilterPredicate instanceof RowFilter) {
+            RowFilter rowFilter = (RowFilter) rowFilterPredicate;
+            BatchFunctionEvaluator batchFunctionEvaluator =
+                BatchFunctionEvaluator.of(List.of(rowFilter.filterCondition()), rowFilter.expressions());
+            if (batchFunctionEvaluator != null) {
+                batchIterator = batchFunctionEvaluator.apply(batchIterator);
+            }
+        }
         return new FilteringBatchIterator<>(batchIterator, rowFilterPredicate);
     }
 
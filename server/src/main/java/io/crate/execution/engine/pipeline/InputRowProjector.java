@@ -33,6 +33,7 @@ import java.util.List;
 
 /**
  * Projector which evaluates scalars or extends/cuts columns, see {@link MapRowUsingInputs}.
+ * Functions which support batches are evaluated once for many rows, see {@link BatchFunctionEvaluator}.
  */
 public class InputRowProjector implements Projector {
 
@@ -47,6 +48,10 @@ public class InputRowProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
+        BatchFunctionEvaluator batchFunctionEvaluator = BatchFunctionEvaluator.of(inputs, collectExpressions);
+        if (batchFunctionEvaluator != null) {
+            batchIterator = batchFunctionEvaluator.apply(batchIterator);
+        }
         return BatchIterators.map(batchIterator, new MapRowUsingInputs(inputs, collectExpressions));
     }
 
@@ -23,8 +23,10 @@
 package io.crate.execution.engine.pipeline;
 
 import com.google.common.collect.Iterables;
+import io.crate.Streamer;
 import io.crate.analyze.NumberOfReplicas;
 import io.crate.analyze.SymbolEvaluator;
+import io.crate.breaker.BlockBasedRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowCellsAccountingWithEstimators;
 import io.crate.common.collections.Lists2;
@@ -85,6 +87,7 @@ import io.crate.expression.reference.StaticTableDefinition;
 import io.crate.expression.reference.StaticTableReferenceResolver;
 import io.crate.expression.reference.sys.SysRowUpdater;
 import io.crate.expression.reference.sys.check.node.SysNodeCheck;
+import io.crate.expression.symbol.AggregateMode;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
 import io.crate.expression.symbol.Symbols;
@@ -97,12 +100,14 @@ import io.crate.metadata.RowGranularity;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.sys.SysNodeChecksTableInfo;
 import io.crate.planner.operators.SubQueryResults;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import io.crate.types.StringType;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetadata;
 import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.settings.Settings;
 import io.crate.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
@@ -112,6 +117,7 @@ import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -140,6 +146,22 @@ public class ProjectionToProjectorVisitor
      */
     private static final int UNBOUNDED_COLLECTOR_THRESHOLD = 10_000;
 
+    /**
+     * Share of the query circuit breaker limit a partial group by may use before it flushes its groups
+     */
+    private static final double PARTIAL_GROUP_BY_MEMORY_RATIO = 0.1;
+
+    /**
+     * Share of the query circuit breaker limit a sort may use before it spills its rows to disk
+     */
+    private static final double SORT_MEMORY_RATIO = 0.25;
+
+    /**
+     * Share of the query circuit breaker limit the rows buffered to compute window functions may use before
+     * they're spilled to disk
+     */
+    private static final double WINDOW_MEMORY_RATIO = 0.25;
+
     private final ClusterService clusterService;
     private final NodeJobsCounter nodeJobsCounter;
     private final NodeContext nodeCtx;
@@ -155,7 +177,8 @@ public class ProjectionToProjectorVisitor
     @Nullable
     private final ShardId shardId;
     private final int numProcessors;
-
+    @Nullable
+    private final Path spillDirectory;
 
     public ProjectionToProjectorVisitor(ClusterService clusterService,
                                         NodeJobsCounter nodeJobsCounter,
@@ -170,6 +193,41 @@ public class ProjectionToProjectorVisitor
                                         Function<RelationName, StaticTableDefinition<?>> staticTableDefinitionGetter,
                                         Version indexVersionCreated,
                                         @Nullable ShardId shardId) {
+        this(clusterService,
+            nodeJobsCounter,
+            circuitBreakerService,
+            nodeCtx,
+            threadPool,
+            settings,
+            transportActionProvider,
+            inputFactory,
+            normalizer,
+            sysUpdaterGetter,
+            staticTableDefinitionGetter,
+            indexVersionCreated,
+            shardId,
+            null
+        );
+    }
+
+    /**
+     * @param spillDirectory directory which sort operations may use to spill rows to disk, or null if they must
+     *                       keep all rows in memory
+     */
+    public ProjectionToProjectorVisitor(ClusterService clusterService,
+                                        NodeJobsCounter nodeJobsCounter,
+                                        CircuitBreakerService circuitBreakerService,
+                                        NodeContext nodeCtx,
+                                        ThreadPool threadPool,
+                                        Settings settings,
+                                        TransportActionProvider transportActionProvider,
+                                        InputFactory inputFactory,
+                                        EvaluatingNormalizer normalizer,
+                                        Function<RelationName, SysRowUpdater<?>> sysUpdaterGetter,
+                                        Function<RelationName, StaticTableDefinition<?>> staticTableDefinitionGetter,
+                                        Version indexVersionCreated,
+                                        @Nullable ShardId shardId,
+                                        @Nullable Path spillDirectory) {
         this.clusterService = clusterService;
         this.nodeJobsCounter = nodeJobsCounter;
         this.circuitBreakerService = circuitBreakerService;
@@ -184,6 +242,7 @@ public class ProjectionToProjectorVisitor
         this.indexVersionCreated = indexVersionCreated;
         this.shardId = shardId;
         this.numProcessors = EsExecutors.numberOfProcessors(settings);
+        this.spillDirectory = spillDirectory;
     }
 
     public ProjectionToProjectorVisitor(ClusterService clusterService,
@@ -246,11 +305,28 @@ public class ProjectionToProjectorVisitor
         }
 
         int rowMemoryOverhead = 32; // priority queues implementation are backed by an arrayList
+        List<DataType<?>> inputTypes = Symbols.typeView(Lists2.concat(projection.outputs(), projection.orderBy()));
+        boolean unbounded = projection.limit() == TopN.NO_LIMIT
+                            || (projection.limit() + projection.offset()) > UNBOUNDED_COLLECTOR_THRESHOLD;
+        Path sortSpillDirectory = unbounded ? spillDirectory : null;
+        RamAccounting sortRamAccounting = context.ramAccounting;
+        long maxSortBytes = Long.MAX_VALUE;
+        if (sortSpillDirectory != null) {
+            // The buffered rows are released after each spill, so they must not share the accounting of other projectors
+            CircuitBreaker breaker = circuitBreakerService.getBreaker(HierarchyCircuitBreakerService.QUERY);
+            long breakerLimit = breaker.getLimit();
+            maxSortBytes = breakerLimit > 0 ? (long) (breakerLimit * SORT_MEMORY_RATIO) : Long.MAX_VALUE;
+            sortRamAccounting = new BlockBasedRamAccounting(
+                b -> breaker.addEstimateBytesAndMaybeBreak(b, "sort"),
+                BlockBasedRamAccounting.blockSizeInBytes(breakerLimit)
+            );
+        }
         RowCellsAccountingWithEstimators rowAccounting = new RowCellsAccountingWithEstimators(
-            Symbols.typeView(Lists2.concat(projection.outputs(), projection.orderBy())),
-            context.ramAccounting,
+            inputTypes,
+            sortRamAccounting,
             rowMemoryOverhead
         );
+        Streamer<?>[] streamers = sortSpillDirectory == null ? null : DataTypes.getStreamers(inputTypes);
         if (projection.limit() > TopN.NO_LIMIT) {
             return new SortingTopNProjector(
                 rowAccounting,
@@ -260,7 +336,11 @@ public class ProjectionToProjectorVisitor
                 OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
                 projection.limit(),
                 projection.offset(),
-                UNBOUNDED_COLLECTOR_THRESHOLD
+                UNBOUNDED_COLLECTOR_THRESHOLD,
+                sortSpillDirectory,
+                streamers,
+                sortRamAccounting,
+                maxSortBytes
             );
         }
         return new SortingProjector(
@@ -269,7 +349,11 @@ public class ProjectionToProjectorVisitor
             ctx.expressions(),
             numOutputs,
             OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
-            projection.offset()
+            projection.offset(),
+            sortSpillDirectory,
+            streamers,
+            sortRamAccounting,
+            maxSortBytes
         );
     }
 
@@ -303,16 +387,29 @@ public class ProjectionToProjectorVisitor
         ctx.add(projection.values());
 
         List<Input<?>> keyInputs = ctx.topLevelInputs();
+        RamAccounting ramAccounting = context.ramAccounting;
+        long maxPartialBytes = -1L;
+        if (projection.mode() == AggregateMode.ITER_PARTIAL) {
+            // The partial groups are released after each flush, so they must not share the accounting of other projectors
+            CircuitBreaker breaker = circuitBreakerService.getBreaker(HierarchyCircuitBreakerService.QUERY);
+            long breakerLimit = breaker.getLimit();
+            maxPartialBytes = breakerLimit > 0 ? (long) (breakerLimit * PARTIAL_GROUP_BY_MEMORY_RATIO) : Long.MAX_VALUE;
+            ramAccounting = new BlockBasedRamAccounting(
+                b -> breaker.addEstimateBytesAndMaybeBreak(b, "partial-group-by"),
+                BlockBasedRamAccounting.blockSizeInBytes(breakerLimit)
+            );
+        }
         return new GroupingProjector(
             projection.keys(),
             keyInputs,
             Iterables.toArray(ctx.expressions(), CollectExpression.class),
             projection.mode(),
             ctx.aggregations().toArray(new AggregationContext[0]),
-            context.ramAccounting,
+            ramAccounting,
             context.memoryManager,
             clusterService.state().getNodes().getMinNodeVersion(),
-            indexVersionCreated
+            indexVersionCreated,
+            maxPartialBytes
         );
     }
 
@@ -351,8 +448,11 @@ public class ProjectionToProjectorVisitor
             SymbolEvaluator.evaluate(context.txnCtx, nodeCtx, projection.uri(), Row.EMPTY, SubQueryResults.EMPTY));
         assert uri != null : "URI must not be null";
 
+        boolean isParquet = projection.outputFormat() == WriterProjection.OutputFormat.PARQUET;
         StringBuilder sb = new StringBuilder(uri);
-        Symbol resolvedFileName = normalizer.normalize(WriterProjection.DIRECTORY_TO_FILENAME, context.txnCtx);
+        Symbol resolvedFileName = normalizer.normalize(
+            isParquet ? WriterProjection.DIRECTORY_TO_PARQUET_FILENAME : WriterProjection.DIRECTORY_TO_FILENAME,
+            context.txnCtx);
         assert resolvedFileName instanceof Literal : "resolvedFileName must be a Literal, but is: " + resolvedFileName;
         assert DataTypes.isSameType(resolvedFileName.valueType(), StringType.INSTANCE) :
             "resolvedFileName.valueType() must be " + StringType.INSTANCE;
@@ -362,7 +462,8 @@ public class ProjectionToProjectorVisitor
             sb.append("/");
         }
         sb.append(fileName);
-        if (projection.compressionType() == WriterProjection.CompressionType.GZIP) {
+        // Parquet compresses the pages within the file, the file itself stays uncompressed
+        if (projection.compressionType() == WriterProjection.CompressionType.GZIP && !isParquet) {
             sb.append(".gz");
         }
         uri = sb.toString();
@@ -375,10 +476,12 @@ public class ProjectionToProjectorVisitor
             uri,
             projection.compressionType(),
             inputs,
+            Symbols.typeView(projection.inputs()),
             ctx.expressions(),
             overwrites,
             projection.outputNames(),
-            projection.outputFormat()
+            projection.outputFormat(),
+            context.ramAccounting
         );
     }
 
@@ -672,6 +775,15 @@ public class ProjectionToProjectorVisitor
     @Override
     public Projector visitWindowAgg(WindowAggProjection windowAgg, Context context) {
         var searchThreadPool = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.SEARCH);
+        // Rows buffered per partition or for spilling are released while the projector is running,
+        // so they must not share the accounting of other projectors
+        CircuitBreaker breaker = circuitBreakerService.getBreaker(HierarchyCircuitBreakerService.QUERY);
+        long breakerLimit = breaker.getLimit();
+        Supplier<RamAccounting> newDedicatedRamAccounting = () -> new BlockBasedRamAccounting(
+            b -> breaker.addEstimateBytesAndMaybeBreak(b, "window"),
+            BlockBasedRamAccounting.blockSizeInBytes(breakerLimit)
+        );
+        long maxSpillableBytes = breakerLimit > 0 ? (long) (breakerLimit * WINDOW_MEMORY_RATIO) : Long.MAX_VALUE;
         return WindowProjector.fromProjection(
             windowAgg,
             nodeCtx,
@@ -682,7 +794,10 @@ public class ProjectionToProjectorVisitor
             clusterService.state().nodes().getMinNodeVersion(),
             indexVersionCreated,
             ThreadPools.numIdleThreads(searchThreadPool, numProcessors),
-            searchThreadPool
+            searchThreadPool,
+            newDedicatedRamAccounting,
+            spillDirectory,
+            maxSpillableBytes
         );
     }
 
@@ -22,8 +22,11 @@
 
 package io.crate.execution.engine.sort;
 
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.Bucket;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.CollectionBucket;
@@ -32,6 +35,9 @@ import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
@@ -43,6 +49,9 @@ import java.util.stream.Collectors;
  * <p>
  * Compared to {@link SortingTopNProjector} this projector does not support limiting,
  * while the {@link SortingTopNProjector} does not work WITHOUT a limit.
+ * <p>
+ * If a spill directory is available, the buffered rows are sorted and written to disk as a run each time their
+ * memory exceeds {@code maxBytes}. The runs are merged lazily once all rows have been consumed.
  */
 public class SortingProjector implements Projector {
 
@@ -53,6 +62,12 @@ public class SortingProjector implements Projector {
     private final int offset;
     private final int numOutputs;
     private final RowAccounting<Object[]> rowAccounting;
+    @Nullable
+    private final Path spillDirectory;
+    @Nullable
+    private final Streamer<?>[] streamers;
+    private final RamAccounting ramAccounting;
+    private final long maxBytes;
 
     /**
      * @param rowAccounting               sorting is a pipeline breaker so account for the used memory
@@ -68,6 +83,39 @@ public class SortingProjector implements Projector {
                             int numOutputs,
                             Comparator<Object[]> comparator,
                             int offset) {
+        this(
+            rowAccounting,
+            inputs,
+            collectExpressions,
+            numOutputs,
+            comparator,
+            offset,
+            null,
+            null,
+            RamAccounting.NO_ACCOUNTING,
+            Long.MAX_VALUE
+        );
+    }
+
+    /**
+     * @param spillDirectory directory to spill sorted runs to, or null if the rows must be sorted in memory
+     * @param streamers      streamers for all <code>inputs</code>, required if <code>spillDirectory</code> is set
+     * @param ramAccounting  the accounting used by <code>rowAccounting</code>. It is released after each spill,
+     *                       so it must not be shared with other components.
+     * @param maxBytes       the memory the buffered rows may use before they are spilled
+     */
+    public SortingProjector(RowAccounting<Object[]> rowAccounting,
+                            Collection<? extends Input<?>> inputs,
+                            Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
+                            int numOutputs,
+                            Comparator<Object[]> comparator,
+                            int offset,
+                            @Nullable Path spillDirectory,
+                            @Nullable Streamer<?>[] streamers,
+                            RamAccounting ramAccounting,
+                            long maxBytes) {
+        assert spillDirectory == null || (streamers != null && streamers.length == inputs.size())
+            : "streamers for all inputs are required to spill rows";
         if (offset < 0) {
             throw new IllegalArgumentException("invalid offset " + offset);
         }
@@ -77,15 +125,42 @@ public class SortingProjector implements Projector {
         this.collectExpressions = collectExpressions;
         this.comparator = comparator;
         this.offset = offset;
+        this.spillDirectory = spillDirectory;
+        this.streamers = streamers;
+        this.ramAccounting = ramAccounting;
+        this.maxBytes = maxBytes;
     }
 
-
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
-        Collector<Row, ?, Bucket> collector = Collectors.mapping(
-            this::getCells,
-            Collectors.collectingAndThen(Collectors.toList(), this::sortAndCreateBucket));
-        return CollectingBatchIterator.newInstance(batchIterator, collector);
+        if (spillDirectory == null) {
+            Collector<Row, ?, Bucket> collector = Collectors.mapping(
+                this::getCells,
+                Collectors.collectingAndThen(Collectors.toList(), this::sortAndCreateBucket));
+            return CollectingBatchIterator.newInstance(batchIterator, collector);
+        }
+        SpilledSortRuns runs = new SpilledSortRuns(spillDirectory, streamers, comparator);
+        Collector<Row, ArrayList<Object[]>, Bucket> collector = Collector.of(
+            ArrayList::new,
+            (rows, row) -> addOrSpill(runs, rows, row),
+            (rows1, rows2) -> {
+                throw new UnsupportedOperationException("combine not supported");
+            },
+            rows -> sortAndMerge(runs, rows)
+        );
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                try {
+                    batchIterator.close();
+                } finally {
+                    runs.close();
+                    rowAccounting.release();
+                }
+            },
+            batchIterator::kill,
+            () -> BatchIterators.collect(batchIterator, collector),
+            batchIterator.hasLazyResultSet()
+        );
     }
 
     @Override
@@ -94,6 +169,12 @@ public class SortingProjector implements Projector {
     }
 
     private Object[] getCells(Row row) {
+        Object[] newRow = evaluate(row);
+        rowAccounting.accountForAndMaybeBreak(newRow);
+        return newRow;
+    }
+
+    private Object[] evaluate(Row row) {
         for (CollectExpression<Row, ?> collectExpression : collectExpressions) {
             collectExpression.setNextRow(row);
         }
@@ -102,10 +183,30 @@ public class SortingProjector implements Projector {
         for (Input<?> input : inputs) {
             newRow[i++] = input.value();
         }
-        rowAccounting.accountForAndMaybeBreak(newRow);
         return newRow;
     }
 
+    private void addOrSpill(SpilledSortRuns runs, ArrayList<Object[]> rows, Row row) {
+        Object[] newRow = evaluate(row);
+        if (ramAccounting.totalBytes() >= maxBytes && rows.isEmpty() == false) {
+            rows.sort(comparator);
+            runs.spill(rows.iterator());
+            rows.clear();
+            rows.trimToSize();
+            rowAccounting.release();
+        }
+        rowAccounting.accountForAndMaybeBreak(newRow);
+        rows.add(newRow);
+    }
+
+    private Bucket sortAndMerge(SpilledSortRuns runs, List<Object[]> rows) {
+        if (runs.isEmpty()) {
+            return sortAndCreateBucket(rows);
+        }
+        rows.sort(comparator);
+        return runs.merge(rows, numOutputs, offset, Integer.MAX_VALUE);
+    }
+
     private Bucket sortAndCreateBucket(List<Object[]> rows) {
         rows.sort(comparator);
         if (offset == 0) {
@@ -22,8 +22,11 @@
 
 package io.crate.execution.engine.sort;
 
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.Bucket;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Input;
@@ -31,6 +34,8 @@ import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 
+import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.stream.Collector;
@@ -38,6 +43,9 @@ import java.util.stream.Collector;
 public class SortingTopNProjector implements Projector {
 
     private final Collector<Row, ?, Bucket> collector;
+    private final RowAccounting<Object[]> rowAccounting;
+    @Nullable
+    private final SpilledSortRuns spilledRuns;
 
     /**
      * @param rowAccounting               sorting is a pipeline breaker so account for the used memory
@@ -58,6 +66,43 @@ public class SortingTopNProjector implements Projector {
                                 int limit,
                                 int offset,
                                 int unboundedCollectorThreshold) {
+        this(rowAccounting,
+            inputs,
+            collectExpressions,
+            numOutputs,
+            ordering,
+            limit,
+            offset,
+            unboundedCollectorThreshold,
+            null,
+            null,
+            RamAccounting.NO_ACCOUNTING,
+            Long.MAX_VALUE);
+    }
+
+    /**
+     * @param spillDirectory directory to spill sorted runs to if an unbounded collector is used and the rows don't fit
+     *                       into memory, or null if the rows must be sorted in memory
+     * @param streamers      streamers for all <code>inputs</code>, required if <code>spillDirectory</code> is set
+     * @param ramAccounting  the accounting used by <code>rowAccounting</code>. It is released after each spill,
+     *                       so it must not be shared with other components.
+     * @param maxBytes       the memory the buffered rows may use before they are spilled
+     */
+    public SortingTopNProjector(RowAccounting<Object[]> rowAccounting,
+                                Collection<? extends Input<?>> inputs,
+                                Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
+                                int numOutputs,
+                                Comparator<Object[]> ordering,
+                                int limit,
+                                int offset,
+                                int unboundedCollectorThreshold,
+                                @Nullable Path spillDirectory,
+                                @Nullable Streamer<?>[] streamers,
+                                RamAccounting ramAccounting,
+                                long maxBytes) {
+        assert spillDirectory == null || (streamers != null && streamers.length == inputs.size())
+            : "streamers for all inputs are required to spill rows";
+        this.rowAccounting = rowAccounting;
         /**
          * We'll use an unbounded queue with the initial capacity of {@link unboundedCollectorThreshold}
          * if the maximum number of rows we have to accommodate in the queue in order to maintain correctness is
@@ -67,6 +112,7 @@ public class SortingTopNProjector implements Projector {
          * will never be filled.
          */
         if ((limit + offset) > unboundedCollectorThreshold) {
+            spilledRuns = spillDirectory == null ? null : new SpilledSortRuns(spillDirectory, streamers, ordering);
             collector = new UnboundedSortingTopNCollector(
                 rowAccounting,
                 inputs,
@@ -75,9 +121,13 @@ public class SortingTopNProjector implements Projector {
                 ordering,
                 unboundedCollectorThreshold,
                 limit,
-                offset
+                offset,
+                spilledRuns,
+                ramAccounting,
+                maxBytes
             );
         } else {
+            spilledRuns = null;
             collector = new BoundedSortingTopNCollector(
                 rowAccounting,
                 inputs,
@@ -92,7 +142,22 @@ public class SortingTopNProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
-        return CollectingBatchIterator.newInstance(batchIterator, collector);
+        if (spilledRuns == null) {
+            return CollectingBatchIterator.newInstance(batchIterator, collector);
+        }
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                try {
+                    batchIterator.close();
+                } finally {
+                    spilledRuns.close();
+                    rowAccounting.release();
+                }
+            },
+            batchIterator::kill,
+            () -> BatchIterators.collect(batchIterator, collector),
+            batchIterator.hasLazyResultSet()
+        );
     }
 
     @Override
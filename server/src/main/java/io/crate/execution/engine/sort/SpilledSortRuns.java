@@ -0,0 +1,169 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import com.google.common.collect.Iterators;
+import io.crate.Streamer;
+import io.crate.common.io.IOUtils;
+import io.crate.data.Bucket;
+import io.crate.data.Buckets;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.distribution.merge.KeyIterable;
+import io.crate.execution.engine.distribution.merge.SortedPagingIterator;
+import io.crate.execution.engine.spill.RowSpillFile;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Sorted runs of rows which a sorting operation wrote to disk because buffering them would have exceeded the memory
+ * available to the circuit breaker.
+ * <p>
+ * Once all rows have been consumed the runs and the sorted rows which are still in memory are merged lazily,
+ * so only one row per run is held in memory while the result is consumed.
+ */
+public final class SpilledSortRuns implements Closeable {
+
+    private static final String FILE_PREFIX = "sort-run-";
+
+    private final Path directory;
+    private final Streamer<?>[] streamers;
+    private final Comparator<Object[]> comparator;
+    private final List<RowSpillFile> runs = new ArrayList<>();
+    private final List<RowSpillFile.Reader> readers = new ArrayList<>();
+
+    private long numRows = 0;
+
+    /**
+     * @param directory  the directory the runs are written to
+     * @param streamers  streamers for all the cells of the sorted rows (outputs and orderBy inputs)
+     * @param comparator ordering that is used to compare the rows
+     */
+    public SpilledSortRuns(Path directory, Streamer<?>[] streamers, Comparator<Object[]> comparator) {
+        this.directory = directory;
+        this.streamers = streamers;
+        this.comparator = comparator;
+    }
+
+    /**
+     * Writes the rows, which must be sorted by the comparator, as a new run.
+     */
+    public void spill(Iterator<Object[]> sortedRows) {
+        RowN row = new RowN(streamers.length);
+        try {
+            RowSpillFile run = new RowSpillFile(directory, FILE_PREFIX, streamers);
+            runs.add(run);
+            while (sortedRows.hasNext()) {
+                row.cells(sortedRows.next());
+                run.add(row);
+            }
+            run.finishWriting();
+            numRows += run.numRows();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public boolean isEmpty() {
+        return runs.isEmpty();
+    }
+
+    /**
+     * @return the number of rows which have been written to all runs.
+     */
+    public long numRows() {
+        return numRows;
+    }
+
+    /**
+     * Merges the spilled runs with the rows that are still in memory.
+     *
+     * @param sortedInMemory rows which haven't been spilled, must be sorted by the comparator
+     * @param numOutputs     the number of output columns, the remaining columns are only used for sorting
+     * @param offset         the number of rows to skip
+     * @param limit          the max number of rows to emit
+     * @return a bucket which merges the rows lazily each time it is iterated
+     */
+    public Bucket merge(Collection<Object[]> sortedInMemory, int numOutputs, int offset, int limit) {
+        long numAvailable = Math.max(0, numRows + sortedInMemory.size() - offset);
+        int size = (int) Math.min(numAvailable, limit);
+        return new Bucket() {
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            @Nonnull
+            public Iterator<Row> iterator() {
+                Iterator<Object[]> merged = mergedIterator(sortedInMemory);
+                Iterators.advance(merged, offset);
+                return Iterators.transform(Iterators.limit(merged, size), Buckets.arrayToSharedRow(numOutputs)::apply);
+            }
+        };
+    }
+
+    private Iterator<Object[]> mergedIterator(Collection<Object[]> sortedInMemory) {
+        List<KeyIterable<Integer, Object[]>> iterables = new ArrayList<>(runs.size() + 1);
+        for (int i = 0; i < runs.size(); i++) {
+            iterables.add(new KeyIterable<>(i, runIterable(runs.get(i))));
+        }
+        iterables.add(new KeyIterable<>(runs.size(), sortedInMemory));
+        SortedPagingIterator<Integer, Object[]> sortedPagingIterator = new SortedPagingIterator<>(comparator, false);
+        sortedPagingIterator.merge(iterables);
+        sortedPagingIterator.finish();
+        return sortedPagingIterator;
+    }
+
+    private Iterable<Object[]> runIterable(RowSpillFile run) {
+        return () -> Iterators.transform(newReader(run), Row::materialize);
+    }
+
+    private RowSpillFile.Reader newReader(RowSpillFile run) {
+        try {
+            RowSpillFile.Reader reader = run.newReader();
+            readers.add(reader);
+            return reader;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        IOUtils.closeWhileHandlingException(readers);
+        IOUtils.closeWhileHandlingException(runs);
+        readers.clear();
+        runs.clear();
+    }
+}
@@ -22,6 +22,7 @@
 
 package io.crate.execution.engine.sort;
 
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.data.ArrayBucket;
 import io.crate.data.Bucket;
@@ -30,6 +31,8 @@ import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 import org.apache.lucene.util.ArrayUtil;
 
+import javax.annotation.Nullable;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -46,6 +49,10 @@ import java.util.stream.Collector;
  * Collector implementation which collects rows into an unbounded priorityQueue in order to sort the rows and apply a
  * limit + offset.
  * The final result is a sorted bucket with limit and offset applied.
+ * <p>
+ * If {@link SpilledSortRuns} are provided, the queue is written to disk as a sorted run each time its memory exceeds
+ * {@code maxBytes}. Each run holds at most limit + offset rows and the runs are merged lazily once all rows have been
+ * consumed.
  */
 public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQueue<Object[]>, Bucket> {
 
@@ -57,6 +64,10 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
     private final int offset;
     private final int maxNumberOfRowsInQueue;
     private final RowAccounting<Object[]> rowAccounting;
+    @Nullable
+    private final SpilledSortRuns spilledRuns;
+    private final RamAccounting ramAccounting;
+    private final long maxBytes;
 
     /**
      * @param rowAccounting   sorting is a pipeline breaker so account for the used memory
@@ -76,6 +87,38 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
                                          int initialCapacity,
                                          int limit,
                                          int offset) {
+        this(
+            rowAccounting,
+            inputs,
+            expressions,
+            numOutputs,
+            comparator,
+            initialCapacity,
+            limit,
+            offset,
+            null,
+            RamAccounting.NO_ACCOUNTING,
+            Long.MAX_VALUE
+        );
+    }
+
+    /**
+     * @param spilledRuns   runs to spill the queue to, or null if the rows must be sorted in memory
+     * @param ramAccounting the accounting used by <code>rowAccounting</code>. It is released after each spill,
+     *                      so it must not be shared with other components.
+     * @param maxBytes      the memory the queue may use before it is spilled
+     */
+    UnboundedSortingTopNCollector(RowAccounting<Object[]> rowAccounting,
+                                  Collection<? extends Input<?>> inputs,
+                                  Iterable<? extends CollectExpression<Row, ?>> expressions,
+                                  int numOutputs,
+                                  Comparator<Object[]> comparator,
+                                  int initialCapacity,
+                                  int limit,
+                                  int offset,
+                                  @Nullable SpilledSortRuns spilledRuns,
+                                  RamAccounting ramAccounting,
+                                  long maxBytes) {
         if (initialCapacity <= 0) {
             throw new IllegalArgumentException("Invalid initial capacity: value must be > 0; got: " + initialCapacity);
         }
@@ -93,6 +136,9 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
         this.initialCapacity = initialCapacity;
         this.offset = offset;
         this.maxNumberOfRowsInQueue = limit + offset;
+        this.spilledRuns = spilledRuns;
+        this.ramAccounting = ramAccounting;
+        this.maxBytes = maxBytes;
 
         if (maxNumberOfRowsInQueue >= ArrayUtil.MAX_ARRAY_LENGTH || maxNumberOfRowsInQueue < 0) {
             // Throw exception to prevent confusing OOME in PriorityQueue
@@ -140,6 +186,10 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
             rowCells[i] = input.value();
             i++;
         }
+        if (spilledRuns != null && ramAccounting.totalBytes() >= maxBytes && pq.isEmpty() == false) {
+            spilledRuns.spill(Arrays.asList(drainSorted(pq)).iterator());
+            rowAccounting.release();
+        }
         rowAccounting.accountForAndMaybeBreak(rowCells);
         if (pq.size() == maxNumberOfRowsInQueue) {
             Object[] highestElementInOrder = pq.peek();
@@ -153,6 +203,14 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
     }
 
     private Bucket pqToIterable(PriorityQueue<Object[]> pq) {
+        if (spilledRuns != null && spilledRuns.isEmpty() == false) {
+            return spilledRuns.merge(
+                Arrays.asList(drainSorted(pq)),
+                numOutputs,
+                offset,
+                maxNumberOfRowsInQueue - offset
+            );
+        }
         if (offset > pq.size()) {
             return new ArrayBucket(new Object[0][0], numOutputs);
         }
@@ -164,4 +222,15 @@ public class UnboundedSortingTopNCollector implements Collector<Row, PriorityQue
         }
         return new ArrayBucket(rows, numOutputs);
     }
+
+    /**
+     * Removes all rows from the queue, returning them in the order of the comparator.
+     */
+    private static Object[][] drainSorted(PriorityQueue<Object[]> pq) {
+        Object[][] rows = new Object[pq.size()][];
+        for (int i = rows.length - 1; i >= 0; i--) {
+            rows[i] = pq.poll();
+        }
+        return rows;
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.spill;
+
+import io.crate.Streamer;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A temporary file holding rows serialized with {@link Streamer}s.
+ * <p>
+ * Rows are appended using {@link #add(Row)}, once {@link #finishWriting()} has been called the rows can be read
+ * (repeatedly) using {@link #newReader()}. {@link #close()} deletes the file.
+ */
+public final class RowSpillFile implements Closeable {
+
+    /**
+     * Size of the buffer used to write or read a file, in bytes.
+     */
+    public static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Path path;
+    private final Streamer<?>[] streamers;
+
+    private StreamOutput out;
+    private long numRows = 0;
+
+    public RowSpillFile(Path directory, String prefix, Streamer<?>[] streamers) throws IOException {
+        this.path = Files.createTempFile(directory, prefix, ".bin");
+        this.streamers = streamers;
+        this.out = new OutputStreamStreamOutput(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void add(Row row) throws IOException {
+        assert out != null : "Cannot add rows after finishWriting has been called";
+        assert streamers.length == row.numColumns() : "number of streamers must match row size";
+        for (int i = 0; i < streamers.length; i++) {
+            ((Streamer) streamers[i]).writeValueTo(out, row.get(i));
+        }
+        numRows++;
+    }
+
+    public void finishWriting() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    public long numRows() {
+        return numRows;
+    }
+
+    public Reader newReader() throws IOException {
+        assert out == null : "finishWriting must be called before the rows can be read";
+        return new Reader(
+            new InputStreamStreamInput(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE)),
+            streamers,
+            numRows
+        );
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finishWriting();
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * Iterates over the rows of a spill file. The returned row is re-used, use {@link Row#materialize()} to keep it.
+     */
+    public static final class Reader implements Iterator<Row>, Closeable {
+
+        private final StreamInput in;
+        private final Streamer<?>[] streamers;
+        private final long numRows;
+        private final Object[] cells;
+        private final RowN row;
+        private long pos = 0;
+
+        private Reader(StreamInput in, Streamer<?>[] streamers, long numRows) {
+            this.in = in;
+            this.streamers = streamers;
+            this.numRows = numRows;
+            this.cells = new Object[streamers.length];
+            this.row = new RowN(cells);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < numRows;
+        }
+
+        @Override
+        public Row next() {
+            if (pos >= numRows) {
+                throw new NoSuchElementException("All rows of the spill file have been read");
+            }
+            try {
+                for (int i = 0; i < streamers.length; i++) {
+                    cells[i] = streamers[i].readValueFrom(in);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            pos++;
+            return row;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
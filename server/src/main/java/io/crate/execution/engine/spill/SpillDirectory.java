@@ -0,0 +1,79 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.spill;
+
+import io.crate.common.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.env.NodeEnvironment;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Provides the directory underneath the node data path which operations use to spill intermediate results to disk
+ * if they would otherwise exceed the memory available to the circuit breaker.
+ * <p>
+ * Any content of the directory is removed on node start, files in there are left-overs of jobs which didn't finish.
+ */
+@Singleton
+public class SpillDirectory {
+
+    private static final Logger LOGGER = LogManager.getLogger(SpillDirectory.class);
+
+    static final String DIRECTORY_NAME = "spill";
+
+    @Nullable
+    private final Path path;
+
+    @Inject
+    public SpillDirectory(NodeEnvironment nodeEnvironment) {
+        this(nodeEnvironment.hasNodeFile() ? nodeEnvironment.nodeDataPaths()[0].resolve(DIRECTORY_NAME) : null);
+    }
+
+    SpillDirectory(@Nullable Path path) {
+        Path dir = path;
+        if (dir != null) {
+            try {
+                IOUtils.rm(dir);
+                Files.createDirectories(dir);
+            } catch (IOException e) {
+                LOGGER.warn("Couldn't create spill directory, operations won't be able to spill to disk", e);
+                dir = null;
+            }
+        }
+        this.path = dir;
+    }
+
+    /**
+     * @return the spill directory or null if the node has no data path to spill to.
+     */
+    @Nullable
+    public Path path() {
+        return path;
+    }
+}
@@ -56,6 +56,12 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
     private int seenFrameUpperBound = -1;
     private Object resultForCurrentFrame;
 
+    /**
+     * Used to compute sliding frames of functions which aren't removable cumulative, built once per partition
+     */
+    @Nullable
+    private SegmentTree segmentTree;
+
     AggregateToWindowFunctionAdapter(AggregationFunction aggregationFunction,
                                      ExpressionsInput<Row, Boolean> filter,
                                      Version indexVersionCreated,
@@ -97,7 +103,10 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
                           List<? extends CollectExpression<Row, ?>> expressions,
                           Input... args) {
         if (idxInPartition == 0) {
+            segmentTree = null;
             recomputeFunction(frame, expressions, args);
+        } else if (segmentTree != null) {
+            executeUsingSegmentTree(frame);
         } else if (isLowerBoundIncreasing(frame, seenFrameLowerBound)) {
             if (aggregationFunction.isRemovableCumulative()) {
                 removeSeenRowsFromAccumulatedState(frame, expressions, args);
@@ -108,6 +117,9 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
                 }
                 seenFrameLowerBound = frame.lowerBound();
                 seenFrameUpperBound = frame.upperBoundExclusive();
+            } else if (aggregationFunction.isReduceSideEffectFree()) {
+                segmentTree = buildSegmentTree(frame, expressions, args);
+                executeUsingSegmentTree(frame);
             } else {
                 recomputeFunction(frame, expressions, args);
             }
@@ -117,6 +129,45 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
         return resultForCurrentFrame;
     }
 
+    @SuppressWarnings("unchecked")
+    private SegmentTree buildSegmentTree(WindowFrameState frame,
+                                         List<? extends CollectExpression<Row, ?>> expressions,
+                                         Input[] args) {
+        var row = new ArrayRow();
+        Object[] states = new Object[frame.partitionSize()];
+        for (int i = 0; i < states.length; i++) {
+            Object[] cells = frame.getRowInPartitionAtIndexOrNull(i);
+            assert cells != null : "No row at idx=" + i + " in current partition=" + frame;
+            row.cells(cells);
+            for (int j = 0, expressionsSize = expressions.size(); j < expressionsSize; j++) {
+                expressions.get(j).setNextRow(row);
+            }
+            Object state = aggregationFunction.newState(ramAccounting, indexVersionCreated, minNodeVersion, memoryManager);
+            if (filter.value(row)) {
+                state = aggregationFunction.iterate(ramAccounting, memoryManager, state, args);
+            }
+            states[i] = state;
+        }
+        return new SegmentTree((AggregationFunction<Object, ?>) aggregationFunction, states, ramAccounting);
+    }
+
+    private void executeUsingSegmentTree(WindowFrameState frame) {
+        if (frame.lowerBound() == seenFrameLowerBound && frame.upperBoundExclusive() == seenFrameUpperBound) {
+            return;
+        }
+        Object emptyState = aggregationFunction.newState(
+            RamAccounting.NO_ACCOUNTING,
+            indexVersionCreated,
+            minNodeVersion,
+            memoryManager
+        );
+        Object state = segmentTree.query(frame.lowerBound(), frame.upperBoundExclusive(), emptyState);
+        //noinspection unchecked
+        resultForCurrentFrame = aggregationFunction.terminatePartial(ramAccounting, state);
+        seenFrameLowerBound = frame.lowerBound();
+        seenFrameUpperBound = frame.upperBoundExclusive();
+    }
+
     private void removeSeenRowsFromAccumulatedState(WindowFrameState frame,
                                                     List<? extends CollectExpression<Row, ?>> expressions,
                                                     Input[] args) {
@@ -0,0 +1,163 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.window;
+
+import io.crate.breaker.RowAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+/**
+ * BatchIterator which computes window functions over a source that is already sorted by the PARTITION BY and
+ * ORDER BY of the window definition.
+ *
+ * <p>
+ * Only the rows of the current partition are buffered. Once the first row of the next partition is read the window
+ * functions are computed over the buffered partition, its rows are emitted and the memory accounted for them is
+ * released before the next partition is consumed.
+ * </p>
+ */
+final class PartitionedWindowFunctionBatchIterator implements BatchIterator<Row> {
+
+    private final BatchIterator<Row> source;
+    private final RowAccounting<Row> rowAccounting;
+    private final Comparator<Object[]> cmpPartitionBy;
+    private final Function<Row, Object[]> materialize;
+    private final Function<List<Object[]>, Iterable<Object[]>> computeWindowFunctions;
+    private final RowN currentRow;
+
+    private ArrayList<Object[]> partition = new ArrayList<>();
+    private Object[] firstRowOfNextPartition = null;
+    private Iterator<Object[]> partitionResult = null;
+
+    /**
+     * @param materialize            creates the cells of a source row including the spare cells for the window
+     *                               function results
+     * @param computeWindowFunctions computes the window functions over all rows of one partition
+     */
+    PartitionedWindowFunctionBatchIterator(BatchIterator<Row> source,
+                                           RowAccounting<Row> rowAccounting,
+                                           Comparator<Object[]> cmpPartitionBy,
+                                           int numCellsInResultRow,
+                                           Function<Row, Object[]> materialize,
+                                           Function<List<Object[]>, Iterable<Object[]>> computeWindowFunctions) {
+        this.source = source;
+        this.rowAccounting = rowAccounting;
+        this.cmpPartitionBy = cmpPartitionBy;
+        this.materialize = materialize;
+        this.computeWindowFunctions = computeWindowFunctions;
+        this.currentRow = new RowN(numCellsInResultRow);
+    }
+
+    @Override
+    public Row currentElement() {
+        return currentRow;
+    }
+
+    @Override
+    public void moveToStart() {
+        source.moveToStart();
+        partition = new ArrayList<>();
+        firstRowOfNextPartition = null;
+        partitionResult = null;
+        rowAccounting.release();
+    }
+
+    @Override
+    public boolean moveNext() {
+        while (true) {
+            if (partitionResult != null) {
+                if (partitionResult.hasNext()) {
+                    currentRow.cells(partitionResult.next());
+                    return true;
+                }
+                startNextPartition();
+            }
+            if (source.moveNext()) {
+                Object[] row = materialize.apply(source.currentElement());
+                if (partition.isEmpty() || cmpPartitionBy.compare(partition.get(0), row) == 0) {
+                    partition.add(row);
+                } else {
+                    firstRowOfNextPartition = row;
+                    partitionResult = computeWindowFunctions.apply(partition).iterator();
+                }
+            } else if (source.allLoaded() && !partition.isEmpty()) {
+                partitionResult = computeWindowFunctions.apply(partition).iterator();
+            } else {
+                return false;
+            }
+        }
+    }
+
+    private void startNextPartition() {
+        partitionResult = null;
+        partition = new ArrayList<>();
+        // The first row of the next partition is already accounted for, it is accounted again after the release
+        rowAccounting.release();
+        if (firstRowOfNextPartition != null) {
+            partition.add(firstRowOfNextPartition);
+            rowAccounting.accountForAndMaybeBreak(new RowN(firstRowOfNextPartition));
+            firstRowOfNextPartition = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        partition = new ArrayList<>();
+        firstRowOfNextPartition = null;
+        partitionResult = null;
+        try {
+            source.close();
+        } finally {
+            rowAccounting.release();
+        }
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() throws Exception {
+        return source.loadNextBatch();
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return source.allLoaded();
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        source.kill(throwable);
+    }
+
+    @Override
+    public boolean hasLazyResultSet() {
+        return source.hasLazyResultSet();
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.window;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.execution.engine.aggregation.AggregationFunction;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * Holds the partial aggregation states of all rows of a partition in a segment tree.
+ * The aggregation of any frame within the partition is computed by combining O(log n) pre-aggregated states,
+ * instead of aggregating all rows of the frame.
+ *
+ * <p>
+ * The states are combined using {@link AggregationFunction#reduce(RamAccounting, Object, Object)} and are re-used
+ * for many frames, so the function must not modify them, see {@link AggregationFunction#isReduceSideEffectFree()}.
+ * The order of the rows is preserved when combining states.
+ * </p>
+ */
+final class SegmentTree {
+
+    private final AggregationFunction<Object, ?> aggregationFunction;
+    private final int numLeaves;
+
+    /**
+     * The leaves are stored at [numLeaves, 2 * numLeaves), the parent of node i is at i / 2.
+     */
+    private final Object[] tree;
+
+    /**
+     * @param leafStates the partial state of each row of the partition
+     */
+    SegmentTree(AggregationFunction<Object, ?> aggregationFunction, Object[] leafStates, RamAccounting ramAccounting) {
+        assert aggregationFunction.isReduceSideEffectFree() : "reduce must not modify the states";
+        this.aggregationFunction = aggregationFunction;
+        this.numLeaves = leafStates.length;
+        ramAccounting.addBytes(RamUsageEstimator.shallowSizeOfArray(leafStates) * 2);
+        this.tree = new Object[2 * numLeaves];
+        System.arraycopy(leafStates, 0, tree, numLeaves, numLeaves);
+        for (int i = numLeaves - 1; i > 0; i--) {
+            tree[i] = aggregationFunction.reduce(ramAccounting, tree[2 * i], tree[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Returns the combined state of the rows in [from, to)
+     */
+    Object query(int from, int to, Object emptyState) {
+        assert from >= 0 && to <= numLeaves : "range must be within the partition";
+        Object left = emptyState;
+        Object right = emptyState;
+        boolean hasLeft = false;
+        boolean hasRight = false;
+        for (int l = from + numLeaves, r = to + numLeaves; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                left = hasLeft ? reduce(left, tree[l]) : tree[l];
+                hasLeft = true;
+                l++;
+            }
+            if ((r & 1) == 1) {
+                r--;
+                right = hasRight ? reduce(tree[r], right) : tree[r];
+                hasRight = true;
+            }
+        }
+        if (hasLeft && hasRight) {
+            return reduce(left, right);
+        }
+        return hasLeft ? left : right;
+    }
+
+    private Object reduce(Object state1, Object state2) {
+        // Intermediate results aren't retained, so they're not accounted
+        return aggregationFunction.reduce(RamAccounting.NO_ACCOUNTING, state1, state2);
+    }
+}
@@ -23,19 +23,26 @@
 package io.crate.execution.engine.window;
 
 import com.google.common.collect.Iterables;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.data.BatchIterator;
 import io.crate.data.BatchIterators;
+import io.crate.data.Bucket;
 import io.crate.data.Buckets;
 import io.crate.data.CollectingBatchIterator;
+import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.execution.engine.sort.Sort;
+import io.crate.execution.engine.sort.SpilledSortRuns;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.common.logging.Loggers;
 
 import javax.annotation.Nullable;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.Iterator;
@@ -45,6 +52,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.function.IntSupplier;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
 
 import static io.crate.common.collections.Lists2.findFirstNonPeer;
@@ -59,6 +67,8 @@ import static io.crate.common.collections.Lists2.findFirstNonPeer;
  *
  * Doing the ORDER BY within the BatchIterator (instead of demanding the source to be pre-sorted) allows us to operate
  * on a in-memory list with RandomAccess instead of using the BatchIterator interface for the source.
+ *
+ * If the source is known to be sorted already, {@link #ofSortedSource} buffers only one partition at a time.
  * </p>
  *
  * <pre>
@@ -116,6 +126,232 @@ public final class WindowFunctionBatchIterator {
         );
     }
 
+    /**
+     * Like {@link #of(BatchIterator, RowAccounting, ComputeFrameBoundary, ComputeFrameBoundary, Comparator, Comparator,
+     * int, IntSupplier, Executor, List, List, Input[][])} but with a fallback for rows which don't fit into memory.
+     *
+     * <p>
+     * As long as the buffered rows use less than <code>maxBytes</code>, they're sorted in parallel and computed in
+     * memory. Each time they exceed <code>maxBytes</code>, the buffered rows are sorted and written to
+     * <code>spillDirectory</code> as a run. If any run has been written, the remaining rows are spilled as well once
+     * all rows have been consumed. The runs are then merged and the window functions are computed one partition at a
+     * time, so only a single partition must fit into memory.
+     * </p>
+     *
+     * <p>
+     * The memory accounted by <code>rowAccounting</code> is released while the rows are processed, so it must not
+     * share its {@link RamAccounting} with other operations.
+     * </p>
+     *
+     * @param ramAccounting the accounting used by <code>rowAccounting</code>
+     * @param maxBytes      the memory the buffered rows may use before they are spilled
+     * @param streamers     streamers for the <code>numCellsInSourceRow</code> cells of the source rows
+     */
+    public static BatchIterator<Row> ofSpillable(BatchIterator<Row> source,
+                                                 RowAccounting<Row> rowAccounting,
+                                                 RamAccounting ramAccounting,
+                                                 long maxBytes,
+                                                 ComputeFrameBoundary<Object[]> computeFrameStart,
+                                                 ComputeFrameBoundary<Object[]> computeFrameEnd,
+                                                 Comparator<Object[]> cmpPartitionBy,
+                                                 @Nullable Comparator<Object[]> cmpOrderBy,
+                                                 int numCellsInSourceRow,
+                                                 IntSupplier numAvailableThreads,
+                                                 Executor executor,
+                                                 Path spillDirectory,
+                                                 Streamer<?>[] streamers,
+                                                 List<WindowFunction> windowFunctions,
+                                                 List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                                 Input[]... args) {
+        Comparator<Object[]> cmpPartitionThenOrderBy = joinCmp(cmpPartitionBy, cmpOrderBy);
+        SpilledSortRuns runs = new SpilledSortRuns(spillDirectory, streamers, cmpPartitionThenOrderBy);
+        int numWindowFunctions = windowFunctions.size();
+        Collector<Row, ArrayList<Object[]>, ArrayList<Object[]>> collector = Collector.of(
+            ArrayList::new,
+            (rows, row) -> {
+                if (ramAccounting.totalBytes() >= maxBytes && rows.isEmpty() == false) {
+                    spill(runs, rows, rowAccounting, cmpPartitionThenOrderBy);
+                }
+                rowAccounting.accountForAndMaybeBreak(row);
+                rows.add(materializeWithSpare(row, numWindowFunctions));
+            },
+            (rows1, rows2) -> {
+                throw new UnsupportedOperationException("combine not supported");
+            }
+        );
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                try {
+                    source.close();
+                } finally {
+                    runs.close();
+                    rowAccounting.release();
+                }
+            },
+            source::kill,
+            () -> BatchIterators.collect(source, collector).thenCompose(rows -> {
+                if (runs.isEmpty()) {
+                    return sortAndComputeWindowFunctions(
+                        rows,
+                        computeFrameStart,
+                        computeFrameEnd,
+                        cmpPartitionBy,
+                        cmpOrderBy,
+                        numCellsInSourceRow,
+                        numAvailableThreads,
+                        executor,
+                        windowFunctions,
+                        argsExpressions,
+                        args
+                    ).thenApply(result -> Iterables.transform(result, Buckets.arrayToSharedRow()::apply));
+                }
+                // Spill the remaining rows as well, so that the memory is available for the partitions
+                spill(runs, rows, rowAccounting, cmpPartitionThenOrderBy);
+                Bucket sortedRows = runs.merge(List.of(), numCellsInSourceRow, 0, Integer.MAX_VALUE);
+                return CompletableFuture.completedFuture(computeWindowFunctionsPerPartition(
+                    sortedRows,
+                    rowAccounting,
+                    cmpPartitionBy,
+                    row -> {
+                        rowAccounting.accountForAndMaybeBreak(row);
+                        return materializeWithSpare(row, numWindowFunctions);
+                    },
+                    numCellsInSourceRow + numWindowFunctions,
+                    partition -> computeWindowFunctions(
+                        partition,
+                        computeFrameStart,
+                        computeFrameEnd,
+                        null,
+                        numCellsInSourceRow,
+                        windowFunctions,
+                        argsExpressions,
+                        args
+                    )
+                ));
+            }),
+            source.hasLazyResultSet()
+        );
+    }
+
+    private static void spill(SpilledSortRuns runs,
+                              ArrayList<Object[]> rows,
+                              RowAccounting<Row> rowAccounting,
+                              Comparator<Object[]> cmpPartitionThenOrderBy) {
+        rows.sort(cmpPartitionThenOrderBy);
+        runs.spill(rows.iterator());
+        rows.clear();
+        rows.trimToSize();
+        rowAccounting.release();
+    }
+
+    /**
+     * @param sortedRows rows sorted by the PARTITION BY and ORDER BY, which are read without buffering them all
+     */
+    private static Iterable<Row> computeWindowFunctionsPerPartition(
+        Iterable<Row> sortedRows,
+        RowAccounting<Row> rowAccounting,
+        Comparator<Object[]> cmpPartitionBy,
+        Function<Row, Object[]> materialize,
+        int numCellsInResultRow,
+        Function<List<Object[]>, Iterable<Object[]>> computeWindowFunctions) {
+
+        return () -> {
+            var partitions = new PartitionedWindowFunctionBatchIterator(
+                InMemoryBatchIterator.of(sortedRows, null, false),
+                rowAccounting,
+                cmpPartitionBy,
+                numCellsInResultRow,
+                materialize,
+                computeWindowFunctions
+            );
+            return new Iterator<Row>() {
+
+                private Boolean hasNext = null;
+
+                @Override
+                public boolean hasNext() {
+                    if (hasNext == null) {
+                        // The source is in memory, so moveNext() only returns false once all partitions are emitted
+                        hasNext = partitions.moveNext();
+                    }
+                    return hasNext;
+                }
+
+                @Override
+                public Row next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    hasNext = null;
+                    return partitions.currentElement();
+                }
+            };
+        };
+    }
+
+    /**
+     * Like {@link #of(BatchIterator, RowAccounting, ComputeFrameBoundary, ComputeFrameBoundary, Comparator, Comparator,
+     * int, IntSupplier, Executor, List, List, Input[][])} but for a source which is already sorted by the PARTITION BY
+     * and ORDER BY of the window definition.
+     *
+     * <p>
+     * The rows are not sorted again and, if there is a PARTITION BY, the window functions are computed and emitted
+     * one partition at a time. The memory of a partition is released once its rows have been emitted, so
+     * <code>rowAccounting</code> must not share its {@link io.crate.breaker.RamAccounting} with other operations.
+     * </p>
+     */
+    public static BatchIterator<Row> ofSortedSource(BatchIterator<Row> source,
+                                                    RowAccounting<Row> rowAccounting,
+                                                    ComputeFrameBoundary<Object[]> computeFrameStart,
+                                                    ComputeFrameBoundary<Object[]> computeFrameEnd,
+                                                    @Nullable Comparator<Object[]> cmpPartitionBy,
+                                                    int numCellsInSourceRow,
+                                                    List<WindowFunction> windowFunctions,
+                                                    List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                                    Input[]... args) {
+        Function<Row, Object[]> materialize = row -> {
+            rowAccounting.accountForAndMaybeBreak(row);
+            return materializeWithSpare(row, windowFunctions.size());
+        };
+        if (cmpPartitionBy == null) {
+            return CollectingBatchIterator.newInstance(
+                source,
+                src -> BatchIterators
+                    .collect(src, Collectors.mapping(materialize, Collectors.toList()))
+                    .thenApply(rows -> computeWindowFunctions(
+                        rows,
+                        computeFrameStart,
+                        computeFrameEnd,
+                        null,
+                        numCellsInSourceRow,
+                        windowFunctions,
+                        argsExpressions,
+                        args
+                    ))
+                    .thenApply(rows -> Iterables.transform(rows, Buckets.arrayToSharedRow()::apply)),
+                source.hasLazyResultSet()
+            );
+        }
+        return new PartitionedWindowFunctionBatchIterator(
+            source,
+            rowAccounting,
+            cmpPartitionBy,
+            numCellsInSourceRow + windowFunctions.size(),
+            materialize,
+            // Each list contains exactly one partition
+            partition -> computeWindowFunctions(
+                partition,
+                computeFrameStart,
+                computeFrameEnd,
+                null,
+                numCellsInSourceRow,
+                windowFunctions,
+                argsExpressions,
+                args
+            )
+        );
+    }
+
     private static Object[] materializeWithSpare(Row row, int numWindowFunctions) {
         Object[] cells = new Object[row.numColumns() + numWindowFunctions];
         for (int i = 0; i < row.numColumns(); i++) {
@@ -213,7 +449,7 @@ public final class WindowFunctionBatchIterator {
     }
 
     @Nullable
-    private static Comparator<Object[]> joinCmp(@Nullable Comparator<Object[]> cmpPartitionBy,
+    static Comparator<Object[]> joinCmp(@Nullable Comparator<Object[]> cmpPartitionBy,
                                                 @Nullable Comparator<Object[]> cmpOrderBy) {
         if (cmpPartitionBy == null) {
             return cmpOrderBy;
@@ -22,6 +22,7 @@
 
 package io.crate.execution.engine.window;
 
+import io.crate.Streamer;
 import io.crate.analyze.OrderBy;
 import io.crate.analyze.WindowDefinition;
 import io.crate.breaker.RamAccounting;
@@ -34,7 +35,6 @@ import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.expression.ExpressionsInput;
 import io.crate.expression.InputFactory;
-import io.crate.expression.symbol.InputColumn;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
 import io.crate.expression.symbol.SymbolType;
@@ -45,10 +45,12 @@ import io.crate.metadata.NodeContext;
 import io.crate.metadata.TransactionContext;
 import io.crate.sql.tree.WindowFrame;
 import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import io.crate.types.IntervalType;
 import org.elasticsearch.Version;
 
 import javax.annotation.Nullable;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -71,7 +73,10 @@ public class WindowProjector {
                                            Version minNodeVersion,
                                            Version indexVersionCreated,
                                            IntSupplier numThreads,
-                                           Executor executor) {
+                                           Executor executor,
+                                           Supplier<RamAccounting> newDedicatedRamAccounting,
+                                           @Nullable Path spillDirectory,
+                                           long maxSpillableBytes) {
         var windowFunctionSymbols = projection.windowFunctions();
         var numWindowFunctions = windowFunctionSymbols.size();
 
@@ -126,8 +131,11 @@ public class WindowProjector {
         Supplier<InputFactory.Context<CollectExpression<Row, ?>>> createInputFactoryContext =
             () -> inputFactory.ctxForInputColumns(txnCtx);
         int arrayListElementOverHead = 32;
+        List<DataType<?>> sourceTypes = Symbols.typeView(projection.standalone());
         RowAccountingWithEstimators accounting = new RowAccountingWithEstimators(
-            Symbols.typeView(projection.standalone()), ramAccounting, arrayListElementOverHead);
+            sourceTypes, ramAccounting, arrayListElementOverHead);
+        Supplier<RowAccountingWithEstimators> newDedicatedAccounting = () -> new RowAccountingWithEstimators(
+            sourceTypes, newDedicatedRamAccounting.get(), arrayListElementOverHead);
         Comparator<Object[]> cmpPartitionBy = partitions.isEmpty()
             ? null
             : createComparator(createInputFactoryContext, new OrderBy(windowDefinition.partitions()));
@@ -147,6 +155,44 @@ public class WindowProjector {
             windowDefinition,
             cmpOrderBy
         );
+        if (projection.sourceIsOrdered()) {
+            return sourceRows -> WindowFunctionBatchIterator.ofSortedSource(
+                sourceRows,
+                cmpPartitionBy == null ? accounting : newDedicatedAccounting.get(),
+                computeFrameStart,
+                computeFrameEnd,
+                cmpPartitionBy,
+                numCellsInSourceRow,
+                windowFunctions,
+                windowFuncArgsExpressions,
+                windowFuncArgsInputs
+            );
+        }
+        if (spillDirectory != null && cmpPartitionBy != null) {
+            // Sorted in parallel in memory; sorted runs are only spilled to disk if the rows exceed maxSpillableBytes
+            Streamer<?>[] streamers = DataTypes.getStreamers(sourceTypes);
+            return sourceRows -> {
+                RamAccounting spillRamAccounting = newDedicatedRamAccounting.get();
+                return WindowFunctionBatchIterator.ofSpillable(
+                    sourceRows,
+                    new RowAccountingWithEstimators(sourceTypes, spillRamAccounting, arrayListElementOverHead),
+                    spillRamAccounting,
+                    maxSpillableBytes,
+                    computeFrameStart,
+                    computeFrameEnd,
+                    cmpPartitionBy,
+                    cmpOrderBy,
+                    numCellsInSourceRow,
+                    numThreads,
+                    executor,
+                    spillDirectory,
+                    streamers,
+                    windowFunctions,
+                    windowFuncArgsExpressions,
+                    windowFuncArgsInputs
+                );
+            };
+        }
         return sourceRows -> WindowFunctionBatchIterator.of(
             sourceRows,
             accounting,
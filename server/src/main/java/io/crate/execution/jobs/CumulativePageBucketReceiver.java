@@ -37,6 +37,7 @@ import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.GuardedBy;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
@@ -52,11 +53,24 @@ import java.util.concurrent.RejectedExecutionException;
  * A {@link PageBucketReceiver} which receives buckets from upstreams, wait to receive the page from all upstreams
  * and forwards the merged bucket results to the consumers for further processing. It then continues to receive
  * the buckets from the next page from all upstreams.
+ *
+ * <p>
+ * Each upstream is granted {@code maxBufferedPagesPerUpstream} pages: As long as less pages of an upstream are held
+ * by the receiver, a received bucket is acknowledged right away and the upstream can send its next page while the
+ * current one is still being consumed. Buckets which arrive ahead of the page the consumer is waiting for are queued.
+ * With 1 page per upstream the acknowledgement is only sent once the consumer requests more data.
+ * </p>
  */
 public class CumulativePageBucketReceiver implements PageBucketReceiver {
 
     private static final Logger LOGGER = LogManager.getLogger(CumulativePageBucketReceiver.class);
 
+    /**
+     * Number of pages per upstream which are used for distributed merges. One page is consumed while the next one is
+     * already transferred.
+     */
+    public static final int DEFAULT_MAX_BUFFERED_PAGES_PER_UPSTREAM = 2;
+
     private final Object lock = new Object();
     private final String nodeName;
     private final boolean traceEnabled;
@@ -64,11 +78,33 @@ public class CumulativePageBucketReceiver implements PageBucketReceiver {
     private final Executor executor;
     private final Streamer<?>[] streamers;
     private final int numBuckets;
+    private final int maxBufferedPagesPerUpstream;
     @GuardedBy("lock")
     private final Set<Integer> exhausted;
     private final Map<Integer, PageResultListener> listenersByBucketIdx;
     @GuardedBy("lock")
     private final Map<Integer, Bucket> bucketsByIdx;
+
+    /**
+     * Buckets received ahead of the page which is currently being collected
+     */
+    @GuardedBy("lock")
+    private final Map<Integer, ArrayDeque<PendingBucket>> pendingByBucketIdx;
+
+    /**
+     * Set for the buckets in {@link #bucketsByIdx} which contain received rows and not a placeholder
+     */
+    @GuardedBy("lock")
+    private final Set<Integer> receivedInPage;
+
+    @GuardedBy("lock")
+    private final Set<Integer> knownBucketIdxs;
+
+    /**
+     * False after a page has been handed over to the consumer until the consumer requests the next page
+     */
+    @GuardedBy("lock")
+    private boolean pageRequested = true;
     private final RowConsumer consumer;
     private final PagingIterator<Integer, Row> pagingIterator;
     private final BatchIterator<Row> batchPagingIterator;
@@ -85,6 +121,18 @@ public class CumulativePageBucketReceiver implements PageBucketReceiver {
                                         RowConsumer rowConsumer,
                                         PagingIterator<Integer, Row> pagingIterator,
                                         int numBuckets) {
+        this(nodeName, phaseId, executor, streamers, rowConsumer, pagingIterator, numBuckets, 1);
+    }
+
+    public CumulativePageBucketReceiver(String nodeName,
+                                        int phaseId,
+                                        Executor executor,
+                                        Streamer<?>[] streamers,
+                                        RowConsumer rowConsumer,
+                                        PagingIterator<Integer, Row> pagingIterator,
+                                        int numBuckets,
+                                        int maxBufferedPagesPerUpstream) {
+        assert maxBufferedPagesPerUpstream > 0 : "maxBufferedPagesPerUpstream must be greater than 0";
         this.nodeName = nodeName;
         this.phaseId = phaseId;
         this.executor = executor;
@@ -92,9 +140,13 @@ public class CumulativePageBucketReceiver implements PageBucketReceiver {
         this.consumer = rowConsumer;
         this.pagingIterator = pagingIterator;
         this.numBuckets = numBuckets;
+        this.maxBufferedPagesPerUpstream = maxBufferedPagesPerUpstream;
 
         this.exhausted = Collections.newSetFromMap(new IntObjectHashMap<>(numBuckets));
         this.bucketsByIdx = new IntObjectHashMap<>(numBuckets);
+        this.pendingByBucketIdx = new IntObjectHashMap<>(numBuckets);
+        this.receivedInPage = Collections.newSetFromMap(new IntObjectHashMap<>(numBuckets));
+        this.knownBucketIdxs = Collections.newSetFromMap(new IntObjectHashMap<>(numBuckets));
         this.listenersByBucketIdx = new IntObjectHashMap<>(numBuckets);
         processingFuture.whenComplete((result, ex) -> {
             synchronized (listenersByBucketIdx) {
@@ -121,37 +173,79 @@ public class CumulativePageBucketReceiver implements PageBucketReceiver {
 
     @Override
     public void setBucket(int bucketIdx, Bucket rows, boolean isLast, PageResultListener pageResultListener) {
-        final boolean isLastOrHasError;
-        synchronized (listenersByBucketIdx) {
-            isLastOrHasError = isLast || lastThrowable != null;
-            if (!isLastOrHasError) {
-                listenersByBucketIdx.put(bucketIdx, pageResultListener);
-            }
-        }
-        if (isLastOrHasError) {
-            pageResultListener.needMore(false);
-        }
-        final boolean allBucketsOfPageReceived;
+        final boolean acknowledge;
+        boolean allBucketsOfPageReceived = false;
         synchronized (lock) {
             if (traceEnabled) {
                 LOGGER.trace("method=setBucket phaseId={} bucket={} istLast={}", phaseId, bucketIdx, isLast);
             }
-
-            if (bucketsByIdx.putIfAbsent(bucketIdx, rows) != null) {
+            knownBucketIdxs.add(bucketIdx);
+            if (pageRequested && bucketsByIdx.containsKey(bucketIdx) == false) {
+                addToPage(bucketIdx, rows, isLast);
+                allBucketsOfPageReceived = bucketsByIdx.size() == numBuckets;
+            } else if (maxBufferedPagesPerUpstream > 1 && exhausted.contains(bucketIdx) == false) {
+                pendingByBucketIdx.computeIfAbsent(bucketIdx, k -> new ArrayDeque<>()).add(new PendingBucket(rows, isLast));
+            } else {
                 processingFuture.completeExceptionally(new IllegalStateException(String.format(Locale.ENGLISH,
                     "Same bucket of a page set more than once. node=%s method=setBucket phaseId=%d bucket=%d",
                     nodeName, phaseId, bucketIdx)));
             }
-            if (isLast) {
-                exhausted.add(bucketIdx);
+            acknowledge = numBufferedPages(bucketIdx) < maxBufferedPagesPerUpstream;
+        }
+        final boolean isLastOrHasError;
+        synchronized (listenersByBucketIdx) {
+            // If processing finished already, the upstream must not send more pages ahead
+            isLastOrHasError = isLast || lastThrowable != null || processingFuture.isDone();
+            if (!isLastOrHasError && !acknowledge) {
+                listenersByBucketIdx.put(bucketIdx, pageResultListener);
             }
-            allBucketsOfPageReceived = bucketsByIdx.size() == numBuckets;
+        }
+        if (isLastOrHasError) {
+            pageResultListener.needMore(false);
+        } else if (acknowledge) {
+            pageResultListener.needMore(true);
         }
         if (allBucketsOfPageReceived) {
             processPage();
         }
     }
 
+    @GuardedBy("lock")
+    private void addToPage(int bucketIdx, Bucket rows, boolean isLast) {
+        bucketsByIdx.put(bucketIdx, rows);
+        receivedInPage.add(bucketIdx);
+        if (isLast) {
+            exhausted.add(bucketIdx);
+        }
+    }
+
+    /**
+     * @return the number of pages of an upstream which are held by this receiver and not yet handed to the consumer
+     */
+    @GuardedBy("lock")
+    private int numBufferedPages(int bucketIdx) {
+        ArrayDeque<PendingBucket> pending = pendingByBucketIdx.get(bucketIdx);
+        return (receivedInPage.contains(bucketIdx) ? 1 : 0) + (pending == null ? 0 : pending.size());
+    }
+
+    /**
+     * Moves queued buckets into the requested page
+     *
+     * @return true if all buckets of the page have been received
+     */
+    @GuardedBy("lock")
+    private boolean addPendingToPage() {
+        for (Map.Entry<Integer, ArrayDeque<PendingBucket>> cursor : pendingByBucketIdx.entrySet()) {
+            int bucketIdx = cursor.getKey();
+            ArrayDeque<PendingBucket> pending = cursor.getValue();
+            if (pending.isEmpty() == false && bucketsByIdx.containsKey(bucketIdx) == false) {
+                PendingBucket pendingBucket = pending.poll();
+                addToPage(bucketIdx, pendingBucket.rows, pendingBucket.isLast);
+            }
+        }
+        return bucketsByIdx.size() == numBuckets;
+    }
+
     private void triggerConsumerOrPageFuture(List<KeyIterable<Integer, Row>> buckets) {
         boolean invokeConsumer = false;
         Throwable throwable;
@@ -211,6 +305,8 @@ public class CumulativePageBucketReceiver implements PageBucketReceiver {
     private List<KeyIterable<Integer, Row>> getBuckets() {
         List<KeyIterable<Integer, Row>> buckets = new ArrayList<>(numBuckets);
         synchronized (lock) {
+            pageRequested = false;
+            receivedInPage.clear();
             Iterator<Map.Entry<Integer, Bucket>> entryIt = bucketsByIdx.entrySet().iterator();
             while (entryIt.hasNext()) {
                 Map.Entry<Integer, Bucket> entry = entryIt.next();
@@ -235,33 +331,54 @@ public class CumulativePageBucketReceiver implements PageBucketReceiver {
             return KillableCompletionStage.failed(new IllegalStateException("Source is exhausted"));
         }
         currentPage = new CompletableFuture<>();
-        if (exhaustedBucket == null || exhausted.contains(exhaustedBucket)) {
-            fetchFromUnExhausted();
-        } else {
-            fetchExhausted(exhaustedBucket);
+        final boolean allBucketsOfPageReceived;
+        final List<PageResultListener> listenersToAcknowledge = new ArrayList<>();
+        synchronized (lock) {
+            synchronized (listenersByBucketIdx) {
+                if (exhaustedBucket == null || exhausted.contains(exhaustedBucket)) {
+                    fetchFromUnExhausted(listenersToAcknowledge);
+                } else {
+                    fetchExhausted(exhaustedBucket, listenersToAcknowledge);
+                }
+            }
+            pageRequested = true;
+            allBucketsOfPageReceived = addPendingToPage();
+        }
+        for (PageResultListener listener : listenersToAcknowledge) {
+            listener.needMore(true);
+        }
+        if (allBucketsOfPageReceived) {
+            processPage();
         }
         return KillableCompletionStage.whenKilled(currentPage, t -> currentPage.completeExceptionally(t));
     }
 
-    private void fetchExhausted(Integer exhaustedBucket) {
-        synchronized (listenersByBucketIdx) {
-            // We're only requesting data for 1 specific bucket,
-            // so we need to fill in other buckets to meet the
-            // "receivedAllBucketsOfPage" condition once we get the data for this bucket
-            PageResultListener pageResultListener = listenersByBucketIdx.remove(exhaustedBucket);
-            for (Integer bucketIdx : listenersByBucketIdx.keySet()) {
+    @GuardedBy("lock")
+    private void fetchExhausted(Integer exhaustedBucket, List<PageResultListener> listenersToAcknowledge) {
+        // We're only requesting data for 1 specific bucket,
+        // so we need to fill in other buckets to meet the
+        // "receivedAllBucketsOfPage" condition once we get the data for this bucket
+        for (Integer bucketIdx : knownBucketIdxs) {
+            if (bucketIdx.equals(exhaustedBucket) == false) {
                 bucketsByIdx.putIfAbsent(bucketIdx, Bucket.EMPTY);
             }
-            pageResultListener.needMore(true);
+        }
+        PageResultListener pageResultListener = listenersByBucketIdx.get(exhaustedBucket);
+        if (pageResultListener != null && numBufferedPages(exhaustedBucket) < maxBufferedPagesPerUpstream) {
+            listenersToAcknowledge.add(listenersByBucketIdx.remove(exhaustedBucket));
         }
     }
 
-    private void fetchFromUnExhausted() {
-        synchronized (listenersByBucketIdx) {
-            for (PageResultListener listener : listenersByBucketIdx.values()) {
-                listener.needMore(true);
+    @GuardedBy("lock")
+    private void fetchFromUnExhausted(List<PageResultListener> listenersToAcknowledge) {
+        Iterator<Map.Entry<Integer, PageResultListener>> it = listenersByBucketIdx.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, PageResultListener> entry = it.next();
+            // Pages received ahead may still be queued; the upstream must not exceed its number of pages
+            if (numBufferedPages(entry.getKey()) < maxBufferedPagesPerUpstream) {
+                listenersToAcknowledge.add(entry.getValue());
+                it.remove();
             }
-            listenersByBucketIdx.clear();
         }
     }
 
@@ -298,6 +415,17 @@ public class CumulativePageBucketReceiver implements PageBucketReceiver {
         }
     }
 
+    private static class PendingBucket {
+
+        private final Bucket rows;
+        private final boolean isLast;
+
+        PendingBucket(Bucket rows, boolean isLast) {
+            this.rows = rows;
+            this.isLast = isLast;
+        }
+    }
+
     @Override
     public String toString() {
         return "CumulativePageBucketReceiver{" +
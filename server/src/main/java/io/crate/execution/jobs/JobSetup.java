@@ -80,6 +80,7 @@ import io.crate.execution.engine.join.NestedLoopOperation;
 import io.crate.execution.engine.pipeline.ProjectingRowConsumer;
 import io.crate.execution.engine.pipeline.ProjectionToProjectorVisitor;
 import io.crate.execution.engine.pipeline.ProjectorFactory;
+import io.crate.execution.engine.spill.SpillDirectory;
 import io.crate.expression.InputFactory;
 import io.crate.expression.RowFilter;
 import io.crate.expression.eval.EvaluatingNormalizer;
@@ -97,6 +98,7 @@ import io.crate.planner.operators.PKAndVersion;
 import io.crate.types.DataTypes;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.common.inject.Inject;
@@ -136,6 +138,7 @@ public class JobSetup {
     private final CircuitBreakerService circuitBreakerService;
     private final CountOperation countOperation;
     private final MemoryManagerFactory memoryManagerFactory;
+    private final SpillDirectory spillDirectory;
     private final DistributingConsumerFactory distributingConsumerFactory;
     private final InnerPreparer innerPreparer;
     private final InputFactory inputFactory;
@@ -160,7 +163,8 @@ public class JobSetup {
                     NodeContext nodeCtx,
                     SystemCollectSource systemCollectSource,
                     ShardCollectSource shardCollectSource,
-                    MemoryManagerFactory memoryManagerFactory) {
+                    MemoryManagerFactory memoryManagerFactory,
+                    SpillDirectory spillDirectory) {
         this.nodeName = Node.NODE_NAME_SETTING.get(settings);
         this.schemas = schemas;
         this.collectOperation = collectOperation;
@@ -168,6 +172,7 @@ public class JobSetup {
         this.circuitBreakerService = circuitBreakerService;
         this.countOperation = countOperation;
         this.memoryManagerFactory = memoryManagerFactory;
+        this.spillDirectory = spillDirectory;
         this.pkLookupOperation = new PKLookupOperation(indicesService, shardCollectSource);
         this.distributingConsumerFactory = distributingConsumerFactory;
         innerPreparer = new InnerPreparer();
@@ -185,7 +190,10 @@ public class JobSetup {
             inputFactory,
             normalizer,
             systemCollectSource::getRowUpdater,
-            systemCollectSource::tableDefinition
+            systemCollectSource::tableDefinition,
+            Version.CURRENT,
+            null,
+            spillDirectory.path()
         );
     }
 
@@ -715,7 +723,8 @@ public class JobSetup {
                         () -> new RowAccountingWithEstimators(
                             phase.inputTypes(),
                             new BlockBasedRamAccounting(ramAccounting::addBytes, ramAccountingBlockSizeInBytes))),
-                    phase.numUpstreams());
+                    phase.numUpstreams(),
+                    CumulativePageBucketReceiver.DEFAULT_MAX_BUFFERED_PAGES_PER_UPSTREAM);
             } else {
                 pageBucketReceiver = new IncrementalPageBucketReceiver<>(
                     collector,
@@ -916,6 +925,10 @@ public class JobSetup {
                 projectorFactory
             );
             Predicate<Row> joinCondition = RowFilter.create(context.transactionContext, inputFactory, phase.joinCondition());
+            var rightOutputTypes = phase.rightOutputTypes();
+            if (rightOutputTypes != null && rightOutputTypes.size() != phase.numRightOutputs()) {
+                rightOutputTypes = null;
+            }
 
             HashJoinOperation joinOperation = new HashJoinOperation(
                 phase.numLeftOutputs(),
@@ -929,11 +942,15 @@ public class JobSetup {
                 //    7 bytes per key for the IntHashObjectHashMap  (should be 4 but the map pre-allocates more)
                 //    7 bytes perv value (pointer from the map to the list) (should be 4 but the map pre-allocates more)
                 new RowCellsAccountingWithEstimators(phase.leftOutputTypes(), ramAccountingOfOperation, 110),
+                new BlockBasedRamAccounting(ramAccounting::addBytes, ramAccountingBlockSizeInBytes),
                 context.transactionContext,
                 inputFactory,
                 breaker(),
                 phase.estimatedRowSizeForLeft(),
-                phase.numberOfRowsForLeft());
+                phase.numberOfRowsForLeft(),
+                spillDirectory.path(),
+                DataTypes.getStreamers(phase.leftOutputTypes()),
+                rightOutputTypes == null ? null : DataTypes.getStreamers(rightOutputTypes));
             DistResultRXTask left = pageDownstreamContextForNestedLoop(
                 phase.phaseId(),
                 context,
@@ -1006,7 +1023,8 @@ public class JobSetup {
                     () -> new RowAccountingWithEstimators(
                         mergePhase.inputTypes(),
                         ramAccounting)),
-                mergePhase.numUpstreams());
+                mergePhase.numUpstreams(),
+                CumulativePageBucketReceiver.DEFAULT_MAX_BUFFERED_PAGES_PER_UPSTREAM);
 
             return new DistResultRXTask(
                 mergePhase.phaseId(),
@@ -23,19 +23,45 @@
 package io.crate.expression;
 
 import io.crate.data.Input;
+import io.crate.expression.operator.AndOperator;
+import io.crate.expression.operator.OrOperator;
+import io.crate.expression.scalar.conditional.CoalesceFunction;
+import io.crate.expression.scalar.conditional.IfFunction;
+import io.crate.metadata.BatchScalar;
+import io.crate.metadata.FunctionName;
 import io.crate.metadata.NodeContext;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.Scalar;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 
 public final class FunctionExpression<ReturnType, InputType> implements Input<ReturnType> {
 
+    /**
+     * Functions which evaluate some of their arguments only depending on the value of others.
+     * A CASE expression is evaluated as nested {@link IfFunction}s.
+     */
+    private static final Set<FunctionName> CONDITIONAL_FUNCTIONS = Set.of(
+        new FunctionName(AndOperator.NAME),
+        new FunctionName(OrOperator.NAME),
+        new FunctionName(IfFunction.NAME),
+        new FunctionName(CoalesceFunction.NAME)
+    );
+
     private final Input<InputType>[] arguments;
     private final Scalar<ReturnType, InputType> scalar;
     private final TransactionContext txnCtx;
     private final NodeContext nodeCtx;
 
+    /**
+     * Set while the rows of a batch are emitted after the function was {@link #evaluateBatch(List) evaluated}
+     * for all of them
+     */
+    private boolean hasBatchValue = false;
+    private ReturnType batchValue;
+
     public FunctionExpression(TransactionContext txnCtx,
                               NodeContext nodeCtx,
                               Scalar<ReturnType, InputType> scalar,
@@ -48,9 +74,75 @@ public final class FunctionExpression<ReturnType, InputType> implements Input<Re
 
     @Override
     public ReturnType value() {
+        if (hasBatchValue) {
+            return batchValue;
+        }
         return scalar.evaluate(txnCtx, nodeCtx, arguments);
     }
 
+    /**
+     * @return true if the function can be evaluated for many rows at once via {@link #evaluateBatch(List)}
+     */
+    public boolean supportsBatches() {
+        return scalar instanceof BatchScalar;
+    }
+
+    /**
+     * @return the current values of the arguments, which can be passed to {@link #evaluateBatch(List)} later on
+     */
+    @SuppressWarnings("unchecked")
+    public Input<InputType>[] argumentValues() {
+        Input<InputType>[] values = new Input[arguments.length];
+        for (int i = 0; i < arguments.length; i++) {
+            InputType value = arguments[i].value();
+            values[i] = () -> value;
+        }
+        return values;
+    }
+
+    /**
+     * Adds this function and the functions nested in its arguments which {@link #supportsBatches() support batches}
+     * to {@code batchFunctions}, nested functions first.
+     * <p>
+     * The arguments of conditional functions like AND, OR, CASE or COALESCE are not descended into, as
+     * evaluating them for all rows of a batch would bypass the condition guarding them,
+     * e.g. {@code CASE WHEN x > 0 THEN udf(1 / x) END}. Such functions are evaluated per row.
+     * </p>
+     */
+    public void collectBatchFunctions(List<FunctionExpression<?, ?>> batchFunctions) {
+        if (CONDITIONAL_FUNCTIONS.contains(scalar.signature().getName())) {
+            return;
+        }
+        for (Input<InputType> argument : arguments) {
+            if (argument instanceof FunctionExpression) {
+                ((FunctionExpression<?, ?>) argument).collectBatchFunctions(batchFunctions);
+            }
+        }
+        if (supportsBatches() && !batchFunctions.contains(this)) {
+            batchFunctions.add(this);
+        }
+    }
+
+    /**
+     * Makes {@link #value()} return the given value instead of evaluating the function
+     */
+    @SuppressWarnings("unchecked")
+    public void batchValue(Object value) {
+        this.batchValue = (ReturnType) value;
+        this.hasBatchValue = true;
+    }
+
+    public void clearBatchValue() {
+        this.batchValue = null;
+        this.hasBatchValue = false;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<ReturnType> evaluateBatch(List<Input<InputType>[]> rows) {
+        assert supportsBatches() : "function must support batches: " + scalar.signature().getName();
+        return ((BatchScalar<ReturnType, InputType>) scalar).evaluateBatch(txnCtx, nodeCtx, rows);
+    }
+
     @Override
     public String toString() {
         return "FuncExpr{" +
@@ -51,6 +51,14 @@ public class RowFilter implements Predicate<Row> {
         expressions = ctx.expressions();
     }
 
+    public Input<Boolean> filterCondition() {
+        return filterCondition;
+    }
+
+    public List<CollectExpression<Row, ?>> expressions() {
+        return expressions;
+    }
+
     @Override
     public boolean test(@Nullable Row row) {
         //noinspection ForLoopReplaceableByForEach // avoids iterator allocation - rowFilter test is invoked per row
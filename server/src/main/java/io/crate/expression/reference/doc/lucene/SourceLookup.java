@@ -38,10 +38,13 @@ import java.util.RandomAccess;
 public final class SourceLookup {
 
     private final SourceFieldVisitor fieldsVisitor = new SourceFieldVisitor();
+    private final SourceParser sourceParser = new SourceParser();
     private LeafReader reader;
     private int doc;
     private Map<String, Object> source;
+    private Map<String, Object> partialSource;
     private boolean docVisited = false;
+    private boolean fullSourceRequired = false;
 
     SourceLookup() {
     }
@@ -54,11 +57,35 @@ public final class SourceLookup {
         fieldsVisitor.reset();
         this.docVisited = false;
         this.source = null;
+        this.partialSource = null;
         this.reader = context.reader();
         this.doc = doc;
     }
 
+    /**
+     * Register a path which is going to be looked up using {@link #get(List)}.
+     * If only registered paths are looked up, the parts of the source not belonging to any of them are skipped
+     * instead of being parsed into the map.
+     */
+    void registerPath(List<String> path) {
+        sourceParser.register(path);
+    }
+
+    /**
+     * Indicates that {@link #sourceAsMap()} is going to be used, so there is no point in parsing the source per path.
+     */
+    void requireFullSource() {
+        fullSourceRequired = true;
+    }
+
     public Object get(List<String> path) {
+        if (source == null && fullSourceRequired == false && sourceParser.contains(path)) {
+            if (partialSource == null) {
+                ensureDocVisited();
+                partialSource = sourceParser.parse(fieldsVisitor.source());
+            }
+            return extractValue(partialSource, path, 0);
+        }
         ensureSourceParsed();
         return extractValue(source, path, 0);
     }
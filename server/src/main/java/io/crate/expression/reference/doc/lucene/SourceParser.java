@@ -0,0 +1,144 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.expression.reference.doc.lucene;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Parses the JSON source of a document into a map which only contains the registered paths.
+ * Sub-trees of the source which aren't part of any path are skipped by the parser without materializing them.
+ */
+final class SourceParser {
+
+    private final PathNode root = new PathNode();
+
+    /**
+     * Register a path which must be contained in the result of {@link #parse(BytesReference)}
+     */
+    void register(List<String> path) {
+        PathNode node = root;
+        for (int i = 0; i < path.size() && node.isLeaf == false; i++) {
+            node = node.children.computeIfAbsent(path.get(i), k -> new PathNode());
+        }
+        node.isLeaf = true;
+        node.children.clear();
+    }
+
+    /**
+     * @return true if the value of the path is fully contained in the result of {@link #parse(BytesReference)}
+     */
+    boolean contains(List<String> path) {
+        PathNode node = root;
+        for (int i = 0; i < path.size(); i++) {
+            node = node.children.get(path.get(i));
+            if (node == null) {
+                return false;
+            }
+            if (node.isLeaf) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    Map<String, Object> parse(BytesReference source) {
+        try (InputStream in = CompressorFactory.uncompressIfNeeded(source).streamInput();
+             XContentParser parser = XContentType.JSON.xContent().createParser(
+                 NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, in)) {
+            XContentParser.Token token = parser.nextToken();
+            if (token != XContentParser.Token.START_OBJECT) {
+                throw new IllegalArgumentException("Source must be an object, got: " + token);
+            }
+            return parseObject(parser, root);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Map<String, Object> parseObject(XContentParser parser, PathNode node) throws IOException {
+        HashMap<String, Object> values = new HashMap<>();
+        while (parser.nextToken() == XContentParser.Token.FIELD_NAME) {
+            String fieldName = parser.currentName();
+            XContentParser.Token token = parser.nextToken();
+            PathNode child = node.children.get(fieldName);
+            if (child == null) {
+                parser.skipChildren();
+            } else {
+                values.put(fieldName, parseValue(parser, token, child));
+            }
+        }
+        return values;
+    }
+
+    private static Object parseValue(XContentParser parser, XContentParser.Token token, PathNode node) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+                return node.isLeaf ? parser.map() : parseObject(parser, node);
+
+            case START_ARRAY:
+                if (node.isLeaf) {
+                    return parser.list();
+                }
+                // Objects within arrays can contain the next part of the path
+                ArrayList<Object> values = new ArrayList<>();
+                for (token = parser.nextToken(); token != XContentParser.Token.END_ARRAY; token = parser.nextToken()) {
+                    values.add(parseValue(parser, token, node));
+                }
+                return values;
+
+            case VALUE_STRING:
+                return parser.text();
+
+            case VALUE_NUMBER:
+                return parser.numberValue();
+
+            case VALUE_BOOLEAN:
+                return parser.booleanValue();
+
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.binaryValue();
+
+            default:
+                return null;
+        }
+    }
+
+    private static class PathNode {
+
+        private final Map<String, PathNode> children = new HashMap<>();
+        private boolean isLeaf = false;
+    }
+}
@@ -107,6 +107,13 @@ public class LineContext {
         currentLineNumber = 0;
     }
 
+    /**
+     * Sets the line number of the line before the next line, used if a file is not read from its beginning.
+     */
+    public void currentLineNumber(long lineNumber) {
+        currentLineNumber = lineNumber;
+    }
+
     public void incrementCurrentLineNumber() {
         currentLineNumber++;
     }
@@ -23,6 +23,7 @@
 package io.crate.expression.reference.sys.node;
 
 import io.crate.monitor.ExtendedOsStats;
+import io.crate.action.sql.PlanCacheStats;
 import io.crate.protocols.ConnectionStats;
 import io.crate.types.DataTypes;
 import org.apache.lucene.util.Constants;
@@ -62,6 +63,7 @@ public class NodeStatsContext implements Writeable {
     private ThreadPoolStats threadPools;
     private HttpStats httpStats;
     private ConnectionStats psqlStats;
+    private PlanCacheStats planCacheStats;
 
     private String osName;
     private String osArch;
@@ -195,6 +197,10 @@ public class NodeStatsContext implements Writeable {
         return psqlStats;
     }
 
+    public PlanCacheStats planCacheStats() {
+        return planCacheStats;
+    }
+
     public long openTransportConnections() {
         return openTransportConnections;
     }
@@ -291,6 +297,10 @@ public class NodeStatsContext implements Writeable {
         this.psqlStats = psqlStats;
     }
 
+    public void planCacheStats(PlanCacheStats planCacheStats) {
+        this.planCacheStats = planCacheStats;
+    }
+
     void openTransportConnections(long openTransportConnections) {
         this.openTransportConnections = openTransportConnections;
     }
@@ -326,6 +336,9 @@ public class NodeStatsContext implements Writeable {
         this.jvmName = DataTypes.STRING.readValueFrom(in);
         this.jvmVendor = DataTypes.STRING.readValueFrom(in);
         this.jvmVersion = DataTypes.STRING.readValueFrom(in);
+        if (in.getVersion().onOrAfter(Version.V_4_4_0)) {
+            this.planCacheStats = in.readOptionalWriteable(PlanCacheStats::new);
+        }
     }
 
     @Override
@@ -365,5 +378,8 @@ public class NodeStatsContext implements Writeable {
         DataTypes.STRING.writeValueTo(out, jvmName);
         DataTypes.STRING.writeValueTo(out, jvmVendor);
         DataTypes.STRING.writeValueTo(out, jvmVersion);
+        if (out.getVersion().onOrAfter(Version.V_4_4_0)) {
+            out.writeOptionalWriteable(planCacheStats);
+        }
     }
 }
@@ -22,6 +22,8 @@
 
 package io.crate.expression.reference.sys.node;
 
+import io.crate.action.sql.PlanCache;
+import io.crate.action.sql.PlanCacheStats;
 import io.crate.common.annotations.VisibleForTesting;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.sys.SysNodesTableInfo;
@@ -79,6 +81,7 @@ public class NodeStatsContextFieldResolver {
     private final JvmService jvmService;
     private final FsService fsService;
     private final LongSupplier clusterStateVersion;
+    private final Supplier<PlanCacheStats> planCacheStats;
 
     @Inject
     @SuppressWarnings("unused")
@@ -88,7 +91,8 @@ public class NodeStatsContextFieldResolver {
                                          TransportService transportService,
                                          ThreadPool threadPool,
                                          ExtendedNodeInfo extendedNodeInfo,
-                                         PostgresNetty postgresNetty) {
+                                         PostgresNetty postgresNetty,
+                                         PlanCache planCache) {
         this(
             clusterService::localNode,
             nodeService.getMonitorService(),
@@ -105,7 +109,8 @@ public class NodeStatsContextFieldResolver {
                 return boundTransportAddress.publishAddress();
             },
             () -> transportService.stats().getServerOpen(),
-            () -> clusterService.state().version()
+            () -> clusterService.state().version(),
+            planCache::stats
         );
     }
 
@@ -119,7 +124,8 @@ public class NodeStatsContextFieldResolver {
                                   Supplier<ConnectionStats> psqlStats,
                                   Supplier<TransportAddress> boundPostgresAddress,
                                   LongSupplier numOpenTransportConnections,
-                                  LongSupplier clusterStateVersion) {
+                                  LongSupplier clusterStateVersion,
+                                  Supplier<PlanCacheStats> planCacheStats) {
         this.localNode = localNode;
         processService = monitorService.processService();
         osService = monitorService.osService();
@@ -133,6 +139,7 @@ public class NodeStatsContextFieldResolver {
         this.boundPostgresAddress = boundPostgresAddress;
         this.numOpenTransportConnections = numOpenTransportConnections;
         this.clusterStateVersion = clusterStateVersion;
+        this.planCacheStats = planCacheStats;
     }
 
     public NodeStatsContext forTopColumnIdents(Collection<ColumnIdent> topColumnIdents) {
@@ -242,6 +249,12 @@ public class NodeStatsContextFieldResolver {
                 nodeStatsContext.openTransportConnections(numOpenTransportConnections.getAsLong());
             }
         }),
+        entry(SysNodesTableInfo.Columns.PLAN_CACHE, new Consumer<>() {
+            @Override
+            public void accept(NodeStatsContext context) {
+                context.planCacheStats(planCacheStats.get());
+            }
+        }),
         entry(SysNodesTableInfo.Columns.OS, new Consumer<>() {
             @Override
             public void accept(NodeStatsContext context) {
@@ -27,6 +27,7 @@ import io.crate.metadata.functions.Signature;
 
 import javax.annotation.Nullable;
 import javax.script.ScriptException;
+import java.util.Map;
 
 
 /**
@@ -57,6 +58,14 @@ public interface UDFLanguage {
     @Nullable
     String validate(UserDefinedFunctionMetadata metadata);
 
+    /**
+     * Called with the current functions of a schema whenever the user-defined functions of the cluster change, so
+     * that resources of dropped or replaced functions can be released.
+     * @param functions all functions of the schema by their signature, including functions of other languages
+     */
+    default void updateFunctions(String schema, Map<Signature, UserDefinedFunctionMetadata> functions) {
+    }
+
     /**
      * @return name of the language
      */
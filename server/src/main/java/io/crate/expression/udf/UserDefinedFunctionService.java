@@ -221,7 +221,15 @@ public class UserDefinedFunctionService {
 
 
     public void updateImplementations(String schema, Stream<UserDefinedFunctionMetadata> userDefinedFunctions) {
-        updateImplementations(schema, userDefinedFunctions, nodeCtx);
+        List<UserDefinedFunctionMetadata> functions = userDefinedFunctions.collect(Collectors.toList());
+        updateImplementations(schema, functions.stream(), nodeCtx);
+        Map<Signature, UserDefinedFunctionMetadata> functionsBySignature = new HashMap<>();
+        for (UserDefinedFunctionMetadata udf : functions) {
+            functionsBySignature.put(signature(udf), udf);
+        }
+        for (UDFLanguage language : languageRegistry.values()) {
+            language.updateFunctions(schema, functionsBySignature);
+        }
     }
 
     public void updateImplementations(String schema,
@@ -243,11 +251,9 @@ public class UserDefinedFunctionService {
         nodeCtx.functions().registerUdfFunctionImplementationsForSchema(schema, implementations);
     }
 
-    @Nullable
-    public FunctionProvider buildFunctionResolver(UserDefinedFunctionMetadata udf) {
-        var functionName = new FunctionName(udf.schema(), udf.name());
-        var signature = Signature.builder()
-            .name(functionName)
+    private static Signature signature(UserDefinedFunctionMetadata udf) {
+        return Signature.builder()
+            .name(new FunctionName(udf.schema(), udf.name()))
             .kind(FunctionType.SCALAR)
             .argumentTypes(
                 Lists2.map(
@@ -255,6 +261,11 @@ public class UserDefinedFunctionService {
                     DataType::getTypeSignature))
             .returnType(udf.returnType().getTypeSignature())
             .build();
+    }
+
+    @Nullable
+    public FunctionProvider buildFunctionResolver(UserDefinedFunctionMetadata udf) {
+        var signature = signature(udf);
 
         final Scalar<?, ?> scalar;
         try {
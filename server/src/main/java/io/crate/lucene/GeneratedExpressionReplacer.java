@@ -0,0 +1,104 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.lucene;
+
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.FunctionCopyVisitor;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.SymbolVisitors;
+import io.crate.metadata.GeneratedReference;
+import io.crate.metadata.Reference;
+import io.crate.metadata.RowGranularity;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces expressions within a query with references to indexed generated columns which are defined by exactly
+ * the same expression. This allows to use a term or range query on the generated column instead of evaluating the
+ * expression for every document.
+ *
+ * <pre>
+ *     generatedCols:   [day as date_trunc('day', ts)]
+ *
+ *     input:   date_trunc('day', ts) = $1
+ *     output:  day = $1
+ * </pre>
+ *
+ * The query must not contain any source lookup references, the generated expressions only contain regular references.
+ */
+final class GeneratedExpressionReplacer extends FunctionCopyVisitor<Map<Symbol, Reference>> {
+
+    private static final GeneratedExpressionReplacer REPLACER = new GeneratedExpressionReplacer();
+
+    private GeneratedExpressionReplacer() {
+        super();
+    }
+
+    static Symbol replaceGeneratedExpressions(Symbol query, List<GeneratedReference> generatedColumns) {
+        if (generatedColumns.isEmpty()) {
+            return query;
+        }
+        HashMap<Symbol, Reference> referenceByExpression = new HashMap<>();
+        for (GeneratedReference generatedColumn : generatedColumns) {
+            if (isReplacement(generatedColumn)) {
+                // The query builders only handle regular references
+                referenceByExpression.putIfAbsent(
+                    generatedColumn.generatedExpression(),
+                    generatedColumn.getRelocated(generatedColumn.ident())
+                );
+            }
+        }
+        if (referenceByExpression.isEmpty()) {
+            return query;
+        }
+        return query.accept(REPLACER, referenceByExpression);
+    }
+
+    /**
+     * Only deterministic expressions are replaced, otherwise the value computed on insert can be different
+     * from the value the expression would return now.
+     * The value must be indexed as is and must have the type of the expression, so that a query on the column
+     * matches the same documents. Partition columns are not part of the index and are already resolved by the
+     * normalizer.
+     */
+    private static boolean isReplacement(GeneratedReference generatedColumn) {
+        Symbol expression = generatedColumn.generatedExpression();
+        return generatedColumn.granularity() == RowGranularity.DOC
+               && generatedColumn.indexType() == Reference.IndexType.NOT_ANALYZED
+               && expression instanceof Function
+               && !generatedColumn.referencedReferences().isEmpty()
+               && generatedColumn.valueType().equals(expression.valueType())
+               && !SymbolVisitors.any(s -> s instanceof Function && !((Function) s).isDeterministic(), expression);
+    }
+
+    @Override
+    public Symbol visitFunction(Function func, Map<Symbol, Reference> referenceByExpression) {
+        Reference reference = referenceByExpression.get(func);
+        if (reference != null) {
+            return reference;
+        }
+        return processAndMaybeCopy(func, referenceByExpression);
+    }
+}
@@ -92,6 +92,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import static io.crate.expression.eval.NullEliminator.eliminateNullsIfPossible;
+import static io.crate.lucene.GeneratedExpressionReplacer.replaceGeneratedExpressions;
 import static io.crate.metadata.DocReferences.inverseSourceLookup;
 import static java.util.Map.entry;
 
@@ -132,7 +133,10 @@ public class LuceneQueryBuilder {
         );
         CoordinatorTxnCtx coordinatorTxnCtx = CoordinatorTxnCtx.systemTransactionContext();
         ctx.query = eliminateNullsIfPossible(
-            inverseSourceLookup(normalizer.normalize(query, coordinatorTxnCtx)),
+            replaceGeneratedExpressions(
+                inverseSourceLookup(normalizer.normalize(query, coordinatorTxnCtx)),
+                table.generatedColumns()
+            ),
             s -> normalizer.normalize(s, coordinatorTxnCtx)
         ).accept(VISITOR, ctx);
         if (LOGGER.isTraceEnabled()) {
@@ -29,8 +29,9 @@ import io.netty.buffer.ByteBuf;
  *
  * <ul>
  *     <li>Components that create a MemoryManager are responsible for closing it</li>
- *     <li>Components that use a MemoryManager to allocate ByteBuf instances MUST NOT release them.
- *     The MemoryManager is responsible for releasing the ByteBuf instances it creates</li>
+ *     <li>Components that use a MemoryManager to allocate ByteBuf instances MUST NOT release them directly.
+ *     The MemoryManager is responsible for releasing the ByteBuf instances it creates, either on {@link #close()}
+ *     or earlier, if they're handed back via {@link #release(ByteBuf)}</li>
  *  </ul>
  */
 public interface MemoryManager extends AutoCloseable {
@@ -41,6 +42,12 @@ public interface MemoryManager extends AutoCloseable {
      */
     ByteBuf allocate(int capacity);
 
+    /**
+     * Hands back a ByteBuf allocated by this MemoryManager before the MemoryManager is closed.
+     * The memory accounted for the ByteBuf is de-accounted. The ByteBuf must not be used afterwards.
+     */
+    void release(ByteBuf buffer);
+
     @Override
     void close();
 }
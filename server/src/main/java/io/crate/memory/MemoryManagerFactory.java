@@ -80,10 +80,12 @@ public final class MemoryManagerFactory implements Function<RamAccounting, Memor
         DataTypes.STRING
     );
 
+    private final OffHeapMemoryPool offHeapMemoryPool;
     private volatile MemoryType currentMemoryType = MemoryType.ON_HEAP;
 
     @Inject
-    public MemoryManagerFactory(ClusterSettings clusterSettings) {
+    public MemoryManagerFactory(ClusterSettings clusterSettings, OffHeapMemoryPool offHeapMemoryPool) {
+        this.offHeapMemoryPool = offHeapMemoryPool;
         clusterSettings.addSettingsUpdateConsumer(MEMORY_ALLOCATION_TYPE.setting(), newValue -> {
             currentMemoryType = MemoryType.of(newValue);
         });
@@ -98,7 +100,7 @@ public final class MemoryManagerFactory implements Function<RamAccounting, Memor
             case ON_HEAP:
                 return new OnHeapMemoryManager(ramAccounting::addBytes);
             case OFF_HEAP:
-                return new OffHeapMemoryManager();
+                return new OffHeapMemoryManager(offHeapMemoryPool, ramAccounting::addBytes);
             default:
                 throw new AssertionError("MemoryType is supposed to have only 2 cases");
         }
@@ -23,29 +23,65 @@
 package io.crate.memory;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 
-import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.function.IntConsumer;
 
+/**
+ * A MemoryManager that leases direct buffers from the node wide {@link OffHeapMemoryPool}.
+ * All leased buffers are returned to the pool on {@link #close()}, or earlier via {@link #release(ByteBuf)}.
+ *
+ * The used memory is accounted via an injected `IntConsumer`, which is also responsible to de-account the
+ * used bytes eventually.
+ */
 public final class OffHeapMemoryManager implements MemoryManager {
 
-    private final ArrayList<ByteBuf> allocatedBuffers = new ArrayList<>();
+    private final OffHeapMemoryPool pool;
+    private final IntConsumer accountBytes;
 
-    public OffHeapMemoryManager() {
+    /**
+     * The buffers handed out to consumers mapped to the pages leased from the pool.
+     * These differ if the page was sliced to the requested capacity.
+     */
+    private final IdentityHashMap<ByteBuf, ByteBuf> leasedBuffers = new IdentityHashMap<>();
+
+    /**
+     * @param accountBytes A consumer that will be called on each allocation with the number of leased bytes.
+     */
+    public OffHeapMemoryManager(OffHeapMemoryPool pool, IntConsumer accountBytes) {
+        this.pool = pool;
+        this.accountBytes = accountBytes;
     }
 
     @Override
     public ByteBuf allocate(int capacity) {
-        ByteBuf byteBuf = Unpooled.directBuffer(capacity);
-        allocatedBuffers.add(byteBuf);
-        return byteBuf;
+        ByteBuf byteBuf = pool.lease(capacity);
+        accountBytes.accept(byteBuf.capacity());
+        if (byteBuf.capacity() == capacity) {
+            leasedBuffers.put(byteBuf, byteBuf);
+            return byteBuf;
+        }
+        // Pages are rounded up to the page size of their slab class; hide the remainder from the consumer
+        ByteBuf slice = byteBuf.slice(0, capacity).clear();
+        leasedBuffers.put(slice, byteBuf);
+        return slice;
+    }
+
+    @Override
+    public void release(ByteBuf buffer) {
+        ByteBuf leased = leasedBuffers.remove(buffer);
+        if (leased == null) {
+            throw new IllegalArgumentException("ByteBuf wasn't allocated by this MemoryManager or is already released");
+        }
+        accountBytes.accept(-leased.capacity());
+        pool.release(leased);
     }
 
     @Override
     public void close() {
-        for (ByteBuf buffer : allocatedBuffers) {
-            buffer.release();
+        for (ByteBuf buffer : leasedBuffers.values()) {
+            pool.release(buffer);
         }
-        allocatedBuffers.clear();
+        leasedBuffers.clear();
     }
 }
@@ -0,0 +1,228 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.memory;
+
+import io.crate.settings.CrateSetting;
+import io.crate.types.DataTypes;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A node wide pool of direct {@link ByteBuf} pages used by {@link OffHeapMemoryManager} instances.
+ *
+ * <p>
+ * Allocations are rounded up to the page size of one of a fixed set of slab classes.
+ * Pages released by a memory manager are kept in a free list of their slab class and handed out again on the
+ * next allocation of that class, as long as the total size of all free pages stays below
+ * {@link #MAX_RETAINED_SETTING}. Allocations larger than the biggest page size bypass the pool.
+ * </p>
+ */
+@Singleton
+public final class OffHeapMemoryPool extends AbstractLifecycleComponent {
+
+    public static final CrateSetting<ByteSizeValue> MAX_RETAINED_SETTING = CrateSetting.of(
+        Setting.byteSizeSetting(
+            "memory.pool.max_retained",
+            new ByteSizeValue(64, ByteSizeUnit.MB),
+            Setting.Property.NodeScope,
+            Setting.Property.Dynamic
+        ),
+        DataTypes.STRING
+    );
+
+    static final int MIN_PAGE_SIZE = 4 * 1024;
+    static final int MAX_PAGE_SIZE = 1024 * 1024;
+
+    private final List<SlabClass> slabClasses;
+    private final AtomicLong retainedBytes = new AtomicLong();
+    private volatile long maxRetainedBytes;
+
+    @Inject
+    public OffHeapMemoryPool(Settings settings, ClusterSettings clusterSettings) {
+        this(MAX_RETAINED_SETTING.setting().get(settings).getBytes());
+        clusterSettings.addSettingsUpdateConsumer(
+            MAX_RETAINED_SETTING.setting(),
+            newValue -> maxRetainedBytes = newValue.getBytes()
+        );
+    }
+
+    public OffHeapMemoryPool(long maxRetainedBytes) {
+        this.maxRetainedBytes = maxRetainedBytes;
+        this.slabClasses = List.of(
+            new SlabClass(MIN_PAGE_SIZE),
+            new SlabClass(16 * 1024),
+            new SlabClass(64 * 1024),
+            new SlabClass(256 * 1024),
+            new SlabClass(MAX_PAGE_SIZE)
+        );
+    }
+
+    public List<SlabClass> slabClasses() {
+        return slabClasses;
+    }
+
+    public long retainedBytes() {
+        return retainedBytes.get();
+    }
+
+    /**
+     * @return a page with a capacity of at least the given capacity. Must be returned via {@link #release(ByteBuf)}.
+     */
+    ByteBuf lease(int capacity) {
+        SlabClass slabClass = slabClassFor(capacity);
+        if (slabClass == null) {
+            return Unpooled.directBuffer(capacity, capacity);
+        }
+        ByteBuf page = slabClass.lease();
+        if (page == null) {
+            return Unpooled.directBuffer(slabClass.pageSize, slabClass.pageSize);
+        }
+        retainedBytes.addAndGet(-slabClass.pageSize);
+        page.clear();
+        page.setZero(0, page.capacity());
+        return page;
+    }
+
+    void release(ByteBuf page) {
+        int capacity = page.capacity();
+        SlabClass slabClass = slabClassFor(capacity);
+        if (slabClass == null || slabClass.pageSize != capacity) {
+            // Not leased from a slab class
+            page.release();
+            return;
+        }
+        boolean retain = lifecycle.started();
+        if (retain && retainedBytes.addAndGet(capacity) > maxRetainedBytes) {
+            retainedBytes.addAndGet(-capacity);
+            retain = false;
+        }
+        if (retain) {
+            slabClass.addFreePage(page);
+        } else {
+            slabClass.releaseLeased();
+            page.release();
+        }
+    }
+
+    private SlabClass slabClassFor(int capacity) {
+        for (SlabClass slabClass : slabClasses) {
+            if (capacity <= slabClass.pageSize) {
+                return slabClass;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void doStart() {
+    }
+
+    @Override
+    protected void doStop() {
+    }
+
+    @Override
+    protected void doClose() {
+        for (SlabClass slabClass : slabClasses) {
+            retainedBytes.addAndGet(-slabClass.releaseFreePages());
+        }
+    }
+
+    public static final class SlabClass {
+
+        private final int pageSize;
+        private final ArrayDeque<ByteBuf> freePages = new ArrayDeque<>();
+        private int leasedPages = 0;
+        private long allocations = 0;
+        private long reuses = 0;
+
+        SlabClass(int pageSize) {
+            this.pageSize = pageSize;
+        }
+
+        /**
+         * @return a free page or null if a new page must be allocated.
+         */
+        synchronized ByteBuf lease() {
+            leasedPages++;
+            ByteBuf page = freePages.poll();
+            if (page == null) {
+                allocations++;
+            } else {
+                reuses++;
+            }
+            return page;
+        }
+
+        synchronized void addFreePage(ByteBuf page) {
+            leasedPages--;
+            freePages.add(page);
+        }
+
+        synchronized void releaseLeased() {
+            leasedPages--;
+        }
+
+        synchronized long releaseFreePages() {
+            long releasedBytes = 0;
+            ByteBuf page;
+            while ((page = freePages.poll()) != null) {
+                page.release();
+                releasedBytes += pageSize;
+            }
+            return releasedBytes;
+        }
+
+        public int pageSize() {
+            return pageSize;
+        }
+
+        public synchronized int leasedPages() {
+            return leasedPages;
+        }
+
+        public synchronized int freePages() {
+            return freePages.size();
+        }
+
+        public synchronized long allocations() {
+            return allocations;
+        }
+
+        public synchronized long reuses() {
+            return reuses;
+        }
+    }
+}
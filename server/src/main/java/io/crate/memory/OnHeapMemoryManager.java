@@ -30,7 +30,8 @@ import java.util.function.IntConsumer;
 /**
  * A MemoryManager that allocates buffers on the heap.
  * It doesn't account the used memory directly, but indirectly via an injected `IntConsumer`.
- * This IntConsumer is also responsible to de-account the used-bytes eventually.
+ * This IntConsumer is also responsible to de-account the used-bytes eventually,
+ * unless they're de-accounted early via {@link #release(ByteBuf)}.
  */
 public class OnHeapMemoryManager implements MemoryManager {
 
@@ -50,6 +51,11 @@ public class OnHeapMemoryManager implements MemoryManager {
         return Unpooled.buffer(capacity);
     }
 
+    @Override
+    public void release(ByteBuf buffer) {
+        accountBytes.accept(-buffer.capacity());
+    }
+
     @Override
     public void close() {
     }
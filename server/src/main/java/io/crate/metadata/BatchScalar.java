@@ -0,0 +1,42 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.metadata;
+
+import io.crate.data.Input;
+
+import java.util.List;
+
+/**
+ * A {@link Scalar} which can evaluate the arguments of many rows with a single invocation.
+ *
+ * Implemented by functions with a high overhead per invocation, like user-defined functions which need to cross into
+ * another language runtime. Projectors evaluate them once per batch of rows, see {@code BatchFunctionEvaluator}.
+ */
+public interface BatchScalar<ReturnType, InputType> {
+
+    /**
+     * @param rows the arguments of each row
+     * @return the results, in the order of the rows
+     */
+    List<ReturnType> evaluateBatch(TransactionContext txnCtx, NodeContext nodeCtx, List<Input<InputType>[]> rows);
+}
@@ -333,6 +333,8 @@ public class DocSchemaInfo implements SchemaInfo {
 
     @Override
     public void close() throws Exception {
+        // Lets the languages release the resources of the functions of the dropped schema
+        udfService.updateImplementations(schemaName, Stream.empty());
         nodeCtx.functions().deregisterUdfResolversForSchema(schemaName);
     }
 }
@@ -26,6 +26,7 @@ import io.crate.cluster.gracefulstop.DecommissioningService;
 import io.crate.execution.engine.collect.stats.JobsLogService;
 import io.crate.execution.engine.indexing.ShardingUpsertExecutor;
 import io.crate.memory.MemoryManagerFactory;
+import io.crate.memory.OffHeapMemoryPool;
 import io.crate.settings.CrateSetting;
 import io.crate.statistics.TableStatsService;
 import io.crate.types.DataTypes;
@@ -89,7 +90,8 @@ public final class CrateSettings implements ClusterStateListener {
         UDCService.UDC_INITIAL_DELAY_SETTING,
         UDCService.UDC_INTERVAL_SETTING,
 
-        MemoryManagerFactory.MEMORY_ALLOCATION_TYPE
+        MemoryManagerFactory.MEMORY_ALLOCATION_TYPE,
+        OffHeapMemoryPool.MAX_RETAINED_SETTING
     );
 
     private static final List<CrateSetting<?>> EXPOSED_ES_SETTINGS = List.of(
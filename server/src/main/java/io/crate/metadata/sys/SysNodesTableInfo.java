@@ -85,6 +85,8 @@ public class SysNodesTableInfo {
 
         public static final ColumnIdent CONNECTIONS = new ColumnIdent("connections");
 
+        public static final ColumnIdent PLAN_CACHE = new ColumnIdent("plan_cache");
+
         public static final ColumnIdent OS = new ColumnIdent(SYS_COL_OS);
 
         public static final ColumnIdent OS_INFO = new ColumnIdent(SYS_COL_OS_INFO);
@@ -177,6 +179,12 @@ public class SysNodesTableInfo {
                     .add("open", LONG, NodeStatsContext::openTransportConnections)
                 .endObject()
             .endObject()
+            // Nodes before 4.4.0 don't send plan cache stats
+            .startObject("plan_cache", x -> x.planCacheStats() == null)
+                .add("entries", LONG, x -> x.planCacheStats() == null ? null : x.planCacheStats().entries())
+                .add("hits", LONG, x -> x.planCacheStats() == null ? null : x.planCacheStats().hits())
+                .add("misses", LONG, x -> x.planCacheStats() == null ? null : x.planCacheStats().misses())
+            .endObject()
             .startObject("os")
                 .add("uptime", LONG, x -> x.extendedOsStats().uptime().millis())
                 .add("timestamp", TIMESTAMPZ, NodeStatsContext::timestamp)
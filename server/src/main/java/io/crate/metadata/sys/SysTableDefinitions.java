@@ -32,6 +32,7 @@ import io.crate.expression.reference.sys.check.node.SysNodeChecks;
 import io.crate.expression.reference.sys.shard.ShardSegments;
 import io.crate.expression.reference.sys.shard.SysAllocations;
 import io.crate.expression.reference.sys.snapshot.SysSnapshots;
+import io.crate.memory.OffHeapMemoryPool;
 import io.crate.metadata.RelationName;
 import io.crate.metadata.SystemTable;
 import org.elasticsearch.cluster.node.DiscoveryNode;
@@ -61,7 +62,8 @@ public class SysTableDefinitions {
                                SysSnapshots sysSnapshots,
                                SysAllocations sysAllocations,
                                ShardSegments shardSegmentInfos,
-                               TableHealthService tableHealthService) {
+                               TableHealthService tableHealthService,
+                               OffHeapMemoryPool offHeapMemoryPool) {
         Supplier<DiscoveryNode> localNode = clusterService::localNode;
         var sysClusterTableInfo = (SystemTable<Void>) sysSchemaInfo.getTableInfo(SysClusterTableInfo.IDENT.name());
         assert sysClusterTableInfo != null : "sys.cluster table must exist in sys schema";
@@ -137,6 +139,10 @@ public class SysTableDefinitions {
             () -> completedFuture(shardSegmentInfos),
             SysSegmentsTableInfo.create(clusterService::localNode).expressions(),
             true));
+        tableDefinitions.put(SysMemoryPoolTableInfo.IDENT, new StaticTableDefinition<>(
+            () -> completedFuture(offHeapMemoryPool.slabClasses()),
+            SysMemoryPoolTableInfo.create(localNode).expressions(),
+            false));
     }
 
     public StaticTableDefinition<?> get(RelationName relationName) {
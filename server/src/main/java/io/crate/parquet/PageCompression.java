@@ -0,0 +1,125 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.parquet;
+
+import io.crate.exceptions.UnsupportedFeatureException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.compression.Snappy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static io.crate.parquet.ParquetMetadata.GZIP;
+import static io.crate.parquet.ParquetMetadata.SNAPPY;
+import static io.crate.parquet.ParquetMetadata.UNCOMPRESSED;
+
+/**
+ * The compression codecs for pages which are supported without native libraries
+ */
+final class PageCompression {
+
+    private static final String[] CODEC_NAMES = {
+        "UNCOMPRESSED", "SNAPPY", "GZIP", "LZO", "BROTLI", "LZ4", "ZSTD", "LZ4_RAW"
+    };
+
+    private PageCompression() {
+    }
+
+    static void ensureSupported(int codec) {
+        if (codec != UNCOMPRESSED && codec != SNAPPY && codec != GZIP) {
+            String name = codec >= 0 && codec < CODEC_NAMES.length ? CODEC_NAMES[codec] : Integer.toString(codec);
+            throw new UnsupportedFeatureException("Unsupported parquet compression codec: " + name);
+        }
+    }
+
+    static byte[] compress(int codec, byte[] data, int length) throws IOException {
+        switch (codec) {
+            case UNCOMPRESSED:
+                return data;
+            case SNAPPY: {
+                ByteBuf in = Unpooled.wrappedBuffer(data, 0, length);
+                ByteBuf out = Unpooled.buffer(length / 2 + 16);
+                try {
+                    new Snappy().encode(in, out, length);
+                    byte[] compressed = new byte[out.readableBytes()];
+                    out.readBytes(compressed);
+                    return compressed;
+                } finally {
+                    out.release();
+                }
+            }
+            case GZIP: {
+                ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 16);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(data, 0, length);
+                }
+                return out.toByteArray();
+            }
+            default:
+                throw new IOException("Unsupported parquet compression codec: " + codec);
+        }
+    }
+
+    static byte[] decompress(int codec, byte[] data, int offset, int length, int uncompressedSize) throws IOException {
+        switch (codec) {
+            case UNCOMPRESSED:
+                if (offset == 0 && length == data.length) {
+                    return data;
+                }
+                byte[] copy = new byte[length];
+                System.arraycopy(data, offset, copy, 0, length);
+                return copy;
+            case SNAPPY: {
+                ByteBuf in = Unpooled.wrappedBuffer(data, offset, length);
+                ByteBuf out = Unpooled.buffer(uncompressedSize);
+                try {
+                    new Snappy().decode(in, out);
+                    if (out.readableBytes() != uncompressedSize) {
+                        throw new IOException("Invalid size of snappy compressed parquet page");
+                    }
+                    byte[] uncompressed = new byte[uncompressedSize];
+                    out.readBytes(uncompressed);
+                    return uncompressed;
+                } finally {
+                    out.release();
+                }
+            }
+            case GZIP: {
+                try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data, offset, length))) {
+                    byte[] uncompressed = gzip.readNBytes(uncompressedSize);
+                    if (uncompressed.length != uncompressedSize) {
+                        throw new IOException("Invalid size of gzip compressed parquet page");
+                    }
+                    return uncompressed;
+                }
+            }
+            default:
+                ensureSupported(codec);
+                throw new AssertionError("Codec " + codec + " must be supported");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.parquet;
+
+import java.util.Objects;
+
+/**
+ * A top-level column of a flat parquet file.
+ */
+public final class ParquetColumn {
+
+    /**
+     * The types of the values of a column:
+     *
+     * <ul>
+     *     <li>BOOLEAN: {@link Boolean}</li>
+     *     <li>BYTE, SHORT, INTEGER: {@link Integer} when read, any {@link Number} when written</li>
+     *     <li>LONG: {@link Long} when read, any {@link Number} when written</li>
+     *     <li>FLOAT: {@link Float} when read, any {@link Number} when written</li>
+     *     <li>DOUBLE: {@link Double} when read, any {@link Number} when written</li>
+     *     <li>TIMESTAMP, TIMESTAMP_WITH_TIME_ZONE: milliseconds since epoch as {@link Long}</li>
+     *     <li>STRING: {@link String}</li>
+     *     <li>JSON: a {@link String} which contains an encoded JSON value</li>
+     * </ul>
+     */
+    public enum Type {
+        BOOLEAN,
+        BYTE,
+        SHORT,
+        INTEGER,
+        LONG,
+        FLOAT,
+        DOUBLE,
+        TIMESTAMP,
+        TIMESTAMP_WITH_TIME_ZONE,
+        STRING,
+        JSON
+    }
+
+    private final String name;
+    private final Type type;
+
+    public ParquetColumn(String name, Type type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public Type type() {
+        return type;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ParquetColumn that = (ParquetColumn) o;
+        return name.equals(that.name) && type == that.type;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, type);
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + type;
+    }
+}
@@ -0,0 +1,592 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.parquet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.crate.parquet.ThriftCompactReader.BINARY;
+import static io.crate.parquet.ThriftCompactReader.I32;
+import static io.crate.parquet.ThriftCompactReader.STRUCT;
+
+/**
+ * The parts of the parquet metadata (see parquet.thrift of the parquet-format project) which are needed to read and
+ * write flat parquet files, together with their thrift compact protocol encoding.
+ */
+final class ParquetMetadata {
+
+    static final byte[] MAGIC = {'P', 'A', 'R', '1'};
+
+    // Type
+    static final int BOOLEAN = 0;
+    static final int INT32 = 1;
+    static final int INT64 = 2;
+    static final int INT96 = 3;
+    static final int FLOAT = 4;
+    static final int DOUBLE = 5;
+    static final int BYTE_ARRAY = 6;
+    static final int FIXED_LEN_BYTE_ARRAY = 7;
+
+    // FieldRepetitionType
+    static final int REQUIRED = 0;
+    static final int OPTIONAL = 1;
+    static final int REPEATED = 2;
+
+    // ConvertedType
+    static final int CONVERTED_UTF8 = 0;
+    static final int CONVERTED_ENUM = 4;
+    static final int CONVERTED_DECIMAL = 5;
+    static final int CONVERTED_DATE = 6;
+    static final int CONVERTED_TIMESTAMP_MILLIS = 9;
+    static final int CONVERTED_TIMESTAMP_MICROS = 10;
+    static final int CONVERTED_UINT_32 = 13;
+    static final int CONVERTED_INT_8 = 15;
+    static final int CONVERTED_INT_16 = 16;
+    static final int CONVERTED_JSON = 19;
+
+    // LogicalType, the ids of the union members
+    static final int LOGICAL_STRING = 1;
+    static final int LOGICAL_ENUM = 4;
+    static final int LOGICAL_DECIMAL = 5;
+    static final int LOGICAL_DATE = 6;
+    static final int LOGICAL_TIMESTAMP = 8;
+    static final int LOGICAL_JSON = 12;
+    static final int LOGICAL_UUID = 14;
+
+    // TimeUnit, the ids of the union members
+    static final int UNIT_MILLIS = 1;
+    static final int UNIT_MICROS = 2;
+    static final int UNIT_NANOS = 3;
+
+    // CompressionCodec
+    static final int UNCOMPRESSED = 0;
+    static final int SNAPPY = 1;
+    static final int GZIP = 2;
+    static final int LZ4 = 5;
+    static final int ZSTD = 6;
+
+    // Encoding
+    static final int PLAIN = 0;
+    static final int PLAIN_DICTIONARY = 2;
+    static final int RLE = 3;
+    static final int DELTA_BINARY_PACKED = 5;
+    static final int DELTA_LENGTH_BYTE_ARRAY = 6;
+    static final int DELTA_BYTE_ARRAY = 7;
+    static final int RLE_DICTIONARY = 8;
+
+    private static final String[] ENCODING_NAMES = {
+        "PLAIN", "GROUP_VAR_INT", "PLAIN_DICTIONARY", "RLE", "BIT_PACKED", "DELTA_BINARY_PACKED",
+        "DELTA_LENGTH_BYTE_ARRAY", "DELTA_BYTE_ARRAY", "RLE_DICTIONARY", "BYTE_STREAM_SPLIT"
+    };
+
+    // PageType
+    static final int DATA_PAGE = 0;
+    static final int DICTIONARY_PAGE = 2;
+    static final int DATA_PAGE_V2 = 3;
+
+    private ParquetMetadata() {
+    }
+
+    static String encodingName(int encoding) {
+        return encoding >= 0 && encoding < ENCODING_NAMES.length
+            ? ENCODING_NAMES[encoding]
+            : Integer.toString(encoding);
+    }
+
+    static final class SchemaElement {
+        int type = -1;
+        int typeLength;
+        int repetition = -1;
+        String name;
+        int numChildren;
+        int convertedType = -1;
+        int logicalType = -1;
+        int timeUnit = -1;
+        boolean isAdjustedToUTC;
+
+        boolean isGroup() {
+            return numChildren > 0 || type == -1;
+        }
+
+        static SchemaElement read(ThriftCompactReader reader) throws IOException {
+            SchemaElement element = new SchemaElement();
+            reader.readStructBegin();
+            short id;
+            while ((id = reader.readFieldBegin()) != 0) {
+                switch (id) {
+                    case 1:
+                        element.type = reader.readI32();
+                        break;
+                    case 2:
+                        element.typeLength = reader.readI32();
+                        break;
+                    case 3:
+                        element.repetition = reader.readI32();
+                        break;
+                    case 4:
+                        element.name = reader.readString();
+                        break;
+                    case 5:
+                        element.numChildren = reader.readI32();
+                        break;
+                    case 6:
+                        element.convertedType = reader.readI32();
+                        break;
+                    case 10:
+                        readLogicalType(reader, element);
+                        break;
+                    default:
+                        reader.skip(reader.fieldType());
+                }
+            }
+            reader.readStructEnd();
+            return element;
+        }
+
+        private static void readLogicalType(ThriftCompactReader reader, SchemaElement element) throws IOException {
+            reader.readStructBegin();
+            short id;
+            while ((id = reader.readFieldBegin()) != 0) {
+                element.logicalType = id;
+                if (id == LOGICAL_TIMESTAMP) {
+                    reader.readStructBegin();
+                    short timestampField;
+                    while ((timestampField = reader.readFieldBegin()) != 0) {
+                        if (timestampField == 1) {
+                            element.isAdjustedToUTC = reader.readBool();
+                        } else if (timestampField == 2) {
+                            reader.readStructBegin();
+                            short unit;
+                            while ((unit = reader.readFieldBegin()) != 0) {
+                                element.timeUnit = unit;
+                                reader.skip(reader.fieldType());
+                            }
+                            reader.readStructEnd();
+                        } else {
+                            reader.skip(reader.fieldType());
+                        }
+                    }
+                    reader.readStructEnd();
+                } else {
+                    reader.skip(reader.fieldType());
+                }
+            }
+            reader.readStructEnd();
+        }
+
+        void write(ThriftCompactWriter writer) {
+            writer.writeStructBegin();
+            if (type >= 0) {
+                writer.writeI32Field(1, type);
+            }
+            if (repetition >= 0) {
+                writer.writeI32Field(3, repetition);
+            }
+            writer.writeStringField(4, name);
+            if (numChildren > 0) {
+                writer.writeI32Field(5, numChildren);
+            }
+            if (convertedType >= 0) {
+                writer.writeI32Field(6, convertedType);
+            }
+            if (logicalType >= 0) {
+                writer.writeStructFieldBegin(10);
+                writer.writeStructFieldBegin(logicalType);
+                if (logicalType == LOGICAL_TIMESTAMP) {
+                    writer.writeBoolField(1, isAdjustedToUTC);
+                    writer.writeStructFieldBegin(2);
+                    writer.writeStructFieldBegin(timeUnit);
+                    writer.writeStructEnd();
+                    writer.writeStructEnd();
+                }
+                writer.writeStructEnd();
+                writer.writeStructEnd();
+            }
+            writer.writeStructEnd();
+        }
+    }
+
+    static final class ColumnChunk {
+        int type;
+        List<Integer> encodings = new ArrayList<>();
+        List<String> path = new ArrayList<>();
+        int codec;
+        long numValues;
+        long totalUncompressedSize;
+        long totalCompressedSize;
+        long dataPageOffset;
+        long dictionaryPageOffset = -1;
+
+        /**
+         * The offset of the first page of the column chunk
+         */
+        long startOffset() {
+            if (dictionaryPageOffset > 0 && dictionaryPageOffset < dataPageOffset) {
+                return dictionaryPageOffset;
+            }
+            return dataPageOffset;
+        }
+
+        static ColumnChunk read(ThriftCompactReader reader) throws IOException {
+            ColumnChunk chunk = null;
+            reader.readStructBegin();
+            short id;
+            while ((id = reader.readFieldBegin()) != 0) {
+                if (id == 1) {
+                    throw new IOException("Column chunks stored in other files are not supported");
+                } else if (id == 3) {
+                    chunk = readColumnMetadata(reader);
+                } else {
+                    reader.skip(reader.fieldType());
+                }
+            }
+            reader.readStructEnd();
+            if (chunk == null) {
+                throw new IOException("Column chunk without metadata");
+            }
+            return chunk;
+        }
+
+        private static ColumnChunk readColumnMetadata(ThriftCompactReader reader) throws IOException {
+            ColumnChunk chunk = new ColumnChunk();
+            reader.readStructBegin();
+            short id;
+            while ((id = reader.readFieldBegin()) != 0) {
+                switch (id) {
+                    case 1:
+                        chunk.type = reader.readI32();
+                        break;
+                    case 2: {
+                        int size = reader.readListBegin();
+                        for (int i = 0; i < size; i++) {
+                            chunk.encodings.add(reader.readI32());
+                        }
+                        break;
+                    }
+                    case 3: {
+                        int size = reader.readListBegin();
+                        for (int i = 0; i < size; i++) {
+                            chunk.path.add(reader.readString());
+                        }
+                        break;
+                    }
+                    case 4:
+                        chunk.codec = reader.readI32();
+                        break;
+                    case 5:
+                        chunk.numValues = reader.readI64();
+                        break;
+                    case 6:
+                        chunk.totalUncompressedSize = reader.readI64();
+                        break;
+                    case 7:
+                        chunk.totalCompressedSize = reader.readI64();
+                        break;
+                    case 9:
+                        chunk.dataPageOffset = reader.readI64();
+                        break;
+                    case 11:
+                        chunk.dictionaryPageOffset = reader.readI64();
+                        break;
+                    default:
+                        reader.skip(reader.fieldType());
+                }
+            }
+            reader.readStructEnd();
+            return chunk;
+        }
+
+        void write(ThriftCompactWriter writer) {
+            writer.writeStructBegin();
+            writer.writeI64Field(2, dataPageOffset);
+            writer.writeStructFieldBegin(3);
+            writer.writeI32Field(1, type);
+            writer.writeListFieldBegin(2, I32, encodings.size());
+            for (int encoding : encodings) {
+                writer.writeI32(encoding);
+            }
+            writer.writeListFieldBegin(3, BINARY, path.size());
+            for (String name : path) {
+                writer.writeString(name);
+            }
+            writer.writeI32Field(4, codec);
+            writer.writeI64Field(5, numValues);
+            writer.writeI64Field(6, totalUncompressedSize);
+            writer.writeI64Field(7, totalCompressedSize);
+            writer.writeI64Field(9, dataPageOffset);
+            writer.writeStructEnd();
+            writer.writeStructEnd();
+        }
+    }
+
+    static final class RowGroup {
+        List<ColumnChunk> columns = new ArrayList<>();
+        long totalByteSize;
+        long numRows;
+
+        /**
+         * The offset of the first page of the row group
+         */
+        long startOffset() {
+            long offset = Long.MAX_VALUE;
+            for (ColumnChunk column : columns) {
+                offset = Math.min(offset, column.startOffset());
+            }
+            return offset;
+        }
+
+        static RowGroup read(ThriftCompactReader reader) throws IOException {
+            RowGroup rowGroup = new RowGroup();
+            reader.readStructBegin();
+            short id;
+            while ((id = reader.readFieldBegin()) != 0) {
+                switch (id) {
+                    case 1: {
+                        int size = reader.readListBegin();
+                        for (int i = 0; i < size; i++) {
+                            rowGroup.columns.add(ColumnChunk.read(reader));
+                        }
+                        break;
+                    }
+                    case 2:
+                        rowGroup.totalByteSize = reader.readI64();
+                        break;
+                    case 3:
+                        rowGroup.numRows = reader.readI64();
+                        break;
+                    default:
+                        reader.skip(reader.fieldType());
+                }
+            }
+            reader.readStructEnd();
+            return rowGroup;
+        }
+
+        void write(ThriftCompactWriter writer) {
+            writer.writeStructBegin();
+            writer.writeListFieldBegin(1, STRUCT, columns.size());
+            long totalCompressedSize = 0;
+            for (ColumnChunk column : columns) {
+                column.write(writer);
+                totalCompressedSize += column.totalCompressedSize;
+            }
+            writer.writeI64Field(2, totalByteSize);
+            writer.writeI64Field(3, numRows);
+            if (!columns.isEmpty()) {
+                writer.writeI64Field(5, startOffset());
+            }
+            writer.writeI64Field(6, totalCompressedSize);
+            writer.writeStructEnd();
+        }
+    }
+
+    static final class FileMetadata {
+        List<SchemaElement> schema = new ArrayList<>();
+        long numRows;
+        List<RowGroup> rowGroups = new ArrayList<>();
+        String createdBy;
+
+        static FileMetadata read(ThriftCompactReader reader) throws IOException {
+            FileMetadata metadata = new FileMetadata();
+            reader.readStructBegin();
+            short id;
+            while ((id = reader.readFieldBegin()) != 0) {
+                switch (id) {
+                    case 2: {
+                        int size = reader.readListBegin();
+                        for (int i = 0; i < size; i++) {
+                            metadata.schema.add(SchemaElement.read(reader));
+                        }
+                        break;
+                    }
+                    case 3:
+                        metadata.numRows = reader.readI64();
+                        break;
+                    case 4: {
+                        int size = reader.readListBegin();
+                        for (int i = 0; i < size; i++) {
+                            metadata.rowGroups.add(RowGroup.read(reader));
+                        }
+                        break;
+                    }
+                    case 6:
+                        metadata.createdBy = reader.readString();
+                        break;
+                    default:
+                        reader.skip(reader.fieldType());
+                }
+            }
+            reader.readStructEnd();
+            return metadata;
+        }
+
+        void write(ByteArrayOutputStream out) {
+            ThriftCompactWriter writer = new ThriftCompactWriter(out);
+            writer.writeStructBegin();
+            writer.writeI32Field(1, 1);
+            writer.writeListFieldBegin(2, STRUCT, schema.size());
+            for (SchemaElement element : schema) {
+                element.write(writer);
+            }
+            writer.writeI64Field(3, numRows);
+            writer.writeListFieldBegin(4, STRUCT, rowGroups.size());
+            for (RowGroup rowGroup : rowGroups) {
+                rowGroup.write(writer);
+            }
+            if (createdBy != null) {
+                writer.writeStringField(6, createdBy);
+            }
+            writer.writeStructEnd();
+        }
+    }
+
+    static final class PageHeader {
+        int type;
+        int uncompressedSize;
+        int compressedSize;
+        int numValues;
+        int encoding;
+        int definitionLevelEncoding = RLE;
+        int definitionLevelsByteLength;
+        int repetitionLevelsByteLength;
+        boolean isCompressed = true;
+
+        static PageHeader read(ThriftCompactReader reader) throws IOException {
+            PageHeader header = new PageHeader();
+            reader.readStructBegin();
+            short id;
+            while ((id = reader.readFieldBegin()) != 0) {
+                switch (id) {
+                    case 1:
+                        header.type = reader.readI32();
+                        break;
+                    case 2:
+                        header.uncompressedSize = reader.readI32();
+                        break;
+                    case 3:
+                        header.compressedSize = reader.readI32();
+                        break;
+                    case 5:
+                        readDataPageHeader(reader, header);
+                        break;
+                    case 7:
+                        readDictionaryPageHeader(reader, header);
+                        break;
+                    case 8:
+                        readDataPageHeaderV2(reader, header);
+                        break;
+                    default:
+                        reader.skip(reader.fieldType());
+                }
+            }
+            reader.readStructEnd();
+            return header;
+        }
+
+        private static void readDataPageHeader(ThriftCompactReader reader, PageHeader header) throws IOException {
+            reader.readStructBegin();
+            short id;
+            while ((id = reader.readFieldBegin()) != 0) {
+                switch (id) {
+                    case 1:
+                        header.numValues = reader.readI32();
+                        break;
+                    case 2:
+                        header.encoding = reader.readI32();
+                        break;
+                    case 3:
+                        header.definitionLevelEncoding = reader.readI32();
+                        break;
+                    default:
+                        reader.skip(reader.fieldType());
+                }
+            }
+            reader.readStructEnd();
+        }
+
+        private static void readDictionaryPageHeader(ThriftCompactReader reader, PageHeader header) throws IOException {
+            reader.readStructBegin();
+            short id;
+            while ((id = reader.readFieldBegin()) != 0) {
+                switch (id) {
+                    case 1:
+                        header.numValues = reader.readI32();
+                        break;
+                    case 2:
+                        header.encoding = reader.readI32();
+                        break;
+                    default:
+                        reader.skip(reader.fieldType());
+                }
+            }
+            reader.readStructEnd();
+        }
+
+        private static void readDataPageHeaderV2(ThriftCompactReader reader, PageHeader header) throws IOException {
+            reader.readStructBegin();
+            short id;
+            while ((id = reader.readFieldBegin()) != 0) {
+                switch (id) {
+                    case 1:
+                        header.numValues = reader.readI32();
+                        break;
+                    case 4:
+                        header.encoding = reader.readI32();
+                        break;
+                    case 5:
+                        header.definitionLevelsByteLength = reader.readI32();
+                        break;
+                    case 6:
+                        header.repetitionLevelsByteLength = reader.readI32();
+                        break;
+                    case 7:
+                        header.isCompressed = reader.readBool();
+                        break;
+                    default:
+                        reader.skip(reader.fieldType());
+                }
+            }
+            reader.readStructEnd();
+        }
+
+        /**
+         * Writes the header of a data page (version 1) with PLAIN encoded values and RLE encoded levels
+         */
+        static void writeDataPage(ByteArrayOutputStream out, int uncompressedSize, int compressedSize, int numValues) {
+            ThriftCompactWriter writer = new ThriftCompactWriter(out);
+            writer.writeStructBegin();
+            writer.writeI32Field(1, DATA_PAGE);
+            writer.writeI32Field(2, uncompressedSize);
+            writer.writeI32Field(3, compressedSize);
+            writer.writeStructFieldBegin(5);
+            writer.writeI32Field(1, numValues);
+            writer.writeI32Field(2, PLAIN);
+            writer.writeI32Field(3, RLE);
+            writer.writeI32Field(4, RLE);
+            writer.writeStructEnd();
+            writer.writeStructEnd();
+        }
+    }
+}
@@ -0,0 +1,731 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.parquet;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.exceptions.UnsupportedFeatureException;
+import io.crate.parquet.ParquetMetadata.ColumnChunk;
+import io.crate.parquet.ParquetMetadata.FileMetadata;
+import io.crate.parquet.ParquetMetadata.PageHeader;
+import io.crate.parquet.ParquetMetadata.RowGroup;
+import io.crate.parquet.ParquetMetadata.SchemaElement;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+import static io.crate.parquet.ParquetMetadata.BOOLEAN;
+import static io.crate.parquet.ParquetMetadata.BYTE_ARRAY;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_DATE;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_DECIMAL;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_ENUM;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_INT_16;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_INT_8;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_JSON;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_TIMESTAMP_MICROS;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_TIMESTAMP_MILLIS;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_UINT_32;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_UTF8;
+import static io.crate.parquet.ParquetMetadata.DATA_PAGE;
+import static io.crate.parquet.ParquetMetadata.DATA_PAGE_V2;
+import static io.crate.parquet.ParquetMetadata.DICTIONARY_PAGE;
+import static io.crate.parquet.ParquetMetadata.DOUBLE;
+import static io.crate.parquet.ParquetMetadata.FIXED_LEN_BYTE_ARRAY;
+import static io.crate.parquet.ParquetMetadata.FLOAT;
+import static io.crate.parquet.ParquetMetadata.INT32;
+import static io.crate.parquet.ParquetMetadata.INT64;
+import static io.crate.parquet.ParquetMetadata.INT96;
+import static io.crate.parquet.ParquetMetadata.LOGICAL_DATE;
+import static io.crate.parquet.ParquetMetadata.LOGICAL_DECIMAL;
+import static io.crate.parquet.ParquetMetadata.LOGICAL_ENUM;
+import static io.crate.parquet.ParquetMetadata.LOGICAL_JSON;
+import static io.crate.parquet.ParquetMetadata.LOGICAL_STRING;
+import static io.crate.parquet.ParquetMetadata.LOGICAL_TIMESTAMP;
+import static io.crate.parquet.ParquetMetadata.LOGICAL_UUID;
+import static io.crate.parquet.ParquetMetadata.MAGIC;
+import static io.crate.parquet.ParquetMetadata.OPTIONAL;
+import static io.crate.parquet.ParquetMetadata.PLAIN;
+import static io.crate.parquet.ParquetMetadata.PLAIN_DICTIONARY;
+import static io.crate.parquet.ParquetMetadata.REPEATED;
+import static io.crate.parquet.ParquetMetadata.RLE;
+import static io.crate.parquet.ParquetMetadata.RLE_DICTIONARY;
+import static io.crate.parquet.ParquetMetadata.UNIT_MICROS;
+import static io.crate.parquet.ParquetMetadata.UNIT_NANOS;
+
+/**
+ * Reads the rows of a parquet file with a flat schema.
+ *
+ * <p>
+ * Only the column chunks of the selected columns are read and decoded. Values are read page by page, so at most one
+ * page per selected column is kept in memory. Supported are PLAIN and dictionary encoded values, data pages of
+ * version 1 and 2 and the UNCOMPRESSED, SNAPPY and GZIP codecs.
+ * Nested or repeated columns, the DELTA_* and BYTE_STREAM_SPLIT encodings, other codecs and INT96 or DECIMAL values
+ * are not supported and result in an {@link UnsupportedFeatureException}.
+ * </p>
+ *
+ * <p>
+ * The footer and the compressed and decompressed pages which are held in memory are accounted before they are read,
+ * so that the sizes announced by a file cannot exceed the available memory. A corrupt file results in an
+ * {@link IOException}.
+ * </p>
+ *
+ * <pre>
+ *     try (ParquetReader reader = ParquetReader.open(source, fileSize, null, ramAccounting)) {
+ *         while (reader.nextRow()) {
+ *             reader.get(0);
+ *         }
+ *     }
+ * </pre>
+ */
+public final class ParquetReader implements Closeable {
+
+    private static final int FOOTER_TAIL_LENGTH = 8;
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    public interface Source {
+
+        /**
+         * Opens a stream which starts at the given offset of the file
+         */
+        InputStream open(long offset) throws IOException;
+    }
+
+    private final Source source;
+    private final RamAccounting ramAccounting;
+    private final List<RowGroup> rowGroups;
+    private final List<Column> selectedColumns;
+    private final List<ParquetColumn> columns;
+    private final ColumnReader[] readers;
+    private final Object[] values;
+
+    private List<RowGroup> rowGroupsToRead;
+    private int nextRowGroup = 0;
+    private long remainingRowsInRowGroup = 0;
+
+    /**
+     * @param columnNames the names of the top-level columns to read, or null to read all columns.
+     *                    Names which are not contained in the file are ignored.
+     * @param ramAccounting accounts the memory of the footer and of the pages while they're read.
+     *                      It is de-accounted once the footer is parsed, the pages are read or the reader is closed.
+     */
+    public static ParquetReader open(Source source,
+                                     long fileSize,
+                                     @Nullable Collection<String> columnNames,
+                                     RamAccounting ramAccounting) throws IOException {
+        if (fileSize < MAGIC.length + FOOTER_TAIL_LENGTH) {
+            throw new IOException("Not a parquet file, the file is too small");
+        }
+        byte[] tail = readFully(source, fileSize - FOOTER_TAIL_LENGTH, FOOTER_TAIL_LENGTH);
+        if (!Arrays.equals(tail, 4, 8, MAGIC, 0, 4)) {
+            throw new IOException("Not a parquet file, the magic number at the end of the file is missing");
+        }
+        int footerLength = ByteBuffer.wrap(tail, 0, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (footerLength <= 0 || footerLength > fileSize - FOOTER_TAIL_LENGTH - MAGIC.length) {
+            throw new IOException("Invalid parquet file, the footer length is " + footerLength);
+        }
+        ramAccounting.addBytes(footerLength);
+        try {
+            byte[] footer = readFully(source, fileSize - FOOTER_TAIL_LENGTH - footerLength, footerLength);
+            FileMetadata metadata = FileMetadata.read(new ThriftCompactReader(new ByteArrayInputStream(footer)));
+            return new ParquetReader(source, metadata, columnNames, ramAccounting);
+        } catch (CircuitBreakingException | UnsupportedFeatureException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw invalidFile(e);
+        } finally {
+            ramAccounting.addBytes(-footerLength);
+        }
+    }
+
+    private ParquetReader(Source source,
+                          FileMetadata metadata,
+                          @Nullable Collection<String> columnNames,
+                          RamAccounting ramAccounting) throws IOException {
+        this.source = source;
+        this.ramAccounting = ramAccounting;
+        this.rowGroups = metadata.rowGroups;
+        this.rowGroupsToRead = rowGroups;
+
+        List<SchemaElement> schema = metadata.schema;
+        if (schema.isEmpty()) {
+            throw new IOException("Invalid parquet file, the schema is empty");
+        }
+        SchemaElement root = schema.get(0);
+        selectedColumns = new ArrayList<>();
+        columns = new ArrayList<>();
+        int[] position = {1};
+        int numLeaves = 0;
+        for (int i = 0; i < root.numChildren; i++) {
+            int fieldPosition = position[0];
+            int fieldLeaves = countLeaves(schema, position);
+            SchemaElement field = schema.get(fieldPosition);
+            if (columnNames == null || columnNames.contains(field.name)) {
+                if (field.isGroup() || field.repetition == REPEATED) {
+                    throw new UnsupportedFeatureException(
+                        "Nested or repeated parquet column `" + field.name + "` is not supported");
+                }
+                Column column = new Column(field, numLeaves);
+                selectedColumns.add(column);
+                columns.add(new ParquetColumn(field.name, column.type));
+            }
+            numLeaves += fieldLeaves;
+        }
+        for (RowGroup rowGroup : rowGroups) {
+            if (rowGroup.columns.size() != numLeaves) {
+                throw new IOException("Invalid parquet file, the number of column chunks doesn't match the schema");
+            }
+            for (Column column : selectedColumns) {
+                PageCompression.ensureSupported(rowGroup.columns.get(column.leafIndex).codec);
+            }
+        }
+        readers = new ColumnReader[selectedColumns.size()];
+        values = new Object[selectedColumns.size()];
+    }
+
+    private static int countLeaves(List<SchemaElement> schema, int[] position) throws IOException {
+        if (position[0] >= schema.size()) {
+            throw new IOException("Invalid parquet file, the schema is incomplete");
+        }
+        SchemaElement element = schema.get(position[0]++);
+        if (!element.isGroup()) {
+            return 1;
+        }
+        int numLeaves = 0;
+        for (int i = 0; i < element.numChildren; i++) {
+            numLeaves += countLeaves(schema, position);
+        }
+        return numLeaves;
+    }
+
+    /**
+     * The selected columns in the order of the file
+     */
+    public List<ParquetColumn> columns() {
+        return columns;
+    }
+
+    public int numRowGroups() {
+        return rowGroups.size();
+    }
+
+    /**
+     * Restricts the reader to the row groups which start within the given byte range of the file.
+     * This allows to read a file in parallel by splitting it into ranges.
+     *
+     * @return the number of rows of the file within the row groups which start before the range
+     */
+    public long selectRowGroups(long startOffset, long endOffset) {
+        assert nextRowGroup == 0 : "Row groups must be selected before reading";
+        List<RowGroup> selected = new ArrayList<>();
+        long rowsBefore = 0;
+        for (RowGroup rowGroup : rowGroups) {
+            long offset = rowGroup.startOffset();
+            if (offset < startOffset) {
+                rowsBefore += rowGroup.numRows;
+            } else if (offset < endOffset) {
+                selected.add(rowGroup);
+            }
+        }
+        rowGroupsToRead = selected;
+        return rowsBefore;
+    }
+
+    public boolean nextRow() throws IOException {
+        try {
+            while (remainingRowsInRowGroup == 0) {
+                closeReaders();
+                if (nextRowGroup >= rowGroupsToRead.size()) {
+                    return false;
+                }
+                RowGroup rowGroup = rowGroupsToRead.get(nextRowGroup++);
+                if (rowGroup.numRows < 0) {
+                    throw new IOException("Invalid number of rows in parquet row group: " + rowGroup.numRows);
+                }
+                for (int i = 0; i < selectedColumns.size(); i++) {
+                    Column column = selectedColumns.get(i);
+                    ColumnChunk chunk = rowGroup.columns.get(column.leafIndex);
+                    readers[i] = new ColumnReader(
+                        column,
+                        chunk,
+                        new BufferedInputStream(source.open(chunk.startOffset())),
+                        ramAccounting
+                    );
+                }
+                remainingRowsInRowGroup = rowGroup.numRows;
+            }
+            for (int i = 0; i < readers.length; i++) {
+                values[i] = readers[i].next();
+            }
+        } catch (CircuitBreakingException | UnsupportedFeatureException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // Values which don't match the sizes and encodings announced by the file
+            throw invalidFile(e);
+        }
+        remainingRowsInRowGroup--;
+        return true;
+    }
+
+    private static IOException invalidFile(RuntimeException e) {
+        return new IOException("Invalid parquet file: " + e, e);
+    }
+
+    /**
+     * The value of a column of the current row, see {@link ParquetColumn.Type} for the value types.
+     */
+    @Nullable
+    public Object get(int columnIndex) {
+        return values[columnIndex];
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeReaders();
+        nextRowGroup = rowGroupsToRead.size();
+        remainingRowsInRowGroup = 0;
+    }
+
+    private void closeReaders() throws IOException {
+        IOException failure = null;
+        for (int i = 0; i < readers.length; i++) {
+            if (readers[i] != null) {
+                try {
+                    readers[i].close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+                readers[i] = null;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static byte[] readFully(Source source, long offset, int length) throws IOException {
+        try (InputStream in = source.open(offset)) {
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length != length) {
+                throw new EOFException("Unexpected end of parquet file");
+            }
+            return bytes;
+        }
+    }
+
+    private enum Conversion {
+        NONE,
+        DATE,
+        UNSIGNED_INT,
+        MICROS_TO_MILLIS,
+        NANOS_TO_MILLIS,
+        UTF8,
+        UUID,
+        BASE64
+    }
+
+    private static final class Column {
+
+        final SchemaElement element;
+        final int leafIndex;
+        final int maxDefinitionLevel;
+        final ParquetColumn.Type type;
+        final Conversion conversion;
+
+        Column(SchemaElement element, int leafIndex) throws IOException {
+            this.element = element;
+            this.leafIndex = leafIndex;
+            this.maxDefinitionLevel = element.repetition == OPTIONAL ? 1 : 0;
+            if (element.convertedType == CONVERTED_DECIMAL || element.logicalType == LOGICAL_DECIMAL) {
+                throw new UnsupportedFeatureException(
+                    "Parquet column `" + element.name + "` has the DECIMAL type which is not supported");
+            }
+            switch (element.type) {
+                case BOOLEAN:
+                    type = ParquetColumn.Type.BOOLEAN;
+                    conversion = Conversion.NONE;
+                    break;
+
+                case INT32:
+                    if (element.convertedType == CONVERTED_DATE || element.logicalType == LOGICAL_DATE) {
+                        type = ParquetColumn.Type.TIMESTAMP;
+                        conversion = Conversion.DATE;
+                    } else if (element.convertedType == CONVERTED_INT_8) {
+                        type = ParquetColumn.Type.BYTE;
+                        conversion = Conversion.NONE;
+                    } else if (element.convertedType == CONVERTED_INT_16) {
+                        type = ParquetColumn.Type.SHORT;
+                        conversion = Conversion.NONE;
+                    } else if (element.convertedType == CONVERTED_UINT_32) {
+                        type = ParquetColumn.Type.LONG;
+                        conversion = Conversion.UNSIGNED_INT;
+                    } else {
+                        type = ParquetColumn.Type.INTEGER;
+                        conversion = Conversion.NONE;
+                    }
+                    break;
+
+                case INT64:
+                    if (element.logicalType == LOGICAL_TIMESTAMP
+                               || element.convertedType == CONVERTED_TIMESTAMP_MILLIS
+                               || element.convertedType == CONVERTED_TIMESTAMP_MICROS) {
+                        // Timestamps with only a converted type are adjusted to UTC
+                        boolean adjustedToUTC = element.logicalType != LOGICAL_TIMESTAMP || element.isAdjustedToUTC;
+                        type = adjustedToUTC
+                            ? ParquetColumn.Type.TIMESTAMP_WITH_TIME_ZONE
+                            : ParquetColumn.Type.TIMESTAMP;
+                        if (element.timeUnit == UNIT_NANOS) {
+                            conversion = Conversion.NANOS_TO_MILLIS;
+                        } else if (element.timeUnit == UNIT_MICROS
+                                   || element.convertedType == CONVERTED_TIMESTAMP_MICROS) {
+                            conversion = Conversion.MICROS_TO_MILLIS;
+                        } else {
+                            conversion = Conversion.NONE;
+                        }
+                    } else {
+                        type = ParquetColumn.Type.LONG;
+                        conversion = Conversion.NONE;
+                    }
+                    break;
+
+                case INT96:
+                    throw new UnsupportedFeatureException(
+                        "Parquet column `" + element.name + "` has the deprecated INT96 type which is not supported");
+
+                case FLOAT:
+                    type = ParquetColumn.Type.FLOAT;
+                    conversion = Conversion.NONE;
+                    break;
+
+                case DOUBLE:
+                    type = ParquetColumn.Type.DOUBLE;
+                    conversion = Conversion.NONE;
+                    break;
+
+                case BYTE_ARRAY:
+                case FIXED_LEN_BYTE_ARRAY:
+                    if (element.convertedType == CONVERTED_JSON || element.logicalType == LOGICAL_JSON) {
+                        type = ParquetColumn.Type.JSON;
+                        conversion = Conversion.UTF8;
+                    } else if (element.convertedType == CONVERTED_UTF8
+                               || element.convertedType == CONVERTED_ENUM
+                               || element.logicalType == LOGICAL_STRING
+                               || element.logicalType == LOGICAL_ENUM) {
+                        type = ParquetColumn.Type.STRING;
+                        conversion = Conversion.UTF8;
+                    } else if (element.logicalType == LOGICAL_UUID && element.typeLength == 16) {
+                        type = ParquetColumn.Type.STRING;
+                        conversion = Conversion.UUID;
+                    } else {
+                        type = ParquetColumn.Type.STRING;
+                        conversion = Conversion.BASE64;
+                    }
+                    break;
+
+                default:
+                    throw new IOException(
+                        "Parquet column `" + element.name + "` has an unsupported type: " + element.type);
+            }
+        }
+
+        Object convert(Object value) {
+            switch (conversion) {
+                case NONE:
+                    return value;
+                case DATE:
+                    return (Integer) value * MILLIS_PER_DAY;
+                case UNSIGNED_INT:
+                    return Integer.toUnsignedLong((Integer) value);
+                case MICROS_TO_MILLIS:
+                    return Math.floorDiv((Long) value, 1000L);
+                case NANOS_TO_MILLIS:
+                    return Math.floorDiv((Long) value, 1_000_000L);
+                case UTF8:
+                    return new String((byte[]) value, StandardCharsets.UTF_8);
+                case UUID: {
+                    ByteBuffer buffer = ByteBuffer.wrap((byte[]) value);
+                    return new UUID(buffer.getLong(), buffer.getLong()).toString();
+                }
+                case BASE64:
+                    return Base64.getEncoder().encodeToString((byte[]) value);
+                default:
+                    throw new AssertionError("Unexpected conversion: " + conversion);
+            }
+        }
+    }
+
+    private interface ValuesDecoder {
+
+        Object next() throws IOException;
+    }
+
+    private static final class ColumnReader {
+
+        private final Column column;
+        private final ColumnChunk chunk;
+        private final InputStream in;
+        private final RamAccounting ramAccounting;
+
+        private long valuesInChunk;
+        private long accountedPageBytes = 0;
+        private long accountedDictionaryBytes = 0;
+        private int remainingValuesInPage = 0;
+        @Nullable
+        private Object[] dictionary;
+        @Nullable
+        private RleBitPackedHybrid.Decoder definitionLevels;
+        private ValuesDecoder valuesDecoder;
+
+        ColumnReader(Column column, ColumnChunk chunk, InputStream in, RamAccounting ramAccounting) {
+            this.column = column;
+            this.chunk = chunk;
+            this.in = in;
+            this.ramAccounting = ramAccounting;
+            this.valuesInChunk = chunk.numValues;
+        }
+
+        @Nullable
+        Object next() throws IOException {
+            while (remainingValuesInPage == 0) {
+                readPage();
+            }
+            remainingValuesInPage--;
+            if (definitionLevels != null && definitionLevels.next() < column.maxDefinitionLevel) {
+                return null;
+            }
+            return valuesDecoder.next();
+        }
+
+        private void readPage() throws IOException {
+            if (valuesInChunk <= 0) {
+                throw new IOException("Unexpected end of the parquet column chunk of `" + column.element.name + "`");
+            }
+            PageHeader header = PageHeader.read(new ThriftCompactReader(in));
+            if (header.compressedSize < 0 || header.uncompressedSize < 0 || header.numValues < 0) {
+                throw new IOException("Invalid parquet page header of column `" + column.element.name + "`");
+            }
+            // The compressed and the decompressed page are kept until the next page is read.
+            // The values of a dictionary page are kept until the end of the column chunk.
+            long pageBytes = (long) header.compressedSize + header.uncompressedSize;
+            ramAccounting.addBytes(pageBytes);
+            if (header.type == DICTIONARY_PAGE) {
+                ramAccounting.addBytes(-accountedDictionaryBytes);
+                accountedDictionaryBytes = pageBytes;
+            } else {
+                ramAccounting.addBytes(-accountedPageBytes);
+                accountedPageBytes = pageBytes;
+            }
+            byte[] page = in.readNBytes(header.compressedSize);
+            if (page.length != header.compressedSize) {
+                throw new EOFException("Unexpected end of parquet file");
+            }
+            switch (header.type) {
+                case DICTIONARY_PAGE: {
+                    byte[] data = PageCompression.decompress(
+                        chunk.codec, page, 0, page.length, header.uncompressedSize);
+                    if (header.numValues > data.length * 8L) {
+                        throw new IOException("Invalid parquet dictionary page of column `" + column.element.name + "`");
+                    }
+                    ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+                    ValuesDecoder plain = new PlainValuesDecoder(buffer, column);
+                    Object[] values = new Object[header.numValues];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = plain.next();
+                    }
+                    dictionary = values;
+                    break;
+                }
+
+                case DATA_PAGE: {
+                    byte[] data = PageCompression.decompress(
+                        chunk.codec, page, 0, page.length, header.uncompressedSize);
+                    ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+                    definitionLevels = null;
+                    if (column.maxDefinitionLevel > 0) {
+                        if (header.definitionLevelEncoding != RLE) {
+                            throw new UnsupportedFeatureException(
+                                "Unsupported parquet encoding of definition levels: "
+                                + ParquetMetadata.encodingName(header.definitionLevelEncoding));
+                        }
+                        int length = buffer.getInt();
+                        definitionLevels = new RleBitPackedHybrid.Decoder(
+                            slice(buffer, length), RleBitPackedHybrid.bitWidth(column.maxDefinitionLevel));
+                    }
+                    startDataPage(header, buffer);
+                    break;
+                }
+
+                case DATA_PAGE_V2: {
+                    int levelsLength = header.repetitionLevelsByteLength + header.definitionLevelsByteLength;
+                    ByteBuffer levels = ByteBuffer.wrap(page, header.repetitionLevelsByteLength,
+                                                        header.definitionLevelsByteLength);
+                    definitionLevels = column.maxDefinitionLevel > 0
+                        ? new RleBitPackedHybrid.Decoder(
+                            levels.slice(), RleBitPackedHybrid.bitWidth(column.maxDefinitionLevel))
+                        : null;
+                    byte[] data = header.isCompressed
+                        ? PageCompression.decompress(chunk.codec, page, levelsLength, page.length - levelsLength,
+                                                     header.uncompressedSize - levelsLength)
+                        : Arrays.copyOfRange(page, levelsLength, page.length);
+                    startDataPage(header, ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN));
+                    break;
+                }
+
+                default:
+                    // Index pages are skipped
+                    break;
+            }
+        }
+
+        private void startDataPage(PageHeader header, ByteBuffer buffer) throws IOException {
+            switch (header.encoding) {
+                case PLAIN:
+                    valuesDecoder = new PlainValuesDecoder(buffer, column);
+                    break;
+
+                case PLAIN_DICTIONARY:
+                case RLE_DICTIONARY: {
+                    Object[] values = dictionary;
+                    if (values == null) {
+                        throw new IOException("Invalid parquet file, dictionary page is missing");
+                    }
+                    int bitWidth = buffer.get() & 0xff;
+                    RleBitPackedHybrid.Decoder indices = new RleBitPackedHybrid.Decoder(buffer.slice(), bitWidth);
+                    valuesDecoder = () -> {
+                        int index = indices.next();
+                        if (index >= values.length) {
+                            throw new IOException("Invalid parquet file, dictionary index out of bounds");
+                        }
+                        return values[index];
+                    };
+                    break;
+                }
+
+                case RLE:
+                    if (column.element.type == BOOLEAN) {
+                        int length = buffer.getInt();
+                        RleBitPackedHybrid.Decoder booleans = new RleBitPackedHybrid.Decoder(slice(buffer, length), 1);
+                        valuesDecoder = () -> booleans.next() == 1;
+                        break;
+                    }
+                    throw new UnsupportedFeatureException("Unsupported parquet encoding RLE for a non boolean column");
+
+                default:
+                    throw new UnsupportedFeatureException(
+                        "Unsupported parquet encoding: " + ParquetMetadata.encodingName(header.encoding));
+            }
+            remainingValuesInPage = header.numValues;
+            valuesInChunk -= header.numValues;
+        }
+
+        private static ByteBuffer slice(ByteBuffer buffer, int length) {
+            ByteBuffer slice = buffer.slice();
+            slice.limit(length);
+            buffer.position(buffer.position() + length);
+            return slice;
+        }
+
+        void close() throws IOException {
+            ramAccounting.addBytes(-(accountedPageBytes + accountedDictionaryBytes));
+            accountedPageBytes = 0;
+            accountedDictionaryBytes = 0;
+            in.close();
+        }
+    }
+
+    private static final class PlainValuesDecoder implements ValuesDecoder {
+
+        private final ByteBuffer buffer;
+        private final Column column;
+        private int booleanBits;
+        private int remainingBooleanBits = 0;
+
+        PlainValuesDecoder(ByteBuffer buffer, Column column) {
+            this.buffer = buffer;
+            this.column = column;
+        }
+
+        @Override
+        public Object next() throws IOException {
+            Object value;
+            switch (column.element.type) {
+                case BOOLEAN:
+                    if (remainingBooleanBits == 0) {
+                        booleanBits = buffer.get() & 0xff;
+                        remainingBooleanBits = 8;
+                    }
+                    value = (booleanBits & 1) == 1;
+                    booleanBits >>>= 1;
+                    remainingBooleanBits--;
+                    break;
+                case INT32:
+                    value = buffer.getInt();
+                    break;
+                case INT64:
+                    value = buffer.getLong();
+                    break;
+                case FLOAT:
+                    value = buffer.getFloat();
+                    break;
+                case DOUBLE:
+                    value = buffer.getDouble();
+                    break;
+                case BYTE_ARRAY: {
+                    byte[] bytes = new byte[checkLength(buffer.getInt())];
+                    buffer.get(bytes);
+                    value = bytes;
+                    break;
+                }
+                case FIXED_LEN_BYTE_ARRAY: {
+                    byte[] bytes = new byte[checkLength(column.element.typeLength)];
+                    buffer.get(bytes);
+                    value = bytes;
+                    break;
+                }
+                default:
+                    throw new AssertionError("Unexpected physical type: " + column.element.type);
+            }
+            return column.convert(value);
+        }
+
+        private int checkLength(int length) throws IOException {
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Invalid length of a value of the parquet column `" + column.element.name + "`");
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.parquet;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.parquet.ParquetMetadata.ColumnChunk;
+import io.crate.parquet.ParquetMetadata.FileMetadata;
+import io.crate.parquet.ParquetMetadata.PageHeader;
+import io.crate.parquet.ParquetMetadata.RowGroup;
+import io.crate.parquet.ParquetMetadata.SchemaElement;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.crate.parquet.ParquetMetadata.BOOLEAN;
+import static io.crate.parquet.ParquetMetadata.BYTE_ARRAY;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_INT_16;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_INT_8;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_JSON;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_TIMESTAMP_MILLIS;
+import static io.crate.parquet.ParquetMetadata.CONVERTED_UTF8;
+import static io.crate.parquet.ParquetMetadata.DOUBLE;
+import static io.crate.parquet.ParquetMetadata.FLOAT;
+import static io.crate.parquet.ParquetMetadata.INT32;
+import static io.crate.parquet.ParquetMetadata.INT64;
+import static io.crate.parquet.ParquetMetadata.LOGICAL_JSON;
+import static io.crate.parquet.ParquetMetadata.LOGICAL_STRING;
+import static io.crate.parquet.ParquetMetadata.LOGICAL_TIMESTAMP;
+import static io.crate.parquet.ParquetMetadata.MAGIC;
+import static io.crate.parquet.ParquetMetadata.OPTIONAL;
+import static io.crate.parquet.ParquetMetadata.PLAIN;
+import static io.crate.parquet.ParquetMetadata.RLE;
+import static io.crate.parquet.ParquetMetadata.UNIT_MILLIS;
+
+/**
+ * Writes rows into a parquet file with a flat schema.
+ *
+ * <p>
+ * All columns are optional and their values are PLAIN encoded. The rows are buffered in memory, column by column,
+ * until the buffered pages reach {@link #ROW_GROUP_SIZE_IN_BYTES}; then they are written as a row group.
+ * The buffers are accounted to a {@link RamAccounting} and released once the writer is closed.
+ * </p>
+ */
+public final class ParquetWriter implements Closeable {
+
+    static final int PAGE_SIZE_IN_BYTES = 1024 * 1024;
+    static final long ROW_GROUP_SIZE_IN_BYTES = 16 * 1024 * 1024;
+
+    public enum Compression {
+        UNCOMPRESSED(ParquetMetadata.UNCOMPRESSED),
+        SNAPPY(ParquetMetadata.SNAPPY),
+        GZIP(ParquetMetadata.GZIP);
+
+        private final int codec;
+
+        Compression(int codec) {
+            this.codec = codec;
+        }
+    }
+
+    private final PositionOutputStream out;
+    private final List<ParquetColumn> columns;
+    private final ColumnWriter[] columnWriters;
+    private final int codec;
+    private final List<RowGroup> rowGroups = new ArrayList<>();
+    private final long rowGroupSizeInBytes;
+    private final RamAccounting ramAccounting;
+
+    private long accountedBytes = 0;
+    private long numRowsInRowGroup = 0;
+    private long numRows = 0;
+    private boolean closed = false;
+
+    public ParquetWriter(OutputStream out,
+                         List<ParquetColumn> columns,
+                         Compression compression,
+                         RamAccounting ramAccounting) throws IOException {
+        this(out, columns, compression, ramAccounting, PAGE_SIZE_IN_BYTES, ROW_GROUP_SIZE_IN_BYTES);
+    }
+
+    ParquetWriter(OutputStream out,
+                  List<ParquetColumn> columns,
+                  Compression compression,
+                  RamAccounting ramAccounting,
+                  int pageSizeInBytes,
+                  long rowGroupSizeInBytes) throws IOException {
+        this.out = new PositionOutputStream(out);
+        this.columns = columns;
+        this.codec = compression.codec;
+        this.ramAccounting = ramAccounting;
+        this.rowGroupSizeInBytes = rowGroupSizeInBytes;
+        this.columnWriters = new ColumnWriter[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            columnWriters[i] = new ColumnWriter(columns.get(i), codec, pageSizeInBytes);
+        }
+        this.out.write(MAGIC);
+    }
+
+    /**
+     * Adds a row, the values must be in the order of the columns. See {@link ParquetColumn.Type} for the supported
+     * value types.
+     */
+    public void write(Object[] values) throws IOException {
+        assert values.length == columnWriters.length : "Number of values must match the number of columns";
+        long bufferedBytes = 0;
+        for (int i = 0; i < columnWriters.length; i++) {
+            ColumnWriter columnWriter = columnWriters[i];
+            columnWriter.add(values[i]);
+            bufferedBytes += columnWriter.bufferedBytes();
+        }
+        // The buffers keep their capacity after a row group is flushed, so only the growth is accounted
+        if (bufferedBytes > accountedBytes) {
+            ramAccounting.addBytes(bufferedBytes - accountedBytes);
+            accountedBytes = bufferedBytes;
+        }
+        numRowsInRowGroup++;
+        if (bufferedBytes >= rowGroupSizeInBytes) {
+            flushRowGroup();
+        }
+    }
+
+    private void flushRowGroup() throws IOException {
+        if (numRowsInRowGroup == 0) {
+            return;
+        }
+        RowGroup rowGroup = new RowGroup();
+        rowGroup.numRows = numRowsInRowGroup;
+        for (ColumnWriter columnWriter : columnWriters) {
+            ColumnChunk chunk = columnWriter.flush(out);
+            rowGroup.totalByteSize += chunk.totalUncompressedSize;
+            rowGroup.columns.add(chunk);
+        }
+        rowGroups.add(rowGroup);
+        numRows += numRowsInRowGroup;
+        numRowsInRowGroup = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flushRowGroup();
+            FileMetadata metadata = new FileMetadata();
+            SchemaElement root = new SchemaElement();
+            root.name = "schema";
+            root.numChildren = columns.size();
+            metadata.schema.add(root);
+            for (ParquetColumn column : columns) {
+                metadata.schema.add(schemaElement(column));
+            }
+            metadata.numRows = numRows;
+            metadata.rowGroups = rowGroups;
+            metadata.createdBy = "CrateDB";
+
+            ByteArrayOutputStream footer = new ByteArrayOutputStream();
+            metadata.write(footer);
+            footer.writeTo(out);
+            int footerLength = footer.size();
+            out.write(footerLength & 0xff);
+            out.write((footerLength >>> 8) & 0xff);
+            out.write((footerLength >>> 16) & 0xff);
+            out.write((footerLength >>> 24) & 0xff);
+            out.write(MAGIC);
+        } finally {
+            ramAccounting.addBytes(-accountedBytes);
+            accountedBytes = 0;
+            out.close();
+        }
+    }
+
+    private static SchemaElement schemaElement(ParquetColumn column) {
+        SchemaElement element = new SchemaElement();
+        element.name = column.name();
+        element.repetition = OPTIONAL;
+        element.type = physicalType(column.type());
+        switch (column.type()) {
+            case BYTE:
+                element.convertedType = CONVERTED_INT_8;
+                break;
+            case SHORT:
+                element.convertedType = CONVERTED_INT_16;
+                break;
+            case TIMESTAMP:
+            case TIMESTAMP_WITH_TIME_ZONE:
+                element.convertedType = CONVERTED_TIMESTAMP_MILLIS;
+                element.logicalType = LOGICAL_TIMESTAMP;
+                element.timeUnit = UNIT_MILLIS;
+                element.isAdjustedToUTC = column.type() == ParquetColumn.Type.TIMESTAMP_WITH_TIME_ZONE;
+                break;
+            case STRING:
+                element.convertedType = CONVERTED_UTF8;
+                element.logicalType = LOGICAL_STRING;
+                break;
+            case JSON:
+                element.convertedType = CONVERTED_JSON;
+                element.logicalType = LOGICAL_JSON;
+                break;
+            default:
+                break;
+        }
+        return element;
+    }
+
+    private static int physicalType(ParquetColumn.Type type) {
+        switch (type) {
+            case BOOLEAN:
+                return BOOLEAN;
+            case BYTE:
+            case SHORT:
+            case INTEGER:
+                return INT32;
+            case LONG:
+            case TIMESTAMP:
+            case TIMESTAMP_WITH_TIME_ZONE:
+                return INT64;
+            case FLOAT:
+                return FLOAT;
+            case DOUBLE:
+                return DOUBLE;
+            case STRING:
+            case JSON:
+                return BYTE_ARRAY;
+            default:
+                throw new IllegalArgumentException("Unsupported parquet column type: " + type);
+        }
+    }
+
+    private static final class ColumnWriter {
+
+        private final ParquetColumn column;
+        private final int physicalType;
+        private final int codec;
+        private final int pageSizeInBytes;
+
+        private final ByteArrayOutputStream values = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream levels = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream page = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream pageHeader = new ByteArrayOutputStream();
+        private final ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        private final byte[] scratch = new byte[8];
+
+        private int[] definitionLevels = new int[1024];
+        private int numPageValues = 0;
+        private int booleanBits = 0;
+        private int numBooleanBits = 0;
+
+        private long chunkNumValues = 0;
+        private long chunkUncompressedSize = 0;
+
+        ColumnWriter(ParquetColumn column, int codec, int pageSizeInBytes) {
+            this.column = column;
+            this.physicalType = physicalType(column.type());
+            this.codec = codec;
+            this.pageSizeInBytes = pageSizeInBytes;
+        }
+
+        long bufferedBytes() {
+            return chunk.size() + values.size();
+        }
+
+        void add(Object value) throws IOException {
+            if (numPageValues == definitionLevels.length) {
+                definitionLevels = Arrays.copyOf(definitionLevels, numPageValues * 2);
+            }
+            if (value == null) {
+                definitionLevels[numPageValues++] = 0;
+                return;
+            }
+            definitionLevels[numPageValues++] = 1;
+            switch (physicalType) {
+                case BOOLEAN:
+                    if ((Boolean) value) {
+                        booleanBits |= 1 << numBooleanBits;
+                    }
+                    numBooleanBits++;
+                    if (numBooleanBits == 8) {
+                        values.write(booleanBits);
+                        booleanBits = 0;
+                        numBooleanBits = 0;
+                    }
+                    break;
+                case INT32:
+                    writeLittleEndian(((Number) value).intValue(), 4);
+                    break;
+                case INT64:
+                    writeLittleEndian(((Number) value).longValue(), 8);
+                    break;
+                case FLOAT:
+                    writeLittleEndian(Float.floatToIntBits(((Number) value).floatValue()), 4);
+                    break;
+                case DOUBLE:
+                    writeLittleEndian(Double.doubleToLongBits(((Number) value).doubleValue()), 8);
+                    break;
+                case BYTE_ARRAY:
+                    byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+                    writeLittleEndian(bytes.length, 4);
+                    values.write(bytes, 0, bytes.length);
+                    break;
+                default:
+                    throw new AssertionError("Unexpected physical type: " + physicalType);
+            }
+            if (values.size() >= pageSizeInBytes) {
+                finishPage();
+            }
+        }
+
+        private void writeLittleEndian(long value, int numBytes) {
+            for (int i = 0; i < numBytes; i++) {
+                scratch[i] = (byte) (value >>> (i * 8));
+            }
+            values.write(scratch, 0, numBytes);
+        }
+
+        private void finishPage() throws IOException {
+            if (numPageValues == 0) {
+                return;
+            }
+            if (numBooleanBits > 0) {
+                values.write(booleanBits);
+                booleanBits = 0;
+                numBooleanBits = 0;
+            }
+            levels.reset();
+            RleBitPackedHybrid.encode(definitionLevels, numPageValues, 1, levels);
+            page.reset();
+            int levelsLength = levels.size();
+            page.write(levelsLength);
+            page.write(levelsLength >>> 8);
+            page.write(levelsLength >>> 16);
+            page.write(levelsLength >>> 24);
+            levels.writeTo(page);
+            values.writeTo(page);
+
+            int uncompressedSize = page.size();
+            byte[] compressed = PageCompression.compress(codec, page.toByteArray(), uncompressedSize);
+            int compressedSize = codec == ParquetMetadata.UNCOMPRESSED ? uncompressedSize : compressed.length;
+            pageHeader.reset();
+            PageHeader.writeDataPage(pageHeader, uncompressedSize, compressedSize, numPageValues);
+            pageHeader.writeTo(chunk);
+            chunk.write(compressed, 0, compressedSize);
+
+            chunkUncompressedSize += pageHeader.size() + uncompressedSize;
+            chunkNumValues += numPageValues;
+            numPageValues = 0;
+            values.reset();
+        }
+
+        ColumnChunk flush(PositionOutputStream out) throws IOException {
+            finishPage();
+            ColumnChunk columnChunk = new ColumnChunk();
+            columnChunk.type = physicalType;
+            columnChunk.encodings.add(PLAIN);
+            columnChunk.encodings.add(RLE);
+            columnChunk.path.add(column.name());
+            columnChunk.codec = codec;
+            columnChunk.numValues = chunkNumValues;
+            columnChunk.totalUncompressedSize = chunkUncompressedSize;
+            columnChunk.totalCompressedSize = chunk.size();
+            columnChunk.dataPageOffset = out.position();
+            chunk.writeTo(out);
+
+            chunk.reset();
+            chunkNumValues = 0;
+            chunkUncompressedSize = 0;
+            return columnChunk;
+        }
+    }
+
+    private static final class PositionOutputStream extends FilterOutputStream {
+
+        private long position = 0;
+
+        PositionOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        long position() {
+            return position;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            position += len;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.parquet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The RLE / bit-packing hybrid encoding of parquet which is used for definition levels, dictionary indices and
+ * booleans.
+ *
+ * <pre>
+ *     run := rle-run | bit-packed-run
+ *     rle-run := varint(count &lt;&lt; 1) value (padded to whole bytes, little endian)
+ *     bit-packed-run := varint(groups &lt;&lt; 1 | 1) values (groups of 8 values, least significant bit first)
+ * </pre>
+ */
+final class RleBitPackedHybrid {
+
+    private static final int MIN_RLE_RUN = 8;
+
+    private RleBitPackedHybrid() {
+    }
+
+    static int bitWidth(int maxValue) {
+        return 32 - Integer.numberOfLeadingZeros(maxValue);
+    }
+
+    /**
+     * Encodes the first {@code count} values. Runs of at least 8 equal values are run length encoded,
+     * everything else is bit-packed.
+     */
+    static void encode(int[] values, int count, int bitWidth, ByteArrayOutputStream out) {
+        int i = 0;
+        while (i < count) {
+            int runLength = runLength(values, i, count);
+            if (runLength >= MIN_RLE_RUN) {
+                writeUnsignedVarInt(out, runLength << 1);
+                int value = values[i];
+                for (int b = 0; b < (bitWidth + 7) / 8; b++) {
+                    out.write((value >>> (b * 8)) & 0xff);
+                }
+                i += runLength;
+                continue;
+            }
+            // Bit-packed runs consist of groups of 8 values, only the last run may contain padding
+            int end = i;
+            while (end < count && (end == i || runLength(values, end, count) < MIN_RLE_RUN)) {
+                end = Math.min(end + 8, count);
+            }
+            int numGroups = (end - i + 7) / 8;
+            writeUnsignedVarInt(out, (numGroups << 1) | 1);
+            long buffer = 0;
+            int bufferedBits = 0;
+            for (int v = i; v < i + numGroups * 8; v++) {
+                long value = v < end ? values[v] & 0xffffffffL : 0;
+                buffer |= value << bufferedBits;
+                bufferedBits += bitWidth;
+                while (bufferedBits >= 8) {
+                    out.write((int) (buffer & 0xff));
+                    buffer >>>= 8;
+                    bufferedBits -= 8;
+                }
+            }
+            i = end;
+        }
+    }
+
+    private static int runLength(int[] values, int start, int count) {
+        int value = values[start];
+        int end = start + 1;
+        while (end < count && values[end] == value) {
+            end++;
+        }
+        return end - start;
+    }
+
+    static void writeUnsignedVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    static final class Decoder {
+
+        private final ByteBuffer buffer;
+        private final int bitWidth;
+
+        private int[] packed = new int[8];
+        private boolean rle;
+        private int rleValue;
+        private int remaining = 0;
+        private int packedPosition;
+
+        /**
+         * @param buffer buffer positioned at the first run, which is consumed up to its limit.
+         */
+        Decoder(ByteBuffer buffer, int bitWidth) {
+            this.buffer = buffer;
+            this.bitWidth = bitWidth;
+        }
+
+        int next() throws IOException {
+            while (remaining == 0) {
+                readRun();
+            }
+            remaining--;
+            if (rle) {
+                return rleValue;
+            }
+            return packed[packedPosition++];
+        }
+
+        private void readRun() throws IOException {
+            if (!buffer.hasRemaining()) {
+                throw new IOException("Unexpected end of RLE encoded data");
+            }
+            int header = readUnsignedVarInt();
+            if ((header & 1) == 0) {
+                rle = true;
+                remaining = header >>> 1;
+                int value = 0;
+                for (int b = 0; b < (bitWidth + 7) / 8; b++) {
+                    value |= (buffer.get() & 0xff) << (b * 8);
+                }
+                rleValue = value;
+            } else {
+                int numGroups = header >>> 1;
+                remaining = numGroups * 8;
+                if (bitWidth == 0) {
+                    rle = true;
+                    rleValue = 0;
+                } else if ((long) numGroups * bitWidth - buffer.remaining() >= bitWidth) {
+                    // Only the last group of a run may be truncated
+                    throw new IOException("Invalid length of bit packed run in RLE encoded data");
+                } else {
+                    rle = false;
+                    unpack(numGroups);
+                }
+            }
+        }
+
+        private void unpack(int numGroups) {
+            int numValues = numGroups * 8;
+            if (packed.length < numValues) {
+                packed = new int[numValues];
+            }
+            long mask = (1L << bitWidth) - 1;
+            long bits = 0;
+            int bufferedBits = 0;
+            // The last run may be truncated, the missing values are never read
+            int numBytes = Math.min(numGroups * bitWidth, buffer.remaining());
+            for (int i = 0; i < numValues; i++) {
+                while (bufferedBits < bitWidth && numBytes > 0) {
+                    bits |= (long) (buffer.get() & 0xff) << bufferedBits;
+                    bufferedBits += 8;
+                    numBytes--;
+                }
+                packed[i] = (int) (bits & mask);
+                bits >>>= bitWidth;
+                bufferedBits = Math.max(0, bufferedBits - bitWidth);
+            }
+            packedPosition = 0;
+        }
+
+        private int readUnsignedVarInt() throws IOException {
+            int result = 0;
+            for (int shift = 0; shift < 35 && buffer.hasRemaining(); shift += 7) {
+                int b = buffer.get() & 0xff;
+                result |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IOException("Invalid varint in RLE encoded data");
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.parquet;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reader for the thrift compact protocol which is used to encode the metadata of parquet files.
+ * Only the parts of the protocol required by the parquet metadata are supported.
+ */
+final class ThriftCompactReader {
+
+    static final int STOP = 0;
+    static final int BOOLEAN_TRUE = 1;
+    static final int BOOLEAN_FALSE = 2;
+    static final int BYTE = 3;
+    static final int I16 = 4;
+    static final int I32 = 5;
+    static final int I64 = 6;
+    static final int DOUBLE = 7;
+    static final int BINARY = 8;
+    static final int LIST = 9;
+    static final int SET = 10;
+    static final int MAP = 11;
+    static final int STRUCT = 12;
+
+    private static final int MAX_NESTING = 64;
+
+    private final InputStream in;
+    private final short[] lastFieldIds = new short[MAX_NESTING];
+    private int depth = 0;
+    private short lastFieldId = 0;
+    private int fieldType;
+
+    ThriftCompactReader(InputStream in) {
+        this.in = in;
+    }
+
+    void readStructBegin() throws IOException {
+        if (depth == MAX_NESTING) {
+            throw new IOException("Thrift structure is nested too deeply");
+        }
+        lastFieldIds[depth++] = lastFieldId;
+        lastFieldId = 0;
+    }
+
+    void readStructEnd() {
+        lastFieldId = lastFieldIds[--depth];
+    }
+
+    /**
+     * Reads the header of the next field of the current struct.
+     *
+     * @return the id of the field or 0 if the end of the struct has been reached
+     */
+    short readFieldBegin() throws IOException {
+        int b = readByte();
+        int type = b & 0x0f;
+        if (type == STOP) {
+            return 0;
+        }
+        int delta = (b & 0xf0) >>> 4;
+        short id = delta == 0 ? readI16() : (short) (lastFieldId + delta);
+        lastFieldId = id;
+        fieldType = type;
+        return id;
+    }
+
+    int fieldType() {
+        return fieldType;
+    }
+
+    /**
+     * Returns the value of a boolean field. The value is part of the field header.
+     */
+    boolean readBool() {
+        return fieldType == BOOLEAN_TRUE;
+    }
+
+    short readI16() throws IOException {
+        return (short) zigZagToInt(readVarInt32());
+    }
+
+    int readI32() throws IOException {
+        return zigZagToInt(readVarInt32());
+    }
+
+    long readI64() throws IOException {
+        long n = readVarInt64();
+        return (n >>> 1) ^ -(n & 1);
+    }
+
+    byte[] readBinary() throws IOException {
+        int length = readVarInt32();
+        if (length < 0) {
+            throw new IOException("Negative length in thrift binary");
+        }
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        return bytes;
+    }
+
+    String readString() throws IOException {
+        return new String(readBinary(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the header of a list or set and returns its size.
+     * The type of the elements is available via {@link #fieldType()} afterwards.
+     */
+    int readListBegin() throws IOException {
+        int b = readByte();
+        int size = (b >>> 4) & 0x0f;
+        if (size == 15) {
+            size = readVarInt32();
+        }
+        fieldType = b & 0x0f;
+        return size;
+    }
+
+    void skip(int type) throws IOException {
+        skip(type, false);
+    }
+
+    private void skip(int type, boolean inCollection) throws IOException {
+        switch (type) {
+            case BOOLEAN_TRUE:
+            case BOOLEAN_FALSE:
+                // The value of a boolean field is part of the field header, within collections it is a byte
+                if (inCollection) {
+                    readByte();
+                }
+                break;
+            case BYTE:
+                readByte();
+                break;
+            case I16:
+            case I32:
+            case I64:
+                readVarInt64();
+                break;
+            case DOUBLE:
+                skipBytes(8);
+                break;
+            case BINARY:
+                skipBytes(readVarInt32());
+                break;
+            case LIST:
+            case SET: {
+                int size = readListBegin();
+                int elementType = fieldType;
+                // Nested collections count towards the nesting limit of structs
+                readStructBegin();
+                for (int i = 0; i < size; i++) {
+                    skip(elementType, true);
+                }
+                readStructEnd();
+                break;
+            }
+            case MAP: {
+                int size = readVarInt32();
+                if (size > 0) {
+                    int keyAndValueType = readByte();
+                    readStructBegin();
+                    for (int i = 0; i < size; i++) {
+                        skip((keyAndValueType >>> 4) & 0x0f, true);
+                        skip(keyAndValueType & 0x0f, true);
+                    }
+                    readStructEnd();
+                }
+                break;
+            }
+            case STRUCT:
+                readStructBegin();
+                while (readFieldBegin() != 0) {
+                    skip(fieldType);
+                }
+                readStructEnd();
+                break;
+            default:
+                throw new IOException("Invalid thrift type: " + type);
+        }
+    }
+
+    private void skipBytes(int n) throws IOException {
+        if (n < 0) {
+            throw new IOException("Negative length in thrift binary");
+        }
+        in.skipNBytes(n);
+    }
+
+    private int readByte() throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    private int readVarInt32() throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Invalid thrift varint");
+    }
+
+    private long readVarInt64() throws IOException {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IOException("Invalid thrift varint");
+    }
+
+    private static int zigZagToInt(int n) {
+        return (n >>> 1) ^ -(n & 1);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.parquet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static io.crate.parquet.ThriftCompactReader.BINARY;
+import static io.crate.parquet.ThriftCompactReader.BOOLEAN_FALSE;
+import static io.crate.parquet.ThriftCompactReader.BOOLEAN_TRUE;
+import static io.crate.parquet.ThriftCompactReader.I32;
+import static io.crate.parquet.ThriftCompactReader.I64;
+import static io.crate.parquet.ThriftCompactReader.LIST;
+import static io.crate.parquet.ThriftCompactReader.STOP;
+import static io.crate.parquet.ThriftCompactReader.STRUCT;
+
+/**
+ * Writer for the thrift compact protocol, counterpart of {@link ThriftCompactReader}.
+ */
+final class ThriftCompactWriter {
+
+    private static final int MAX_NESTING = 64;
+
+    private final ByteArrayOutputStream out;
+    private final short[] lastFieldIds = new short[MAX_NESTING];
+    private int depth = 0;
+    private short lastFieldId = 0;
+
+    ThriftCompactWriter(ByteArrayOutputStream out) {
+        this.out = out;
+    }
+
+    void writeStructBegin() {
+        lastFieldIds[depth++] = lastFieldId;
+        lastFieldId = 0;
+    }
+
+    void writeStructEnd() {
+        out.write(STOP);
+        lastFieldId = lastFieldIds[--depth];
+    }
+
+    void writeStructFieldBegin(int id) {
+        writeFieldBegin(STRUCT, id);
+        writeStructBegin();
+    }
+
+    void writeBoolField(int id, boolean value) {
+        writeFieldBegin(value ? BOOLEAN_TRUE : BOOLEAN_FALSE, id);
+    }
+
+    void writeI32Field(int id, int value) {
+        writeFieldBegin(I32, id);
+        writeI32(value);
+    }
+
+    void writeI64Field(int id, long value) {
+        writeFieldBegin(I64, id);
+        writeVarInt64((value << 1) ^ (value >> 63));
+    }
+
+    void writeStringField(int id, String value) {
+        writeFieldBegin(BINARY, id);
+        writeString(value);
+    }
+
+    void writeListFieldBegin(int id, int elementType, int size) {
+        writeFieldBegin(LIST, id);
+        if (size < 15) {
+            out.write((size << 4) | elementType);
+        } else {
+            out.write(0xf0 | elementType);
+            writeVarInt32(size);
+        }
+    }
+
+    void writeI32(int value) {
+        writeVarInt32((value << 1) ^ (value >> 31));
+    }
+
+    void writeString(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt32(bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private void writeFieldBegin(int type, int id) {
+        int delta = id - lastFieldId;
+        if (delta > 0 && delta <= 15) {
+            out.write((delta << 4) | type);
+        } else {
+            out.write(type);
+            writeI32(id);
+        }
+        lastFieldId = (short) id;
+    }
+
+    private void writeVarInt32(int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private void writeVarInt64(long value) {
+        while ((value & ~0x7fL) != 0) {
+            out.write((int) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
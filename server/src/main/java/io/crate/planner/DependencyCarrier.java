@@ -35,6 +35,7 @@ import io.crate.execution.ddl.views.TransportCreateViewAction;
 import io.crate.execution.ddl.views.TransportDropViewAction;
 import io.crate.execution.dsl.projection.builder.ProjectionBuilder;
 import io.crate.execution.engine.PhasesTaskFactory;
+import io.crate.execution.engine.collect.files.StdinStreams;
 import io.crate.expression.udf.TransportCreateUserDefinedFunctionAction;
 import io.crate.expression.udf.TransportDropUserDefinedFunctionAction;
 import io.crate.license.LicenseService;
@@ -78,6 +79,7 @@ public class DependencyCarrier {
     private final FulltextAnalyzerResolver fulltextAnalyzerResolver;
     private final RepositoryService repositoryService;
     private final RepositoryParamValidator repositoryParamValidator;
+    private final StdinStreams stdinStreams;
 
     @Inject
     public DependencyCarrier(Settings settings,
@@ -100,7 +102,8 @@ public class DependencyCarrier {
                              AlterTableOperation alterTableOperation,
                              FulltextAnalyzerResolver fulltextAnalyzerResolver,
                              RepositoryService repositoryService,
-                             RepositoryParamValidator repositoryParamValidator) {
+                             RepositoryParamValidator repositoryParamValidator,
+                             StdinStreams stdinStreams) {
         this.settings = settings;
         this.transportActionProvider = transportActionProvider;
         this.phasesTaskFactory = phasesTaskFactory;
@@ -123,6 +126,7 @@ public class DependencyCarrier {
         this.fulltextAnalyzerResolver = fulltextAnalyzerResolver;
         this.repositoryService = repositoryService;
         this.repositoryParamValidator = repositoryParamValidator;
+        this.stdinStreams = stdinStreams;
     }
 
     public Schemas schemas() {
@@ -173,6 +177,10 @@ public class DependencyCarrier {
         return transportDropTableAction;
     }
 
+    public StdinStreams stdinStreams() {
+        return stdinStreams;
+    }
+
     public PhasesTaskFactory phasesTaskFactory() {
         return phasesTaskFactory;
     }
@@ -128,9 +128,9 @@ public class HashJoin implements LogicalPlan {
         LogicalPlan rightLogicalPlan = rhs;
 
         boolean tablesSwitched = false;
-        // We move smaller table to the right side since benchmarking
-        // revealed that this improves performance in most cases.
-        if (lhs.numExpectedRows() < rhs.numExpectedRows()) {
+        // The left side is the build side of the hash join, its rows are held in the hash table.
+        // We move the smaller relation to the left so that the bigger relation is only streamed through the probe side.
+        if (rhs.numExpectedRows() >= 0 && lhs.numExpectedRows() > rhs.numExpectedRows()) {
             tablesSwitched = true;
             leftLogicalPlan = rhs;
             rightLogicalPlan = lhs;
@@ -198,6 +198,7 @@ public class HashJoin implements LogicalPlan {
             InputColumns.create(Lists2.map(hashSymbols.v1(), paramBinder), new InputColumns.SourceSymbols(leftOutputs)),
             InputColumns.create(Lists2.map(hashSymbols.v2(), paramBinder), new InputColumns.SourceSymbols(rightOutputs)),
             Symbols.typeView(leftOutputs),
+            Symbols.typeView(rightOutputs),
             leftLogicalPlan.estimatedRowSize(),
             leftLogicalPlan.numExpectedRows());
         return new Join(
@@ -26,11 +26,14 @@ import com.carrotsearch.hppc.ObjectIntHashMap;
 import io.crate.common.annotations.VisibleForTesting;
 import io.crate.metadata.RelationName;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -39,6 +42,11 @@ import java.util.Set;
  */
 final class JoinOrdering {
 
+    /**
+     * Up to this number of relations all join orders are considered by {@link #orderByCost(List, Map, Map)}.
+     */
+    static final int MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH = 10;
+
     private JoinOrdering() {
     }
 
@@ -57,6 +65,231 @@ final class JoinOrdering {
             implicitJoinConditions);
     }
 
+    /**
+     * Orders the relations so that building a left-deep join tree from them produces the smallest intermediate
+     * results: The sum of the estimated number of rows of all joins in the tree is minimized.
+     * <p>
+     * Up to {@link #MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH} relations all orders are considered (dynamic programming
+     * over the subsets of the relations), larger join graphs are ordered greedily by adding the relation which leads
+     * to the smallest join result next.
+     * Joins without a join condition (cross joins) are only considered if there is no alternative.
+     *
+     * @param relations                   all relations, e.g. [t1, t2, t3]
+     * @param numRowsByRelation           the estimated number of rows of each relation
+     * @param selectivityByJoinedRelations the estimated selectivity of the join conditions, by the relations they join
+     *                                    e.g. {{t1, t2}: 0.001, {t2, t3}: 0.1}
+     * @return the relations in the order they should be joined or null if the ordering isn't possible
+     */
+    @Nullable
+    static List<RelationName> orderByCost(List<RelationName> relations,
+                                          Map<RelationName, Long> numRowsByRelation,
+                                          Map<Set<RelationName>, Double> selectivityByJoinedRelations) {
+        int numRelations = relations.size();
+        if (numRelations >= Long.SIZE) {
+            return null;
+        }
+        double[] numRows = new double[numRelations];
+        for (int i = 0; i < numRelations; i++) {
+            Long rows = numRowsByRelation.get(relations.get(i));
+            if (rows == null || rows < 0) {
+                return null;
+            }
+            numRows[i] = rows;
+        }
+        List<JoinEdge> edges = new ArrayList<>(selectivityByJoinedRelations.size());
+        for (Map.Entry<Set<RelationName>, Double> entry : selectivityByJoinedRelations.entrySet()) {
+            long mask = 0L;
+            for (RelationName relationName : entry.getKey()) {
+                int idx = relations.indexOf(relationName);
+                if (idx < 0) {
+                    return null;
+                }
+                mask |= 1L << idx;
+            }
+            edges.add(new JoinEdge(mask, entry.getValue()));
+        }
+        JoinGraph graph = new JoinGraph(numRows, edges);
+        int[] order = numRelations <= MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH
+            ? graph.exhaustiveOrder()
+            : graph.greedyOrder();
+        List<RelationName> orderedRelations = new ArrayList<>(numRelations);
+        for (int idx : order) {
+            orderedRelations.add(relations.get(idx));
+        }
+        return orderedRelations;
+    }
+
+    private static class JoinEdge {
+
+        private final long relations;
+        private final double selectivity;
+
+        JoinEdge(long relations, double selectivity) {
+            this.relations = relations;
+            this.selectivity = selectivity;
+        }
+    }
+
+    /**
+     * Relations and join conditions, where sets of relations are represented as bit masks of the relation indices.
+     */
+    private static class JoinGraph {
+
+        private final double[] numRows;
+        private final List<JoinEdge> edges;
+
+        JoinGraph(double[] numRows, List<JoinEdge> edges) {
+            this.numRows = numRows;
+            this.edges = edges;
+        }
+
+        /**
+         * The estimated number of rows of joining all given relations.
+         * This is independent of the order in which the relations are joined.
+         */
+        double numRows(long relations) {
+            double rows = 1.0;
+            for (int i = 0; i < numRows.length; i++) {
+                if ((relations & (1L << i)) != 0) {
+                    rows *= numRows[i];
+                }
+            }
+            for (int i = 0; i < edges.size(); i++) {
+                JoinEdge edge = edges.get(i);
+                if ((edge.relations & ~relations) == 0) {
+                    rows *= edge.selectivity;
+                }
+            }
+            return rows;
+        }
+
+        /**
+         * @return true if there is a join condition between the relation and any of the joined relations
+         *         which can be applied once the relation is joined.
+         */
+        boolean isConnected(int relation, long joinedRelations) {
+            long relationBit = 1L << relation;
+            long relations = joinedRelations | relationBit;
+            for (int i = 0; i < edges.size(); i++) {
+                long edgeRelations = edges.get(i).relations;
+                if ((edgeRelations & relationBit) != 0
+                    && (edgeRelations & joinedRelations) != 0
+                    && (edgeRelations & ~relations) == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        int[] exhaustiveOrder() {
+            int[] order = exhaustiveOrder(false);
+            if (order == null) {
+                // The join graph isn't connected, some relations can only be joined using a cross join
+                order = exhaustiveOrder(true);
+            }
+            return order;
+        }
+
+        @Nullable
+        private int[] exhaustiveOrder(boolean allowCrossJoins) {
+            int numRelations = numRows.length;
+            int numSubsets = 1 << numRelations;
+            double[] costs = new double[numSubsets];
+            int[] lastJoined = new int[numSubsets];
+            Arrays.fill(costs, Double.POSITIVE_INFINITY);
+            for (int i = 0; i < numRelations; i++) {
+                costs[1 << i] = 0.0;
+                lastJoined[1 << i] = i;
+            }
+            for (int subset = 1; subset < numSubsets; subset++) {
+                if (Integer.bitCount(subset) < 2) {
+                    continue;
+                }
+                double rows = numRows(subset);
+                // Iterate backwards so that on equal costs the original order is kept
+                for (int i = numRelations - 1; i >= 0; i--) {
+                    if ((subset & (1 << i)) == 0) {
+                        continue;
+                    }
+                    int rest = subset & ~(1 << i);
+                    if (allowCrossJoins == false && isConnected(i, rest) == false) {
+                        continue;
+                    }
+                    double cost = costs[rest] + rows;
+                    if (cost < costs[subset]) {
+                        costs[subset] = cost;
+                        lastJoined[subset] = i;
+                    }
+                }
+            }
+            int subset = numSubsets - 1;
+            if (costs[subset] == Double.POSITIVE_INFINITY) {
+                return null;
+            }
+            int[] order = new int[numRelations];
+            for (int pos = numRelations - 1; pos >= 0; pos--) {
+                int relation = lastJoined[subset];
+                order[pos] = relation;
+                subset &= ~(1 << relation);
+            }
+            return order;
+        }
+
+        int[] greedyOrder() {
+            int numRelations = numRows.length;
+            int[] order = new int[numRelations];
+
+            // Start with the pair of relations with the smallest join result
+            int bestLeft = 0;
+            int bestRight = 1;
+            boolean bestIsConnected = false;
+            double bestRows = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < numRelations; i++) {
+                for (int j = i + 1; j < numRelations; j++) {
+                    boolean connected = isConnected(j, 1L << i);
+                    double rows = numRows((1L << i) | (1L << j));
+                    if (isBetter(connected, rows, bestIsConnected, bestRows)) {
+                        bestLeft = i;
+                        bestRight = j;
+                        bestIsConnected = connected;
+                        bestRows = rows;
+                    }
+                }
+            }
+            order[0] = bestLeft;
+            order[1] = bestRight;
+            long joined = (1L << bestLeft) | (1L << bestRight);
+
+            for (int pos = 2; pos < numRelations; pos++) {
+                int bestNext = -1;
+                bestIsConnected = false;
+                bestRows = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < numRelations; i++) {
+                    if ((joined & (1L << i)) != 0) {
+                        continue;
+                    }
+                    boolean connected = isConnected(i, joined);
+                    double rows = numRows(joined | (1L << i));
+                    if (bestNext == -1 || isBetter(connected, rows, bestIsConnected, bestRows)) {
+                        bestNext = i;
+                        bestIsConnected = connected;
+                        bestRows = rows;
+                    }
+                }
+                order[pos] = bestNext;
+                joined |= 1L << bestNext;
+            }
+            return order;
+        }
+
+        private static boolean isBetter(boolean connected, double rows, boolean bestIsConnected, double bestRows) {
+            if (connected != bestIsConnected) {
+                return connected;
+            }
+            return rows < bestRows;
+        }
+    }
+
     /**
      * Returns a the relation re-ordered to apply join conditions further down in the tree.
      * <p>
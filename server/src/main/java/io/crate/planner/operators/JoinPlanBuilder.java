@@ -22,20 +22,28 @@
 
 package io.crate.planner.operators;
 
+import io.crate.analyze.relations.AbstractTableRelation;
 import io.crate.analyze.relations.AnalyzedRelation;
 import io.crate.analyze.relations.JoinPair;
 import io.crate.analyze.relations.QuerySplitter;
 import io.crate.common.collections.Lists2;
 import io.crate.execution.engine.join.JoinOperations;
 import io.crate.expression.operator.AndOperator;
+import io.crate.expression.symbol.ScopedSymbol;
 import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.Reference;
 import io.crate.metadata.RelationName;
 import io.crate.planner.node.dql.join.JoinType;
+import io.crate.planner.selectivity.SelectivityFunctions;
+import io.crate.statistics.ColumnStats;
+import io.crate.statistics.Stats;
+import io.crate.statistics.TableStats;
 import org.elasticsearch.common.util.set.Sets;
 
 import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -63,7 +71,8 @@ public class JoinPlanBuilder {
                                      Symbol whereClause,
                                      List<JoinPair> joinPairs,
                                      Function<AnalyzedRelation, LogicalPlan> plan,
-                                     boolean hashJoinEnabled) {
+                                     boolean hashJoinEnabled,
+                                     TableStats tableStats) {
         if (from.size() == 1) {
             return Filter.create(plan.apply(from.get(0)), whereClause);
         }
@@ -72,10 +81,18 @@ public class JoinPlanBuilder {
             JoinOperations.buildRelationsToJoinPairsMap(
                 JoinOperations.convertImplicitJoinConditionsToJoinPairs(joinPairs, queryParts));
 
-        Collection<RelationName> orderedRelationNames = JoinOrdering.getOrderedRelationNames(
+        Map<RelationName, AnalyzedRelation> sources = from.stream()
+            .collect(Collectors.toMap(AnalyzedRelation::relationName, rel -> rel));
+        Map<RelationName, LogicalPlan> plans = new HashMap<>();
+        for (AnalyzedRelation relation : from) {
+            plans.put(relation.relationName(), plan.apply(relation));
+        }
+        Collection<RelationName> orderedRelationNames = orderRelations(
             Lists2.map(from, AnalyzedRelation::relationName),
-            joinPairsByRelations.keySet(),
-            queryParts.keySet()
+            plans,
+            joinPairsByRelations,
+            queryParts,
+            tableStats
         );
 
         Iterator<RelationName> it = orderedRelationNames.iterator();
@@ -97,12 +114,10 @@ public class JoinPlanBuilder {
             joinCondition = joinLhsRhs.condition();
         }
 
-        Map<RelationName, AnalyzedRelation> sources = from.stream()
-            .collect(Collectors.toMap(AnalyzedRelation::relationName, rel -> rel));
         AnalyzedRelation lhs = sources.get(lhsName);
         AnalyzedRelation rhs = sources.get(rhsName);
-        LogicalPlan lhsPlan = plan.apply(lhs);
-        LogicalPlan rhsPlan = plan.apply(rhs);
+        LogicalPlan lhsPlan = plans.get(lhsName);
+        LogicalPlan rhsPlan = plans.get(rhsName);
         Symbol query = removeParts(queryParts, lhsName, rhsName);
         LogicalPlan joinPlan = createJoinPlan(
             lhsPlan,
@@ -119,9 +134,9 @@ public class JoinPlanBuilder {
         while (it.hasNext()) {
             AnalyzedRelation nextRel = sources.get(it.next());
             joinPlan = joinWithNext(
-                plan,
                 joinPlan,
                 nextRel,
+                plans.get(nextRel.relationName()),
                 joinNames,
                 joinPairsByRelations,
                 queryParts,
@@ -139,6 +154,110 @@ public class JoinPlanBuilder {
         return joinPlan;
     }
 
+    private static Collection<RelationName> orderRelations(List<RelationName> relations,
+                                                           Map<RelationName, LogicalPlan> plans,
+                                                           Map<Set<RelationName>, JoinPair> joinPairsByRelations,
+                                                           Map<Set<RelationName>, Symbol> queryParts,
+                                                           TableStats tableStats) {
+        if (relations.size() > 2 && onlyInnerOrCrossJoins(joinPairsByRelations.values())) {
+            List<RelationName> costBasedOrder = orderRelationsByCost(
+                relations,
+                plans,
+                joinPairsByRelations,
+                queryParts,
+                tableStats
+            );
+            if (costBasedOrder != null) {
+                return costBasedOrder;
+            }
+        }
+        return JoinOrdering.getOrderedRelationNames(
+            relations,
+            joinPairsByRelations.keySet(),
+            queryParts.keySet()
+        );
+    }
+
+    private static boolean onlyInnerOrCrossJoins(Collection<JoinPair> joinPairs) {
+        for (JoinPair joinPair : joinPairs) {
+            if (joinPair.joinType() != JoinType.INNER && joinPair.joinType() != JoinType.CROSS) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Orders the relations using the estimated number of rows of the relations and their joins.
+     * The estimated number of rows of each relation includes the filters which only affect that relation,
+     * the selectivity of the join conditions is estimated using the column statistics.
+     *
+     * @return the relations ordered by cost, or null if the number of rows of some relation is unknown.
+     */
+    @Nullable
+    private static List<RelationName> orderRelationsByCost(List<RelationName> relations,
+                                                           Map<RelationName, LogicalPlan> plans,
+                                                           Map<Set<RelationName>, JoinPair> joinPairsByRelations,
+                                                           Map<Set<RelationName>, Symbol> queryParts,
+                                                           TableStats tableStats) {
+        Map<RelationName, Stats> statsByRelation = new HashMap<>();
+        Map<RelationName, Long> numRowsByRelation = new HashMap<>();
+        for (RelationName relationName : relations) {
+            LogicalPlan relationPlan = plans.get(relationName);
+            long numRows = relationPlan.numExpectedRows();
+            if (numRows < 0) {
+                return null;
+            }
+            List<AbstractTableRelation<?>> baseTables = relationPlan.baseTables();
+            if (baseTables.size() == 1) {
+                Stats stats = tableStats.getStats(baseTables.get(0).relationName());
+                statsByRelation.put(relationName, stats);
+                Symbol filter = queryParts.get(Collections.singleton(relationName));
+                if (filter != null && stats.numDocs() >= 0) {
+                    numRows = Math.min(numRows, SelectivityFunctions.estimateNumRows(stats, filter, null));
+                }
+            }
+            numRowsByRelation.put(relationName, numRows);
+        }
+        Function<Symbol, ColumnStats<?>> columnStats = symbol -> {
+            if (symbol instanceof Reference) {
+                Reference ref = (Reference) symbol;
+                return tableStats.getStats(ref.ident().tableIdent()).statsByColumn().get(ref.column());
+            } else if (symbol instanceof ScopedSymbol) {
+                ScopedSymbol field = (ScopedSymbol) symbol;
+                Stats stats = statsByRelation.get(field.relation());
+                return stats == null ? null : stats.statsByColumn().get(field.column());
+            }
+            return null;
+        };
+        Map<Set<RelationName>, Double> selectivityByJoinedRelations = new HashMap<>();
+        for (Map.Entry<Set<RelationName>, JoinPair> entry : joinPairsByRelations.entrySet()) {
+            Symbol condition = entry.getValue().condition();
+            if (condition != null) {
+                addJoinSelectivity(selectivityByJoinedRelations, entry.getKey(), condition, columnStats, numRowsByRelation);
+            }
+        }
+        for (Map.Entry<Set<RelationName>, Symbol> entry : queryParts.entrySet()) {
+            if (entry.getKey().size() > 1) {
+                addJoinSelectivity(selectivityByJoinedRelations, entry.getKey(), entry.getValue(), columnStats, numRowsByRelation);
+            }
+        }
+        return JoinOrdering.orderByCost(relations, numRowsByRelation, selectivityByJoinedRelations);
+    }
+
+    private static void addJoinSelectivity(Map<Set<RelationName>, Double> selectivityByJoinedRelations,
+                                           Set<RelationName> joinedRelations,
+                                           Symbol condition,
+                                           Function<Symbol, ColumnStats<?>> columnStats,
+                                           Map<RelationName, Long> numRowsByRelation) {
+        long maxNumRows = 0L;
+        for (RelationName relationName : joinedRelations) {
+            maxNumRows = Math.max(maxNumRows, numRowsByRelation.getOrDefault(relationName, 0L));
+        }
+        double selectivity = SelectivityFunctions.estimateJoinSelectivity(condition, columnStats, maxNumRows);
+        selectivityByJoinedRelations.merge(joinedRelations, selectivity, (a, b) -> a * b);
+    }
+
     private static LogicalPlan createJoinPlan(LogicalPlan lhsPlan,
                                               LogicalPlan rhsPlan,
                                               JoinType joinType,
@@ -175,9 +294,9 @@ public class JoinPlanBuilder {
         return pair.joinType().invert();
     }
 
-    private static LogicalPlan joinWithNext(Function<AnalyzedRelation, LogicalPlan> plan,
-                                            LogicalPlan source,
+    private static LogicalPlan joinWithNext(LogicalPlan source,
                                             AnalyzedRelation nextRel,
+                                            LogicalPlan nextPlan,
                                             Set<RelationName> joinNames,
                                             Map<Set<RelationName>, JoinPair> joinPairs,
                                             Map<Set<RelationName>, Symbol> queryParts,
@@ -196,7 +315,6 @@ public class JoinPlanBuilder {
             condition = joinPair.condition();
         }
 
-        LogicalPlan nextPlan = plan.apply(nextRel);
         Symbol query = AndOperator.join(
             Stream.of(
                 removeMatch(queryParts, joinNames, nextName),
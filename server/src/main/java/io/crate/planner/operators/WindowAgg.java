@@ -40,7 +40,6 @@ import io.crate.analyze.WindowDefinition;
 import io.crate.common.collections.Lists2;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.MergePhase;
-import io.crate.execution.dsl.projection.Projection;
 import io.crate.execution.dsl.projection.WindowAggProjection;
 import io.crate.execution.dsl.projection.builder.InputColumns;
 import io.crate.execution.dsl.projection.builder.ProjectionBuilder;
@@ -51,7 +50,9 @@ import io.crate.expression.symbol.WindowFunction;
 import io.crate.planner.ExecutionPlan;
 import io.crate.planner.Merge;
 import io.crate.planner.PlannerContext;
+import io.crate.planner.PositionalOrderBy;
 import io.crate.planner.ResultDescription;
+import io.crate.planner.consumer.OrderByPositionVisitor;
 import io.crate.planner.distribution.DistributionInfo;
 import io.crate.planner.distribution.DistributionType;
 import io.crate.statistics.TableStats;
@@ -147,13 +148,6 @@ public class WindowAgg extends ForwardingLogicalPlan {
 
 
         List<WindowFunction> boundWindowFunctions = (List<WindowFunction>)(List) Lists2.map(windowFunctions, toInputCols);
-        List<Projection> projections = new ArrayList<>();
-        WindowAggProjection windowAggProjection = new WindowAggProjection(
-            windowDefinition.map(toInputCols),
-            boundWindowFunctions,
-            InputColumns.create(this.standalone, sourceSymbols)
-        );
-        projections.add(windowAggProjection);
         ExecutionPlan sourcePlan = source.build(
             plannerContext,
             projectionBuilder,
@@ -169,12 +163,33 @@ public class WindowAgg extends ForwardingLogicalPlan {
         boolean nonDistExecution = windowDefinition.partitions().isEmpty()
                                    || resultDescription.hasRemainingLimitOrOffset()
                                    || executesOnHandler;
+        OrderBy orderByInclPartitionBy = createOrderByInclPartitionBy(windowDefinition);
         if (nonDistExecution) {
             sourcePlan = Merge.ensureOnHandler(sourcePlan, plannerContext);
-            for (Projection projection : projections) {
-                sourcePlan.addProjection(projection);
-            }
+            ResultDescription onHandler = sourcePlan.resultDescription();
+            boolean sourceIsOrdered = isOrderedBy(
+                onHandler.orderBy(), orderByInclPartitionBy, windowDefinition.partitions().size());
+            WindowAggProjection windowAggProjection = new WindowAggProjection(
+                windowDefinition.map(toInputCols),
+                boundWindowFunctions,
+                InputColumns.create(this.standalone, sourceSymbols),
+                sourceIsOrdered
+            );
+            // An ordered source is passed through in its order, otherwise the rows are sorted by the
+            // PARTITION BY and ORDER BY of the window definition.
+            // The standalone symbols are the source outputs, so the positions of the source order remain valid.
+            sourcePlan.addProjection(
+                windowAggProjection,
+                onHandler.limit(),
+                onHandler.offset(),
+                sourceIsOrdered ? onHandler.orderBy() : positionalOrderByOrNull(orderByInclPartitionBy, outputs)
+            );
         } else {
+            WindowAggProjection windowAggProjection = new WindowAggProjection(
+                windowDefinition.map(toInputCols),
+                boundWindowFunctions,
+                InputColumns.create(this.standalone, sourceSymbols)
+            );
             sourcePlan.setDistributionInfo(new DistributionInfo(
                 DistributionType.MODULO,
                 source.outputs().indexOf(windowDefinition.partitions().iterator().next()))
@@ -187,7 +202,7 @@ public class WindowAgg extends ForwardingLogicalPlan {
                 resultDescription.numOutputs(),
                 resultDescription.nodeIds(),
                 resultDescription.streamOutputs(),
-                projections,
+                List.of(windowAggProjection),
                 DistributionInfo.DEFAULT_BROADCAST,
                 null
             );
@@ -204,6 +219,49 @@ public class WindowAgg extends ForwardingLogicalPlan {
         return sourcePlan;
     }
 
+    /**
+     * @return true if rows sorted by {@code sourceOrder} are also sorted by {@code orderByInclPartitionBy}.
+     *         The first {@code numPartitions} symbols of {@code orderByInclPartitionBy} only need to keep the rows
+     *         of a partition together, so for them the position is sufficient and the sort direction is ignored.
+     */
+    private boolean isOrderedBy(@Nullable PositionalOrderBy sourceOrder,
+                                @Nullable OrderBy orderByInclPartitionBy,
+                                int numPartitions) {
+        if (sourceOrder == null || orderByInclPartitionBy == null) {
+            return false;
+        }
+        List<Symbol> symbols = orderByInclPartitionBy.orderBySymbols();
+        int[] positions = OrderByPositionVisitor.orderByPositionsOrNull(symbols, source.outputs());
+        if (positions == null || positions.length > sourceOrder.indices().length) {
+            return false;
+        }
+        HashSet<Integer> partitionPositions = new HashSet<>();
+        HashSet<Integer> sourcePartitionPositions = new HashSet<>();
+        for (int i = 0; i < positions.length; i++) {
+            if (i < numPartitions) {
+                partitionPositions.add(positions[i]);
+                sourcePartitionPositions.add(sourceOrder.indices()[i]);
+            } else if (positions[i] != sourceOrder.indices()[i]
+                       || orderByInclPartitionBy.reverseFlags()[i] != sourceOrder.reverseFlags()[i]
+                       || orderByInclPartitionBy.nullsFirst()[i] != sourceOrder.nullsFirst()[i]) {
+                return false;
+            }
+        }
+        return partitionPositions.equals(sourcePartitionPositions);
+    }
+
+    @Nullable
+    private static PositionalOrderBy positionalOrderByOrNull(@Nullable OrderBy orderBy, List<Symbol> outputs) {
+        if (orderBy == null) {
+            return null;
+        }
+        int[] positions = OrderByPositionVisitor.orderByPositionsOrNull(orderBy.orderBySymbols(), outputs);
+        if (positions == null) {
+            return null;
+        }
+        return new PositionalOrderBy(positions, orderBy.reverseFlags(), orderBy.nullsFirst());
+    }
+
     @Nullable
     static OrderBy createOrderByInclPartitionBy(WindowDefinition windowDefinition) {
         var orderBy = windowDefinition.orderBy();
@@ -25,7 +25,13 @@ package io.crate.planner.selectivity;
 import io.crate.data.Row;
 import io.crate.expression.operator.AndOperator;
 import io.crate.expression.operator.EqOperator;
+import io.crate.expression.operator.GtOperator;
+import io.crate.expression.operator.GteOperator;
+import io.crate.expression.operator.LikeOperators;
+import io.crate.expression.operator.LtOperator;
+import io.crate.expression.operator.LteOperator;
 import io.crate.expression.operator.OrOperator;
+import io.crate.expression.operator.any.AnyOperators;
 import io.crate.expression.predicate.IsNullPredicate;
 import io.crate.expression.predicate.NotPredicate;
 import io.crate.expression.symbol.Function;
@@ -37,11 +43,16 @@ import io.crate.expression.symbol.SymbolVisitor;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.Reference;
 import io.crate.statistics.ColumnStats;
+import io.crate.statistics.MostCommonValues;
 import io.crate.statistics.Stats;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 
 import javax.annotation.Nullable;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * Used to estimate the number of rows returned after applying a given query.
@@ -58,11 +69,33 @@ public class SelectivityFunctions {
      */
     private static final double MAGIC_SEL = 0.333;
 
+    /**
+     * Used for ranges like `x > 10 AND x < 20` if the estimates of the bounds contradict each other.
+     */
+    private static final double DEFAULT_RANGE_SEL = 0.005;
+
+    private static final String ANY_EQ = AnyOperators.Type.EQ.opName();
+
     public static long estimateNumRows(Stats stats, Symbol query, @Nullable Row params) {
         var estimator = new SelectivityEstimator(stats, params);
         return (long) (stats.numDocs() * query.accept(estimator, null));
     }
 
+    /**
+     * Estimates the selectivity of a join condition: The fraction of the cross product of the joined relations
+     * which matches the condition.
+     *
+     * @param columnStats looks up the stats of a column of one of the joined relations, may return null.
+     * @param maxNumRows the number of rows of the largest joined relation. Used for equi-joins on columns without
+     *                   stats, assuming that the join is between a primary key and a foreign key, in which case
+     *                   each row of the larger relation matches at most one row of the smaller relation.
+     */
+    public static double estimateJoinSelectivity(Symbol joinCondition,
+                                                 java.util.function.Function<Symbol, ColumnStats<?>> columnStats,
+                                                 long maxNumRows) {
+        return joinCondition.accept(new JoinSelectivityEstimator(columnStats, maxNumRows), null);
+    }
+
     static class SelectivityEstimator extends SymbolVisitor<Void, Double> {
 
         private final Stats stats;
@@ -96,11 +129,7 @@ public class SelectivityFunctions {
         public Double visitFunction(Function function, Void context) {
             switch (function.name()) {
                 case AndOperator.NAME: {
-                    double selectivity = 1.0;
-                    for (Symbol argument : function.arguments()) {
-                        selectivity *= argument.accept(this, context);
-                    }
-                    return selectivity;
+                    return andSelectivity(function.arguments(), context);
                 }
 
                 case OrOperator.NAME: {
@@ -118,7 +147,10 @@ public class SelectivityFunctions {
                 }
 
                 case NotPredicate.NAME: {
-                    return 1.0 - function.arguments().get(0).accept(this, context);
+                    Symbol argument = function.arguments().get(0);
+                    double selectivity = 1.0 - argument.accept(this, context);
+                    // `NOT (x = 10)` doesn't match rows where x is null either
+                    return Math.max(0.0, selectivity - nullFractionIfNullRejecting(argument));
                 }
 
                 case IsNullPredicate.NAME: {
@@ -126,11 +158,250 @@ public class SelectivityFunctions {
                     return isNullSelectivity(arguments.get(0), stats);
                 }
 
+                case LtOperator.NAME:
+                case LteOperator.NAME:
+                case GtOperator.NAME:
+                case GteOperator.NAME: {
+                    List<Symbol> arguments = function.arguments();
+                    return rangeSelectivity(function.name(), arguments.get(0), arguments.get(1));
+                }
+
+                case LikeOperators.OP_LIKE: {
+                    List<Symbol> arguments = function.arguments();
+                    return likeSelectivity(arguments.get(0), arguments.get(1));
+                }
+
+                default:
+                    if (ANY_EQ.equals(function.name())) {
+                        List<Symbol> arguments = function.arguments();
+                        return anyEqSelectivity(arguments.get(0), arguments.get(1));
+                    }
+                    return MAGIC_SEL;
+            }
+        }
+
+        /**
+         * Multiplies the selectivities of the arguments, except for lower and upper bounds on the same column
+         * (like in `x >= 10 AND x < 20` or `x BETWEEN 10 AND 20`), which are not independent of each other and
+         * are combined into a range selectivity instead. Same as `clauselist_selectivity` in PostgreSQL.
+         */
+        private double andSelectivity(List<Symbol> arguments, Void context) {
+            double selectivity = 1.0;
+            HashMap<ColumnIdent, RangeSelectivity> rangesByColumn = new HashMap<>();
+            for (Symbol argument : arguments) {
+                if (argument instanceof Function && isRangeOperator(((Function) argument).name())) {
+                    Function range = (Function) argument;
+                    Symbol column = range.arguments().get(0);
+                    Symbol bound = range.arguments().get(1);
+                    ColumnStats<?> columnStats = columnStats(column);
+                    if (columnStats != null && hasValue(bound, params) && valueOf(bound, params) != null) {
+                        double rangeSelectivity = rangeSelectivity(range.name(), column, bound);
+                        RangeSelectivity rangeSel = rangesByColumn.computeIfAbsent(
+                            getColumn(column),
+                            k -> new RangeSelectivity(columnStats.nullFraction()));
+                        if (isLowerBound(range.name())) {
+                            rangeSel.addLowerBound(rangeSelectivity);
+                        } else {
+                            rangeSel.addUpperBound(rangeSelectivity);
+                        }
+                        continue;
+                    }
+                }
+                selectivity *= argument.accept(this, context);
+            }
+            for (RangeSelectivity range : rangesByColumn.values()) {
+                selectivity *= range.selectivity();
+            }
+            return selectivity;
+        }
+
+        private double rangeSelectivity(String operator, Symbol leftArg, Symbol rightArg) {
+            ColumnStats<?> columnStats = columnStats(leftArg);
+            if (columnStats == null || !hasValue(rightArg, params)) {
+                return MAGIC_SEL;
+            }
+            Object value = valueOf(rightArg, params);
+            if (value == null) {
+                // x > null -> is always false
+                return 0.0;
+            }
+            return rangeSelectivityFromValueAndStats(operator, value, columnStats);
+        }
+
+        private double anyEqSelectivity(Symbol leftArg, Symbol rightArg) {
+            if (!hasValue(rightArg, params)) {
+                return MAGIC_SEL;
+            }
+            Object array = valueOf(rightArg, params);
+            if (array == null) {
+                return 0.0;
+            }
+            ColumnStats<?> columnStats = columnStats(leftArg);
+            // The values of an IN list are distinct in the common case, so their selectivities add up
+            double selectivity = 0.0;
+            for (Object value : AnyOperators.collectionValueToIterable(array)) {
+                selectivity += columnStats == null ? DEFAULT_EQ_SEL : eqSelectivityFromValueAndStats(value, columnStats);
+            }
+            double nullFraction = columnStats == null ? 0.0 : columnStats.nullFraction();
+            return Math.min(selectivity, 1.0 - nullFraction);
+        }
+
+        private double likeSelectivity(Symbol leftArg, Symbol rightArg) {
+            ColumnStats<?> columnStats = columnStats(leftArg);
+            if (columnStats == null || !hasValue(rightArg, params)) {
+                return MAGIC_SEL;
+            }
+            Object pattern = valueOf(rightArg, params);
+            if (pattern == null) {
+                return 0.0;
+            }
+            if (!(pattern instanceof String) || columnStats.type().id() != DataTypes.STRING.id()) {
+                return MAGIC_SEL;
+            }
+            //noinspection unchecked
+            return likeSelectivityFromPatternAndStats((String) pattern, (ColumnStats<String>) columnStats);
+        }
+
+        private double nullFractionIfNullRejecting(Symbol symbol) {
+            if (!(symbol instanceof Function)) {
+                return 0.0;
+            }
+            Function function = (Function) symbol;
+            String name = function.name();
+            if (name.equals(EqOperator.NAME)
+                || name.equals(ANY_EQ)
+                || name.equals(LikeOperators.OP_LIKE)
+                || isRangeOperator(name)) {
+                ColumnStats<?> columnStats = columnStats(function.arguments().get(0));
+                return columnStats == null ? 0.0 : columnStats.nullFraction();
+            }
+            return 0.0;
+        }
+
+        @Nullable
+        private ColumnStats<?> columnStats(Symbol symbol) {
+            ColumnIdent column = getColumn(symbol);
+            if (column == null) {
+                return null;
+            }
+            return stats.statsByColumn().get(column);
+        }
+    }
+
+    private static final class RangeSelectivity {
+
+        private final double nullFraction;
+        private double lower = -1.0;
+        private double upper = -1.0;
+
+        RangeSelectivity(double nullFraction) {
+            this.nullFraction = nullFraction;
+        }
+
+        void addLowerBound(double selectivity) {
+            lower = lower < 0.0 ? selectivity : Math.min(lower, selectivity);
+        }
+
+        void addUpperBound(double selectivity) {
+            upper = upper < 0.0 ? selectivity : Math.min(upper, selectivity);
+        }
+
+        double selectivity() {
+            if (lower < 0.0) {
+                return upper;
+            }
+            if (upper < 0.0) {
+                return lower;
+            }
+            // lower + upper counts every non-null row once and those within the range twice
+            double selectivity = lower + upper - (1.0 - nullFraction);
+            if (selectivity > 0.0) {
+                return selectivity;
+            }
+            // If the result is clearly negative, one of the bounds was estimated with a default.
+            // Otherwise the range is empty or very narrow; It is still better to not estimate 0 rows.
+            return selectivity < -0.01 ? DEFAULT_RANGE_SEL : 1.0e-10;
+        }
+    }
+
+    static class JoinSelectivityEstimator extends SymbolVisitor<Void, Double> {
+
+        private final java.util.function.Function<Symbol, ColumnStats<?>> columnStats;
+        private final long maxNumRows;
+
+        JoinSelectivityEstimator(java.util.function.Function<Symbol, ColumnStats<?>> columnStats, long maxNumRows) {
+            this.columnStats = columnStats;
+            this.maxNumRows = maxNumRows;
+        }
+
+        @Override
+        protected Double visitSymbol(Symbol symbol, Void context) {
+            return 1.0;
+        }
+
+        @Override
+        public Double visitLiteral(Literal literal, Void context) {
+            Object value = literal.value();
+            if (value instanceof Boolean) {
+                return (Boolean) value ? 1.0 : 0.0;
+            }
+            if (value == null) {
+                return 0.0;
+            }
+            return super.visitLiteral(literal, context);
+        }
+
+        @Override
+        public Double visitFunction(Function function, Void context) {
+            switch (function.name()) {
+                case AndOperator.NAME: {
+                    double selectivity = 1.0;
+                    for (Symbol argument : function.arguments()) {
+                        selectivity *= argument.accept(this, context);
+                    }
+                    return selectivity;
+                }
+
+                case OrOperator.NAME: {
+                    double sel1 = 1.0;
+                    for (Symbol argument : function.arguments()) {
+                        double sel2 = argument.accept(this, context);
+                        sel1 = sel1 + sel2 - sel1 * sel2;
+                    }
+                    return sel1;
+                }
+
+                case EqOperator.NAME: {
+                    List<Symbol> arguments = function.arguments();
+                    return eqJoinSelectivity(arguments.get(0), arguments.get(1));
+                }
+
+                case NotPredicate.NAME: {
+                    return 1.0 - function.arguments().get(0).accept(this, context);
+                }
+
                 default:
                     return MAGIC_SEL;
             }
         }
 
+        private double eqJoinSelectivity(Symbol leftArg, Symbol rightArg) {
+            // Same as PostgreSQL's eqjoinsel without most common values:
+            // Each value of the side with fewer distinct values matches a value of the other side.
+            double approxDistinct = Math.max(approxDistinct(leftArg), approxDistinct(rightArg));
+            if (approxDistinct >= 1.0) {
+                return 1.0 / approxDistinct;
+            }
+            if (maxNumRows > 0) {
+                return 1.0 / maxNumRows;
+            }
+            return DEFAULT_EQ_SEL;
+        }
+
+        private double approxDistinct(Symbol arg) {
+            ColumnStats<?> stats = columnStats.apply(arg);
+            return stats == null ? -1.0 : stats.approxDistinct();
+        }
     }
 
     private static double isNullSelectivity(Symbol arg, Stats stats) {
@@ -178,6 +449,210 @@ public class SelectivityFunctions {
         }
     }
 
+    private static boolean isRangeOperator(String name) {
+        switch (name) {
+            case LtOperator.NAME:
+            case LteOperator.NAME:
+            case GtOperator.NAME:
+            case GteOperator.NAME:
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isLowerBound(String operator) {
+        return operator.equals(GtOperator.NAME) || operator.equals(GteOperator.NAME);
+    }
+
+    /**
+     * Estimates the selectivity of `column <op> value` using the most common values and the histogram.
+     * Same as `scalarineqsel` in PostgreSQL:
+     * The most common values are checked one by one, the histogram (which excludes the most common values)
+     * is used for the remaining non-null rows.
+     */
+    private static <T> double rangeSelectivityFromValueAndStats(String operator, Object value, ColumnStats<T> columnStats) {
+        DataType<T> type = columnStats.type();
+        T castValue = castOrNull(type, value);
+        if (castValue == null) {
+            return MAGIC_SEL;
+        }
+        boolean lessThan = operator.equals(LtOperator.NAME) || operator.equals(LteOperator.NAME);
+        boolean inclusive = operator.equals(LteOperator.NAME) || operator.equals(GteOperator.NAME);
+        MostCommonValues mcv = columnStats.mostCommonValues();
+        Object[] mcvValues = mcv.values();
+        double[] frequencies = mcv.frequencies();
+        double mcvSelectivity = 0.0;
+        double sumMcvFrequencies = 0.0;
+        for (int i = 0; i < mcvValues.length; i++) {
+            //noinspection unchecked
+            int cmp = type.compare((T) mcvValues[i], castValue);
+            if ((cmp == 0 && inclusive) || (cmp < 0 && lessThan) || (cmp > 0 && !lessThan)) {
+                mcvSelectivity += frequencies[i];
+            }
+            sumMcvFrequencies += frequencies[i];
+        }
+        List<T> histogram = columnStats.histogram();
+        double histogramSelectivity;
+        if (histogram.size() < 2) {
+            histogramSelectivity = MAGIC_SEL;
+        } else {
+            double fractionBelow = histogramFractionBelow(histogram, type, castValue);
+            histogramSelectivity = lessThan ? fractionBelow : 1.0 - fractionBelow;
+        }
+        double remainingFraction = Math.max(0.0, 1.0 - columnStats.nullFraction() - sumMcvFrequencies);
+        return clamp(mcvSelectivity + histogramSelectivity * remainingFraction);
+    }
+
+    /**
+     * @return the fraction of the histogram population that is lower than the given value.
+     *         Values of numeric types are interpolated linearly within the matching bucket, for other types
+     *         the value is assumed to be in the middle of its bucket.
+     */
+    private static <T> double histogramFractionBelow(List<T> histogram, DataType<T> type, T value) {
+        int last = histogram.size() - 1;
+        if (type.compare(value, histogram.get(0)) <= 0) {
+            return 0.0;
+        }
+        if (type.compare(value, histogram.get(last)) >= 0) {
+            return 1.0;
+        }
+        // Find the bucket with histogram[lower] < value <= histogram[upper]
+        int lower = 0;
+        int upper = last;
+        while (upper - lower > 1) {
+            int mid = (lower + upper) >>> 1;
+            if (type.compare(histogram.get(mid), value) < 0) {
+                lower = mid;
+            } else {
+                upper = mid;
+            }
+        }
+        T lowerBound = histogram.get(lower);
+        T upperBound = histogram.get(upper);
+        double binFraction = 0.5;
+        if (value instanceof Number && lowerBound instanceof Number && upperBound instanceof Number) {
+            double low = ((Number) lowerBound).doubleValue();
+            double high = ((Number) upperBound).doubleValue();
+            if (high > low) {
+                binFraction = (((Number) value).doubleValue() - low) / (high - low);
+            }
+        }
+        return (lower + clamp(binFraction)) / last;
+    }
+
+    /**
+     * Estimates the selectivity of `column LIKE pattern`.
+     * A fixed prefix of the pattern is estimated as a range on the histogram: `x LIKE 'abc%'` behaves like
+     * `x >= 'abc' AND x < 'abd'`. The most common values are matched against the whole pattern.
+     */
+    private static double likeSelectivityFromPatternAndStats(String pattern, ColumnStats<String> columnStats) {
+        StringBuilder prefixBuilder = new StringBuilder();
+        boolean escaped = false;
+        int restStart = pattern.length();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (!escaped && c == LikeOperators.DEFAULT_ESCAPE) {
+                escaped = true;
+                continue;
+            }
+            if (!escaped && (c == '%' || c == '_')) {
+                restStart = i;
+                break;
+            }
+            prefixBuilder.append(c);
+            escaped = false;
+        }
+        String prefix = prefixBuilder.toString();
+        String rest = pattern.substring(restStart);
+        if (rest.isEmpty()) {
+            // No wildcards, same as equality
+            return eqSelectivityFromValueAndStats(prefix, columnStats);
+        }
+        if (prefix.isEmpty()) {
+            return MAGIC_SEL;
+        }
+        Pattern regex = Pattern.compile(LikeOperators.patternToRegex(pattern), Pattern.DOTALL);
+        MostCommonValues mcv = columnStats.mostCommonValues();
+        Object[] mcvValues = mcv.values();
+        double[] frequencies = mcv.frequencies();
+        double mcvSelectivity = 0.0;
+        double sumMcvFrequencies = 0.0;
+        for (int i = 0; i < mcvValues.length; i++) {
+            if (regex.matcher((String) mcvValues[i]).matches()) {
+                mcvSelectivity += frequencies[i];
+            }
+            sumMcvFrequencies += frequencies[i];
+        }
+        List<String> histogram = columnStats.histogram();
+        double prefixSelectivity;
+        if (histogram.size() < 2) {
+            prefixSelectivity = DEFAULT_EQ_SEL;
+        } else {
+            DataType<String> type = columnStats.type();
+            double lower = histogramFractionBelow(histogram, type, prefix);
+            String nextPrefix = nextPrefix(prefix);
+            double upper = nextPrefix == null ? 1.0 : histogramFractionBelow(histogram, type, nextPrefix);
+            prefixSelectivity = Math.max(upper - lower, 1.0 / Math.max(columnStats.approxDistinct(), 1.0));
+        }
+        if (!onlyPercentWildcards(rest)) {
+            // Further restricted by the remainder of the pattern, e.g. `abc%def`
+            prefixSelectivity *= MAGIC_SEL;
+        }
+        double remainingFraction = Math.max(0.0, 1.0 - columnStats.nullFraction() - sumMcvFrequencies);
+        return clamp(mcvSelectivity + prefixSelectivity * remainingFraction);
+    }
+
+    /**
+     * @return the smallest string greater than all strings starting with prefix or null if there is none.
+     */
+    @Nullable
+    private static String nextPrefix(String prefix) {
+        for (int i = prefix.length() - 1; i >= 0; i--) {
+            char c = prefix.charAt(i);
+            if (c < Character.MAX_VALUE) {
+                return prefix.substring(0, i) + (char) (c + 1);
+            }
+        }
+        return null;
+    }
+
+    private static boolean onlyPercentWildcards(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) != '%') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasValue(Symbol symbol, @Nullable Row params) {
+        return symbol instanceof Literal || (symbol instanceof ParameterSymbol && params != null);
+    }
+
+    @Nullable
+    private static Object valueOf(Symbol symbol, @Nullable Row params) {
+        if (symbol instanceof ParameterSymbol) {
+            assert params != null : "params must not be null if a ParameterSymbol is resolved";
+            return params.get(((ParameterSymbol) symbol).index());
+        }
+        return ((Literal<?>) symbol).value();
+    }
+
+    @Nullable
+    private static <T> T castOrNull(DataType<T> type, Object value) {
+        try {
+            return type.implicitCast(value);
+        } catch (ClassCastException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static double clamp(double selectivity) {
+        return Math.max(0.0, Math.min(1.0, selectivity));
+    }
+
     @Nullable
     private static ColumnIdent getColumn(Symbol symbol) {
         if (symbol instanceof Reference) {
@@ -33,6 +33,7 @@ import io.crate.common.annotations.VisibleForTesting;
 import io.crate.common.collections.Lists2;
 import io.crate.data.Row;
 import io.crate.data.RowConsumer;
+import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
 import io.crate.execution.dsl.phases.NodeOperationTree;
 import io.crate.execution.dsl.projection.AbstractIndexWriterProjection;
@@ -42,6 +43,8 @@ import io.crate.execution.dsl.projection.SourceIndexWriterProjection;
 import io.crate.execution.dsl.projection.SourceIndexWriterReturnSummaryProjection;
 import io.crate.execution.dsl.projection.builder.InputColumns;
 import io.crate.execution.engine.NodeOperationTreeGenerator;
+import io.crate.execution.engine.collect.files.StdinLines;
+import io.crate.execution.engine.collect.files.StdinStreams;
 import io.crate.execution.engine.pipeline.TopN;
 import io.crate.expression.reference.file.SourceLineNumberExpression;
 import io.crate.expression.reference.file.SourceUriExpression;
@@ -64,6 +67,7 @@ import io.crate.planner.Plan;
 import io.crate.planner.PlannerContext;
 import io.crate.planner.node.dql.Collect;
 import io.crate.planner.operators.SubQueryResults;
+import io.crate.sql.tree.ColumnPolicy;
 import io.crate.types.DataTypes;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.cluster.node.DiscoveryNodes;
@@ -77,6 +81,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -118,6 +123,18 @@ public final class CopyFromPlan implements Plan {
         NodeOperationTree nodeOpTree = NodeOperationTreeGenerator
             .fromPlan(plan, dependencies.localNodeId());
 
+        if (copyFrom.isFromStdin()) {
+            StdinLines stream = plannerContext.transactionContext().sessionContext().takeCopyInStream();
+            if (stream == null) {
+                throw new UnsupportedFeatureException(
+                    "COPY FROM STDIN is only supported via the simple query flow of the PostgreSQL wire protocol");
+            }
+            StdinStreams stdinStreams = dependencies.stdinStreams();
+            UUID jobId = plannerContext.jobId();
+            stdinStreams.register(jobId, stream);
+            // The stream itself is closed by the protocol once the statement finished
+            consumer.completionFuture().whenComplete((result, err) -> stdinStreams.unregister(jobId));
+        }
         dependencies.phasesTaskFactory()
             .create(plannerContext.jobId(), List.of(nodeOpTree))
             .execute(consumer, plannerContext.transactionContext());
@@ -154,10 +171,22 @@ public final class CopyFromPlan implements Plan {
         var inputFormat = settingAsEnum(
             FileUriCollectPhase.InputFormat.class,
             settings.get(INPUT_FORMAT_SETTING.getKey(), INPUT_FORMAT_SETTING.getDefault(Settings.EMPTY)));
+        if (inputFormat == FileUriCollectPhase.InputFormat.PARQUET) {
+            if (copyFrom.isFromStdin()) {
+                throw new UnsupportedFeatureException("The parquet format is not supported with COPY FROM STDIN");
+            }
+            if (settings.get("compression", null) != null) {
+                throw new UnsupportedFeatureException(
+                    "Compression is not supported with the parquet format, parquet files compress their pages");
+            }
+        }
+        if (copyFrom.isFromStdin() && settings.get("compression", null) != null) {
+            throw new UnsupportedFeatureException("Compression is not supported with COPY FROM STDIN");
+        }
         // TODO make FileUriCollectPhase ctor accept an uri of the List<String>
         // instead of the Symbol type, such as the uri can be evaluated and converted
         // to the required type already at this stage, but not later on in FileCollectSource.
-        var boundedURI = validateAndConvertToLiteral(eval.apply(copyFrom.uri()));
+        var boundedURI = copyFrom.isFromStdin() ? null : validateAndConvertToLiteral(eval.apply(copyFrom.uri()));
 
         return new BoundCopyFrom(
             copyFrom.tableInfo(),
@@ -288,19 +317,31 @@ public final class CopyFromPlan implements Plan {
             rewriteToCollectToUsePartitionValues(table.partitionedByColumns(), partitionValues, toCollect);
         }
 
+        Collection<String> executionNodes;
+        Symbol uri;
+        if (copyFrom.isFromStdin()) {
+            // The client streaming the data is connected to the handler node
+            executionNodes = List.of(context.handlerNode());
+            uri = Literal.of(StdinStreams.uri(context.jobId()));
+        } else {
+            executionNodes = getExecutionNodes(
+                allNodes,
+                boundedCopyFrom.settings().getAsInt("num_readers", allNodes.getSize()),
+                boundedCopyFrom.nodePredicate());
+            uri = boundedCopyFrom.uri();
+        }
         FileUriCollectPhase collectPhase = new FileUriCollectPhase(
             context.jobId(),
             context.nextExecutionPhaseId(),
             "copyFrom",
-            getExecutionNodes(allNodes, boundedCopyFrom
-                .settings()
-                .getAsInt("num_readers", allNodes.getSize()), boundedCopyFrom.nodePredicate()),
-            boundedCopyFrom.uri(),
+            executionNodes,
+            uri,
             toCollect,
             Collections.emptyList(),
             boundedCopyFrom.settings().get("compression", null),
             boundedCopyFrom.settings().getAsBoolean("shared", null),
-            boundedCopyFrom.inputFormat()
+            boundedCopyFrom.inputFormat(),
+            targetColumns(table)
         );
 
         Collect collect = new Collect(collectPhase, TopN.NO_LIMIT, 0, 1, -1, null);
@@ -382,6 +423,18 @@ public final class CopyFromPlan implements Plan {
         return table.getReference(DocSysColumns.RAW);
     }
 
+    /**
+     * The columns which are read from files which have a schema. Only a table with a strict column policy ignores the
+     * other columns of the files, all others would add them as new columns.
+     */
+    @Nullable
+    private static List<String> targetColumns(DocTableInfo table) {
+        if (table.columnPolicy() != ColumnPolicy.STRICT) {
+            return null;
+        }
+        return Lists2.map(table.columns(), ref -> ref.column().name());
+    }
+
     private static Collection<String> getExecutionNodes(DiscoveryNodes allNodes,
                                                         int maxNodes,
                                                         final Predicate<DiscoveryNode> nodeFilters) {
@@ -397,17 +450,33 @@ public final class CopyFromPlan implements Plan {
 
     private static Symbol validateAndConvertToLiteral(Object uri) {
         if (uri instanceof String) {
+            ensureNotStdinUri((String) uri);
             return Literal.of(DataTypes.STRING.sanitizeValue(uri));
         } else if (uri instanceof List) {
             Object value = ((List) uri).get(0);
             if (!(value instanceof String)) {
                 throw AnalyzedCopyFrom.raiseInvalidType(DataTypes.guessType(uri));
             }
+            for (Object item : (List<?>) uri) {
+                if (item instanceof String) {
+                    ensureNotStdinUri((String) item);
+                }
+            }
             return Literal.of(DataTypes.STRING_ARRAY, DataTypes.STRING_ARRAY.sanitizeValue(uri));
         }
         throw AnalyzedCopyFrom.raiseInvalidType(DataTypes.guessType(uri));
     }
 
+    /**
+     * The stdin scheme is only used internally to read the data of a COPY FROM STDIN
+     */
+    private static void ensureNotStdinUri(String uri) {
+        if (StdinStreams.isStdinUri(uri.strip())) {
+            throw new IllegalArgumentException(
+                "The scheme '" + StdinStreams.NAME + "' is not supported, use COPY ... FROM STDIN instead");
+        }
+    }
+
     private static Predicate<DiscoveryNode> discoveryNodePredicate(@Nullable Object nodeFilter) {
         if (nodeFilter == null) {
             return discoveryNode -> true;
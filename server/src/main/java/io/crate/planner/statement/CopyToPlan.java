@@ -30,6 +30,8 @@ import io.crate.analyze.WhereClause;
 import io.crate.analyze.relations.DocTableRelation;
 import io.crate.common.annotations.VisibleForTesting;
 import io.crate.common.collections.Lists2;
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.Row;
 import io.crate.data.RowConsumer;
 import io.crate.exceptions.PartitionUnknownException;
@@ -39,6 +41,7 @@ import io.crate.execution.dsl.projection.MergeCountProjection;
 import io.crate.execution.dsl.projection.WriterProjection;
 import io.crate.execution.dsl.projection.builder.ProjectionBuilder;
 import io.crate.execution.engine.NodeOperationTreeGenerator;
+import io.crate.execution.engine.export.JsonLineFormatter;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
 import io.crate.expression.symbol.format.Style;
@@ -66,12 +69,14 @@ import io.crate.statistics.TableStats;
 import io.crate.types.DataTypes;
 import org.elasticsearch.common.settings.Settings;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 import static io.crate.analyze.CopyStatementSettings.COMPRESSION_SETTING;
@@ -106,6 +111,10 @@ public final class CopyToPlan implements Plan {
                               RowConsumer consumer,
                               Row params,
                               SubQueryResults subQueryResults) {
+        if (copyTo.isToStdout()) {
+            executeToStdout(executor, plannerContext, consumer, params, subQueryResults);
+            return;
+        }
         ExecutionPlan executionPlan = planCopyToExecution(
             copyTo,
             plannerContext,
@@ -122,6 +131,94 @@ public final class CopyToPlan implements Plan {
             .execute(consumer, plannerContext.transactionContext());
     }
 
+    private void executeToStdout(DependencyCarrier executor,
+                                 PlannerContext plannerContext,
+                                 RowConsumer consumer,
+                                 Row params,
+                                 SubQueryResults subQueryResults) {
+        if (!plannerContext.transactionContext().sessionContext().supportsCopyStdio()) {
+            throw new UnsupportedFeatureException("COPY TO STDOUT is only supported via the PostgreSQL wire protocol");
+        }
+        var boundedCopyTo = bind(
+            copyTo,
+            plannerContext.transactionContext(),
+            plannerContext.nodeContext(),
+            params,
+            subQueryResults);
+        List<ColumnIdent> overwriteColumns = List.copyOf(boundedCopyTo.overwrites().keySet());
+        ExecutionPlan executionPlan = planCopyToStdoutExecution(
+            boundedCopyTo,
+            overwriteColumns,
+            plannerContext,
+            tableStats,
+            executor.projectionBuilder(),
+            params);
+        JsonLineFormatter formatter = new JsonLineFormatter(
+            outputFormat(boundedCopyTo),
+            boundedCopyTo.outputNames(),
+            overwriteColumns);
+
+        NodeOperationTree nodeOpTree = NodeOperationTreeGenerator
+            .fromPlan(executionPlan, executor.localNodeId());
+        executor.phasesTaskFactory()
+            .create(plannerContext.jobId(), List.of(nodeOpTree))
+            .execute(new RowConsumer() {
+
+                @Override
+                public void accept(BatchIterator<Row> iterator, @Nullable Throwable failure) {
+                    consumer.accept(iterator == null ? null : BatchIterators.map(iterator, formatter), failure);
+                }
+
+                @Override
+                public CompletableFuture<?> completionFuture() {
+                    return consumer.completionFuture();
+                }
+            }, plannerContext.transactionContext());
+    }
+
+    /**
+     * Plans the collection of the rows of a COPY TO STDOUT. Instead of being written into files on the nodes,
+     * the rows are merged on the handler which formats and streams them to the client.
+     */
+    @VisibleForTesting
+    static ExecutionPlan planCopyToStdoutExecution(BoundCopyTo boundedCopyTo,
+                                                   List<ColumnIdent> overwriteColumns,
+                                                   PlannerContext context,
+                                                   TableStats tableStats,
+                                                   ProjectionBuilder projectionBuilder,
+                                                   Row params) {
+        if (boundedCopyTo.compressionType() != null) {
+            throw new UnsupportedFeatureException("Compression is not supported with COPY TO STDOUT");
+        }
+        if (boundedCopyTo.outputFormat() == WriterProjection.OutputFormat.PARQUET) {
+            throw new UnsupportedFeatureException("The parquet format is not supported with COPY TO STDOUT");
+        }
+        List<Symbol> outputs = new ArrayList<>(boundedCopyTo.outputs());
+        for (ColumnIdent column : overwriteColumns) {
+            outputs.add(boundedCopyTo.overwrites().get(column));
+        }
+        LogicalPlan collect = Collect.create(
+            new DocTableRelation(boundedCopyTo.table()),
+            outputs,
+            boundedCopyTo.whereClause(),
+            Set.of(),
+            tableStats,
+            context.params()
+        );
+        LogicalPlan source = optimizeCollect(context, tableStats, collect);
+        ExecutionPlan executionPlan = source.build(context, projectionBuilder, 0, 0, null, null, params, SubQueryResults.EMPTY);
+        return Merge.ensureOnHandler(executionPlan, context);
+    }
+
+    private static WriterProjection.OutputFormat outputFormat(BoundCopyTo boundedCopyTo) {
+        WriterProjection.OutputFormat outputFormat = boundedCopyTo.outputFormat();
+        if (outputFormat == null) {
+            return boundedCopyTo.columnsDefined() ?
+                WriterProjection.OutputFormat.JSON_ARRAY : WriterProjection.OutputFormat.JSON_OBJECT;
+        }
+        return outputFormat;
+    }
+
     @VisibleForTesting
     static ExecutionPlan planCopyToExecution(AnalyzedCopyTo copyTo,
                                              PlannerContext context,
@@ -136,19 +233,13 @@ public final class CopyToPlan implements Plan {
             params,
             subQueryResults);
 
-        WriterProjection.OutputFormat outputFormat = boundedCopyTo.outputFormat();
-        if (outputFormat == null) {
-            outputFormat = boundedCopyTo.columnsDefined() ?
-                WriterProjection.OutputFormat.JSON_ARRAY : WriterProjection.OutputFormat.JSON_OBJECT;
-        }
-
         WriterProjection projection = ProjectionBuilder.writerProjection(
             boundedCopyTo.outputs(),
             boundedCopyTo.uri(),
             boundedCopyTo.compressionType(),
             boundedCopyTo.overwrites(),
             boundedCopyTo.outputNames(),
-            outputFormat);
+            outputFormat(boundedCopyTo));
 
         LogicalPlan collect = Collect.create(
             new DocTableRelation(boundedCopyTo.table()),
@@ -247,13 +338,23 @@ public final class CopyToPlan implements Plan {
         if (!columnsDefined && outputFormat == WriterProjection.OutputFormat.JSON_ARRAY) {
             throw new UnsupportedFeatureException("Output format not supported without specifying columns.");
         }
+        if (!columnsDefined && outputFormat == WriterProjection.OutputFormat.PARQUET) {
+            // A parquet file has a schema, so the top-level columns are exported instead of the raw source
+            outputs = new ArrayList<>(table.columns().size());
+            outputNames = new ArrayList<>(table.columns().size());
+            for (Reference column : table.columns()) {
+                outputNames.add(column.column().name());
+                outputs.add(DocReferences.toSourceLookup(column));
+            }
+            overwrites = null;
+        }
 
         WhereClause whereClause = new WhereClause(copyTo.whereClause(), partitions, Collections.emptySet());
         return new BoundCopyTo(
             outputs,
             table,
             whereClause,
-            Literal.of(DataTypes.STRING.sanitizeValue(eval.apply(copyTo.uri()))),
+            copyTo.isToStdout() ? null : Literal.of(DataTypes.STRING.sanitizeValue(eval.apply(copyTo.uri()))),
             compressionType,
             outputFormat,
             outputNames,
@@ -21,9 +21,11 @@
 
 package io.crate.plugin;
 
+import io.crate.action.sql.PlanCache;
 import io.crate.action.sql.SQLOperations;
 import io.crate.expression.udf.UserDefinedFunctionService;
 import io.crate.memory.MemoryManagerFactory;
+import io.crate.memory.OffHeapMemoryPool;
 import io.crate.metadata.DanglingArtifactsService;
 import io.crate.metadata.FulltextAnalyzerResolver;
 import io.crate.planner.Planner;
@@ -40,10 +42,12 @@ public class SQLModule extends AbstractModule {
     protected void configure() {
         bind(FulltextAnalyzerResolver.class).asEagerSingleton();
         bind(PostgresNetty.class).asEagerSingleton();
+        bind(PlanCache.class).asEagerSingleton();
         bind(SQLOperations.class).asEagerSingleton();
         bind(Planner.class).asEagerSingleton();
         bind(TableStats.class).asEagerSingleton();
         bind(TableStatsService.class).asEagerSingleton();
+        bind(OffHeapMemoryPool.class).asEagerSingleton();
         bind(MemoryManagerFactory.class).asEagerSingleton();
         bind(UserDefinedFunctionService.class).asEagerSingleton();
         bind(RestSQLAction.class).asEagerSingleton();
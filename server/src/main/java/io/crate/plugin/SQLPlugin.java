@@ -56,6 +56,7 @@ import org.elasticsearch.plugins.ClusterPlugin;
 import org.elasticsearch.plugins.MapperPlugin;
 import org.elasticsearch.plugins.Plugin;
 
+import io.crate.action.sql.PlanCache;
 import io.crate.action.sql.SQLOperations;
 import io.crate.auth.AuthSettings;
 import io.crate.cluster.gracefulstop.DecommissionAllocationDecider;
@@ -75,6 +76,7 @@ import io.crate.expression.udf.UserDefinedFunctionsMetadata;
 import io.crate.license.CeLicenseModule;
 import io.crate.license.LicenseExtension;
 import io.crate.lucene.ArrayMapperService;
+import io.crate.memory.OffHeapMemoryPool;
 import io.crate.metadata.CustomMetadataUpgraderLoader;
 import io.crate.metadata.DanglingArtifactsService;
 import io.crate.metadata.DefaultTemplateService;
@@ -123,6 +125,7 @@ public class SQLPlugin extends Plugin implements ActionPlugin, MapperPlugin, Clu
         List<Setting<?>> settings = new ArrayList<>();
         settings.add(AnalyzerSettings.CUSTOM_ANALYSIS_SETTING_GROUP);
         settings.add(SQLOperations.NODE_READ_ONLY_SETTING);
+        settings.add(PlanCache.SIZE_SETTING);
 
         // Postgres settings are node settings
         settings.add(PostgresNetty.PSQL_ENABLED_SETTING.setting());
@@ -163,7 +166,9 @@ public class SQLPlugin extends Plugin implements ActionPlugin, MapperPlugin, Clu
             .add(Schemas.class)
             .add(DefaultTemplateService.class)
             .add(ArrayMapperService.class)
-            .add(DanglingArtifactsService.class);
+            .add(DanglingArtifactsService.class)
+            .add(OffHeapMemoryPool.class)
+            .add(PlanCache.class);
         if (licenseExtension != null) {
             builder.addAll(licenseExtension.getGuiceServiceClasses());
         }
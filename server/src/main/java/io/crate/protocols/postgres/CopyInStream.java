@@ -0,0 +1,268 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.execution.engine.collect.files.StdinLines;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelConfig;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The lines of the payload of the CopyData messages a client sends after a {@code COPY ... FROM STDIN}.
+ *
+ * <p>
+ * The messages are added by the netty thread and polled by the import without blocking, see {@link StdinLines}.
+ * To apply backpressure, reading from the socket is paused while more than {@link #HIGH_WATERMARK}
+ * bytes containing a complete line are buffered and resumed once the reader caught up to {@link #LOW_WATERMARK}
+ * bytes or no complete line is left. Reading is never paused while the reader waits for the rest of a line,
+ * the buffered bytes are accounted to the circuit breaker instead.
+ * </p>
+ */
+class CopyInStream implements StdinLines {
+
+    static final int HIGH_WATERMARK = 1024 * 1024;
+    static final int LOW_WATERMARK = 256 * 1024;
+    private static final String BREAKER_LABEL = "copy-from-stdin";
+
+    private final ChannelConfig channelConfig;
+    private final CircuitBreaker breaker;
+    private final CompositeByteBuf buffer = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+
+    /**
+     * Index up to which the buffer is known to contain no line break
+     */
+    private int scannedIndex = 0;
+    private long accountedBytes = 0L;
+    private boolean finished = false;
+    private boolean closed = false;
+    @Nullable
+    private String failure;
+    @Nullable
+    private CompletableFuture<Void> readable;
+
+    CopyInStream(ChannelConfig channelConfig, CircuitBreaker breaker) {
+        this.channelConfig = channelConfig;
+        this.breaker = breaker;
+    }
+
+    /**
+     * Adds the payload of a CopyData message. Takes ownership of the chunk.
+     */
+    void add(ByteBuf chunk) {
+        CompletableFuture<Void> toComplete;
+        synchronized (this) {
+            if (closed || finished || failure != null) {
+                chunk.release();
+                return;
+            }
+            int bytes = chunk.readableBytes();
+            try {
+                breaker.addEstimateBytesAndMaybeBreak(bytes, BREAKER_LABEL);
+                accountedBytes += bytes;
+                buffer.addComponent(true, chunk);
+                if (buffer.readableBytes() >= HIGH_WATERMARK && channelConfig.isAutoRead() && hasLineBreak()) {
+                    channelConfig.setAutoRead(false);
+                }
+            } catch (CircuitBreakingException e) {
+                chunk.release();
+                failure = e.getMessage();
+                releaseChunks();
+            }
+            toComplete = takeReadable();
+        }
+        complete(toComplete);
+    }
+
+    /**
+     * Called on CopyDone; the reader sees the end of the stream once all buffered data is consumed.
+     */
+    void finish() {
+        CompletableFuture<Void> toComplete;
+        synchronized (this) {
+            finished = true;
+            toComplete = takeReadable();
+        }
+        complete(toComplete);
+    }
+
+    /**
+     * Called on CopyFail or if the client disconnects; aborts the import.
+     */
+    void fail(String message) {
+        CompletableFuture<Void> toComplete;
+        synchronized (this) {
+            if (finished || closed) {
+                return;
+            }
+            failure = message;
+            releaseChunks();
+            toComplete = takeReadable();
+        }
+        complete(toComplete);
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    @Nullable
+    @Override
+    public synchronized String poll() {
+        ensureReadable();
+        int lineBreak = buffer.indexOf(scannedIndex, buffer.writerIndex(), (byte) '\n');
+        int end;
+        int next;
+        if (lineBreak == -1) {
+            if (!finished || !buffer.isReadable()) {
+                scannedIndex = buffer.writerIndex();
+                // The rest of the line is still to come, pausing now would never let it arrive
+                resumeReading();
+                return null;
+            }
+            // The last line doesn't need a line break
+            end = buffer.writerIndex();
+            next = end;
+        } else {
+            end = lineBreak;
+            next = lineBreak + 1;
+        }
+        int start = buffer.readerIndex();
+        if (end > start && buffer.getByte(end - 1) == '\r') {
+            end--;
+        }
+        String line = buffer.toString(start, end - start, StandardCharsets.UTF_8);
+        buffer.readerIndex(next);
+        buffer.discardReadComponents();
+        scannedIndex = buffer.readerIndex();
+        releaseConsumedBytes();
+        if (!channelConfig.isAutoRead() && (buffer.readableBytes() <= LOW_WATERMARK || !hasLineBreak())) {
+            channelConfig.setAutoRead(true);
+        }
+        return line;
+    }
+
+    @Override
+    public synchronized boolean isFinished() {
+        return closed || (finished && failure == null && !buffer.isReadable());
+    }
+
+    @Override
+    public synchronized CompletableFuture<?> whenReadable() {
+        if (failure != null
+            || closed
+            || finished
+            || hasLineBreak()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        resumeReading();
+        if (readable == null) {
+            readable = new CompletableFuture<>();
+        }
+        return readable;
+    }
+
+    /**
+     * Returns true if the buffer contains a complete line, advances {@link #scannedIndex} otherwise
+     */
+    private boolean hasLineBreak() {
+        if (buffer.indexOf(scannedIndex, buffer.writerIndex(), (byte) '\n') == -1) {
+            scannedIndex = buffer.writerIndex();
+            return false;
+        }
+        return true;
+    }
+
+    private void resumeReading() {
+        if (!channelConfig.isAutoRead()) {
+            channelConfig.setAutoRead(true);
+        }
+    }
+
+    /**
+     * Keeps the accounted bytes in line with the bytes left in the buffer
+     */
+    private void releaseConsumedBytes() {
+        long consumed = accountedBytes - buffer.readableBytes();
+        if (consumed > 0) {
+            breaker.addWithoutBreaking(-consumed);
+            accountedBytes -= consumed;
+        }
+    }
+
+    private void ensureReadable() {
+        if (failure != null) {
+            throw new UncheckedIOException(new IOException("COPY from stdin failed: " + failure));
+        }
+        if (closed) {
+            throw new UncheckedIOException(new IOException("Stream closed"));
+        }
+    }
+
+    @Nullable
+    private CompletableFuture<Void> takeReadable() {
+        CompletableFuture<Void> future = readable;
+        readable = null;
+        return future;
+    }
+
+    /**
+     * Completed outside of the lock, the callbacks continue the import
+     */
+    private static void complete(@Nullable CompletableFuture<Void> future) {
+        if (future != null) {
+            future.complete(null);
+        }
+    }
+
+    private void releaseChunks() {
+        buffer.release();
+        scannedIndex = 0;
+        breaker.addWithoutBreaking(-accountedBytes);
+        accountedBytes = 0L;
+        resumeReading();
+    }
+
+    void close() {
+        CompletableFuture<Void> toComplete;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (failure == null) {
+                releaseChunks();
+            }
+            toComplete = takeReadable();
+        }
+        complete(toComplete);
+    }
+}
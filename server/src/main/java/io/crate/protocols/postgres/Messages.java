@@ -457,6 +457,67 @@ public class Messages {
         }
     }
 
+    /**
+     * CopyInResponse
+     * | 'G' | int32 len | int8 format | int16 numCols | int16 format (per column)
+     *
+     * Uses the textual format for all columns.
+     */
+    static void sendCopyInResponse(Channel channel, int numColumns) {
+        ChannelFuture channelFuture = sendCopyResponse(channel, 'G', numColumns);
+        if (LOGGER.isTraceEnabled()) {
+            channelFuture.addListener((ChannelFutureListener) future -> LOGGER.trace("sentCopyInResponse"));
+        }
+        // The client waits for the response before sending data
+        channel.flush();
+    }
+
+    /**
+     * CopyOutResponse
+     * | 'H' | int32 len | int8 format | int16 numCols | int16 format (per column)
+     *
+     * Uses the textual format for all columns.
+     */
+    static void sendCopyOutResponse(Channel channel, int numColumns) {
+        ChannelFuture channelFuture = sendCopyResponse(channel, 'H', numColumns);
+        if (LOGGER.isTraceEnabled()) {
+            channelFuture.addListener((ChannelFutureListener) future -> LOGGER.trace("sentCopyOutResponse"));
+        }
+    }
+
+    private static ChannelFuture sendCopyResponse(Channel channel, char msgType, int numColumns) {
+        int length = 4 + 1 + 2 + numColumns * 2;
+        ByteBuf buffer = channel.alloc().buffer(length + 1);
+        buffer.writeByte(msgType);
+        buffer.writeInt(length);
+        buffer.writeByte(0);
+        buffer.writeShort(numColumns);
+        for (int i = 0; i < numColumns; i++) {
+            buffer.writeShort(0);
+        }
+        return channel.write(buffer);
+    }
+
+    /**
+     * CopyData
+     * | 'd' | int32 len | byteN data
+     */
+    static void sendCopyData(Channel channel, byte[] data) {
+        ByteBuf buffer = channel.alloc().buffer(5 + data.length);
+        buffer.writeByte('d');
+        buffer.writeInt(4 + data.length);
+        buffer.writeBytes(data);
+        channel.write(buffer);
+    }
+
+    /**
+     * CopyDone
+     * | 'c' | int32 len |
+     */
+    static void sendCopyDone(Channel channel) {
+        sendShortMsg(channel, 'c', "sentCopyDone");
+    }
+
     static void sendPortalSuspended(Channel channel) {
         sendShortMsg(channel, 's', "sentPortalSuspended");
     }
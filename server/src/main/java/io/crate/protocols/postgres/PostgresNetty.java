@@ -50,6 +50,7 @@ import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.PortsRange;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.http.BindHttpException;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
 import org.elasticsearch.transport.BindTransportException;
 import org.elasticsearch.transport.netty4.Netty4OpenChannelsHandler;
 
@@ -95,6 +96,7 @@ public class PostgresNetty extends AbstractLifecycleComponent {
     private final Logger namedLogger;
     private final Settings settings;
     private final UserManager userManager;
+    private final CircuitBreakerService breakerService;
     @Nullable
     private final SslContextProvider sslContextProvider;
 
@@ -117,6 +119,7 @@ public class PostgresNetty extends AbstractLifecycleComponent {
                          NetworkService networkService,
                          Authentication authentication,
                          EventLoopGroups eventLoopGroups,
+                         CircuitBreakerService breakerService,
                          SslContextProvider sslContextProvider) {
         this.settings = settings;
         this.userManager = userManager;
@@ -125,6 +128,7 @@ public class PostgresNetty extends AbstractLifecycleComponent {
         this.networkService = networkService;
         this.authentication = authentication;
         this.eventLoopGroups = eventLoopGroups;
+        this.breakerService = breakerService;
 
         if (SslConfigSettings.isPSQLSslEnabled(settings)) {
             namedLogger.info("PSQL SSL support is enabled.");
@@ -163,6 +167,7 @@ public class PostgresNetty extends AbstractLifecycleComponent {
                     sqlOperations,
                     userManager::getAccessControl,
                     authentication,
+                    breakerService::getBreaker,
                     sslContextProvider);
                 pipeline.addLast("frame-decoder", postgresWireProtocol.decoder);
                 pipeline.addLast("handler", postgresWireProtocol.handler);
@@ -23,6 +23,9 @@
 package io.crate.protocols.postgres;
 
 import io.crate.action.sql.DescribeResult;
+import io.crate.analyze.AnalyzedCopyFrom;
+import io.crate.analyze.AnalyzedCopyTo;
+import io.crate.analyze.AnalyzedStatement;
 import io.crate.action.sql.ResultReceiver;
 import io.crate.action.sql.SQLOperations;
 import io.crate.action.sql.Session;
@@ -48,7 +51,9 @@ import io.netty.handler.codec.ByteToMessageDecoder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreaker;
 import org.elasticsearch.http.netty4.Netty4HttpServerTransport;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
 
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLSession;
@@ -192,6 +197,7 @@ public class PostgresWireProtocol {
     private final SQLOperations sqlOperations;
     private final Function<SessionContext, AccessControl> getAccessControl;
     private final Authentication authService;
+    private final Function<String, CircuitBreaker> circuitBreakerProvider;
     private final SslReqHandler sslReqHandler;
 
     private DelayableWriteChannel channel;
@@ -199,6 +205,8 @@ public class PostgresWireProtocol {
     private byte msgType;
     private Session session;
     private boolean ignoreTillSync = false;
+    @Nullable
+    private volatile CopyInStream copyInStream;
     private AuthenticationContext authContext;
     private Properties properties;
 
@@ -215,8 +223,10 @@ public class PostgresWireProtocol {
     PostgresWireProtocol(SQLOperations sqlOperations,
                          Function<SessionContext, AccessControl> getAcessControl,
                          Authentication authService,
+                         Function<String, CircuitBreaker> circuitBreakerProvider,
                          @Nullable SslContextProvider sslContextProvider) {
         this.sqlOperations = sqlOperations;
+        this.circuitBreakerProvider = circuitBreakerProvider;
         this.getAccessControl = getAcessControl;
         this.authService = authService;
         this.sslReqHandler = new SslReqHandler(sslContextProvider);
@@ -367,6 +377,15 @@ public class PostgresWireProtocol {
                 case 'C':
                     handleClose(buffer, channel);
                     return;
+                case 'd':
+                    handleCopyData(buffer);
+                    return;
+                case 'c':
+                    handleCopyDone();
+                    return;
+                case 'f':
+                    handleCopyFail(buffer);
+                    return;
                 case 'X': // Terminate (called when jdbc connection is closed)
                     closeSession();
                     channel.close();
@@ -397,6 +416,10 @@ public class PostgresWireProtocol {
         public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
             LOGGER.trace("channelDisconnected");
             channel = null;
+            CopyInStream copyIn = copyInStream;
+            if (copyIn != null) {
+                copyIn.fail("client disconnected");
+            }
             closeSession();
             super.channelUnregistered(ctx);
         }
@@ -438,6 +461,7 @@ public class PostgresWireProtocol {
             User authenticatedUser = authContext.authenticate();
             String database = properties.getProperty("database");
             session = sqlOperations.createSession(database, authenticatedUser);
+            session.sessionContext().setSupportsCopyStdio(true);
             Messages.sendAuthenticationOK(channel)
                 .addListener(f -> sendParamsAndRdyForQuery(channel));
         } catch (Exception e) {
@@ -634,7 +658,15 @@ public class PostgresWireProtocol {
         }
         List<? extends DataType> outputTypes = session.getOutputTypes(portalName);
         ResultReceiver resultReceiver;
-        if (outputTypes == null) {
+        if (isCopyToStdout(session.getAnalyzedStatement(portalName))) {
+            maxRows = 0;
+            Messages.sendCopyOutResponse(channel, 1);
+            resultReceiver = new CopyOutReceiver(
+                query,
+                channel.bypassDelay(),
+                getAccessControl.apply(session.sessionContext())
+            );
+        } else if (outputTypes == null) {
             // this is a DML query
             maxRows = 0;
             resultReceiver = new RowCountReceiver(
@@ -710,6 +742,49 @@ public class PostgresWireProtocol {
         Messages.sendCloseComplete(channel);
     }
 
+    private static boolean isCopyToStdout(AnalyzedStatement analyzedStatement) {
+        return analyzedStatement instanceof AnalyzedCopyTo && ((AnalyzedCopyTo) analyzedStatement).isToStdout();
+    }
+
+    /**
+     * CopyData (F)
+     * | 'd' | int32 len | byteN data
+     *
+     * Data of a COPY FROM STDIN. It is dropped if there is no COPY in progress.
+     */
+    private void handleCopyData(ByteBuf buffer) {
+        int length = msgLength;
+        CopyInStream copyIn = copyInStream;
+        if (copyIn == null || copyIn.isClosed()) {
+            buffer.skipBytes(length);
+        } else {
+            copyIn.add(buffer.readRetainedSlice(length));
+        }
+    }
+
+    /**
+     * CopyDone (F)
+     * | 'c' | int32 len |
+     */
+    private void handleCopyDone() {
+        CopyInStream copyIn = copyInStream;
+        if (copyIn != null) {
+            copyIn.finish();
+        }
+    }
+
+    /**
+     * CopyFail (F)
+     * | 'f' | int32 len | string errorMessage
+     */
+    private void handleCopyFail(ByteBuf buffer) {
+        String message = readCString(buffer);
+        CopyInStream copyIn = copyInStream;
+        if (copyIn != null) {
+            copyIn.fail(message);
+        }
+    }
+
     @VisibleForTesting
     void handleSimpleQuery(ByteBuf buffer, final DelayableWriteChannel channel) {
         String queryString = readCString(buffer);
@@ -740,9 +815,24 @@ public class PostgresWireProtocol {
             session.bind("", "", Collections.emptyList(), null);
             DescribeResult describeResult = session.describe('P', "");
             List<Symbol> fields = describeResult.getFields();
+            AnalyzedStatement analyzedStatement = session.getAnalyzedStatement("");
 
             CompletableFuture<?> execute;
-            if (fields == null) {
+            CopyInStream copyIn = null;
+            if (isCopyToStdout(analyzedStatement)) {
+                Messages.sendCopyOutResponse(channel, 1);
+                CopyOutReceiver copyOutReceiver = new CopyOutReceiver(query, channel.bypassDelay(), accessControl);
+                execute = session.execute("", 0, copyOutReceiver);
+            } else if (analyzedStatement instanceof AnalyzedCopyFrom && ((AnalyzedCopyFrom) analyzedStatement).isFromStdin()) {
+                // The statement reads the CopyData messages the client sends after the CopyInResponse
+                copyIn = new CopyInStream(
+                    channel.config(), circuitBreakerProvider.apply(HierarchyCircuitBreakerService.QUERY));
+                copyInStream = copyIn;
+                session.sessionContext().setCopyInStream(copyIn);
+                Messages.sendCopyInResponse(channel, 0);
+                RowCountReceiver rowCountReceiver = new RowCountReceiver(query, channel.bypassDelay(), accessControl);
+                execute = session.execute("", 0, rowCountReceiver);
+            } else if (fields == null) {
                 RowCountReceiver rowCountReceiver = new RowCountReceiver(query, channel.bypassDelay(), accessControl);
                 execute = session.execute("", 0, rowCountReceiver);
             } else {
@@ -760,7 +850,19 @@ public class PostgresWireProtocol {
             if (execute != null) {
                 channel.delayWritesUntil(execute);
             }
-            return session.sync();
+            if (copyIn == null) {
+                return session.sync();
+            }
+            CopyInStream stream = copyIn;
+            try {
+                return session.sync().whenComplete((res, err) -> stream.close());
+            } catch (Throwable t) {
+                stream.close();
+                throw t;
+            } finally {
+                // Unset in case the statement didn't take the stream
+                session.sessionContext().setCopyInStream(null);
+            }
         } catch (Throwable t) {
             Messages.sendErrorResponse(channel, accessControl, t);
             result.completeExceptionally(t);
@@ -0,0 +1,493 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.ResultReceiver;
+import io.crate.data.Row;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.Symbols;
+import io.crate.protocols.http.Headers;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+import org.elasticsearch.http.netty4.cors.Netty4CorsConfig;
+import org.elasticsearch.http.netty4.cors.Netty4CorsHandler;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * ResultReceiver which writes the rows of a result set as chunked HTTP content while they're produced, instead of
+ * building the whole response in memory.
+ *
+ * <p>
+ * It expects to be used with {@code maxRows > 0}: On every {@link #batchFinished()} the pending rows are flushed
+ * and more rows are requested via {@code fetchMore} once the channel is writable again.
+ * {@code fetchMore} is called on the event loop of the channel.
+ * </p>
+ *
+ * The response status and headers are only sent together with the first chunk. Failures before that can still be
+ * sent as regular error response (see {@link #isResponseStarted()}); failures after that close the connection,
+ * without the terminating chunk, so that clients can detect the incomplete response.
+ */
+class RestResultSetStreamReceiver implements ResultReceiver<Void> {
+
+    private static final Logger LOGGER = LogManager.getLogger(RestResultSetStreamReceiver.class);
+
+    /**
+     * Flush a chunk in between batches if the pending output exceeds this size
+     */
+    static final int CHUNK_SIZE_IN_BYTES = 64 * 1024;
+
+    enum Format {
+        JSON(XContentType.JSON.mediaType()),
+        NDJSON("application/x-ndjson"),
+        CSV("text/csv; charset=UTF-8");
+
+        private final String mediaType;
+
+        Format(String mediaType) {
+            this.mediaType = mediaType;
+        }
+
+        static Format of(String format) {
+            try {
+                return valueOf(format.toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(
+                    "Invalid format `" + format + "`. Supported formats are: json, ndjson, csv");
+            }
+        }
+    }
+
+    private final Channel channel;
+    private final FullHttpRequest request;
+    private final Netty4CorsConfig corsConfig;
+    private final Format format;
+    private final List<Symbol> outputFields;
+    private final long startTimeNs;
+    private final Consumer<RestResultSetStreamReceiver> fetchMore;
+    private final ChunkOutputStream out;
+    private final RowWriter rowWriter;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private boolean responseStarted = false;
+    private boolean waitingForWritability = false;
+    private long rowCount;
+
+    RestResultSetStreamReceiver(Channel channel,
+                                FullHttpRequest request,
+                                Netty4CorsConfig corsConfig,
+                                Format format,
+                                List<Symbol> outputFields,
+                                boolean includeTypesOnResponse,
+                                long startTimeNs,
+                                Consumer<RestResultSetStreamReceiver> fetchMore) throws IOException {
+        this.channel = channel;
+        this.request = request;
+        this.corsConfig = corsConfig;
+        this.format = format;
+        this.outputFields = outputFields;
+        this.startTimeNs = startTimeNs;
+        this.fetchMore = fetchMore;
+        this.out = new ChunkOutputStream(channel.alloc().buffer());
+        switch (format) {
+            case JSON:
+                rowWriter = new JsonRowWriter(out, outputFields, includeTypesOnResponse);
+                break;
+            case NDJSON:
+                rowWriter = new NdJsonRowWriter(out, outputFields);
+                break;
+            case CSV:
+                rowWriter = new CsvRowWriter(out, outputFields);
+                break;
+            default:
+                throw new AssertionError("Unsupported format: " + format);
+        }
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        try {
+            rowWriter.write(row, outputFields.size());
+            rowCount++;
+            if (out.size() >= CHUNK_SIZE_IN_BYTES) {
+                writeChunk();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void batchFinished() {
+        try {
+            writeChunk();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        synchronized (this) {
+            if (!channel.isWritable()) {
+                waitingForWritability = true;
+                return;
+            }
+        }
+        // Don't resume on the current thread to avoid growing the stack with each batch
+        channel.eventLoop().execute(this::fetchMore);
+    }
+
+    /**
+     * To be called if the writability of the channel changed.
+     * Requests more rows if the receiver is waiting for the channel to become writable.
+     */
+    void channelWritabilityChanged() {
+        synchronized (this) {
+            if (!waitingForWritability || !channel.isWritable()) {
+                return;
+            }
+            waitingForWritability = false;
+        }
+        channel.eventLoop().execute(this::fetchMore);
+    }
+
+    private void fetchMore() {
+        try {
+            fetchMore.accept(this);
+        } catch (Throwable t) {
+            fail(t);
+        }
+    }
+
+    @Override
+    public void allFinished(boolean interrupted) {
+        if (interrupted) {
+            out.release();
+            channel.close();
+            result.complete(null);
+            return;
+        }
+        try {
+            rowWriter.finish(rowCount, startTimeNs);
+            writeChunk();
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        ChannelFuture lastContentFuture = channel.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        if (Headers.isCloseConnection(request) || request.protocolVersion().equals(HttpVersion.HTTP_1_0)) {
+            lastContentFuture.addListener(ChannelFutureListener.CLOSE);
+        }
+        out.release();
+        result.complete(null);
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable t) {
+        out.release();
+        if (responseStarted) {
+            LOGGER.warn("Failed to stream result set, closing connection", t);
+            channel.close();
+        }
+        result.completeExceptionally(t);
+    }
+
+    @Override
+    public CompletableFuture<Void> completionFuture() {
+        return result;
+    }
+
+    /**
+     * @return true if the response status and headers have already been sent to the client
+     */
+    boolean isResponseStarted() {
+        return responseStarted;
+    }
+
+    private void writeChunk() throws IOException {
+        rowWriter.flush();
+        if (!responseStarted) {
+            responseStarted = true;
+            channel.write(newResponse());
+        }
+        if (out.size() > 0) {
+            ByteBuf chunk = out.takeBuffer(channel.alloc().buffer());
+            channel.writeAndFlush(new DefaultHttpContent(chunk));
+        } else {
+            channel.flush();
+        }
+    }
+
+    private DefaultHttpResponse newResponse() {
+        HttpVersion httpVersion = request.protocolVersion();
+        DefaultHttpResponse resp = new DefaultHttpResponse(httpVersion, HttpResponseStatus.OK);
+        resp.headers().add(HttpHeaderNames.CONTENT_TYPE, format.mediaType);
+        Netty4CorsHandler.setCorsResponseHeaders(request, resp, corsConfig);
+        if (httpVersion.equals(HttpVersion.HTTP_1_0)) {
+            // HTTP/1.0 has no chunked transfer encoding, the end of the response is signaled by closing the connection
+            return resp;
+        }
+        HttpUtil.setTransferEncodingChunked(resp, true);
+        return resp;
+    }
+
+    private interface RowWriter {
+
+        void write(Row row, int numCols) throws IOException;
+
+        void flush() throws IOException;
+
+        void finish(long rowCount, long startTimeNs) throws IOException;
+    }
+
+    /**
+     * Writes the same document as {@link RestResultSetReceiver}
+     */
+    private static final class JsonRowWriter implements RowWriter {
+
+        private final XContentBuilder xContentBuilder;
+        private final ResultToXContentBuilder builder;
+
+        JsonRowWriter(OutputStream out, List<Symbol> outputFields, boolean includeTypes) throws IOException {
+            this.xContentBuilder = new XContentBuilder(JsonXContent.JSON_XCONTENT, out);
+            this.builder = ResultToXContentBuilder.builder(xContentBuilder);
+            builder.cols(outputFields);
+            if (includeTypes) {
+                builder.colTypes(outputFields);
+            }
+            builder.startRows();
+        }
+
+        @Override
+        public void write(Row row, int numCols) throws IOException {
+            builder.addRow(row, numCols);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            xContentBuilder.flush();
+        }
+
+        @Override
+        public void finish(long rowCount, long startTimeNs) throws IOException {
+            builder
+                .finishRows()
+                .rowCount(rowCount)
+                .duration(startTimeNs)
+                .build()
+                .close();
+        }
+    }
+
+    /**
+     * Writes one JSON object per row and line, using the column names as keys
+     */
+    private static final class NdJsonRowWriter implements RowWriter {
+
+        private final OutputStream out;
+        private final String[] columns;
+
+        NdJsonRowWriter(OutputStream out, List<Symbol> outputFields) {
+            this.out = out;
+            this.columns = columnNames(outputFields);
+        }
+
+        @Override
+        public void write(Row row, int numCols) throws IOException {
+            try (XContentBuilder builder = new XContentBuilder(JsonXContent.JSON_XCONTENT, out)) {
+                builder.startObject();
+                for (int i = 0; i < numCols; i++) {
+                    builder.field(columns[i], row.get(i));
+                }
+                builder.endObject();
+            }
+            out.write('\n');
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void finish(long rowCount, long startTimeNs) {
+        }
+    }
+
+    /**
+     * Writes a header line with the column names followed by one line per row.
+     * Objects and arrays are written as JSON.
+     */
+    private static final class CsvRowWriter implements RowWriter {
+
+        private final OutputStream out;
+        private final StringBuilder line = new StringBuilder();
+
+        CsvRowWriter(OutputStream out, List<Symbol> outputFields) throws IOException {
+            this.out = out;
+            String[] columns = columnNames(outputFields);
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendEscaped(line, columns[i]);
+            }
+            writeLine();
+        }
+
+        @Override
+        public void write(Row row, int numCols) throws IOException {
+            for (int i = 0; i < numCols; i++) {
+                if (i > 0) {
+                    line.append(',');
+                }
+                appendValue(line, row.get(i));
+            }
+            writeLine();
+        }
+
+        private void writeLine() throws IOException {
+            line.append('\n');
+            out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+            line.setLength(0);
+        }
+
+        private static void appendValue(StringBuilder sb, @Nullable Object value) throws IOException {
+            if (value == null) {
+                return;
+            }
+            if (value instanceof String) {
+                appendEscaped(sb, (String) value);
+            } else if (value instanceof Number || value instanceof Boolean) {
+                sb.append(value);
+            } else {
+                appendEscaped(sb, Strings.toString(JsonXContent.contentBuilder().value(value)));
+            }
+        }
+
+        private static void appendEscaped(StringBuilder sb, String value) {
+            boolean needsQuotes = false;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                    needsQuotes = true;
+                    break;
+                }
+            }
+            if (!needsQuotes) {
+                sb.append(value);
+                return;
+            }
+            sb.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    sb.append('"');
+                }
+                sb.append(c);
+            }
+            sb.append('"');
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void finish(long rowCount, long startTimeNs) {
+        }
+    }
+
+    private static String[] columnNames(List<Symbol> outputFields) {
+        String[] columns = new String[outputFields.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = Symbols.pathFromSymbol(outputFields.get(i)).sqlFqn();
+        }
+        return columns;
+    }
+
+    /**
+     * OutputStream writing into a ByteBuf which is handed over to the channel once a chunk is complete.
+     * {@link #close()} is a no-op so that builders writing into the stream can be closed.
+     */
+    private static final class ChunkOutputStream extends OutputStream {
+
+        private ByteBuf buffer;
+
+        ChunkOutputStream(ByteBuf buffer) {
+            this.buffer = buffer;
+        }
+
+        int size() {
+            return buffer.readableBytes();
+        }
+
+        ByteBuf takeBuffer(ByteBuf newBuffer) {
+            ByteBuf chunk = buffer;
+            buffer = newBuffer;
+            return chunk;
+        }
+
+        void release() {
+            if (buffer.refCnt() > 0) {
+                buffer.release();
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            buffer.writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.writeBytes(b, off, len);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
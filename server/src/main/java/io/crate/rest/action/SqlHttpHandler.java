@@ -36,6 +36,7 @@ import io.crate.auth.user.UserLookup;
 import io.crate.breaker.BlockBasedRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccountingWithEstimators;
+import io.crate.exceptions.Exceptions;
 import io.crate.exceptions.SQLExceptions;
 import io.crate.expression.symbol.Symbol;
 import io.crate.expression.symbol.Symbols;
@@ -82,6 +83,11 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
     private static final String REQUEST_HEADER_USER = "User";
     private static final String REQUEST_HEADER_SCHEMA = "Default-Schema";
 
+    /**
+     * Number of rows after which a streamed result set is flushed and the channel writability is checked
+     */
+    private static final int STREAM_FETCH_SIZE = 1000;
+
     private final Settings settings;
     private final SQLOperations sqlOperations;
     private final Function<String, CircuitBreaker> circuitBreakerProvider;
@@ -91,6 +97,9 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
 
     private Session session;
 
+    @Nullable
+    private volatile RestResultSetStreamReceiver activeStream;
+
     SqlHttpHandler(Settings settings,
                    SQLOperations sqlOperations,
                    Function<String, CircuitBreaker> circuitBreakerProvider,
@@ -112,9 +121,13 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
             Session session = ensureSession(request);
             Map<String, List<String>> parameters = new QueryStringDecoder(request.uri()).parameters();
             ByteBuf content = request.content();
-            handleSQLRequest(session, content, paramContainFlag(parameters, "types"))
+            handleSQLRequest(session, ctx, request, parameters, content)
                 .whenComplete((result, t) -> {
                     try {
+                        if (result == null && t == null) {
+                            // The result set has been streamed
+                            return;
+                        }
                         sendResponse(session, ctx, request, parameters, result, t);
                     } catch (Throwable ex) {
                         LOGGER.error("Error sending response", ex);
@@ -136,6 +149,31 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         return values != null && (values.equals(singletonList("")) || values.equals(singletonList("true")));
     }
 
+    /**
+     * @return the format in which the result set should be streamed or null if it shouldn't be streamed.
+     *         Results are streamed if requested via the "stream" flag or if a format other than json is requested.
+     */
+    @Nullable
+    private static RestResultSetStreamReceiver.Format streamFormat(Map<String, List<String>> parameters) {
+        List<String> formats = parameters.get("format");
+        RestResultSetStreamReceiver.Format format = formats == null || formats.isEmpty()
+            ? RestResultSetStreamReceiver.Format.JSON
+            : RestResultSetStreamReceiver.Format.of(formats.get(formats.size() - 1));
+        if (format == RestResultSetStreamReceiver.Format.JSON && !paramContainFlag(parameters, "stream")) {
+            return null;
+        }
+        return format;
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        RestResultSetStreamReceiver stream = activeStream;
+        if (stream != null) {
+            stream.channelWritabilityChanged();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
         if (session != null) {
@@ -188,10 +226,17 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         ctx.writeAndFlush(resp, promise);
     }
 
-    private CompletableFuture<XContentBuilder> handleSQLRequest(Session session, ByteBuf content, boolean includeTypes) {
+    private CompletableFuture<XContentBuilder> handleSQLRequest(Session session,
+                                                                ChannelHandlerContext ctx,
+                                                                FullHttpRequest request,
+                                                                Map<String, List<String>> parameters,
+                                                                ByteBuf content) {
         SQLRequestParseContext parseContext;
+        RestResultSetStreamReceiver.Format streamFormat;
+        boolean includeTypes = paramContainFlag(parameters, "types");
         try {
             parseContext = SQLRequestParser.parseSource(Netty4Utils.toBytesReference(content));
+            streamFormat = streamFormat(parameters);
         } catch (Throwable t) {
             return CompletableFuture.failedFuture(t);
         }
@@ -203,6 +248,10 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         }
         try {
             if (args != null || bulkArgs == null) {
+                if (streamFormat != null) {
+                    return executeStreamingRequest(
+                        session, ctx, request, parseContext.stmt(), args, includeTypes, streamFormat);
+                }
                 return executeSimpleRequest(session, parseContext.stmt(), args, includeTypes);
             } else {
                 return executeBulkRequest(session, parseContext.stmt(), bulkArgs);
@@ -268,6 +317,60 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
             .thenCompose(ignored -> resultReceiver.completionFuture());
     }
 
+    /**
+     * Like {@link #executeSimpleRequest(Session, String, List, boolean)} but writes result sets as chunked response
+     * while they're produced. The returned future completes with null if the result set has been streamed.
+     */
+    private CompletableFuture<XContentBuilder> executeStreamingRequest(Session session,
+                                                                       ChannelHandlerContext ctx,
+                                                                       FullHttpRequest request,
+                                                                       String stmt,
+                                                                       List<Object> args,
+                                                                       boolean includeTypes,
+                                                                       RestResultSetStreamReceiver.Format format) throws IOException {
+        long startTimeInNs = System.nanoTime();
+        session.parse(UNNAMED, stmt, emptyList());
+        session.bind(UNNAMED, UNNAMED, args == null ? emptyList() : args, null);
+        DescribeResult description = session.describe('P', UNNAMED);
+        List<Symbol> resultFields = description.getFields();
+        if (resultFields == null) {
+            ResultReceiver<XContentBuilder> resultReceiver =
+                new RestRowCountReceiver(JsonXContent.contentBuilder(), startTimeInNs, includeTypes);
+            session.execute(UNNAMED, 0, resultReceiver);
+            return session.sync()
+                .thenCompose(ignored -> resultReceiver.completionFuture());
+        }
+        RestResultSetStreamReceiver resultReceiver = new RestResultSetStreamReceiver(
+            ctx.channel(),
+            request,
+            corsConfig,
+            format,
+            resultFields,
+            includeTypes,
+            startTimeInNs,
+            receiver -> {
+                // Resumes the suspended portal
+                session.execute(UNNAMED, STREAM_FETCH_SIZE, receiver);
+                session.sync();
+            }
+        );
+        // Stop reading further requests of this connection until the response is complete,
+        // the session can only serve one request at a time.
+        ctx.channel().config().setAutoRead(false);
+        activeStream = resultReceiver;
+        session.execute(UNNAMED, STREAM_FETCH_SIZE, resultReceiver);
+        return session.sync()
+            .thenCompose(ignored -> resultReceiver.completionFuture())
+            .handle((ignored, t) -> {
+                activeStream = null;
+                ctx.channel().config().setAutoRead(true);
+                if (t == null || resultReceiver.isResponseStarted()) {
+                    return null;
+                }
+                throw Exceptions.toRuntimeException(t);
+            });
+    }
+
     private CompletableFuture<XContentBuilder> executeBulkRequest(Session session,
                                                                   String stmt,
                                                                   List<List<Object>> bulkArgs) {
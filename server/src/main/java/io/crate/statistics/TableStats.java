@@ -25,8 +25,10 @@ package io.crate.statistics;
 import io.crate.metadata.RelationName;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Holds table statistics that are updated periodically by {@link TableStatsService}.
@@ -34,9 +36,24 @@ import java.util.Set;
 public class TableStats {
 
     private volatile Map<RelationName, Stats> tableStats = new HashMap<>();
+    private final List<Runnable> updateListeners = new CopyOnWriteArrayList<>();
 
     public void updateTableStats(Map<RelationName, Stats> tableStats) {
         this.tableStats = tableStats;
+        for (Runnable listener : updateListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * Adds a listener which is called each time after the statistics have been updated.
+     */
+    public void addUpdateListener(Runnable listener) {
+        updateListeners.add(listener);
+    }
+
+    public void removeUpdateListener(Runnable listener) {
+        updateListeners.remove(listener);
     }
 
     /**
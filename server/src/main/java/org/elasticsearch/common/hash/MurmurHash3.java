@@ -19,6 +19,7 @@
 
 package org.elasticsearch.common.hash;
 
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.util.ByteUtils;
 
 
@@ -77,14 +78,37 @@ public enum MurmurHash3 {
      * @param seed   - seed.
      * @return - hashcode
      */
-    @SuppressWarnings("fall through")
     public static long hash64(byte[] data, int length, int seed) {
+        return hash64(data, 0, length, seed);
+    }
+
+    /**
+     * Murmur3 64-bit variant of the bytes in {@code bytes}, without copying them.
+     *
+     * @param bytes - input bytes
+     * @return - hashcode
+     */
+    public static long hash64(BytesRef bytes) {
+        return hash64(bytes.bytes, bytes.offset, bytes.length, DEFAULT_SEED);
+    }
+
+    /**
+     * Murmur3 64-bit variant. This is essentially MSB 8 bytes of Murmur3 128-bit variant.
+     *
+     * @param data   - input byte array
+     * @param offset - offset of the first byte to hash
+     * @param length - number of bytes to hash
+     * @param seed   - seed.
+     * @return - hashcode
+     */
+    @SuppressWarnings("fall through")
+    public static long hash64(byte[] data, int offset, int length, int seed) {
         long hash = seed;
         final int nblocks = length >> 3;
 
         // body
         for (int i = 0; i < nblocks; i++) {
-            final int i8 = i << 3;
+            final int i8 = offset + (i << 3);
             long k = ((long) data[i8] & 0xff)
                      | (((long) data[i8 + 1] & 0xff) << 8)
                      | (((long) data[i8 + 2] & 0xff) << 16)
@@ -104,8 +128,8 @@ public enum MurmurHash3 {
 
         // tail
         long k1 = 0;
-        int tailStart = nblocks << 3;
-        switch (length - tailStart) {
+        int tailStart = offset + (nblocks << 3);
+        switch (offset + length - tailStart) {
             case 7:
                 k1 ^= ((long) data[tailStart + 6] & 0xff) << 48;
                 // fall through
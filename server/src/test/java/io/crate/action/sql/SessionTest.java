@@ -40,6 +40,7 @@ import io.crate.planner.PlannerContext;
 import io.crate.planner.operators.SubQueryResults;
 import io.crate.protocols.postgres.Portal;
 import io.crate.sql.parser.SqlParser;
+import io.crate.statistics.TableStats;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import io.crate.types.DataType;
@@ -53,6 +54,7 @@ import org.mockito.Mockito;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -513,4 +515,85 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         session.sync().get(5, TimeUnit.SECONDS);
         assertThat(jobsLogs.metrics().iterator().next().totalCount(), is(1L));
     }
+
+    @Test
+    public void testAnalyzedStatementIsSharedAcrossSessionsUsingPlanCache() {
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService).build();
+        PlanCache planCache = new PlanCache(10, null, null);
+        Session session1 = newSessionWithPlanCache(sqlExecutor, planCache);
+        Session session2 = newSessionWithPlanCache(sqlExecutor, planCache);
+
+        session1.parse("S_1", "select name from sys.cluster where name = ?", List.of(DataTypes.STRING));
+        session2.parse("S_1", "select name from sys.cluster where name = ?", List.of(DataTypes.STRING));
+
+        assertThat(
+            session2.preparedStatements.get("S_1").analyzedStatement(),
+            Matchers.sameInstance(session1.preparedStatements.get("S_1").analyzedStatement()));
+        PlanCacheStats stats = planCache.stats();
+        assertThat(stats.entries(), is(1L));
+        assertThat(stats.hits(), is(1L));
+        assertThat(stats.misses(), is(1L));
+    }
+
+    @Test
+    public void test_plan_cache_only_counts_lookups_of_analyzed_statements() {
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService).build();
+        PlanCache planCache = new PlanCache(10, null, null);
+        String query = "select name from sys.cluster";
+        var key = new PlanCache.Key(query, List.of(), SessionContext.systemSessionContext());
+
+        assertThat(planCache.get(key, 1L), nullValue());
+        PlanCache.Entry entry = planCache.put(
+            key, SqlParser.createStatement(query), sqlExecutor.analyze(query), 1L);
+        assertThat(planCache.getPlan(entry, 1L), nullValue());
+        planCache.putPlan(entry, mock(Plan.class), 1L);
+        assertThat(planCache.getPlan(planCache.get(key, 1L), 1L), Matchers.notNullValue());
+
+        PlanCacheStats stats = planCache.stats();
+        assertThat(stats.hits(), is(1L));
+        assertThat(stats.misses(), is(1L));
+    }
+
+    @Test
+    public void test_plan_cache_is_invalidated_if_table_stats_change() {
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService).build();
+        TableStats tableStats = new TableStats();
+        PlanCache planCache = new PlanCache(10, null, tableStats);
+        planCache.start();
+        Session session = newSessionWithPlanCache(sqlExecutor, planCache);
+
+        session.parse("S_1", "select name from sys.cluster where name = ?", List.of(DataTypes.STRING));
+        assertThat(planCache.stats().entries(), is(1L));
+
+        tableStats.updateTableStats(Map.of());
+        assertThat(planCache.stats().entries(), is(0L));
+        planCache.stop();
+    }
+
+    @Test
+    public void testWriteStatementsAreNotCached() throws Exception {
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService)
+            .addTable(TableDefinitions.USER_TABLE_DEFINITION)
+            .build();
+        PlanCache planCache = new PlanCache(10, null, null);
+        Session session = newSessionWithPlanCache(sqlExecutor, planCache);
+
+        session.parse("S_1", "delete from users where id = ?", List.of(DataTypes.LONG));
+
+        assertThat(session.preparedStatements.get("S_1").cacheEntry(), nullValue());
+        assertThat(planCache.stats().entries(), is(0L));
+    }
+
+    private static Session newSessionWithPlanCache(SQLExecutor sqlExecutor, PlanCache planCache) {
+        return new Session(
+            sqlExecutor.nodeCtx,
+            sqlExecutor.analyzer,
+            sqlExecutor.planner,
+            new JobsLogs(() -> false),
+            false,
+            mock(DependencyCarrier.class),
+            AccessControl.DISABLED,
+            SessionContext.systemSessionContext(),
+            planCache);
+    }
 }
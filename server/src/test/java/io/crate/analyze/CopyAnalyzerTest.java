@@ -46,6 +46,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
 import static io.crate.analyze.TableDefinitions.TEST_PARTITIONED_TABLE_IDENT;
@@ -55,6 +56,7 @@ import static io.crate.testing.SymbolMatchers.isLiteral;
 import static io.crate.testing.SymbolMatchers.isReference;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.IsEqual.equalTo;
 
 public class CopyAnalyzerTest extends CrateDummyClusterServiceUnitTest {
@@ -170,6 +172,40 @@ public class CopyAnalyzerTest extends CrateDummyClusterServiceUnitTest {
         assertThat(analysis.inputFormat(), is(FileUriCollectPhase.InputFormat.JSON));
     }
 
+    @Test
+    public void testCopyFromStdinHasNoUri() {
+        AnalyzedCopyFrom analysis = e.analyze("COPY users FROM STDIN WITH (format='csv')");
+        assertThat(analysis.isFromStdin(), is(true));
+
+        BoundCopyFrom boundCopyFrom = analyze("COPY users FROM STDIN WITH (format='csv')");
+        assertThat(boundCopyFrom.uri(), nullValue());
+        assertThat(boundCopyFrom.inputFormat(), is(FileUriCollectPhase.InputFormat.CSV));
+    }
+
+    @Test
+    public void test_copy_from_rejects_uris_with_the_internal_stdin_scheme() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("The scheme 'stdin' is not supported, use COPY ... FROM STDIN instead");
+        analyze("COPY users FROM ['/some/file.json', 'STDIN:///" + UUID.randomUUID() + "']");
+    }
+
+    @Test
+    public void test_copy_from_stdin_does_not_support_compression() {
+        expectedException.expect(UnsupportedFeatureException.class);
+        expectedException.expectMessage("Compression is not supported with COPY FROM STDIN");
+        analyze("COPY users FROM STDIN WITH (compression='gzip')");
+    }
+
+    @Test
+    public void testCopyToStdoutDoesNotRequireDirectory() {
+        AnalyzedCopyTo analysis = e.analyze("COPY users (id, name) TO STDOUT");
+        assertThat(analysis.isToStdout(), is(true));
+
+        BoundCopyTo boundCopyTo = analyze("COPY users (id, name) TO STDOUT");
+        assertThat(boundCopyTo.uri(), nullValue());
+        assertThat(boundCopyTo.outputNames(), contains("id", "name"));
+    }
+
     @Test
     public void testCopyToFile() throws Exception {
         expectedException.expect(UnsupportedOperationException.class);
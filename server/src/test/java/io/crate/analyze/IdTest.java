@@ -63,6 +63,14 @@ public class IdTest extends ESTestCase {
         assertThat(id1, Matchers.not(Matchers.equalTo(id2)));
     }
 
+    @Test
+    public void test_ids_are_auto_generated_only_without_primary_key() {
+        assertThat(Id.isAutoGenerated(List.of()), is(true));
+        assertThat(Id.isAutoGenerated(_ID_LIST), is(true));
+        assertThat(Id.isAutoGenerated(List.of(ci("id"))), is(false));
+        assertThat(Id.isAutoGenerated(List.of(_ID, ci("id"))), is(false));
+    }
+
     @Test
     public void testSinglePrimaryKey() throws Exception {
         String id = generateId(List.of(ci("id")), List.of("1"), ci("id"));
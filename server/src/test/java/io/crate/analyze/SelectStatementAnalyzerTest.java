@@ -212,6 +212,7 @@ public class SelectStatementAnalyzerTest extends CrateDummyClusterServiceUnitTes
             "network",
             "os",
             "os_info",
+            "plan_cache",
             "port",
             "process",
             "rest_url",
@@ -44,6 +44,8 @@ import org.junit.Test;
 import java.util.UUID;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
 
 public class ShardUpsertRequestTest extends ESTestCase {
 
@@ -160,4 +162,41 @@ public class ShardUpsertRequestTest extends ESTestCase {
 
         assertThat(request, equalTo(request2));
     }
+
+    @Test
+    public void test_streaming_of_request_with_auto_generated_ids_which_is_retried() throws Exception {
+        ShardId shardId = new ShardId("test", UUIDs.randomBase64UUID(), 1);
+        ShardUpsertRequest request = new ShardUpsertRequest.Builder(
+            new SessionSettings("dummyUser", SearchPath.createSearchPathFrom("dummySchema")),
+            TimeValue.timeValueSeconds(30),
+            DuplicateKeyAction.UPDATE_OR_FAIL,
+            true,
+            null,
+            new Reference[]{NAME_REF},
+            null,
+            UUID.randomUUID(),
+            false,
+            true
+        ).newRequest(shardId);
+        request.add(0, new ShardUpsertRequest.Item(
+            UUIDs.base64UUID(),
+            null,
+            new Object[]{"Marvin"},
+            null,
+            null,
+            null));
+        assertThat(request.autoGeneratedIdTimestamp(), greaterThanOrEqualTo(0L));
+        assertThat(request.isRetry(), is(false));
+        request.onRetry();
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        request.writeTo(out);
+
+        StreamInput in = out.bytes().streamInput();
+        ShardUpsertRequest request2 = new ShardUpsertRequest(in);
+
+        assertThat(request2.isRetry(), is(true));
+        assertThat(request2.autoGeneratedIdTimestamp(), is(request.autoGeneratedIdTimestamp()));
+        assertThat(request, equalTo(request2));
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.memory.OffHeapMemoryManager;
+import io.crate.memory.OffHeapMemoryPool;
+import io.crate.types.DataTypes;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class GroupByHashTableTest extends ESTestCase {
+
+    private OffHeapMemoryPool pool;
+    private OffHeapMemoryManager memoryManager;
+    private AtomicLong accountedPageBytes;
+
+    @Before
+    public void setupMemoryManager() {
+        pool = new OffHeapMemoryPool(0);
+        pool.start();
+        accountedPageBytes = new AtomicLong();
+        memoryManager = new OffHeapMemoryManager(pool, accountedPageBytes::addAndGet);
+    }
+
+    @After
+    public void closeMemoryManager() {
+        memoryManager.close();
+        pool.close();
+    }
+
+    private GroupByHashTable newTable(int numAggregations) {
+        Streamer<?>[] streamers = DataTypes.getStreamers(List.of(DataTypes.STRING, DataTypes.INTEGER));
+        return new GroupByHashTable(memoryManager, RamAccounting.NO_ACCOUNTING, streamers, numAggregations);
+    }
+
+    @Test
+    public void test_same_key_resolves_to_same_group() {
+        GroupByHashTable table = newTable(1);
+        assertThat(table.findOrInsert(new Object[] { "foo", 1 }), is(-1));
+        assertThat(table.findOrInsert(new Object[] { "foo", 2 }), is(-2));
+        assertThat(table.findOrInsert(new Object[] { "foo", 1 }), is(0));
+        assertThat(table.findOrInsert(new Object[] { null, 1 }), is(-3));
+        assertThat(table.findOrInsert(new Object[] { null, 1 }), is(2));
+        assertThat(table.size(), is(3));
+    }
+
+    @Test
+    public void test_keys_and_states_survive_growing_the_table() {
+        GroupByHashTable table = newTable(2);
+        int numGroups = 10_000;
+        for (int i = 0; i < numGroups; i++) {
+            int groupId = -(table.findOrInsert(new Object[] { "key-" + i, i }) + 1);
+            assertThat(groupId, is(i));
+            table.state(groupId, 0, (long) i);
+            table.state(groupId, 1, "state-" + i);
+        }
+        assertThat(table.size(), is(numGroups));
+
+        Object[] cells = new Object[2];
+        for (int i = 0; i < numGroups; i++) {
+            assertThat(table.findOrInsert(new Object[] { "key-" + i, i }), is(i));
+            table.readKey(i, cells);
+            assertThat(cells[0], is("key-" + i));
+            assertThat(cells[1], is(i));
+            assertThat(table.state(i, 0), is((long) i));
+            assertThat(table.state(i, 1), is("state-" + i));
+        }
+    }
+
+    @Test
+    public void test_key_larger_than_page_size_can_be_stored() {
+        GroupByHashTable table = newTable(0);
+        String largeKey = "x".repeat(GroupByHashTable.PAGE_SIZE * 2);
+        assertThat(table.findOrInsert(new Object[] { "small", 1 }), is(-1));
+        assertThat(table.findOrInsert(new Object[] { largeKey, 1 }), is(-2));
+        assertThat(table.findOrInsert(new Object[] { largeKey, 1 }), is(1));
+
+        Object[] cells = new Object[2];
+        table.readKey(1, cells);
+        assertThat(cells[0], is(largeKey));
+        table.readKey(0, cells);
+        assertThat(cells[0], is("small"));
+    }
+
+    @Test
+    public void test_close_returns_the_pages_to_the_memory_manager() {
+        GroupByHashTable table = newTable(0);
+        String largeKey = "x".repeat(GroupByHashTable.PAGE_SIZE * 2);
+        table.findOrInsert(new Object[] { "small", 1 });
+        table.findOrInsert(new Object[] { largeKey, 1 });
+        assertThat(accountedPageBytes.get(), greaterThan(0L));
+
+        table.close();
+        assertThat(accountedPageBytes.get(), is(0L));
+    }
+}
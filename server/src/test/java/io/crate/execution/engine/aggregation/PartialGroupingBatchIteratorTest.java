@@ -0,0 +1,148 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.breaker.BlockBasedRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.TestingBatchIterators;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class PartialGroupingBatchIteratorTest extends ESTestCase {
+
+    /**
+     * Counts the rows per {@code value % modulo}, accounting 10 bytes per group
+     */
+    private static Collector<Row, Map<Integer, Long>, Iterable<Row>> countByModulo(int modulo,
+                                                                                   RamAccounting ramAccounting) {
+        return Collector.of(
+            HashMap::new,
+            (counts, row) -> {
+                int key = (int) row.get(0) % modulo;
+                if (counts.merge(key, 1L, Long::sum) == 1L) {
+                    ramAccounting.addBytes(10);
+                }
+            },
+            (counts1, counts2) -> {
+                throw new UnsupportedOperationException("combine not supported");
+            },
+            counts -> counts.entrySet().stream()
+                .map(e -> new RowN(e.getKey(), e.getValue()))
+                .collect(Collectors.toList())
+        );
+    }
+
+    private static Map<Integer, Long> mergeCounts(List<Object[]> rows) {
+        Map<Integer, Long> result = new HashMap<>();
+        for (Object[] row : rows) {
+            result.merge((Integer) row[0], (Long) row[1], Long::sum);
+        }
+        return result;
+    }
+
+    @Test
+    public void testLowCardinalityKeysAreFullyAggregated() throws Exception {
+        List<Object[]> expectedResult = IntStream.range(0, 10)
+            .mapToObj(i -> new Object[]{i, 2_000L})
+            .collect(Collectors.toList());
+        BatchIteratorTester tester = new BatchIteratorTester(() -> new PartialGroupingBatchIterator<>(
+            TestingBatchIterators.range(0, 20_000),
+            countByModulo(10, RamAccounting.NO_ACCOUNTING),
+            Map::size,
+            counts -> {},
+            RamAccounting.NO_ACCOUNTING,
+            Long.MAX_VALUE
+        ));
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testUniqueKeysSwitchToBypass() throws Exception {
+        int numRows = PartialGroupingBatchIterator.SAMPLE_ROWS * 3;
+        int[] consumedRows = new int[1];
+        var it = new PartialGroupingBatchIterator<>(
+            BatchIterators.map(TestingBatchIterators.range(0, numRows), row -> {
+                consumedRows[0]++;
+                return row;
+            }),
+            countByModulo(Integer.MAX_VALUE, RamAccounting.NO_ACCOUNTING),
+            Map::size,
+            counts -> {},
+            RamAccounting.NO_ACCOUNTING,
+            Long.MAX_VALUE
+        );
+        int consumedRowsOnFirstResult = -1;
+        List<Object[]> rows = new ArrayList<>();
+        while (it.moveNext()) {
+            if (consumedRowsOnFirstResult == -1) {
+                consumedRowsOnFirstResult = consumedRows[0];
+            }
+            rows.add(it.currentElement().materialize());
+        }
+        assertThat(it.isBypassed(), is(true));
+        assertThat(consumedRowsOnFirstResult, is(PartialGroupingBatchIterator.SAMPLE_ROWS));
+        assertThat(rows.size(), is(numRows));
+        assertThat(mergeCounts(rows).size(), is(numRows));
+    }
+
+    @Test
+    public void testGroupsAreFlushedIfMemoryLimitIsReached() throws Exception {
+        RamAccounting ramAccounting = new BlockBasedRamAccounting(bytes -> {}, 0);
+        int[] closedStates = new int[1];
+        BatchIterator<Row> it = new PartialGroupingBatchIterator<>(
+            TestingBatchIterators.range(0, 1_000),
+            countByModulo(50, ramAccounting),
+            Map::size,
+            counts -> closedStates[0]++,
+            ramAccounting,
+            100L
+        );
+        List<Object[]> rows = BatchIterators.collect(it, Collectors.mapping(Row::materialize, Collectors.toList()))
+            .get();
+
+        assertThat(rows.size(), greaterThan(50));
+        Map<Integer, Long> counts = mergeCounts(rows);
+        assertThat(counts.size(), is(50));
+        for (Long count : counts.values()) {
+            assertThat(count, is(20L));
+        }
+        assertThat(ramAccounting.totalBytes(), is(0L));
+        assertThat("every flushed state must be closed", closedStates[0], greaterThan(1));
+    }
+}
@@ -61,6 +61,22 @@ public class CollectSetAggregationTest extends AggregationTest {
         assertEquals(new ArrayType<>(DataTypes.INTEGER), collectSet.info().returnType());
     }
 
+    @Test
+    public void test_function_implements_doc_values_aggregator_for_numeric_and_string_types() {
+        for (var dataType : List.of(
+            DataTypes.BYTE,
+            DataTypes.SHORT,
+            DataTypes.INTEGER,
+            DataTypes.LONG,
+            DataTypes.TIMESTAMPZ,
+            DataTypes.TIMESTAMP,
+            DataTypes.FLOAT,
+            DataTypes.DOUBLE,
+            DataTypes.STRING)) {
+            assertHasDocValueAggregator("collect_set", List.of(dataType));
+        }
+    }
+
     @Test
     public void testDouble() throws Exception {
         assertThat(
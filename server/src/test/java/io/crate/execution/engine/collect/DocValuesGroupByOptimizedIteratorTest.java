@@ -23,13 +23,17 @@
 package io.crate.execution.engine.collect;
 
 import io.crate.breaker.RamAccounting;
+import io.crate.common.collections.Lists2;
 import io.crate.data.BatchIterator;
+import io.crate.data.Input;
 import io.crate.data.Row;
+import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.aggregation.impl.SumAggregation;
 import io.crate.expression.reference.doc.lucene.BytesRefColumnReference;
 import io.crate.expression.reference.doc.lucene.CollectorContext;
 import io.crate.expression.reference.doc.lucene.LongColumnReference;
 import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
+import io.crate.expression.symbol.Literal;
 import io.crate.metadata.Functions;
 import io.crate.metadata.Reference;
 import io.crate.metadata.ReferenceIdent;
@@ -38,6 +42,8 @@ import io.crate.metadata.RowGranularity;
 import io.crate.metadata.functions.Signature;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.TestingRowConsumer;
+import io.crate.types.ArrayType;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.NumericDocValuesField;
@@ -46,10 +52,14 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.ByteBuffersDirectory;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.lucene.BytesRefs;
+import org.elasticsearch.index.mapper.KeywordFieldMapper;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.index.mapper.NumberFieldMapper;
 import org.junit.Before;
 import org.junit.Test;
@@ -64,6 +74,8 @@ import java.util.function.Consumer;
 import static io.crate.testing.TestingHelpers.createNodeContext;
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 
 public class DocValuesGroupByOptimizedIteratorTest extends CrateDummyClusterServiceUnitTest {
 
@@ -192,6 +204,234 @@ public class DocValuesGroupByOptimizedIteratorTest extends CrateDummyClusterServ
         );
     }
 
+    @Test
+    public void test_group_by_many_keys_with_missing_values_over_several_segments() throws Exception {
+        var indexWriter = new IndexWriter(
+            new ByteBuffersDirectory(),
+            new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+        Object[][] segments = new Object[][] {
+            new Object[][] {{"a", 1L, 1L}, {"a", 1L, 2L}, {null, 1L, 4L}},
+            new Object[][] {{"a", 1L, 8L}, {"b", null, 16L}}
+        };
+        for (Object segment : segments) {
+            for (Object[] row : (Object[][]) segment) {
+                Document doc = new Document();
+                if (row[0] != null) {
+                    doc.add(new SortedSetDocValuesField("x", BytesRefs.toBytesRef(row[0])));
+                }
+                if (row[1] != null) {
+                    doc.add(new NumericDocValuesField("y", (Long) row[1]));
+                }
+                doc.add(new NumericDocValuesField("z", (Long) row[2]));
+                indexWriter.addDocument(doc);
+            }
+            indexWriter.commit();
+        }
+        var indexSearcher = new IndexSearcher(DirectoryReader.open(indexWriter));
+        assertThat(indexSearcher.getIndexReader().leaves().size(), is(2));
+
+        SumAggregation<?> sumAggregation = (SumAggregation<?>) functions.getQualified(
+            Signature.aggregate(
+                SumAggregation.NAME,
+                DataTypes.LONG.getTypeSignature(),
+                DataTypes.LONG.getTypeSignature()
+            ),
+            List.of(DataTypes.LONG),
+            DataTypes.LONG
+        );
+        var aggregationField = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        aggregationField.setName("z");
+        var sumDocValuesAggregator = sumAggregation.getDocValueAggregator(
+            List.of(DataTypes.LONG),
+            List.of(aggregationField)
+        );
+        var keyRefs = List.of(
+            new Reference(
+                new ReferenceIdent(RelationName.fromIndexName("test"), "x"),
+                RowGranularity.DOC,
+                DataTypes.STRING,
+                null,
+                null
+            ),
+            new Reference(
+                new ReferenceIdent(RelationName.fromIndexName("test"), "y"),
+                RowGranularity.DOC,
+                DataTypes.LONG,
+                null,
+                null
+            )
+        );
+        var it = DocValuesGroupByOptimizedIterator.GroupByIterator.forManyKeys(
+            List.of(sumDocValuesAggregator),
+            indexSearcher,
+            keyRefs,
+            List.of(new BytesRefColumnReference("x"), new LongColumnReference("y")),
+            RamAccounting.NO_ACCOUNTING,
+            new MatchAllDocsQuery(),
+            new CollectorContext()
+        );
+
+        var rowConsumer = new TestingRowConsumer();
+        rowConsumer.accept(it, null);
+        assertThat(
+            rowConsumer.getResult(),
+            containsInAnyOrder(
+                new Object[]{"a", 1L, 11L},
+                new Object[]{null, 1L, 4L},
+                new Object[]{"b", null, 16L}
+            )
+        );
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void test_group_by_doc_values_optimized_iterator_with_literal_aggregation_argument() throws Exception {
+        AggregationFunction percentile = (AggregationFunction) functions.getQualified(
+            Signature.aggregate(
+                "percentile",
+                DataTypes.LONG.getTypeSignature(),
+                DataTypes.DOUBLE.getTypeSignature(),
+                DataTypes.DOUBLE.getTypeSignature()
+            ),
+            List.of(DataTypes.LONG, DataTypes.DOUBLE),
+            DataTypes.DOUBLE
+        );
+
+        var aggregationField = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        aggregationField.setName("z");
+        var percentileDocValuesAggregator = percentile.getDocValueAggregator(
+            List.of(DataTypes.LONG, DataTypes.DOUBLE),
+            List.of(aggregationField),
+            List.of(Literal.of(0.5)),
+            Version.CURRENT
+        );
+        assertThat(percentileDocValuesAggregator, notNullValue());
+
+        var it = DocValuesGroupByOptimizedIterator.GroupByIterator.forSingleKey(
+            List.of(percentileDocValuesAggregator),
+            indexSearcher,
+            new Reference(
+                new ReferenceIdent(RelationName.fromIndexName("test"), "y"),
+                RowGranularity.DOC,
+                DataTypes.LONG,
+                null,
+                null
+            ),
+            List.of(new LongColumnReference("y")),
+            RamAccounting.NO_ACCOUNTING,
+            new MatchAllDocsQuery(),
+            new CollectorContext()
+        );
+        var rowConsumer = new TestingRowConsumer();
+        rowConsumer.accept(it, null);
+
+        // The doc values result must match the result of the regular aggregation over the same values
+        Object expectedForZero = percentileOf(percentile, 0.5, 2L, 4L);
+        Object expectedForOne = percentileOf(percentile, 0.5, 1L, 3L);
+        assertThat(
+            Lists2.map(
+                rowConsumer.getResult(),
+                row -> new Object[]{row[0], percentile.terminatePartial(RamAccounting.NO_ACCOUNTING, row[1])}),
+            containsInAnyOrder(new Object[]{0L, expectedForZero}, new Object[]{1L, expectedForOne})
+        );
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object percentileOf(AggregationFunction percentile, double fraction, Long... values) {
+        Object state = percentile.newState(RamAccounting.NO_ACCOUNTING, Version.CURRENT, Version.CURRENT, null);
+        for (Long value : values) {
+            state = percentile.iterate(
+                RamAccounting.NO_ACCOUNTING, null, state, Literal.of(value), Literal.of(fraction));
+        }
+        return percentile.terminatePartial(RamAccounting.NO_ACCOUNTING, state);
+    }
+
+    @Test
+    public void test_group_by_doc_values_optimized_iterator_with_numeric_collect_set() throws Exception {
+        var aggregationField = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        aggregationField.setName("z");
+        AggregationFunction<?, ?> collectSet = collectSet(DataTypes.LONG);
+
+        List<Object[]> result = groupByYWithCollectSet(collectSet, DataTypes.LONG, aggregationField);
+
+        // The doc values states must be equal to the states of the regular aggregation over the same values
+        assertThat(
+            result,
+            containsInAnyOrder(
+                new Object[]{0L, collectSetStateOf(collectSet, 2L, 4L)},
+                new Object[]{1L, collectSetStateOf(collectSet, 1L, 3L)}
+            )
+        );
+    }
+
+    @Test
+    public void test_group_by_doc_values_optimized_iterator_with_keyword_collect_set() throws Exception {
+        var aggregationField = new KeywordFieldMapper.KeywordFieldType();
+        aggregationField.setName("x");
+        AggregationFunction<?, ?> collectSet = collectSet(DataTypes.STRING);
+
+        List<Object[]> result = groupByYWithCollectSet(collectSet, DataTypes.STRING, aggregationField);
+
+        assertThat(
+            result,
+            containsInAnyOrder(
+                new Object[]{0L, collectSetStateOf(collectSet, "0")},
+                new Object[]{1L, collectSetStateOf(collectSet, "1")}
+            )
+        );
+    }
+
+    private AggregationFunction<?, ?> collectSet(DataType<?> argumentType) {
+        return (AggregationFunction<?, ?>) functions.getQualified(
+            Signature.aggregate(
+                "collect_set",
+                argumentType.getTypeSignature(),
+                new ArrayType<>(argumentType).getTypeSignature()
+            ),
+            List.of(argumentType),
+            new ArrayType<>(argumentType)
+        );
+    }
+
+    private List<Object[]> groupByYWithCollectSet(AggregationFunction<?, ?> collectSet,
+                                                  DataType<?> argumentType,
+                                                  MappedFieldType aggregationField) throws Exception {
+        var collectSetDocValuesAggregator = collectSet.getDocValueAggregator(
+            List.of(argumentType),
+            List.of(aggregationField)
+        );
+        assertThat(collectSetDocValuesAggregator, notNullValue());
+
+        var it = DocValuesGroupByOptimizedIterator.GroupByIterator.forSingleKey(
+            List.of(collectSetDocValuesAggregator),
+            indexSearcher,
+            new Reference(
+                new ReferenceIdent(RelationName.fromIndexName("test"), "y"),
+                RowGranularity.DOC,
+                DataTypes.LONG,
+                null,
+                null
+            ),
+            List.of(new LongColumnReference("y")),
+            RamAccounting.NO_ACCOUNTING,
+            new MatchAllDocsQuery(),
+            new CollectorContext()
+        );
+        var rowConsumer = new TestingRowConsumer();
+        rowConsumer.accept(it, null);
+        return rowConsumer.getResult();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object collectSetStateOf(AggregationFunction collectSet, Object... values) {
+        Object state = collectSet.newState(RamAccounting.NO_ACCOUNTING, Version.CURRENT, Version.CURRENT, null);
+        for (Object value : values) {
+            Input<Object> input = () -> value;
+            state = collectSet.iterate(RamAccounting.NO_ACCOUNTING, null, state, input);
+        }
+        return state;
+    }
+
     @Test
     public void test_optimized_iterator_stop_processing_on_kill() throws Exception {
         Throwable expectedException = stopOnInterrupting(it -> it.kill(new InterruptedException("killed")));
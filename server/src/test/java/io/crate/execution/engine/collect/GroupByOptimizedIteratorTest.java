@@ -33,16 +33,24 @@ import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
 import io.crate.expression.symbol.AggregateMode;
 import io.crate.memory.OnHeapMemoryManager;
 import io.crate.metadata.NodeContext;
+import io.crate.metadata.Reference;
+import io.crate.metadata.ReferenceIdent;
+import io.crate.metadata.RelationName;
+import io.crate.metadata.RowGranularity;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.TestingRowConsumer;
+import io.crate.types.DataTypes;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.ByteBuffersDirectory;
@@ -64,6 +72,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import static io.crate.testing.TestingHelpers.createNodeContext;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 
@@ -193,6 +202,135 @@ public class GroupByOptimizedIteratorTest extends CrateDummyClusterServiceUnitTe
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
 
+    @Test
+    public void test_group_by_many_keys_over_ordinals_and_numeric_values_of_several_segments() throws Exception {
+        IndexWriter iw = new IndexWriter(
+            new ByteBuffersDirectory(),
+            new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE));
+        Object[][] segments = new Object[][] {
+            new Object[][] {{"a", 1L}, {"a", 1L}, {"b", 2L}, {null, 1L}},
+            new Object[][] {{"a", 1L}, {"b", null}}
+        };
+        for (Object segment : segments) {
+            for (Object[] row : (Object[][]) segment) {
+                Document doc = new Document();
+                if (row[0] != null) {
+                    doc.add(new SortedSetDocValuesField("x", new BytesRef((String) row[0])));
+                }
+                if (row[1] != null) {
+                    doc.add(new NumericDocValuesField("y", (Long) row[1]));
+                }
+                iw.addDocument(doc);
+            }
+            iw.commit();
+        }
+        IndexSearcher indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
+        assertThat(indexSearcher.getIndexReader().leaves().size(), is(2));
+
+        var it = GroupByOptimizedIterator.getManyKeysIterator(
+            indexSearcher,
+            List.of(
+                new Reference(
+                    new ReferenceIdent(RelationName.fromIndexName("test"), "x"),
+                    RowGranularity.DOC,
+                    DataTypes.STRING,
+                    null,
+                    null
+                ),
+                new Reference(
+                    new ReferenceIdent(RelationName.fromIndexName("test"), "y"),
+                    RowGranularity.DOC,
+                    DataTypes.LONG,
+                    null,
+                    null
+                )
+            ),
+            aggregationContexts,
+            List.of(),
+            List.of(),
+            RamAccounting.NO_ACCOUNTING,
+            new OnHeapMemoryManager(usedBytes -> {}),
+            Version.CURRENT,
+            new InputRow(List.of()),
+            new MatchAllDocsQuery(),
+            new CollectorContext(),
+            AggregateMode.ITER_FINAL
+        );
+        var rowConsumer = new TestingRowConsumer();
+        rowConsumer.accept(it, null);
+        assertThat(
+            rowConsumer.getResult(),
+            containsInAnyOrder(
+                new Object[] {"a", 1L, 3L},
+                new Object[] {"b", 2L, 1L},
+                new Object[] {null, 1L, 1L},
+                new Object[] {"b", null, 1L}
+            )
+        );
+    }
+
+    @Test
+    public void test_group_by_many_keyword_keys_with_missing_values_over_several_segments() throws Exception {
+        IndexWriter iw = new IndexWriter(
+            new ByteBuffersDirectory(),
+            new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE));
+        String[] columns = new String[] {"country", "device", "status"};
+        String[][][] segments = new String[][][] {
+            {{"AT", "mobile", "ok"}, {"AT", "mobile", "ok"}, {"DE", null, "ok"}},
+            {{"AT", "mobile", "ok"}, {"CH", "desktop", "failed"}, {"DE", null, "ok"}, {null, null, null}}
+        };
+        for (String[][] segment : segments) {
+            for (String[] row : segment) {
+                Document doc = new Document();
+                for (int i = 0; i < columns.length; i++) {
+                    if (row[i] != null) {
+                        doc.add(new SortedSetDocValuesField(columns[i], new BytesRef(row[i])));
+                    }
+                }
+                iw.addDocument(doc);
+            }
+            iw.commit();
+        }
+        IndexSearcher indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
+        assertThat(indexSearcher.getIndexReader().leaves().size(), is(2));
+
+        List<Reference> keyRefs = new ArrayList<>();
+        for (String column : columns) {
+            keyRefs.add(new Reference(
+                new ReferenceIdent(RelationName.fromIndexName("test"), column),
+                RowGranularity.DOC,
+                DataTypes.STRING,
+                null,
+                null
+            ));
+        }
+        var it = GroupByOptimizedIterator.getManyKeysIterator(
+            indexSearcher,
+            keyRefs,
+            aggregationContexts,
+            List.of(),
+            List.of(),
+            RamAccounting.NO_ACCOUNTING,
+            new OnHeapMemoryManager(usedBytes -> {}),
+            Version.CURRENT,
+            new InputRow(List.of()),
+            new MatchAllDocsQuery(),
+            new CollectorContext(),
+            AggregateMode.ITER_FINAL
+        );
+        var rowConsumer = new TestingRowConsumer();
+        rowConsumer.accept(it, null);
+        assertThat(
+            rowConsumer.getResult(),
+            containsInAnyOrder(
+                new Object[] {"AT", "mobile", "ok", 3L},
+                new Object[] {"DE", null, "ok", 2L},
+                new Object[] {"CH", "desktop", "failed", 1L},
+                new Object[] {null, null, null, 1L}
+            )
+        );
+    }
+
     @Test
     public void test_optimized_iterator_stop_processing_on_kill() throws Exception {
         Throwable expectedException = stopOnInterrupting(it -> it.kill(new InterruptedException("killed")));
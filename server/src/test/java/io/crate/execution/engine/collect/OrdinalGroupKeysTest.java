@@ -0,0 +1,207 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+package io.crate.execution.engine.collect;
+
+import io.crate.breaker.RamAccounting;
+import io.crate.metadata.Reference;
+import io.crate.metadata.ReferenceIdent;
+import io.crate.metadata.RelationName;
+import io.crate.metadata.RowGranularity;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+
+public class OrdinalGroupKeysTest extends ESTestCase {
+
+    private static Reference ref(String name, DataType<?> type) {
+        return new Reference(
+            new ReferenceIdent(RelationName.fromIndexName("test"), name),
+            RowGranularity.DOC,
+            type,
+            null,
+            null
+        );
+    }
+
+    /**
+     * Creates one segment per array of rows, a null value is a missing value.
+     */
+    private static IndexReader createReader(List<Reference> keyRefs, Object[][]... segments) throws IOException {
+        IndexWriter iw = new IndexWriter(
+            new ByteBuffersDirectory(),
+            new IndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE));
+        for (Object[][] segment : segments) {
+            for (Object[] row : segment) {
+                Document doc = new Document();
+                for (int i = 0; i < keyRefs.size(); i++) {
+                    String column = keyRefs.get(i).column().fqn();
+                    if (row[i] instanceof String) {
+                        doc.add(new SortedSetDocValuesField(column, new BytesRef((String) row[i])));
+                    } else if (row[i] != null) {
+                        doc.add(new NumericDocValuesField(column, (Long) row[i]));
+                    }
+                }
+                iw.addDocument(doc);
+            }
+            iw.commit();
+        }
+        DirectoryReader reader = DirectoryReader.open(iw);
+        assertThat(reader.leaves().size(), is(segments.length));
+        return reader;
+    }
+
+    /**
+     * Counts the documents per group, the values of a tuple must be resolved only once per segment.
+     */
+    private static Map<List<Object>, Long> countGroups(IndexReader reader,
+                                                       List<Reference> keyRefs,
+                                                       boolean expectPacked) throws IOException {
+        HashMap<List<Object>, long[]> counts = new HashMap<>();
+        ArrayList<List<Object>> resolvedKeysOfSegment = new ArrayList<>();
+        OrdinalGroupKeys<long[]> groupKeys = new OrdinalGroupKeys<>(
+            keyRefs,
+            RamAccounting.NO_ACCOUNTING,
+            keys -> {
+                assertThat("keys must be resolved once per segment: " + keys,
+                           resolvedKeysOfSegment.contains(keys), is(false));
+                resolvedKeysOfSegment.add(keys);
+                return counts.computeIfAbsent(keys, k -> new long[1]);
+            }
+        );
+        for (LeafReaderContext leaf : reader.leaves()) {
+            resolvedKeysOfSegment.clear();
+            groupKeys.setNextReader(leaf.reader());
+            assertThat(groupKeys.packed(), is(expectPacked));
+            for (int doc = 0; doc < leaf.reader().maxDoc(); doc++) {
+                groupKeys.groupFor(doc)[0]++;
+            }
+        }
+        groupKeys.finish();
+        HashMap<List<Object>, Long> result = new HashMap<>();
+        counts.forEach((keys, count) -> result.put(keys, count[0]));
+        return result;
+    }
+
+    @Test
+    public void test_keyword_keys_with_missing_values_and_different_widths_per_segment_are_packed() throws Exception {
+        List<Reference> keyRefs = List.of(
+            ref("country", DataTypes.STRING),
+            ref("device", DataTypes.STRING),
+            ref("status", DataTypes.STRING)
+        );
+        IndexReader reader = createReader(
+            keyRefs,
+            new Object[][] {
+                {"AT", "mobile", "ok"},
+                {"AT", "mobile", "ok"},
+                {"DE", null, "ok"},
+                {null, null, null}
+            },
+            new Object[][] {
+                {"AT", "mobile", "ok"},
+                {"CH", "desktop", "failed"},
+                {"DE", "tablet", "ok"},
+                {"FR", "mobile", "timeout"},
+                {"IT", "tv", "ok"},
+                {"DE", null, "ok"},
+                {null, null, null}
+            }
+        );
+
+        Map<List<Object>, Long> groups = countGroups(reader, keyRefs, true);
+
+        Map<List<Object>, Long> expected = new HashMap<>();
+        expected.put(List.of("AT", "mobile", "ok"), 3L);
+        expected.put(Arrays.asList("DE", null, "ok"), 2L);
+        expected.put(Arrays.asList(null, null, null), 2L);
+        expected.put(List.of("CH", "desktop", "failed"), 1L);
+        expected.put(List.of("DE", "tablet", "ok"), 1L);
+        expected.put(List.of("FR", "mobile", "timeout"), 1L);
+        expected.put(List.of("IT", "tv", "ok"), 1L);
+        assertThat(groups, is(expected));
+    }
+
+    @Test
+    public void test_keyword_keys_with_ordinals_of_64_bits_or_more_use_the_tuple_probe() throws Exception {
+        // 3 distinct values need 2 bits per key, 32 keys need 64 bits
+        int numKeys = 32;
+        List<Reference> keyRefs = new ArrayList<>(numKeys);
+        for (int i = 0; i < numKeys; i++) {
+            keyRefs.add(ref("k" + i, DataTypes.STRING));
+        }
+        Object[][] rows = new Object[6][numKeys];
+        for (int row = 0; row < rows.length; row++) {
+            Arrays.fill(rows[row], "v" + (row % 3));
+        }
+        IndexReader reader = createReader(keyRefs, rows);
+
+        Map<List<Object>, Long> groups = countGroups(reader, keyRefs, false);
+
+        assertThat(groups.size(), is(3));
+        for (int value = 0; value < 3; value++) {
+            Object[] keys = new Object[numKeys];
+            Arrays.fill(keys, "v" + value);
+            assertThat(groups.get(Arrays.asList(keys)), is(2L));
+        }
+    }
+
+    @Test
+    public void test_has_low_cardinality_requires_a_keyword_key_with_few_distinct_values() throws Exception {
+        Reference keyword = ref("x", DataTypes.STRING);
+        Reference numeric = ref("y", DataTypes.LONG);
+        List<Reference> keyRefs = List.of(keyword, numeric);
+        IndexReader lowCardinality = createReader(
+            keyRefs,
+            new Object[][] {{"a", 1L}, {"a", 2L}, {"b", 3L}, {"b", 4L}}
+        );
+        assertThat(OrdinalGroupKeys.hasLowCardinality(lowCardinality, keyRefs), is(true));
+        assertThat(OrdinalGroupKeys.hasLowCardinality(lowCardinality, List.of(numeric, numeric)), is(false));
+
+        IndexReader highCardinality = createReader(
+            keyRefs,
+            new Object[][] {{"a", 1L}, {"a", 1L}},
+            new Object[][] {{"a", 1L}, {"b", 1L}, {"c", 1L}}
+        );
+        assertThat(OrdinalGroupKeys.hasLowCardinality(highCardinality, keyRefs), is(false));
+    }
+}
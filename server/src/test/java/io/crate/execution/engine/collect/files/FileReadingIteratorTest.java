@@ -22,38 +22,50 @@
 
 package io.crate.execution.engine.collect.files;
 
+import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
 import io.crate.expression.InputFactory;
 import io.crate.expression.reference.file.FileLineReferenceResolver;
+import io.crate.expression.reference.file.SourceLineNumberExpression;
 import io.crate.metadata.CoordinatorTxnCtx;
 import io.crate.metadata.NodeContext;
 import io.crate.metadata.TransactionContext;
 import io.crate.metadata.Functions;
 import io.crate.metadata.Reference;
+import io.crate.parquet.ParquetColumn;
+import io.crate.parquet.ParquetWriter;
 import org.elasticsearch.test.ESTestCase;
 import io.crate.testing.BatchIteratorTester;
 import io.crate.types.DataTypes;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat.CSV;
 import static io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat.JSON;
+import static io.crate.execution.dsl.phases.FileUriCollectPhase.InputFormat.PARQUET;
 import static io.crate.testing.TestingHelpers.createReference;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 
 public class FileReadingIteratorTest extends ESTestCase {
 
@@ -66,6 +78,8 @@ public class FileReadingIteratorTest extends ESTestCase {
     private String CSV_AS_MAP_FIRST_LINE = "{\"name\":\"Arthur\",\"id\":\"4\",\"age\":\"38\"}";
     private String CSV_AS_MAP_SECOND_LINE = "{\"name\":\"Trillian\",\"id\":\"5\",\"age\":\"33\"}";
     private TransactionContext txnCtx = CoordinatorTxnCtx.systemTransactionContext();
+    // Shared by the local readers of a test, as it is by the readers of a node
+    private final LineCounter lineCounter = new LineCounter();
 
     @Before
     public void prepare() {
@@ -159,22 +173,177 @@ public class FileReadingIteratorTest extends ESTestCase {
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
 
+    @Test
+    public void test_local_readers_read_each_line_of_split_files_once() throws Exception {
+        tempFilePath = createTempFile("tempfile", ".csv");
+        tmpFile = tempFilePath.toFile();
+        List<Object[]> expectedResult = new ArrayList<>();
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            writer.write("name,id\n");
+            for (int i = 0; i < 50; i++) {
+                writer.write("Arthur," + i + "\n");
+                expectedResult.add(new Object[]{"{\"name\":\"Arthur\",\"id\":\"" + i + "\"}"});
+            }
+        }
+        fileUri = tempFilePath.toUri().toString();
+
+        int numLocalReaders = 3;
+        List<Object[]> result = new ArrayList<>();
+        for (int i = 0; i < numLocalReaders; i++) {
+            BatchIterator<Row> reader = createBatchIterator(List.of(fileUri), CSV, numLocalReaders, i, 32L);
+            result.addAll(BatchIterators.collect(
+                reader, Collectors.mapping(Row::materialize, Collectors.toList())).get(5, TimeUnit.SECONDS));
+        }
+        assertThat(result, containsInAnyOrder(expectedResult.toArray()));
+    }
+
+    @Test
+    public void test_nodes_without_shared_storage_read_all_splits_of_their_files() throws Exception {
+        tempFilePath = createTempFile("tempfile", ".json");
+        tmpFile = tempFilePath.toFile();
+        List<Object[]> expectedResult = new ArrayList<>();
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            for (int i = 0; i < 50; i++) {
+                String line = "{\"id\": " + i + "}";
+                writer.write(line + "\n");
+                expectedResult.add(new Object[]{line});
+            }
+        }
+        fileUri = tempFilePath.toUri().toString();
+
+        int numReaders = 3;
+        int numLocalReaders = 2;
+        List<Object[]> result = new ArrayList<>();
+        for (int i = 0; i < numLocalReaders; i++) {
+            BatchIterator<Row> reader = createBatchIterator(
+                List.of(fileUri), JSON, false, numReaders, 1, numLocalReaders, i, 32L, null, List.of());
+            result.addAll(BatchIterators.collect(
+                reader, Collectors.mapping(Row::materialize, Collectors.toList())).get(5, TimeUnit.SECONDS));
+        }
+        assertThat(result, containsInAnyOrder(expectedResult.toArray()));
+    }
+
+    @Test
+    public void test_line_numbers_of_split_files_are_relative_to_the_beginning_of_the_file() throws Exception {
+        tempFilePath = createTempFile("tempfile", ".csv");
+        tmpFile = tempFilePath.toFile();
+        List<Object[]> expectedResult = new ArrayList<>();
+        try (OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(tmpFile), StandardCharsets.UTF_8)) {
+            writer.write("name,id\n");
+            for (int i = 0; i < 50; i++) {
+                if (i == 10) {
+                    // Empty lines are skipped and not counted
+                    writer.write("\n");
+                }
+                writer.write("Arthur," + i + "\n");
+                expectedResult.add(new Object[]{"{\"name\":\"Arthur\",\"id\":\"" + i + "\"}", i + 1L});
+            }
+        }
+        fileUri = tempFilePath.toUri().toString();
+
+        int numLocalReaders = 3;
+        List<Object[]> result = new ArrayList<>();
+        for (int i = 0; i < numLocalReaders; i++) {
+            BatchIterator<Row> reader = createBatchIterator(
+                List.of(fileUri),
+                CSV,
+                false,
+                1,
+                0,
+                numLocalReaders,
+                i,
+                32L,
+                null,
+                List.of(createReference(SourceLineNumberExpression.COLUMN_NAME, DataTypes.LONG))
+            );
+            result.addAll(BatchIterators.collect(
+                reader, Collectors.mapping(Row::materialize, Collectors.toList())).get(5, TimeUnit.SECONDS));
+        }
+        assertThat(result, containsInAnyOrder(expectedResult.toArray()));
+    }
+
+    @Test
+    public void test_parquet_file_is_read_as_json_objects_containing_the_target_columns() throws Exception {
+        tempFilePath = createTempFile("tempfile", ".any-suffix");
+        List<ParquetColumn> columns = List.of(
+            new ParquetColumn("id", ParquetColumn.Type.INTEGER),
+            new ParquetColumn("name", ParquetColumn.Type.STRING),
+            new ParquetColumn("details", ParquetColumn.Type.JSON));
+        try (ParquetWriter writer = new ParquetWriter(
+            Files.newOutputStream(tempFilePath), columns, ParquetWriter.Compression.GZIP, RamAccounting.NO_ACCOUNTING)) {
+            writer.write(new Object[]{4, "Arthur", "{\"age\":38}"});
+            writer.write(new Object[]{5, null, "[1,2]"});
+        }
+        fileUri = tempFilePath.toUri().toString();
+
+        Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> createBatchIterator(
+            Collections.singletonList(fileUri), PARQUET, 1, 0, 0L, List.of("id", "details")
+        );
+
+        List<Object[]> expectedResult = Arrays.asList(
+            new Object[]{"{\"id\":4,\"details\":{\"age\":38}}"},
+            new Object[]{"{\"id\":5,\"details\":[1,2]}"});
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
     private BatchIterator<Row> createBatchIterator(Collection<String> fileUris,
                                                    FileUriCollectPhase.InputFormat format) {
+        return createBatchIterator(fileUris, format, 1, 0, 0L);
+    }
+
+    private BatchIterator<Row> createBatchIterator(Collection<String> fileUris,
+                                                   FileUriCollectPhase.InputFormat format,
+                                                   int numLocalReaders,
+                                                   int localReaderNumber,
+                                                   long splitSizeInBytes) {
+        return createBatchIterator(fileUris, format, numLocalReaders, localReaderNumber, splitSizeInBytes, null);
+    }
+
+    private BatchIterator<Row> createBatchIterator(Collection<String> fileUris,
+                                                   FileUriCollectPhase.InputFormat format,
+                                                   int numLocalReaders,
+                                                   int localReaderNumber,
+                                                   long splitSizeInBytes,
+                                                   @Nullable List<String> targetColumns) {
+        return createBatchIterator(fileUris, format, false, 1, 0, numLocalReaders, localReaderNumber,
+            splitSizeInBytes, targetColumns, List.of());
+    }
+
+    private BatchIterator<Row> createBatchIterator(Collection<String> fileUris,
+                                                   FileUriCollectPhase.InputFormat format,
+                                                   boolean shared,
+                                                   int numReaders,
+                                                   int readerNumber,
+                                                   int numLocalReaders,
+                                                   int localReaderNumber,
+                                                   long splitSizeInBytes,
+                                                   @Nullable List<String> targetColumns,
+                                                   List<Reference> additionalColumns) {
         Reference raw = createReference("_raw", DataTypes.STRING);
         InputFactory.Context<LineCollectorExpression<?>> ctx =
             inputFactory.ctxForRefs(txnCtx, FileLineReferenceResolver::getImplementation);
 
-        List<Input<?>> inputs = Collections.singletonList(ctx.add(raw));
+        List<Input<?>> inputs = new ArrayList<>();
+        inputs.add(ctx.add(raw));
+        for (Reference column : additionalColumns) {
+            inputs.add(ctx.add(column));
+        }
         return FileReadingIterator.newInstance(
             fileUris,
             inputs,
             ctx.expressions(),
             null,
             Map.of(LocalFsFileInputFactory.NAME, new LocalFsFileInputFactory()),
-            false,
-            1,
-            0,
-            format);
+            shared,
+            numReaders,
+            readerNumber,
+            numLocalReaders,
+            localReaderNumber,
+            splitSizeInBytes,
+            lineCounter,
+            targetColumns,
+            format,
+            RamAccounting.NO_ACCOUNTING);
     }
 }
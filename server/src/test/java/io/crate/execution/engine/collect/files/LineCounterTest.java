@@ -0,0 +1,150 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class LineCounterTest extends ESTestCase {
+
+    /**
+     * Counts the bytes read from the file
+     */
+    private static class CountingFileInput implements FileInput {
+
+        private final LocalFsFileInput delegate = new LocalFsFileInput();
+        private final AtomicLong bytesRead = new AtomicLong();
+
+        @Override
+        public List<URI> listUris(URI fileUri, Predicate<URI> uriPredicate) throws IOException {
+            return delegate.listUris(fileUri, uriPredicate);
+        }
+
+        @Override
+        public InputStream getStream(URI uri) throws IOException {
+            return getStream(uri, 0L);
+        }
+
+        @Override
+        public InputStream getStream(URI uri, long offset) throws IOException {
+            return new FilterInputStream(delegate.getStream(uri, offset)) {
+
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b != -1) {
+                        bytesRead.incrementAndGet();
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    int n = super.read(b, off, len);
+                    if (n > 0) {
+                        bytesRead.addAndGet(n);
+                    }
+                    return n;
+                }
+            };
+        }
+
+        @Override
+        public long size(URI uri) throws IOException {
+            return delegate.size(uri);
+        }
+
+        @Override
+        public boolean sharedStorageDefault() {
+            return false;
+        }
+    }
+
+    private static long expectedLinesBefore(String content, int offset) {
+        long lines = 0;
+        boolean lineHasContent = false;
+        for (int i = 0; i < offset; i++) {
+            char c = content.charAt(i);
+            if (c == '\n') {
+                lines += lineHasContent ? 1 : 0;
+                lineHasContent = false;
+            } else {
+                lineHasContent = true;
+            }
+        }
+        return lineHasContent ? lines + 1 : lines;
+    }
+
+    @Test
+    public void test_lines_before_splits_requested_in_any_order_are_counted_in_a_single_pass() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            if (i % 13 == 0) {
+                // Empty lines are not counted
+                content.append('\n');
+            }
+            content.append("line-").append(i).append('\n');
+        }
+        Path file = createTempFile("lines", ".json");
+        Files.writeString(file, content, StandardCharsets.US_ASCII);
+        URI uri = file.toUri();
+        long splitSize = 16;
+        List<Long> splitStarts = new ArrayList<>();
+        for (long start = splitSize; start < content.length(); start += splitSize) {
+            splitStarts.add(start);
+        }
+        Collections.shuffle(splitStarts, random());
+
+        CountingFileInput fileInput = new CountingFileInput();
+        LineCounter lineCounter = new LineCounter();
+        for (long splitStart : splitStarts) {
+            assertThat(
+                lineCounter.linesBefore(fileInput, uri, splitStart, splitSize),
+                is(expectedLinesBefore(content.toString(), (int) splitStart))
+            );
+        }
+        // A split which was counted before is answered again without reading the file
+        long lastSplitStart = splitStarts.get(0);
+        assertThat(
+            lineCounter.linesBefore(fileInput, uri, lastSplitStart, splitSize),
+            is(expectedLinesBefore(content.toString(), (int) lastSplitStart))
+        );
+        assertThat(fileInput.bytesRead.get(), lessThanOrEqualTo((long) content.length()));
+    }
+}
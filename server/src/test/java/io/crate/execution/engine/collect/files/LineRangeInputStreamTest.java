@@ -0,0 +1,100 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+public class LineRangeInputStreamTest extends ESTestCase {
+
+    private final LocalFsFileInput fileInput = new LocalFsFileInput();
+
+    private URI createFile(String content) throws Exception {
+        Path file = createTempFile("lines", ".json");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file.toUri();
+    }
+
+    private List<String> readLines(URI uri, long start, long end) throws Exception {
+        try (InputStream in = LineRangeInputStream.open(fileInput, uri, start, end);
+             BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void test_ranges_contain_the_lines_starting_within_the_range() throws Exception {
+        // line starts: 0, 4, 8
+        URI uri = createFile("aaa\nbbb\nccc\n");
+
+        assertThat(readLines(uri, 0, 4), contains("aaa"));
+        assertThat(readLines(uri, 4, 8), contains("bbb"));
+        assertThat(readLines(uri, 0, 5), contains("aaa", "bbb"));
+        assertThat(readLines(uri, 5, 12), contains("ccc"));
+        assertThat(readLines(uri, 1, 4), empty());
+    }
+
+    @Test
+    public void test_line_spanning_whole_range_is_read_by_range_containing_its_start() throws Exception {
+        URI uri = createFile("a\nbbbbbbbbbb\nc");
+
+        assertThat(readLines(uri, 0, 3), contains("a", "bbbbbbbbbb"));
+        assertThat(readLines(uri, 3, 8), empty());
+        assertThat(readLines(uri, 8, 14), contains("c"));
+    }
+
+    @Test
+    public void test_all_lines_are_read_exactly_once_for_any_split_size() throws Exception {
+        List<String> lines = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            String line = "{\"id\": " + i + ", \"name\": \"" + "ä".repeat(randomIntBetween(0, 20)) + "\"}";
+            lines.add(line);
+            content.append(line).append('\n');
+        }
+        URI uri = createFile(content.toString());
+        long size = fileInput.size(uri);
+        int splitSize = randomIntBetween(1, (int) size);
+
+        List<String> result = new ArrayList<>();
+        for (long start = 0; start < size; start += splitSize) {
+            result.addAll(readLines(uri, start, Math.min(size, start + splitSize)));
+        }
+        assertThat(result, is(lines));
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect.files;
+
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.execution.dsl.phases.FileUriCollectPhase;
+import io.crate.expression.InputFactory;
+import io.crate.expression.reference.file.FileLineReferenceResolver;
+import io.crate.metadata.CoordinatorTxnCtx;
+import io.crate.metadata.Functions;
+import io.crate.metadata.NodeContext;
+import io.crate.types.DataTypes;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static io.crate.testing.TestingHelpers.createReference;
+import static org.hamcrest.Matchers.is;
+
+public class StdinReadingIteratorTest extends ESTestCase {
+
+    private static class QueuedLines implements StdinLines {
+
+        private final ArrayDeque<String> lines = new ArrayDeque<>();
+        private CompletableFuture<Void> readable = new CompletableFuture<>();
+        private boolean finished = false;
+
+        void add(String line) {
+            lines.add(line);
+            readable.complete(null);
+        }
+
+        void finish() {
+            finished = true;
+            readable.complete(null);
+        }
+
+        @Nullable
+        @Override
+        public String poll() {
+            return lines.poll();
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished && lines.isEmpty();
+        }
+
+        @Override
+        public CompletableFuture<?> whenReadable() {
+            if (readable.isDone()) {
+                readable = new CompletableFuture<>();
+            }
+            if (!lines.isEmpty() || finished) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return readable;
+        }
+    }
+
+    private static StdinReadingIterator createIterator(StdinLines lines, FileUriCollectPhase.InputFormat format) {
+        InputFactory inputFactory = new InputFactory(new NodeContext(new Functions(Map.of())));
+        InputFactory.Context<LineCollectorExpression<?>> ctx = inputFactory.ctxForRefs(
+            CoordinatorTxnCtx.systemTransactionContext(), FileLineReferenceResolver::getImplementation);
+        List<Input<?>> inputs = List.of(ctx.add(createReference("_raw", DataTypes.STRING)));
+        return new StdinReadingIterator(lines, URI.create("stdin:///job"), inputs, ctx.expressions(), format);
+    }
+
+    @Test
+    public void test_iterator_does_not_block_if_no_line_is_buffered() throws Exception {
+        QueuedLines lines = new QueuedLines();
+        StdinReadingIterator it = createIterator(lines, FileUriCollectPhase.InputFormat.JSON);
+
+        assertThat(it.moveNext(), is(false));
+        assertThat(it.allLoaded(), is(false));
+        CompletableFuture<?> nextBatch = it.loadNextBatch();
+        assertThat(nextBatch.isDone(), is(false));
+
+        lines.add("{\"x\": 1}");
+        assertThat(nextBatch.isDone(), is(true));
+        assertThat(it.moveNext(), is(true));
+        Row row = it.currentElement();
+        assertThat(row.get(0), is("{\"x\": 1}"));
+        assertThat(it.moveNext(), is(false));
+
+        nextBatch = it.loadNextBatch();
+        lines.finish();
+        assertThat(nextBatch.isDone(), is(true));
+        assertThat(it.moveNext(), is(false));
+        assertThat(it.allLoaded(), is(true));
+    }
+
+    @Test
+    public void test_csv_header_is_read_once_it_arrives() throws Exception {
+        QueuedLines lines = new QueuedLines();
+        StdinReadingIterator it = createIterator(lines, FileUriCollectPhase.InputFormat.CSV);
+        assertThat(it.moveNext(), is(false));
+
+        lines.add("name,id");
+        lines.add("");
+        lines.add("Arthur,4");
+        lines.finish();
+        assertThat(it.moveNext(), is(true));
+        assertThat(it.currentElement().get(0), is("{\"name\":\"Arthur\",\"id\":\"4\"}"));
+        assertThat(it.moveNext(), is(false));
+        assertThat(it.allLoaded(), is(true));
+    }
+}
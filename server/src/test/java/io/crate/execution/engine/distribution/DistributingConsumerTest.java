@@ -47,6 +47,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
@@ -165,6 +166,51 @@ public class DistributingConsumerTest extends ESTestCase {
         collectingConsumer.getResult();
     }
 
+    @Test
+    public void test_next_page_is_built_while_previous_page_is_in_flight() throws Exception {
+        Streamer<?>[] streamers = { DataTypes.INTEGER.streamer() };
+        List<DistributedResultRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        List<ActionListener<DistributedResultResponse>> listeners = Collections.synchronizedList(new ArrayList<>());
+        TransportDistributedResultAction distributedResultAction = mock(TransportDistributedResultAction.class);
+        doAnswer((InvocationOnMock invocationOnMock) -> {
+            Object[] args = invocationOnMock.getArguments();
+            requests.add((DistributedResultRequest) args[1]);
+            listeners.add((ActionListener<DistributedResultResponse>) args[2]);
+            return null;
+        }).when(distributedResultAction).pushResult(anyString(), any(), any());
+        DistributingConsumer distributingConsumer = createDistributingConsumer(streamers, distributedResultAction);
+
+        distributingConsumer.accept(TestingBatchIterators.range(0, 5), null);
+
+        // first page is in flight, the second page is built and waits for the response
+        assertThat(requests.size(), is(1));
+        assertThat(distributingConsumer.multiBucketBuilder.size(), is(0));
+
+        listeners.get(0).onResponse(new DistributedResultResponse(true));
+        assertThat(requests.size(), is(2));
+        assertThat(distributingConsumer.completionFuture().isDone(), is(false));
+
+        listeners.get(1).onResponse(new DistributedResultResponse(true));
+        // the consumer resumed on the executor, the last page is either pending or sent by the consumer itself
+        assertBusy(() -> assertThat(requests.size(), is(3)));
+        assertThat(requests.get(2).isLast(), is(true));
+        listeners.get(2).onResponse(new DistributedResultResponse(false));
+        distributingConsumer.completionFuture().get(5, TimeUnit.SECONDS);
+
+        List<Object[]> rows = new ArrayList<>();
+        for (DistributedResultRequest request : requests) {
+            for (Row row : request.readRows(streamers)) {
+                rows.add(row.materialize());
+            }
+        }
+        assertThat(TestingHelpers.printedTable(new CollectionBucket(rows)),
+            is("0\n" +
+               "1\n" +
+               "2\n" +
+               "3\n" +
+               "4\n"));
+    }
+
     private DistributingConsumer createDistributingConsumer(Streamer<?>[] streamers, TransportDistributedResultAction distributedResultAction) {
         return new DistributingConsumer(
             executorService,
@@ -0,0 +1,276 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import io.crate.types.DoubleType;
+import io.crate.types.FloatType;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static io.crate.testing.TestingHelpers.isNullRow;
+import static io.crate.testing.TestingHelpers.isRow;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class StreamBucketTest extends ESTestCase {
+
+    private static final Streamer<?>[] STREAMERS = new Streamer[] {
+        DataTypes.INTEGER.streamer(),
+        DataTypes.STRING.streamer()
+    };
+
+    private static StreamBucket.Builder builderWithRows(int numRows) {
+        StreamBucket.Builder builder = new StreamBucket.Builder(STREAMERS, RamAccounting.NO_ACCOUNTING);
+        for (int i = 0; i < numRows; i++) {
+            builder.add(new RowN(i, "value-" + i));
+        }
+        return builder;
+    }
+
+    private static StreamBucket streamed(StreamBucket bucket, Version version) throws Exception {
+        return streamed(bucket, version, STREAMERS);
+    }
+
+    private static StreamBucket streamed(StreamBucket bucket,
+                                         Version version,
+                                         Streamer<?>[] streamers) throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        bucket.writeTo(out);
+        StreamInput in = out.bytes().streamInput();
+        in.setVersion(version);
+        return new StreamBucket(in, streamers);
+    }
+
+    private static List<List<Object>> rows(StreamBucket bucket) {
+        List<List<Object>> rows = new ArrayList<>();
+        for (Row row : bucket) {
+            rows.add(Arrays.asList(row.materialize()));
+        }
+        return rows;
+    }
+
+    @Test
+    public void test_rows_are_read_from_columnar_layout() throws Exception {
+        StreamBucket.Builder builder = new StreamBucket.Builder(STREAMERS, RamAccounting.NO_ACCOUNTING);
+        builder.add(new RowN(1, "a"));
+        builder.add(new RowN(null, null));
+        builder.add(new RowN(3, "c"));
+        StreamBucket bucket = builder.build();
+
+        assertThat(bucket, contains(isRow(1, "a"), isNullRow(), isRow(3, "c")));
+        assertThat(streamed(bucket, Version.CURRENT), contains(isRow(1, "a"), isNullRow(), isRow(3, "c")));
+    }
+
+    @Test
+    public void test_large_page_is_compressed_on_the_wire() throws Exception {
+        StreamBucket bucket = builderWithRows(100_000).build();
+        BytesStreamOutput uncompressedOut = new BytesStreamOutput();
+        uncompressedOut.setVersion(Version.V_4_3_0);
+        bucket.writeTo(uncompressedOut);
+        assertThat(uncompressedOut.size() > StreamBucket.COMPRESSION_THRESHOLD_BYTES, is(true));
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        bucket.writeTo(out);
+        assertThat(out.size(), lessThan(uncompressedOut.size() / 2));
+
+        StreamBucket received = new StreamBucket(out.bytes().streamInput(), STREAMERS);
+        assertThat(rows(received), is(rows(bucket)));
+        // a received compressed bucket can be sent again
+        assertThat(rows(streamed(received, Version.CURRENT)), is(rows(bucket)));
+    }
+
+    @Test
+    public void test_received_compressed_bucket_can_be_iterated_several_times() throws Exception {
+        StreamBucket bucket = builderWithRows(100_000).build();
+        BytesStreamOutput out = new BytesStreamOutput();
+        bucket.writeTo(out);
+        BytesStreamOutput secondOut = new BytesStreamOutput();
+        bucket.writeTo(secondOut);
+        assertThat(secondOut.bytes(), is(out.bytes()));
+
+        StreamBucket received = new StreamBucket(out.bytes().streamInput(), STREAMERS);
+        List<List<Object>> expectedRows = rows(bucket);
+        assertThat(rows(received), is(expectedRows));
+        assertThat(rows(received), is(expectedRows));
+    }
+
+    @Test
+    public void test_string_columns_are_dictionary_encoded() throws Exception {
+        StreamBucket.Builder builder = new StreamBucket.Builder(STREAMERS, RamAccounting.NO_ACCOUNTING);
+        List<List<Object>> expectedRows = new ArrayList<>();
+        int numRows = StreamBucket.MAX_DICTIONARY_SIZE * 2;
+        for (int i = 0; i < numRows; i++) {
+            // More distinct values than fit into the dictionary, the later ones are written as they are
+            String value = i % 3 == 0 ? null : (i < 100 ? "value-" + (i % 10) : "distinct-" + i);
+            builder.add(new RowN(i, value));
+            expectedRows.add(Arrays.<Object>asList(i, value));
+        }
+        StreamBucket bucket = builder.build();
+
+        assertThat(rows(bucket), is(expectedRows));
+        assertThat(rows(streamed(bucket, Version.CURRENT)), is(expectedRows));
+        assertThat(rows(streamed(bucket, Version.V_4_3_0)), is(expectedRows));
+    }
+
+    @Test
+    public void test_repeated_strings_take_less_space_than_in_the_row_layout() throws Exception {
+        StreamBucket.Builder builder = new StreamBucket.Builder(
+            new Streamer[] { DataTypes.STRING.streamer() }, RamAccounting.NO_ACCOUNTING);
+        for (int i = 0; i < 1000; i++) {
+            builder.add(new RowN("a rather long value which is repeated " + (i % 5)));
+        }
+        StreamBucket bucket = builder.build();
+        BytesStreamOutput rowOut = new BytesStreamOutput();
+        rowOut.setVersion(Version.V_4_3_0);
+        bucket.writeTo(rowOut);
+        BytesStreamOutput out = new BytesStreamOutput();
+        bucket.writeTo(out);
+
+        assertThat(out.size(), lessThan(rowOut.size() / 10));
+    }
+
+    @Test
+    public void test_numeric_and_timestamp_columns_with_nulls_are_read_back() throws Exception {
+        DataType<?>[] types = new DataType[] {
+            DataTypes.BYTE,
+            DataTypes.SHORT,
+            DataTypes.INTEGER,
+            DataTypes.LONG,
+            DataTypes.TIMESTAMPZ,
+            DataTypes.TIMESTAMP,
+            DataTypes.FLOAT,
+            DataTypes.DOUBLE
+        };
+        Streamer<?>[] streamers = new Streamer[types.length];
+        double[] nullRatios = new double[types.length];
+        for (int i = 0; i < types.length; i++) {
+            streamers[i] = types[i].streamer();
+            nullRatios[i] = randomFrom(0.0, 0.1, 1.0);
+        }
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, RamAccounting.NO_ACCOUNTING);
+        List<List<Object>> expectedRows = new ArrayList<>();
+        int numRows = randomIntBetween(1, 2000);
+        for (int i = 0; i < numRows; i++) {
+            Object[] row = new Object[types.length];
+            for (int c = 0; c < types.length; c++) {
+                row[c] = randomDouble() < nullRatios[c] ? null : randomValue(types[c]);
+            }
+            builder.add(new RowN(row));
+            expectedRows.add(Arrays.asList(row));
+        }
+        StreamBucket bucket = builder.build();
+
+        assertThat(rows(bucket), is(expectedRows));
+        assertThat(rows(streamed(bucket, Version.CURRENT, streamers)), is(expectedRows));
+        assertThat(rows(streamed(bucket, Version.V_4_3_0, streamers)), is(expectedRows));
+    }
+
+    private static Object randomValue(DataType<?> type) {
+        switch (type.id()) {
+            case ByteType.ID:
+                return randomFrom(Byte.MIN_VALUE, Byte.MAX_VALUE, randomByte());
+            case ShortType.ID:
+                return randomFrom(Short.MIN_VALUE, Short.MAX_VALUE, randomShort());
+            case IntegerType.ID:
+                return randomFrom(Integer.MIN_VALUE, Integer.MAX_VALUE, randomInt());
+            case LongType.ID:
+            case TimestampType.ID_WITH_TZ:
+            case TimestampType.ID_WITHOUT_TZ:
+                // Close values to get small deltas and extreme values to get overflowing deltas
+                return randomFrom(Long.MIN_VALUE, Long.MAX_VALUE, randomLong(), 1_600_000_000_000L + randomInt(1000));
+            case FloatType.ID:
+                return randomFrom(Float.NaN, -0.0f, Float.MAX_VALUE, randomFloat());
+            case DoubleType.ID:
+                return randomFrom(Double.NaN, -0.0, Double.MIN_VALUE, randomDouble());
+            default:
+                throw new AssertionError("Unexpected type " + type);
+        }
+    }
+
+    @Test
+    public void test_sequential_timestamps_take_less_space_than_in_the_row_layout() throws Exception {
+        Streamer<?>[] streamers = new Streamer[] { DataTypes.TIMESTAMPZ.streamer(), DataTypes.INTEGER.streamer() };
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, RamAccounting.NO_ACCOUNTING);
+        List<List<Object>> expectedRows = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Object[] row = new Object[] { 1_600_000_000_000L + i * 1000L, i % 10 == 0 ? null : i % 50 };
+            builder.add(new RowN(row));
+            expectedRows.add(Arrays.asList(row));
+        }
+        StreamBucket bucket = builder.build();
+        BytesStreamOutput rowOut = new BytesStreamOutput();
+        rowOut.setVersion(Version.V_4_3_0);
+        bucket.writeTo(rowOut);
+        BytesStreamOutput out = new BytesStreamOutput();
+        bucket.writeTo(out);
+
+        assertThat(out.size(), lessThan(rowOut.size() / 10));
+        assertThat(rows(new StreamBucket(out.bytes().streamInput(), streamers)), is(expectedRows));
+    }
+
+    @Test
+    public void test_received_compressed_bucket_can_be_read_partially() throws Exception {
+        StreamBucket bucket = builderWithRows(100_000).build();
+        BytesStreamOutput out = new BytesStreamOutput();
+        bucket.writeTo(out);
+        StreamBucket received = new StreamBucket(out.bytes().streamInput(), STREAMERS);
+
+        // A consumer which stops early leaves the decompression buffers to the garbage collector
+        Iterator<Row> it = received.iterator();
+        for (int i = 0; i < 10; i++) {
+            assertThat(it.next(), isRow(i, "value-" + i));
+        }
+        assertThat(rows(received), is(rows(bucket)));
+    }
+
+    @Test
+    public void test_columnar_bucket_is_sent_row_by_row_to_nodes_before_4_4() throws Exception {
+        StreamBucket bucket = builderWithRows(20).build();
+
+        StreamBucket received = streamed(bucket, Version.V_4_3_0);
+
+        assertThat(received.size(), is(20));
+        assertThat(rows(received), is(rows(bucket)));
+    }
+}
@@ -23,18 +23,31 @@
 package io.crate.execution.engine.export;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Input;
+import io.crate.data.Row;
 import io.crate.metadata.ColumnIdent;
+import io.crate.parquet.ParquetColumn;
+import io.crate.parquet.ParquetReader;
+import io.crate.parquet.ParquetWriter;
+import io.crate.types.DataTypes;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 
 public class FileWriterCountCollectorTest extends ESTestCase {
@@ -59,4 +72,51 @@ public class FileWriterCountCollectorTest extends ESTestCase {
                 is(false));
         }
     }
+
+    @Test
+    public void test_types_without_parquet_equivalent_are_written_as_json() {
+        List<ParquetColumn> columns = FileWriterCountCollector.parquetColumns(
+            List.of("id", "ts", "tags", "obj"),
+            List.of(DataTypes.INTEGER, DataTypes.TIMESTAMPZ, DataTypes.STRING_ARRAY, DataTypes.UNTYPED_OBJECT));
+        assertThat(columns, contains(
+            new ParquetColumn("id", ParquetColumn.Type.INTEGER),
+            new ParquetColumn("ts", ParquetColumn.Type.TIMESTAMP_WITH_TIME_ZONE),
+            new ParquetColumn("tags", ParquetColumn.Type.JSON),
+            new ParquetColumn("obj", ParquetColumn.Type.JSON)
+        ));
+    }
+
+    @Test
+    public void test_parquet_row_writer_writes_inputs_as_parquet_rows() throws Exception {
+        Object[] row = new Object[2];
+        List<Input<?>> inputs = List.of(() -> row[0], () -> row[1]);
+        List<ParquetColumn> columns = FileWriterCountCollector.parquetColumns(
+            List.of("name", "obj"),
+            List.of(DataTypes.STRING, DataTypes.UNTYPED_OBJECT));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        var writer = new FileWriterCountCollector.ParquetRowWriter(
+            out, Set.of(), inputs, columns, ParquetWriter.Compression.GZIP, RamAccounting.NO_ACCOUNTING);
+        row[0] = "Arthur";
+        row[1] = Map.of("x", 10);
+        writer.write(Row.EMPTY);
+        row[0] = null;
+        row[1] = null;
+        writer.write(Row.EMPTY);
+        writer.close();
+
+        byte[] bytes = out.toByteArray();
+        try (ParquetReader reader = ParquetReader.open(
+            offset -> new ByteArrayInputStream(bytes, (int) offset, bytes.length - (int) offset),
+            bytes.length,
+            null,
+            RamAccounting.NO_ACCOUNTING)) {
+            assertThat(reader.columns(), is(columns));
+            assertThat(reader.nextRow(), is(true));
+            assertThat(reader.get(0), is("Arthur"));
+            assertThat(reader.get(1), is("{\"x\":10}"));
+            assertThat(reader.nextRow(), is(true));
+            assertThat(reader.get(0), nullValue());
+            assertThat(reader.nextRow(), is(false));
+        }
+    }
 }
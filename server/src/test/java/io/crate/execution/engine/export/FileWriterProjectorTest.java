@@ -22,6 +22,7 @@
 
 package io.crate.execution.engine.export;
 
+import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
 import io.crate.data.InMemoryBatchIterator;
 import io.crate.exceptions.UnhandledServerException;
@@ -37,6 +38,7 @@ import org.junit.rules.TemporaryFolder;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
@@ -64,8 +66,8 @@ public class FileWriterProjectorTest extends ESTestCase {
         Path file = createTempFile("out", "json");
 
         FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService, file.toUri().toString(),
-            null, null, Set.of(), new HashMap<>(),
-            null, WriterProjection.OutputFormat.JSON_OBJECT);
+            null, null, List.of(), Set.of(), new HashMap<>(),
+            null, WriterProjection.OutputFormat.JSON_OBJECT, RamAccounting.NO_ACCOUNTING);
 
         new TestingRowConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
 
@@ -85,8 +87,8 @@ public class FileWriterProjectorTest extends ESTestCase {
 
         FileWriterProjector fileWriterProjector = new FileWriterProjector(
             executorService, directory.toUri().toString(),
-            null, null, Set.of(), new HashMap<>(),
-            null, WriterProjection.OutputFormat.JSON_OBJECT);
+            null, null, List.of(), Set.of(), new HashMap<>(),
+            null, WriterProjection.OutputFormat.JSON_OBJECT, RamAccounting.NO_ACCOUNTING);
         new TestingRowConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
     }
 
@@ -98,8 +100,8 @@ public class FileWriterProjectorTest extends ESTestCase {
         String uri = Paths.get(folder.newFile().toURI()).resolve("out.json").toUri().toString();
 
         FileWriterProjector fileWriterProjector = new FileWriterProjector(executorService, uri,
-            null, null, Set.of(), new HashMap<>(),
-            null, WriterProjection.OutputFormat.JSON_OBJECT);
+            null, null, List.of(), Set.of(), new HashMap<>(),
+            null, WriterProjection.OutputFormat.JSON_OBJECT, RamAccounting.NO_ACCOUNTING);
 
         new TestingRowConsumer().accept(fileWriterProjector.apply(sourceSupplier.get()), null);
     }
@@ -0,0 +1,67 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.export;
+
+import io.crate.data.RowN;
+import io.crate.execution.dsl.projection.WriterProjection;
+import io.crate.metadata.ColumnIdent;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+
+public class JsonLineFormatterTest extends ESTestCase {
+
+    @Test
+    public void testRawSourceIsUsedAsIs() {
+        var formatter = new JsonLineFormatter(WriterProjection.OutputFormat.JSON_OBJECT, null, List.of());
+        assertThat(formatter.apply(new RowN("{\"x\":1}")).get(0), is("{\"x\":1}"));
+    }
+
+    @Test
+    public void testColumnsAsJsonArray() {
+        var formatter = new JsonLineFormatter(WriterProjection.OutputFormat.JSON_ARRAY, List.of("x", "y"), List.of());
+        assertThat(formatter.apply(new RowN(1, "foo")).get(0), is("[1,\"foo\"]"));
+    }
+
+    @Test
+    public void testColumnsAsJsonObject() {
+        var formatter = new JsonLineFormatter(WriterProjection.OutputFormat.JSON_OBJECT, List.of("x", "y"), List.of());
+        assertThat(formatter.apply(new RowN(1, null)).get(0), is("{\"x\":1,\"y\":null}"));
+    }
+
+    @Test
+    public void testOverwritesAreAddedToTheDocument() {
+        var formatter = new JsonLineFormatter(
+            WriterProjection.OutputFormat.JSON_OBJECT,
+            null,
+            List.of(new ColumnIdent("p")));
+        Map<String, Object> doc = new HashMap<>();
+        doc.put("x", 1);
+        assertThat(formatter.apply(new RowN(doc, "a")).get(0), is("{\"p\":\"a\",\"x\":1}"));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.fetch;
+
+import com.carrotsearch.hppc.IntArrayList;
+import io.crate.Streamer;
+import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RowCellsAccountingWithEstimators;
+import io.crate.common.collections.BorrowedItem;
+import io.crate.data.Row;
+import io.crate.execution.engine.distribution.StreamBucket;
+import io.crate.expression.reference.doc.lucene.LongColumnReference;
+import io.crate.expression.reference.doc.lucene.LuceneCollectorExpression;
+import io.crate.types.DataTypes;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FetchCollectorTest extends ESTestCase {
+
+    private DirectoryReader reader;
+    private FetchTask fetchTask;
+
+    @Before
+    public void prepareSearcher() throws Exception {
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (long i = 0; i < 30; i++) {
+            Document doc = new Document();
+            doc.add(new NumericDocValuesField("x", i));
+            iw.addDocument(doc);
+            if (i % 10 == 9) {
+                // create multiple segments
+                iw.commit();
+            }
+        }
+        iw.commit();
+        reader = DirectoryReader.open(iw);
+        IndexSearcher searcher = new IndexSearcher(reader);
+        fetchTask = mock(FetchTask.class);
+        when(fetchTask.searcher(0)).thenReturn(new BorrowedItem<>(searcher, () -> {}));
+    }
+
+    @After
+    public void closeReader() throws Exception {
+        reader.close();
+    }
+
+    private List<Object> collect(int... docIds) {
+        return collect(RamAccounting.NO_ACCOUNTING, docIds);
+    }
+
+    private List<Object> collect(RamAccounting rowRamAccounting, int... docIds) {
+        List<LuceneCollectorExpression<?>> expressions = List.of(new LongColumnReference("x"));
+        FetchCollector collector = new FetchCollector(
+            expressions,
+            new Streamer[] { DataTypes.LONG.streamer() },
+            fetchTask,
+            RamAccounting.NO_ACCOUNTING,
+            new RowCellsAccountingWithEstimators(List.of(DataTypes.LONG), rowRamAccounting, 0),
+            0
+        );
+        StreamBucket bucket = collector.collect(IntArrayList.from(docIds));
+        List<Object> values = new ArrayList<>();
+        for (Row row : bucket) {
+            values.add(row.get(0));
+        }
+        return values;
+    }
+
+    @Test
+    public void test_unordered_doc_ids_across_segments_are_returned_in_requested_order() throws Exception {
+        assertThat(reader.leaves().size(), greaterThan(1));
+        assertThat(collect(25, 3, 19, 0, 7, 11), contains(25L, 3L, 19L, 0L, 7L, 11L));
+    }
+
+    @Test
+    public void test_ordered_doc_ids_across_segments() throws Exception {
+        assertThat(collect(1, 2, 12, 28, 29), contains(1L, 2L, 12L, 28L, 29L));
+    }
+
+    @Test
+    public void test_rows_materialized_to_restore_the_order_are_accounted_and_released() throws Exception {
+        long[] accountedBytes = new long[2];
+        RamAccounting rowRamAccounting = new ConcurrentRamAccounting(
+            bytes -> accountedBytes[0] += bytes,
+            bytes -> accountedBytes[1] += bytes
+        );
+        assertThat(collect(rowRamAccounting, 25, 3, 19), contains(25L, 3L, 19L));
+        assertThat(accountedBytes[0], is(3L * DataTypes.LONG.fixedSize()));
+        assertThat(accountedBytes[1], is(accountedBytes[0]));
+        assertThat(rowRamAccounting.totalBytes(), is(0L));
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.Streamer;
+import io.crate.breaker.BlockBasedRamAccounting;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.data.join.CombinedRow;
+import io.crate.execution.engine.spill.RowSpillFile;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchIterators;
+import io.crate.types.DataTypes;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+public class GraceHashJoinBatchIteratorTest extends ESTestCase {
+
+    private static final Streamer<?>[] STREAMERS = new Streamer[]{DataTypes.INTEGER.streamer()};
+
+    private final List<Object[]> resultForDuplicateValues = Arrays.asList(
+        new Object[] { 1, 1 }, new Object[] { 1, 1 },
+        new Object[] { 2, 2 }, new Object[] { 2, 2 },
+        new Object[] { 3, 3 },
+        new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }
+    );
+
+    private Path spillDirectory;
+    private AtomicLong reservedBytes;
+    private BlockBasedRamAccounting writeBufferRamAccounting;
+
+    @Before
+    public void setUpSpillDirectory() {
+        spillDirectory = createTempDir();
+        reservedBytes = new AtomicLong();
+        writeBufferRamAccounting = new BlockBasedRamAccounting(reservedBytes::addAndGet, 1024);
+    }
+
+    private BatchIterator<Row> createJoin(BatchIterator<Row> left,
+                                          BatchIterator<Row> right,
+                                          int blockSize,
+                                          int numPartitions) {
+        return new GraceHashJoinBatchIterator(
+            left,
+            right,
+            mock(RowAccounting.class),
+            writeBufferRamAccounting,
+            new CombinedRow(1, 1),
+            row -> Objects.equals(row.get(0), row.get(1)),
+            row -> Objects.hash(row.get(0)),
+            row -> Objects.hash(row.get(0)),
+            () -> blockSize,
+            spillDirectory,
+            STREAMERS,
+            STREAMERS,
+            numPartitions
+        );
+    }
+
+    @Test
+    public void testGraceHashJoinWithDuplicateValues() throws Exception {
+        Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> createJoin(
+            TestingBatchIterators.ofValues(Arrays.asList(0, 0, 1, 2, 2, 3, 4, 4)),
+            TestingBatchIterators.ofValues(Arrays.asList(1, 1, 2, 3, 4, 4, 5, 5, 6)),
+            10,
+            4
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(resultForDuplicateValues);
+    }
+
+    @Test
+    public void testGraceHashJoinWithBatchedSources() throws Exception {
+        Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> createJoin(
+            new BatchSimulatingIterator<>(
+                TestingBatchIterators.ofValues(Arrays.asList(0, 0, 1, 2, 2, 3, 4, 4)), 2, 4, null),
+            new BatchSimulatingIterator<>(
+                TestingBatchIterators.ofValues(Arrays.asList(1, 1, 2, 3, 4, 4, 5, 5, 6)), 2, 4, null),
+            10,
+            3
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(resultForDuplicateValues);
+    }
+
+    @Test
+    public void testGraceHashJoinWithPartitionsLargerThanBlockSize() throws Exception {
+        Supplier<BatchIterator<Row>> batchIteratorSupplier = () -> createJoin(
+            TestingBatchIterators.ofValues(Arrays.asList(0, 0, 1, 2, 2, 3, 4, 4)),
+            new BatchSimulatingIterator<>(
+                TestingBatchIterators.ofValues(Arrays.asList(1, 1, 2, 3, 4, 4, 5, 5, 6)), 2, 4, null),
+            1,
+            2
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIteratorSupplier);
+        tester.verifyResultAndEdgeCaseBehaviour(resultForDuplicateValues);
+    }
+
+    @Test
+    public void testSpillFilesAreDeletedOnClose() throws Exception {
+        BatchIterator<Row> join = createJoin(
+            TestingBatchIterators.range(0, 20),
+            TestingBatchIterators.range(10, 30),
+            5,
+            4
+        );
+        int numRows = 0;
+        while (join.moveNext()) {
+            numRows++;
+        }
+        assertThat(numRows, is(10));
+        assertThat(numFiles(spillDirectory), is(8L));
+
+        join.close();
+        assertThat(numFiles(spillDirectory), is(0L));
+    }
+
+    @Test
+    public void testWriteBuffersOfPartitionsAreReleasedOnceWritingIsFinished() throws Exception {
+        BatchIterator<Row> join = createJoin(
+            TestingBatchIterators.range(0, 20),
+            new BatchSimulatingIterator<>(TestingBatchIterators.range(10, 30), 5, 4, null),
+            5,
+            4
+        );
+        // The left side is partitioned completely, the right side needs to load the next batch
+        assertThat(join.moveNext(), is(false));
+        assertThat(reservedBytes.get(), is(4L * RowSpillFile.BUFFER_SIZE));
+
+        while (join.moveNext() == false) {
+            join.loadNextBatch().toCompletableFuture().join();
+        }
+        assertThat(reservedBytes.get(), is(0L));
+
+        join.close();
+        assertThat(reservedBytes.get(), is(0L));
+    }
+
+    @Test
+    public void testWriteBuffersOfPartitionsAreReleasedOnClose() throws Exception {
+        BatchIterator<Row> join = createJoin(
+            TestingBatchIterators.range(0, 20),
+            new BatchSimulatingIterator<>(TestingBatchIterators.range(10, 30), 5, 4, null),
+            5,
+            4
+        );
+        assertThat(join.moveNext(), is(false));
+        assertThat(reservedBytes.get(), is(4L * RowSpillFile.BUFFER_SIZE));
+
+        join.close();
+        assertThat(reservedBytes.get(), is(0L));
+    }
+
+    private static long numFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -123,4 +123,38 @@ public class RamBlockSizeCalculatorTest {
         );
         assertThat(blockSizeCalculator.getAsInt(), is(defaultBlockSize));
     }
+
+    @Test
+    public void testCalculationOfNumberOfPartitions() {
+        when(circuitBreaker.getLimit()).thenReturn(110L);
+        when(circuitBreaker.getUsed()).thenReturn(10L);
+        RamBlockSizeCalculator blockCalculator100leftRows = new RamBlockSizeCalculator(
+            defaultBlockSize,
+            circuitBreaker,
+            5,
+            100
+        );
+        assertThat(blockCalculator100leftRows.numberOfPartitions(256), is(10));
+        assertThat(blockCalculator100leftRows.numberOfPartitions(4), is(4));
+
+        RamBlockSizeCalculator blockCalculator10LeftRows = new RamBlockSizeCalculator(
+            defaultBlockSize,
+            circuitBreaker,
+            5,
+            10
+        );
+        assertThat(blockCalculator10LeftRows.numberOfPartitions(256), is(1));
+    }
+
+    @Test
+    public void testCalculationOfNumberOfPartitionsWithMissingStats() {
+        when(circuitBreaker.getLimit()).thenReturn(-1L);
+        RamBlockSizeCalculator blockSizeCalculator = new RamBlockSizeCalculator(
+            defaultBlockSize,
+            circuitBreaker,
+            10,
+            1000
+        );
+        assertThat(blockSizeCalculator.numberOfPartitions(256), is(1));
+    }
 }
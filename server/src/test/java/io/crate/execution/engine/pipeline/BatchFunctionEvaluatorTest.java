@@ -0,0 +1,261 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.pipeline;
+
+import io.crate.data.BatchIterator;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.data.SentinelRow;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.expression.FunctionExpression;
+import io.crate.expression.scalar.conditional.IfFunction;
+import io.crate.expression.symbol.Literal;
+import io.crate.metadata.BatchScalar;
+import io.crate.metadata.CoordinatorTxnCtx;
+import io.crate.metadata.FunctionName;
+import io.crate.metadata.NodeContext;
+import io.crate.metadata.Scalar;
+import io.crate.metadata.SearchPath;
+import io.crate.metadata.TransactionContext;
+import io.crate.metadata.functions.Signature;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingRowConsumer;
+import io.crate.types.DataTypes;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static io.crate.testing.TestingHelpers.createNodeContext;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BatchFunctionEvaluatorTest extends ESTestCase {
+
+    private final TransactionContext txnCtx = CoordinatorTxnCtx.systemTransactionContext();
+    private final NodeContext nodeCtx = createNodeContext();
+
+    @SuppressWarnings("unchecked")
+    private FunctionExpression<Long, Long> call(Scalar<Long, Long> scalar, Input<?> argument) {
+        return new FunctionExpression<>(txnCtx, nodeCtx, scalar, new Input[] { argument });
+    }
+
+    private static BatchIterator<Row> rows(int numRows) {
+        List<Row> rows = IntStream.rangeClosed(1, numRows)
+            .mapToObj(x -> new RowN((long) x))
+            .collect(Collectors.toList());
+        return new BatchSimulatingIterator<>(
+            InMemoryBatchIterator.of(rows, SentinelRow.SENTINEL, true), 7, numRows / 7, null);
+    }
+
+    @Test
+    public void test_batch_functions_are_evaluated_once_per_batch_including_nested_ones() throws Exception {
+        TimesTen timesTen = new TimesTen();
+        PlusOne plusOne = new PlusOne();
+        InputCollectExpression x = new InputCollectExpression(0);
+        List<Input<?>> inputs = List.of(
+            call(plusOne, call(timesTen, x)),
+            call(timesTen, call(timesTen, x))
+        );
+        List<CollectExpression<Row, ?>> expressions = List.of(x);
+        InputRowProjector projector = new InputRowProjector(inputs, expressions);
+
+        int numRows = 2 * BatchFunctionEvaluator.BATCH_SIZE + 50;
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(projector.apply(rows(numRows)), null);
+
+        List<Object[]> expected = new ArrayList<>(numRows);
+        for (long i = 1; i <= numRows; i++) {
+            expected.add(new Object[] { i * 10 + 1, i * 100 });
+        }
+        assertThat(consumer.getResult(), contains(expected.toArray()));
+        // 3 batches for each of the 3 batch functions
+        assertThat(timesTen.numBatches, is(9));
+        assertThat(timesTen.numRowEvaluations, is(0));
+    }
+
+    @Test
+    public void test_evaluator_is_only_created_for_batch_functions_and_evaluates_partial_batches() throws Exception {
+        TimesTen timesTen = new TimesTen();
+        InputCollectExpression x = new InputCollectExpression(0);
+        FunctionExpression<Long, Long> condition = call(timesTen, x);
+        List<CollectExpression<Row, ?>> expressions = List.of(x);
+        BatchFunctionEvaluator evaluator = BatchFunctionEvaluator.of(List.of(condition), expressions);
+
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(evaluator.apply(rows(120)), null);
+
+        assertThat(consumer.getResult().size(), is(120));
+        assertThat(timesTen.numBatches, is(2));
+        assertThat(BatchFunctionEvaluator.of(List.of(call(new PlusOne(), x)), expressions), nullValue());
+    }
+
+    @Test
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void test_batch_functions_guarded_by_conditional_functions_are_evaluated_per_row() throws Exception {
+        TimesTen timesTen = new TimesTen();
+        FailsUpTo50 failsUpTo50 = new FailsUpTo50();
+        InputCollectExpression x = new InputCollectExpression(0);
+        Scalar ifFunction = (Scalar) nodeCtx.functions().get(
+            null,
+            IfFunction.NAME,
+            List.of(Literal.of(true), Literal.of(1L)),
+            SearchPath.pathWithPGCatalogAndDoc()
+        );
+        Input<?> greaterThan50 = () -> ((Long) x.value()) > 50;
+        // if(x > 50, fails_up_to_50(x)), failing for the rows the condition excludes
+        FunctionExpression<?, ?> guarded = new FunctionExpression<>(
+            txnCtx, nodeCtx, ifFunction, new Input[] { greaterThan50, call(failsUpTo50, x) });
+        List<Input<?>> inputs = List.of(guarded, call(timesTen, x));
+        List<CollectExpression<Row, ?>> expressions = List.of(x);
+        InputRowProjector projector = new InputRowProjector(inputs, expressions);
+
+        int numRows = BatchFunctionEvaluator.BATCH_SIZE + 20;
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(projector.apply(rows(numRows)), null);
+
+        List<Object[]> expected = new ArrayList<>(numRows);
+        for (long i = 1; i <= numRows; i++) {
+            expected.add(new Object[] { i > 50 ? i : null, i * 10 });
+        }
+        assertThat(consumer.getResult(), contains(expected.toArray()));
+        assertThat(failsUpTo50.numBatches, is(0));
+        assertThat(failsUpTo50.numRowEvaluations, is(numRows - 50));
+        assertThat(timesTen.numBatches, is(2));
+        assertThat(BatchFunctionEvaluator.of(List.of(guarded), expressions), nullValue());
+    }
+
+    private static class FailsUpTo50 extends Scalar<Long, Long> implements BatchScalar<Long, Long> {
+
+        private static final Signature SIGNATURE = Signature.scalar(
+            new FunctionName(null, "fails_up_to_50"),
+            DataTypes.LONG.getTypeSignature(),
+            DataTypes.LONG.getTypeSignature());
+
+        int numBatches = 0;
+        int numRowEvaluations = 0;
+
+        @Override
+        public Signature signature() {
+            return SIGNATURE;
+        }
+
+        @Override
+        public Signature boundSignature() {
+            return SIGNATURE;
+        }
+
+        @Override
+        @SafeVarargs
+        public final Long evaluate(TransactionContext txnCtx, NodeContext nodeCtx, Input<Long>... args) {
+            numRowEvaluations++;
+            return check(args[0].value());
+        }
+
+        @Override
+        public List<Long> evaluateBatch(TransactionContext txnCtx, NodeContext nodeCtx, List<Input<Long>[]> rows) {
+            numBatches++;
+            List<Long> results = new ArrayList<>(rows.size());
+            for (Input<Long>[] args : rows) {
+                results.add(check(args[0].value()));
+            }
+            return results;
+        }
+
+        private static Long check(Long value) {
+            if (value <= 50) {
+                throw new IllegalArgumentException("Evaluated for a row excluded by the condition: " + value);
+            }
+            return value;
+        }
+    }
+
+    private static class TimesTen extends Scalar<Long, Long> implements BatchScalar<Long, Long> {
+
+        private static final Signature SIGNATURE = Signature.scalar(
+            new FunctionName(null, "times_ten"),
+            DataTypes.LONG.getTypeSignature(),
+            DataTypes.LONG.getTypeSignature());
+
+        int numBatches = 0;
+        int numRowEvaluations = 0;
+
+        @Override
+        public Signature signature() {
+            return SIGNATURE;
+        }
+
+        @Override
+        public Signature boundSignature() {
+            return SIGNATURE;
+        }
+
+        @Override
+        @SafeVarargs
+        public final Long evaluate(TransactionContext txnCtx, NodeContext nodeCtx, Input<Long>... args) {
+            numRowEvaluations++;
+            return args[0].value() * 10;
+        }
+
+        @Override
+        public List<Long> evaluateBatch(TransactionContext txnCtx, NodeContext nodeCtx, List<Input<Long>[]> rows) {
+            numBatches++;
+            List<Long> results = new ArrayList<>(rows.size());
+            for (Input<Long>[] args : rows) {
+                results.add(args[0].value() * 10);
+            }
+            return results;
+        }
+    }
+
+    private static class PlusOne extends Scalar<Long, Long> {
+
+        private static final Signature SIGNATURE = Signature.scalar(
+            new FunctionName(null, "plus_one"),
+            DataTypes.LONG.getTypeSignature(),
+            DataTypes.LONG.getTypeSignature());
+
+        @Override
+        public Signature signature() {
+            return SIGNATURE;
+        }
+
+        @Override
+        public Signature boundSignature() {
+            return SIGNATURE;
+        }
+
+        @Override
+        @SafeVarargs
+        public final Long evaluate(TransactionContext txnCtx, NodeContext nodeCtx, Input<Long>... args) {
+            return args[0].value() + 1;
+        }
+    }
+}
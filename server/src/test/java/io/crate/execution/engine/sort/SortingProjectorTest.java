@@ -23,6 +23,7 @@
 package io.crate.execution.engine.sort;
 
 import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.breaker.RowCellsAccountingWithEstimators;
 import io.crate.data.BatchIterator;
@@ -35,6 +36,7 @@ import io.crate.expression.symbol.Literal;
 import org.elasticsearch.test.ESTestCase;
 import io.crate.testing.TestingBatchIterators;
 import io.crate.testing.TestingRowConsumer;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.apache.logging.log4j.LogManager;
 import org.elasticsearch.common.breaker.CircuitBreakingException;
@@ -43,7 +45,10 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.junit.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static io.crate.testing.TestingHelpers.isRow;
 import static org.hamcrest.core.Is.is;
@@ -123,4 +128,42 @@ public class SortingProjectorTest extends ESTestCase {
         expectedException.expect(CircuitBreakingException.class);
         consumer.getResult();
     }
+
+    @Test
+    public void testRowsAreSpilledToDiskIfTheyExceedTheMemoryBudget() throws Exception {
+        Path spillDirectory = createTempDir();
+        MemoryCircuitBreaker circuitBreaker = new MemoryCircuitBreaker(new ByteSizeValue(100, ByteSizeUnit.BYTES),
+                                                                       1,
+                                                                       LogManager.getLogger(SortingProjectorTest.class)
+        );
+        List<DataType<?>> types = List.of(DataTypes.INTEGER, DataTypes.BOOLEAN);
+        // Without spilling, the buffered rows would exceed the limit of the circuit breaker
+        RamAccounting ramAccounting = ConcurrentRamAccounting.forCircuitBreaker("testContext", circuitBreaker);
+        RowCellsAccountingWithEstimators rowAccounting = new RowCellsAccountingWithEstimators(types, ramAccounting, 0);
+        InputCollectExpression input = new InputCollectExpression(0);
+        Projector projector = new SortingProjector(
+            rowAccounting,
+            List.of(input, Literal.of(true)),
+            List.<CollectExpression<Row, ?>>of(input),
+            1,
+            OrderingByPosition.arrayOrdering(0, true, false),
+            5,
+            spillDirectory,
+            DataTypes.getStreamers(types),
+            ramAccounting,
+            50
+        );
+        consumer.accept(projector.apply(TestingBatchIterators.range(0, 100)), null);
+
+        Bucket rows = consumer.getBucket();
+        assertThat(rows.size(), is(95));
+        int expectedValue = 94;
+        for (Row row : rows) {
+            assertThat(row, isRow(expectedValue--));
+        }
+        assertThat(circuitBreaker.getUsed(), is(0L));
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
 }
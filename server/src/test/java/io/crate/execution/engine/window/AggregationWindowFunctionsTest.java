@@ -29,6 +29,7 @@ import java.util.List;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 
 public class AggregationWindowFunctionsTest extends AbstractWindowFunctionTest {
 
@@ -333,4 +334,44 @@ public class AggregationWindowFunctionsTest extends AbstractWindowFunctionTest {
             rows
         );
     }
+
+    @Test
+    public void test_max_over_rows_offset_preceding_sliding_frame() throws Throwable {
+        Object[][] rows = new Object[][] {
+            $(3, 1L),
+            $(1, 2L),
+            $(4, 3L),
+            $(1, 4L),
+            $(5, 5L),
+            $(9, 6L),
+            $(2, 7L),
+            $(6, 8L),
+        };
+        assertEvaluate(
+            "max(x) over (order by y rows between 2 preceding and current row)",
+            contains(3, 3, 4, 4, 5, 9, 9, 9),
+            List.of(new ColumnIdent("x"), new ColumnIdent("y")),
+            rows
+        );
+    }
+
+    @Test
+    public void test_min_over_rows_offset_preceding_and_following_sliding_frames_including_partitions() throws Throwable {
+        Object[][] rows = new Object[][] {
+            $(3, 1L),
+            $(1, 2L),
+            $(4, 3L),
+            $(1, 4L),
+            $(5, 5L),
+            $(9, 6L),
+            $(2, 7L),
+            $(6, 8L),
+        };
+        assertEvaluate(
+            "min(x) over (partition by x > 2 order by y rows between 1 preceding and 1 following)",
+            containsInAnyOrder(1, 1, 1, 3, 3, 4, 5, 6),
+            List.of(new ColumnIdent("x"), new ColumnIdent("y")),
+            rows
+        );
+    }
 }
@@ -22,6 +22,7 @@
 
 package io.crate.execution.engine.window;
 
+import io.crate.breaker.BlockBasedRamAccounting;
 import io.crate.breaker.ConcurrentRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccountingWithEstimators;
@@ -39,9 +40,17 @@ import io.crate.testing.BatchSimulatingIterator;
 import io.crate.testing.TestingBatchIterators;
 import io.crate.testing.TestingRowConsumer;
 import io.crate.types.DataTypes;
+import org.apache.logging.log4j.LogManager;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -49,6 +58,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
@@ -61,6 +71,9 @@ import static org.hamcrest.Matchers.is;
 
 public class WindowBatchIteratorTest {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private Input[][] args = {new Input[0]};
 
     private List<Object[]> expectedRowNumberResult = IntStream.range(0, 10)
@@ -112,6 +125,139 @@ public class WindowBatchIteratorTest {
         tester.verifyResultAndEdgeCaseBehaviour(expectedRowNumberResult);
     }
 
+    @Test
+    public void test_window_batch_iterator_on_sorted_source_computes_one_partition_at_a_time() throws Exception {
+        Comparator<Object[]> cmpPartitionBy = Comparator.comparingInt(row -> (int) row[0] / 3);
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> WindowFunctionBatchIterator.ofSortedSource(
+                new BatchSimulatingIterator<>(TestingBatchIterators.range(0, 10), 4, 2, null),
+                new IgnoreRowAccounting(),
+                RamAccounting.NO_ACCOUNTING,
+                Long.MAX_VALUE,
+                getComputeFrameStart(null, FrameBound.Type.UNBOUNDED_PRECEDING),
+                getComputeFrameEnd(null, FrameBound.Type.CURRENT_ROW),
+                cmpPartitionBy,
+                1,
+                Collections.singletonList(rowNumberWindowFunction()),
+                Collections.emptyList(),
+                new Input[0])
+        );
+        List<Object[]> expectedResult = IntStream.range(0, 10)
+            .mapToObj(l -> new Object[]{l, l % 3 + 1}).collect(toList());
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void test_window_batch_iterator_on_sorted_source_releases_memory_of_emitted_partitions() throws Exception {
+        long[] reservedBytes = new long[1];
+        long[] maxReservedBytes = new long[1];
+        RamAccounting ramAccounting = new BlockBasedRamAccounting(
+            bytes -> {
+                reservedBytes[0] += bytes;
+                maxReservedBytes[0] = Math.max(maxReservedBytes[0], reservedBytes[0]);
+            },
+            0
+        );
+        BatchIterator<Row> iterator = WindowFunctionBatchIterator.ofSortedSource(
+            TestingBatchIterators.range(0, 9),
+            new RowAccountingWithEstimators(List.of(DataTypes.INTEGER), ramAccounting, 32),
+            (partitionStart, partitionEnd, currentIndex, sortedRows) -> 0,
+            (partitionStart, partitionEnd, currentIndex, sortedRows) -> currentIndex,
+            Comparator.comparingInt(row -> (int) row[0] / 3),
+            1,
+            List.of(rowNumberWindowFunction()),
+            List.of(),
+            new Input[][]{new Input[0]}
+        );
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(iterator, null);
+        assertThat(consumer.getResult().size(), is(9));
+        // at most one partition of 3 rows + the first row of the next partition, 48 bytes each
+        assertThat(maxReservedBytes[0], is(192L));
+        assertThat(reservedBytes[0], is(0L));
+    }
+
+    @Test
+    public void test_spillable_window_batch_iterator_computes_in_memory_if_rows_fit() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        Comparator<Object[]> cmpPartitionBy = Comparator.comparingInt(row -> (int) row[0] % 3);
+        Comparator<Object[]> cmpOrderBy = OrderingByPosition.arrayOrdering(0, false, false);
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> WindowFunctionBatchIterator.ofSpillable(
+                new BatchSimulatingIterator<>(TestingBatchIterators.range(0, 10), 4, 2, null),
+                new IgnoreRowAccounting(),
+                RamAccounting.NO_ACCOUNTING,
+                Long.MAX_VALUE,
+                getComputeFrameStart(cmpOrderBy, FrameBound.Type.UNBOUNDED_PRECEDING),
+                getComputeFrameEnd(cmpOrderBy, FrameBound.Type.CURRENT_ROW),
+                cmpPartitionBy,
+                cmpOrderBy,
+                1,
+                () -> 2,
+                Runnable::run,
+                spillDirectory,
+                DataTypes.getStreamers(List.of(DataTypes.INTEGER)),
+                Collections.singletonList(rowNumberWindowFunction()),
+                Collections.emptyList(),
+                new Input[0])
+        );
+        List<Object[]> expectedResult = List.of(
+            new Object[] { 0, 1 }, new Object[] { 3, 2 }, new Object[] { 6, 3 }, new Object[] { 9, 4 },
+            new Object[] { 1, 1 }, new Object[] { 4, 2 }, new Object[] { 7, 3 },
+            new Object[] { 2, 1 }, new Object[] { 5, 2 }, new Object[] { 8, 3 }
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void test_spillable_window_batch_iterator_spills_sorted_runs_if_rows_exceed_the_memory_budget() throws Exception {
+        Path spillDirectory = temporaryFolder.newFolder().toPath();
+        MemoryCircuitBreaker circuitBreaker = new MemoryCircuitBreaker(
+            new ByteSizeValue(500, ByteSizeUnit.BYTES),
+            1,
+            LogManager.getLogger(WindowBatchIteratorTest.class)
+        );
+        RamAccounting ramAccounting = ConcurrentRamAccounting.forCircuitBreaker("test", circuitBreaker);
+        Comparator<Object[]> cmpPartitionBy = Comparator.comparingInt(row -> (int) row[0] % 20);
+        Comparator<Object[]> cmpOrderBy = OrderingByPosition.arrayOrdering(0, false, false);
+        // 60 rows of 48 bytes don't fit into the breaker, but runs of 5 rows within the budget and a partition of 3 rows do
+        BatchIterator<Row> iterator = WindowFunctionBatchIterator.ofSpillable(
+            TestingBatchIterators.range(0, 60),
+            new RowAccountingWithEstimators(List.of(DataTypes.INTEGER), ramAccounting, 32),
+            ramAccounting,
+            200,
+            getComputeFrameStart(cmpOrderBy, FrameBound.Type.UNBOUNDED_PRECEDING),
+            getComputeFrameEnd(cmpOrderBy, FrameBound.Type.CURRENT_ROW),
+            cmpPartitionBy,
+            cmpOrderBy,
+            1,
+            () -> 1,
+            Runnable::run,
+            spillDirectory,
+            DataTypes.getStreamers(List.of(DataTypes.INTEGER)),
+            List.of(rowNumberWindowFunction()),
+            List.of(),
+            new Input[][]{new Input[0]}
+        );
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(iterator, null);
+
+        List<Object[]> expectedResult = new ArrayList<>();
+        for (int partition = 0; partition < 20; partition++) {
+            for (int i = 0; i < 3; i++) {
+                expectedResult.add(new Object[] { partition + 20 * i, i + 1 });
+            }
+        }
+        assertThat(consumer.getResult(), contains(expectedResult.toArray()));
+        assertThat(circuitBreaker.getUsed(), is(0L));
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            assertThat(files.count(), is(0L));
+        }
+    }
+
     @Test
     public void testFrameBoundsEmptyWindow() throws Exception {
         var rows = IntStream.range(0, 10).mapToObj(i -> new Object[]{i, null}).collect(toList());
@@ -53,7 +53,9 @@ import static org.hamcrest.Matchers.arrayContainingInAnyOrder;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -237,6 +239,42 @@ public class DistResultRXTaskTest extends ESTestCase {
         ));
     }
 
+    @Test
+    public void test_buckets_are_acknowledged_until_max_buffered_pages_of_upstream_are_received() throws Exception {
+        TestingRowConsumer batchConsumer = new TestingRowConsumer();
+        PageBucketReceiver bucketReceiver = new CumulativePageBucketReceiver(
+            "n1",
+            1,
+            Runnable::run,
+            new Streamer[1],
+            batchConsumer,
+            PassThroughPagingIterator.oneShot(),
+            2,
+            2);
+
+        PageResultListener firstPageListener = mock(PageResultListener.class);
+        bucketReceiver.setBucket(0, new ArrayBucket(new Object[][] { new Object[] { 1 } }), false, firstPageListener);
+        verify(firstPageListener, times(1)).needMore(true);
+
+        // received ahead of the page which is currently collected, exceeds the pages per upstream
+        PageResultListener secondPageListener = mock(PageResultListener.class);
+        bucketReceiver.setBucket(0, new ArrayBucket(new Object[][] { new Object[] { 2 } }), false, secondPageListener);
+        verify(secondPageListener, never()).needMore(anyBoolean());
+
+        bucketReceiver.setBucket(1, new ArrayBucket(new Object[][] { new Object[] { 10 } }), true, mock(PageResultListener.class));
+        // first page is consumed, the queued page is moved into the next page and acknowledged
+        verify(secondPageListener, times(1)).needMore(true);
+
+        bucketReceiver.setBucket(0, new ArrayBucket(new Object[][] { new Object[] { 3 } }), true, mock(PageResultListener.class));
+
+        List<Object[]> result = batchConsumer.getResult();
+        assertThat(TestingHelpers.printedTable(new CollectionBucket(result)),
+            is("1\n" +
+               "10\n" +
+               "2\n" +
+               "3\n"));
+    }
+
     @Test
     public void test_batch_iterator_is_completed_exceptionally_if_merge_buckets_on_next_page_fails() throws Exception {
         TestingRowConsumer batchConsumer = new TestingRowConsumer();
@@ -22,6 +22,7 @@
 
 package io.crate.expression.reference.doc.lucene;
 
+import org.elasticsearch.common.bytes.BytesArray;
 import org.junit.Test;
 
 import java.util.Arrays;
@@ -60,4 +61,31 @@ public class SourceLookupTest {
         Object o = SourceLookup.extractValue(m, singletonList("x"), 0);
         assertThat((Collection<Integer>) o, contains(is(10), is(20)));
     }
+
+    @Test
+    public void test_source_parser_only_parses_registered_paths() {
+        SourceParser sourceParser = new SourceParser();
+        sourceParser.register(Arrays.asList("a", "b"));
+        sourceParser.register(Arrays.asList("e", "f"));
+        BytesArray source = new BytesArray(
+            "{\"a\": {\"b\": 1, \"c\": [1, 2]}, \"d\": {\"x\": \"skip\"}, \"e\": [{\"f\": 1, \"g\": 2}, {\"f\": 3}]}");
+
+        Map<String, Object> map = sourceParser.parse(source);
+
+        assertThat(map.toString(), is("{a={b=1}, e=[{f=1}, {f=3}]}"));
+        assertThat(SourceLookup.extractValue(map, Arrays.asList("a", "b"), 0), is(1));
+        assertThat((Collection<Integer>) SourceLookup.extractValue(map, Arrays.asList("e", "f"), 0), contains(is(1), is(3)));
+    }
+
+    @Test
+    public void test_source_parser_contains_paths_within_registered_paths() {
+        SourceParser sourceParser = new SourceParser();
+        sourceParser.register(Arrays.asList("a", "b"));
+        sourceParser.register(Arrays.asList("a", "b", "c"));
+
+        assertThat(sourceParser.contains(Arrays.asList("a", "b")), is(true));
+        assertThat(sourceParser.contains(Arrays.asList("a", "b", "c")), is(true));
+        assertThat(sourceParser.contains(singletonList("a")), is(false));
+        assertThat(sourceParser.contains(singletonList("x")), is(false));
+    }
 }
@@ -22,6 +22,7 @@
 
 package io.crate.expression.reference.sys.node;
 
+import io.crate.action.sql.PlanCacheStats;
 import io.crate.execution.engine.collect.NestableCollectExpression;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.expressions.RowCollectExpressionFactory;
@@ -81,7 +82,8 @@ public class NodeStatsContextFieldResolverTest {
             () -> new ConnectionStats(2L, 4L),
             () -> postgresAddress,
             () -> 12L,
-            () -> 1L
+            () -> 1L,
+            () -> new PlanCacheStats(3L, 10L, 5L)
         );
     }
 
@@ -143,6 +145,27 @@ public class NodeStatsContextFieldResolverTest {
         assertThat(open.value(), is(12L));
     }
 
+    @Test
+    public void testPlanCacheStatsCanBeRetrieved() {
+        NodeStatsContext statsContext = resolver.forTopColumnIdents(
+            Collections.singletonList(SysNodesTableInfo.Columns.PLAN_CACHE));
+        RowCollectExpressionFactory<NodeStatsContext> expressionFactory =
+            SysNodesTableInfo.create().expressions().get(SysNodesTableInfo.Columns.PLAN_CACHE);
+        NestableCollectExpression<NodeStatsContext, ?> expression = expressionFactory.create();
+
+        NestableCollectExpression entries = (NestableCollectExpression) expression.getChild("entries");
+        entries.setNextRow(statsContext);
+        assertThat(entries.value(), is(3L));
+
+        NestableCollectExpression hits = (NestableCollectExpression) expression.getChild("hits");
+        hits.setNextRow(statsContext);
+        assertThat(hits.value(), is(10L));
+
+        NestableCollectExpression misses = (NestableCollectExpression) expression.getChild("misses");
+        misses.setNextRow(statsContext);
+        assertThat(misses.value(), is(5L));
+    }
+
     @Test
     public void testColumnIdentsResolution() {
         NodeStatsContext context = resolver.forTopColumnIdents(Set.of(
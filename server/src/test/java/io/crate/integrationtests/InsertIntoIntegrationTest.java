@@ -26,6 +26,12 @@ import io.crate.exceptions.VersioninigValidationException;
 import io.crate.testing.SQLResponse;
 import io.crate.testing.UseJdbc;
 import io.crate.common.collections.MapBuilder;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.engine.InternalEngine;
+import org.elasticsearch.index.engine.InternalEngineTests;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardTestCase;
+import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.test.ESIntegTestCase;
 import org.hamcrest.core.IsNull;
 import org.junit.Test;
@@ -48,6 +54,7 @@ import static io.netty.handler.codec.http.HttpResponseStatus.BAD_REQUEST;
 import static io.netty.handler.codec.http.HttpResponseStatus.CONFLICT;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
@@ -1602,4 +1609,35 @@ public class InsertIntoIntegrationTest extends SQLTransportIntegrationTest {
                "bcd\n" +
                "bcd\n"));
     }
+
+    @Test
+    public void test_insert_from_query_into_table_without_primary_key_does_not_look_up_versions() {
+        execute("CREATE TABLE no_pk (x int) CLUSTERED INTO 1 SHARDS WITH (number_of_replicas = 0)");
+        execute("CREATE TABLE with_pk (x int PRIMARY KEY) CLUSTERED INTO 1 SHARDS WITH (number_of_replicas = 0)");
+        ensureYellow();
+
+        execute("INSERT INTO no_pk (x) (SELECT UNNEST([1, 2, 3]))");
+        assertThat(response.rowCount(), is(3L));
+        execute("INSERT INTO with_pk (x) (SELECT UNNEST([1, 2, 3]))");
+        assertThat(response.rowCount(), is(3L));
+
+        assertThat(numVersionLookups(getFqn("no_pk")), is(0L));
+        // Rows with a primary key may conflict with existing documents, their versions are looked up one by one
+        assertThat(numVersionLookups(getFqn("with_pk")), greaterThanOrEqualTo(3L));
+    }
+
+    private long numVersionLookups(String indexName) {
+        long numVersionLookups = 0;
+        for (IndicesService indicesService : internalCluster().getInstances(IndicesService.class)) {
+            for (IndexService indexService : indicesService) {
+                if (indexService.index().getName().equals(indexName)) {
+                    for (IndexShard indexShard : indexService) {
+                        InternalEngine engine = (InternalEngine) IndexShardTestCase.getEngine(indexShard);
+                        numVersionLookups += InternalEngineTests.getNumVersionLookups(engine);
+                    }
+                }
+            }
+        }
+        return numVersionLookups;
+    }
 }
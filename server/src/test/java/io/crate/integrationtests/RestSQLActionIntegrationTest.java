@@ -114,4 +114,30 @@ public class RestSQLActionIntegrationTest extends SQLHttpIntegrationTest {
         String bodyAsString = EntityUtils.toString(resp.getEntity());
         assertThat(bodyAsString, containsString("5 days"));
     }
+
+    @Test
+    public void test_result_set_can_be_streamed_as_ndjson_and_csv() throws Exception {
+        execute("create table doc.t (id int, name text) with (number_of_replicas = 0)");
+        execute("insert into doc.t (id, name) values (1, 'Arthur'), (2, 'Trillian, Tricia')");
+        execute("refresh table doc.t");
+
+        var resp = postWithQuery("format=ndjson", "{\"stmt\": \"select id, name from doc.t order by id\"}");
+        assertThat(resp.getStatusLine().getStatusCode(), is(200));
+        assertThat(resp.getFirstHeader("Content-Type").getValue(), is("application/x-ndjson"));
+        assertThat(EntityUtils.toString(resp.getEntity()),
+            is("{\"id\":1,\"name\":\"Arthur\"}\n{\"id\":2,\"name\":\"Trillian, Tricia\"}\n"));
+
+        resp = postWithQuery("format=csv", "{\"stmt\": \"select id, name from doc.t order by id\"}");
+        assertThat(EntityUtils.toString(resp.getEntity()), is("id,name\n1,Arthur\n2,\"Trillian, Tricia\"\n"));
+
+        resp = postWithQuery("stream", "{\"stmt\": \"select id from doc.t order by id\"}");
+        assertThat(EntityUtils.toString(resp.getEntity()), startsWith("{\"cols\":[\"id\"],\"rows\":[[1],[2]],\"rowcount\":2,"));
+    }
+
+    @Test
+    public void test_streaming_with_invalid_format_responds_with_error() throws Exception {
+        var resp = postWithQuery("format=xml", "{\"stmt\": \"select 1\"}");
+        assertThat(resp.getStatusLine().getStatusCode(), is(400));
+        assertThat(EntityUtils.toString(resp.getEntity()), containsString("Invalid format `xml`"));
+    }
 }
@@ -98,6 +98,14 @@ public abstract class SQLHttpIntegrationTest extends SQLTransportIntegrationTest
         return post(body, null);
     }
 
+    protected CloseableHttpResponse postWithQuery(String query, String body) throws IOException {
+        HttpPost post = new HttpPost(String.format(Locale.ENGLISH,
+            "%s://%s:%s/_sql?%s",
+            usesSSL ? "https" : "http", address.getHostName(), address.getPort(), query));
+        post.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return httpClient.execute(post);
+    }
+
     protected String upload(String table, String content) throws IOException {
         String digest = blobDigest(content);
         String url = Blobs.url(usesSSL, address, table, digest);
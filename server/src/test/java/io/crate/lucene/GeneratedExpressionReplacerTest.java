@@ -0,0 +1,92 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.lucene;
+
+import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
+import io.crate.testing.QueryTester;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.Version;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+public class GeneratedExpressionReplacerTest extends CrateDummyClusterServiceUnitTest {
+
+    @Test
+    public void test_expression_matching_generated_column_is_queried_on_the_generated_column() throws Exception {
+        QueryTester.Builder builder = new QueryTester.Builder(
+            createTempDir(),
+            THREAD_POOL,
+            clusterService,
+            Version.CURRENT,
+            "create table t (name text, lower_name text generated always as lower(name))"
+        );
+        builder.indexValues("name", "Foo", "foo", "bar");
+        try (QueryTester tester = builder.build()) {
+            Query query = tester.toQuery("lower(name) = 'foo'");
+            assertThat(query.toString(), is("lower_name:foo"));
+            assertThat(tester.runQuery("name", "lower(name) = 'foo'"), containsInAnyOrder("Foo", "foo"));
+        }
+    }
+
+    @Test
+    public void test_range_on_expression_matching_generated_column_uses_the_index() throws Exception {
+        QueryTester.Builder builder = new QueryTester.Builder(
+            createTempDir(),
+            THREAD_POOL,
+            clusterService,
+            Version.CURRENT,
+            "create table t (" +
+            "   ts timestamp with time zone," +
+            "   day timestamp with time zone generated always as date_trunc('day', ts)" +
+            ")"
+        );
+        builder.indexValues("ts", 1603183380000L, 1603269780000L, 1603356180000L);
+        try (QueryTester tester = builder.build()) {
+            String expression = "date_trunc('day', ts) >= '2020-10-21'";
+            Query query = tester.toQuery(expression);
+            assertThat(query.toString(), startsWith("day:"));
+            assertThat(tester.runQuery("ts", expression), containsInAnyOrder(1603269780000L, 1603356180000L));
+        }
+    }
+
+    @Test
+    public void test_expression_is_not_replaced_if_generated_column_is_not_indexed() throws Exception {
+        QueryTester.Builder builder = new QueryTester.Builder(
+            createTempDir(),
+            THREAD_POOL,
+            clusterService,
+            Version.CURRENT,
+            "create table t (name text, lower_name text generated always as lower(name) index off)"
+        );
+        builder.indexValues("name", "Foo", "bar");
+        try (QueryTester tester = builder.build()) {
+            Query query = tester.toQuery("lower(name) = 'foo'");
+            assertThat(query, instanceOf(GenericFunctionQuery.class));
+            assertThat(tester.runQuery("name", "lower(name) = 'foo'"), containsInAnyOrder("Foo"));
+        }
+    }
+}
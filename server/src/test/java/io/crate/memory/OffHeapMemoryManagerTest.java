@@ -23,19 +23,85 @@
 package io.crate.memory;
 
 import io.netty.buffer.ByteBuf;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
 public class OffHeapMemoryManagerTest {
 
+    private OffHeapMemoryPool pool;
+
+    @Before
+    public void setupPool() {
+        pool = new OffHeapMemoryPool(1024 * 1024);
+        pool.start();
+    }
+
+    @After
+    public void closePool() {
+        pool.close();
+    }
+
     @Test
     public void test_allocated_buffers_are_released_on_close() {
-        var memoryManager = new OffHeapMemoryManager();
-        ByteBuf buf1 = memoryManager.allocate(20);
+        var memoryManager = new OffHeapMemoryManager(pool, bytes -> {});
+        ByteBuf buf1 = memoryManager.allocate(OffHeapMemoryPool.MAX_PAGE_SIZE + 1);
         buf1.retain();
         memoryManager.close();
         assertThat("ref count must reach 0 now", buf1.release(), is(true));
     }
+
+    @Test
+    public void test_allocated_bytes_are_accounted_with_page_size() {
+        var bytes = new AtomicLong();
+        var memoryManager = new OffHeapMemoryManager(pool, bytes::addAndGet);
+        ByteBuf buf = memoryManager.allocate(20);
+        assertThat(buf.capacity(), is(20));
+        assertThat(buf.writableBytes(), is(20));
+        assertThat(bytes.get(), is((long) OffHeapMemoryPool.MIN_PAGE_SIZE));
+
+        // Closing the memoryManager doesn't de-account the bytes. That responsibility is delegated to the IntConsumer
+        memoryManager.close();
+        assertThat(bytes.get(), is((long) OffHeapMemoryPool.MIN_PAGE_SIZE));
+    }
+
+    @Test
+    public void test_pages_are_returned_to_the_pool_on_close_and_reused() {
+        var memoryManager1 = new OffHeapMemoryManager(pool, bytes -> {});
+        ByteBuf buf1 = memoryManager1.allocate(OffHeapMemoryPool.MIN_PAGE_SIZE);
+        buf1.writeLong(10L);
+        memoryManager1.close();
+        assertThat(buf1.refCnt(), is(1));
+        assertThat(pool.retainedBytes(), is((long) OffHeapMemoryPool.MIN_PAGE_SIZE));
+
+        var memoryManager2 = new OffHeapMemoryManager(pool, bytes -> {});
+        ByteBuf buf2 = memoryManager2.allocate(OffHeapMemoryPool.MIN_PAGE_SIZE);
+        assertThat(buf2, sameInstance(buf1));
+        assertThat("reused pages must be zeroed", buf2.getLong(0), is(0L));
+        assertThat(buf2.writerIndex(), is(0));
+        assertThat(pool.retainedBytes(), is(0L));
+        memoryManager2.close();
+    }
+
+    @Test
+    public void test_released_buffers_are_returned_to_the_pool_and_de_accounted() {
+        var bytes = new AtomicLong();
+        var memoryManager = new OffHeapMemoryManager(pool, bytes::addAndGet);
+        ByteBuf buf = memoryManager.allocate(20);
+        assertThat(bytes.get(), is((long) OffHeapMemoryPool.MIN_PAGE_SIZE));
+
+        memoryManager.release(buf);
+        assertThat(bytes.get(), is(0L));
+        assertThat(pool.retainedBytes(), is((long) OffHeapMemoryPool.MIN_PAGE_SIZE));
+
+        // Already released buffers are not returned again on close
+        memoryManager.close();
+        assertThat(pool.retainedBytes(), is((long) OffHeapMemoryPool.MIN_PAGE_SIZE));
+    }
 }
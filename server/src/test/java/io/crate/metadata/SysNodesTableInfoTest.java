@@ -85,4 +85,19 @@ public class SysNodesTableInfoTest extends CrateDummyClusterServiceUnitTest {
         assertThat(ref.valueType().id(), Matchers.is(ArrayType.ID));
         assertThat(((ArrayType<?>) ref.valueType()).innerType().id(), is(ObjectType.ID));
     }
+
+    @Test
+    public void test_plan_cache_stats_are_null_for_nodes_which_do_not_send_them() {
+        var expressions = SysNodesTableInfo.create().expressions();
+        // Nodes before 4.4.0 don't send plan cache stats
+        NodeStatsContext nodeStats = new NodeStatsContext(true);
+
+        var planCache = expressions.get(SysNodesTableInfo.Columns.PLAN_CACHE).create();
+        planCache.setNextRow(nodeStats);
+        assertThat(planCache.value(), Matchers.nullValue());
+
+        var hits = expressions.get(new ColumnIdent("plan_cache", "hits")).create();
+        hits.setNextRow(nodeStats);
+        assertThat(hits.value(), Matchers.nullValue());
+    }
 }
@@ -544,7 +544,9 @@ public abstract class AggregationTest extends ESTestCase {
         );
         var docValueAggregator =  aggregationFunction.getDocValueAggregator(
             argumentTypes,
-            Lists2.map(argumentTypes, dataType -> mock(MappedFieldType.class))
+            Lists2.map(argumentTypes, dataType -> mock(MappedFieldType.class)),
+            List.of(),
+            Version.CURRENT
         );
         assertThat(
             "DocValueAggregator is not implemented for "
@@ -0,0 +1,379 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.parquet;
+
+import io.crate.breaker.BlockBasedRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.exceptions.UnsupportedFeatureException;
+import org.apache.parquet.column.ParquetProperties.WriterVersion;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.DelegatingSeekableInputStream;
+import org.apache.parquet.io.InputFile;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.SeekableInputStream;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
+
+/**
+ * Tests {@link ParquetReader} and {@link ParquetWriter} against the files of parquet-mr, the reference
+ * implementation of the format, so that they don't only agree with each other.
+ */
+public class ParquetInteropTest extends ESTestCase {
+
+    private static final String[] NAMES = {"Arthur", "Trillian", "a name which is long enough to be compressed"};
+
+    // 2021-01-01
+    private static final long DAY_MILLIS = 1_609_459_200_000L;
+
+    private static final MessageType SCHEMA = Types.buildMessage()
+        .required(PrimitiveTypeName.INT64).named("n")
+        .optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("name")
+        .optional(PrimitiveTypeName.DOUBLE).named("score")
+        .optional(PrimitiveTypeName.BOOLEAN).named("active")
+        .optional(PrimitiveTypeName.INT32).named("population")
+        .optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.dateType()).named("day")
+        .optional(PrimitiveTypeName.INT64)
+            .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MICROS)).named("ts")
+        .named("test");
+
+    private static final List<ParquetColumn> SCHEMA_COLUMNS = List.of(
+        new ParquetColumn("n", ParquetColumn.Type.LONG),
+        new ParquetColumn("name", ParquetColumn.Type.STRING),
+        new ParquetColumn("score", ParquetColumn.Type.DOUBLE),
+        new ParquetColumn("active", ParquetColumn.Type.BOOLEAN),
+        new ParquetColumn("population", ParquetColumn.Type.INTEGER),
+        new ParquetColumn("day", ParquetColumn.Type.TIMESTAMP),
+        new ParquetColumn("ts", ParquetColumn.Type.TIMESTAMP_WITH_TIME_ZONE)
+    );
+
+    /**
+     * Values have a low cardinality, so that parquet-mr keeps the dictionary encoding once it is enabled
+     */
+    private static Object[] expectedRow(int i) {
+        return new Object[] {
+            (long) (i % 50),
+            i % 7 == 3 ? null : NAMES[i % 3],
+            i % 5 == 4 ? null : (i % 10) / 4.0,
+            i % 11 == 0 ? null : i % 2 == 0,
+            i % 13 == 0 ? null : 1_000 * (i % 17),
+            DAY_MILLIS + (i % 30) * 86_400_000L,
+            i % 4 == 1 ? null : DAY_MILLIS + (i % 20) * 1_500L
+        };
+    }
+
+    private static Group group(SimpleGroupFactory factory, int i) {
+        Object[] row = expectedRow(i);
+        Group group = factory.newGroup().append("n", (long) row[0]);
+        if (row[1] != null) {
+            group.append("name", (String) row[1]);
+        }
+        if (row[2] != null) {
+            group.append("score", (double) row[2]);
+        }
+        if (row[3] != null) {
+            group.append("active", (boolean) row[3]);
+        }
+        if (row[4] != null) {
+            group.append("population", (int) row[4]);
+        }
+        // days and microseconds since the epoch
+        group.append("day", (int) ((long) row[5] / 86_400_000L));
+        if (row[6] != null) {
+            group.append("ts", (long) row[6] * 1000);
+        }
+        return group;
+    }
+
+    private static byte[] writeWithParquetMr(int numRows,
+                                             CompressionCodecName codec,
+                                             WriterVersion writerVersion,
+                                             boolean dictionary) throws IOException {
+        BytesOutputFile file = new BytesOutputFile();
+        SimpleGroupFactory factory = new SimpleGroupFactory(SCHEMA);
+        // small pages and row groups to get multiple of them
+        try (org.apache.parquet.hadoop.ParquetWriter<Group> writer = ExampleParquetWriter.builder(file)
+            .withType(SCHEMA)
+            .withCompressionCodec(codec)
+            .withWriterVersion(writerVersion)
+            .withDictionaryEncoding(dictionary)
+            .withPageSize(128)
+            .withRowGroupSize(256)
+            .build()) {
+            for (int i = 0; i < numRows; i++) {
+                writer.write(group(factory, i));
+            }
+        }
+        return file.out.toByteArray();
+    }
+
+    private static List<Object[]> read(byte[] file, List<ParquetColumn> expectedColumns) throws IOException {
+        RamAccounting ramAccounting = new BlockBasedRamAccounting(bytes -> { }, 1024);
+        List<Object[]> rows = new ArrayList<>();
+        try (ParquetReader reader = ParquetReader.open(
+            offset -> new ByteArrayInputStream(file, (int) offset, file.length - (int) offset),
+            file.length,
+            null,
+            ramAccounting)) {
+            assertThat(reader.columns(), is(expectedColumns));
+            assertThat(reader.numRowGroups(), greaterThan(1));
+            while (reader.nextRow()) {
+                Object[] row = new Object[expectedColumns.size()];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = reader.get(i);
+                }
+                rows.add(row);
+            }
+        }
+        assertThat(ramAccounting.totalBytes(), is(0L));
+        return rows;
+    }
+
+    @Test
+    public void test_files_written_by_parquet_mr_can_be_read() throws Exception {
+        int numRows = 1000;
+        for (CompressionCodecName codec : List.of(
+            CompressionCodecName.UNCOMPRESSED, CompressionCodecName.SNAPPY, CompressionCodecName.GZIP)) {
+            for (WriterVersion writerVersion : WriterVersion.values()) {
+                for (boolean dictionary : List.of(true, false)) {
+                    byte[] file = writeWithParquetMr(numRows, codec, writerVersion, dictionary);
+                    String description = codec + ", " + writerVersion + ", dictionary=" + dictionary;
+                    if (writerVersion == WriterVersion.PARQUET_2_0 && dictionary == false) {
+                        // parquet-mr uses the DELTA_* encodings for data pages of version 2 without a dictionary
+                        UnsupportedFeatureException e = expectThrows(
+                            UnsupportedFeatureException.class, () -> read(file, SCHEMA_COLUMNS));
+                        assertThat(description, e.getMessage(), startsWith("Unsupported parquet encoding: DELTA_"));
+                        continue;
+                    }
+                    List<Object[]> rows = read(file, SCHEMA_COLUMNS);
+                    assertThat(description, rows.size(), is(numRows));
+                    for (int i = 0; i < numRows; i++) {
+                        assertThat(description, rows.get(i), is(expectedRow(i)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_files_written_by_parquet_writer_can_be_read_by_parquet_mr() throws Exception {
+        List<ParquetColumn> columns = List.of(
+            new ParquetColumn("b", ParquetColumn.Type.BOOLEAN),
+            new ParquetColumn("by", ParquetColumn.Type.BYTE),
+            new ParquetColumn("sh", ParquetColumn.Type.SHORT),
+            new ParquetColumn("i", ParquetColumn.Type.INTEGER),
+            new ParquetColumn("l", ParquetColumn.Type.LONG),
+            new ParquetColumn("f", ParquetColumn.Type.FLOAT),
+            new ParquetColumn("d", ParquetColumn.Type.DOUBLE),
+            new ParquetColumn("ts", ParquetColumn.Type.TIMESTAMP_WITH_TIME_ZONE),
+            new ParquetColumn("s", ParquetColumn.Type.STRING),
+            new ParquetColumn("o", ParquetColumn.Type.JSON)
+        );
+        int numRows = 300;
+        List<Object[]> rows = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            rows.add(i % 7 == 0 ? new Object[columns.size()] : new Object[] {
+                i % 2 == 0,
+                i % 128,
+                i * 10,
+                i,
+                i * 100_000_000_000L,
+                i / 2.0f,
+                i / 4.0,
+                DAY_MILLIS + i,
+                "ä" + i,
+                "{\"x\":" + i + "}"
+            });
+        }
+        for (ParquetWriter.Compression compression : ParquetWriter.Compression.values()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            // small pages and row groups to get multiple of them
+            try (ParquetWriter writer = new ParquetWriter(
+                out, columns, compression, RamAccounting.NO_ACCOUNTING, 128, 1024)) {
+                for (Object[] row : rows) {
+                    writer.write(row);
+                }
+            }
+            List<Object[]> readRows = readWithParquetMr(out.toByteArray(), columns);
+            assertThat(compression.toString(), readRows.size(), is(numRows));
+            for (int i = 0; i < numRows; i++) {
+                assertThat(compression.toString(), readRows.get(i), is(rows.get(i)));
+            }
+        }
+    }
+
+    private static List<Object[]> readWithParquetMr(byte[] file, List<ParquetColumn> columns) throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        try (org.apache.parquet.hadoop.ParquetReader<Group> reader =
+                 new org.apache.parquet.hadoop.ParquetReader.Builder<Group>(new BytesInputFile(file)) {
+
+                     @Override
+                     protected ReadSupport<Group> getReadSupport() {
+                         return new GroupReadSupport();
+                     }
+                 }.build()) {
+            Group group;
+            while ((group = reader.read()) != null) {
+                Object[] row = new Object[columns.size()];
+                for (int i = 0; i < row.length; i++) {
+                    ParquetColumn column = columns.get(i);
+                    assertThat(group.getType().getFieldName(i), is(column.name()));
+                    row[i] = group.getFieldRepetitionCount(i) == 0 ? null : value(group, i, column.type());
+                }
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    private static Object value(Group group, int field, ParquetColumn.Type type) {
+        switch (type) {
+            case BOOLEAN:
+                return group.getBoolean(field, 0);
+            case BYTE:
+            case SHORT:
+            case INTEGER:
+                return group.getInteger(field, 0);
+            case LONG:
+            case TIMESTAMP:
+            case TIMESTAMP_WITH_TIME_ZONE:
+                return group.getLong(field, 0);
+            case FLOAT:
+                return group.getFloat(field, 0);
+            case DOUBLE:
+                return group.getDouble(field, 0);
+            case STRING:
+            case JSON:
+                return group.getString(field, 0);
+            default:
+                throw new AssertionError("Unexpected type " + type);
+        }
+    }
+
+    private static final class BytesOutputFile implements OutputFile {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return createOrOverwrite(blockSizeHint);
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            out.reset();
+            return new PositionOutputStream() {
+
+                @Override
+                public long getPos() {
+                    return out.size();
+                }
+
+                @Override
+                public void write(int b) {
+                    out.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) {
+                    out.write(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+
+    private static final class BytesInputFile implements InputFile {
+
+        private final byte[] bytes;
+
+        BytesInputFile(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long getLength() {
+            return bytes.length;
+        }
+
+        @Override
+        public SeekableInputStream newStream() {
+            SeekableBytes in = new SeekableBytes(bytes);
+            return new DelegatingSeekableInputStream(in) {
+
+                @Override
+                public long getPos() {
+                    return in.position();
+                }
+
+                @Override
+                public void seek(long newPos) {
+                    in.seek(newPos);
+                }
+            };
+        }
+    }
+
+    private static final class SeekableBytes extends ByteArrayInputStream {
+
+        SeekableBytes(byte[] bytes) {
+            super(bytes);
+        }
+
+        long position() {
+            return pos;
+        }
+
+        void seek(long position) {
+            pos = (int) position;
+        }
+    }
+}
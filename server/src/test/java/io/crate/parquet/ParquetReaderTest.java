@@ -0,0 +1,543 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.parquet;
+
+import io.crate.breaker.BlockBasedRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.exceptions.UnsupportedFeatureException;
+import io.crate.parquet.ParquetMetadata.ColumnChunk;
+import io.crate.parquet.ParquetMetadata.FileMetadata;
+import io.crate.parquet.ParquetMetadata.RowGroup;
+import io.crate.parquet.ParquetMetadata.SchemaElement;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.Test;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class ParquetReaderTest extends ESTestCase {
+
+    private static final List<ParquetColumn> COLUMNS = List.of(
+        new ParquetColumn("b", ParquetColumn.Type.BOOLEAN),
+        new ParquetColumn("i", ParquetColumn.Type.INTEGER),
+        new ParquetColumn("l", ParquetColumn.Type.LONG),
+        new ParquetColumn("f", ParquetColumn.Type.FLOAT),
+        new ParquetColumn("d", ParquetColumn.Type.DOUBLE),
+        new ParquetColumn("ts", ParquetColumn.Type.TIMESTAMP_WITH_TIME_ZONE),
+        new ParquetColumn("s", ParquetColumn.Type.STRING),
+        new ParquetColumn("o", ParquetColumn.Type.JSON)
+    );
+
+    private static Object[] row(int i) {
+        if (i % 7 == 0) {
+            return new Object[COLUMNS.size()];
+        }
+        return new Object[]{
+            i % 2 == 0,
+            i,
+            i * 100_000_000_000L,
+            i / 2.0f,
+            i / 4.0,
+            1_600_000_000_000L + i,
+            "ä" + i,
+            "{\"x\":" + i + "}"
+        };
+    }
+
+    private static byte[] write(int numRows, ParquetWriter.Compression compression) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // small pages and row groups to get multiple of them
+        try (ParquetWriter writer = new ParquetWriter(
+            out, COLUMNS, compression, RamAccounting.NO_ACCOUNTING, 128, 1024)) {
+            for (int i = 0; i < numRows; i++) {
+                writer.write(row(i));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static ParquetReader open(byte[] file, @Nullable Collection<String> columns) throws IOException {
+        return open(file, columns, RamAccounting.NO_ACCOUNTING);
+    }
+
+    private static ParquetReader open(byte[] file,
+                                      @Nullable Collection<String> columns,
+                                      RamAccounting ramAccounting) throws IOException {
+        return ParquetReader.open(
+            offset -> new ByteArrayInputStream(file, (int) offset, file.length - (int) offset),
+            file.length,
+            columns,
+            ramAccounting
+        );
+    }
+
+    private static Object randomValue(ParquetColumn.Type type) {
+        if (rarely()) {
+            return null;
+        }
+        switch (type) {
+            case BOOLEAN:
+                return randomBoolean();
+            case BYTE:
+                return (int) randomByte();
+            case SHORT:
+                return (int) randomShort();
+            case INTEGER:
+                return randomInt();
+            case LONG:
+            case TIMESTAMP:
+            case TIMESTAMP_WITH_TIME_ZONE:
+                return randomLong();
+            case FLOAT:
+                return randomFloat();
+            case DOUBLE:
+                return randomDouble();
+            case STRING:
+                return randomRealisticUnicodeOfLengthBetween(0, 20);
+            case JSON:
+                return "{\"x\":" + randomInt() + "}";
+            default:
+                throw new AssertionError("Unexpected type " + type);
+        }
+    }
+
+    @Test
+    public void test_written_rows_can_be_read() throws Exception {
+        for (ParquetWriter.Compression compression : List.of(
+            ParquetWriter.Compression.UNCOMPRESSED, ParquetWriter.Compression.GZIP)) {
+            byte[] file = write(300, compression);
+            try (ParquetReader reader = open(file, null)) {
+                assertThat(reader.columns(), is(COLUMNS));
+                assertThat(reader.numRowGroups() > 1, is(true));
+                int numRows = 0;
+                while (reader.nextRow()) {
+                    Object[] expected = row(numRows);
+                    for (int i = 0; i < expected.length; i++) {
+                        assertThat(reader.get(i), is(expected[i]));
+                    }
+                    numRows++;
+                }
+                assertThat(numRows, is(300));
+            }
+        }
+    }
+
+    @Test
+    public void test_random_rows_can_be_read_with_random_page_and_row_group_sizes() throws Exception {
+        List<ParquetColumn> columns = new ArrayList<>();
+        int numColumns = randomIntBetween(1, 8);
+        for (int i = 0; i < numColumns; i++) {
+            columns.add(new ParquetColumn("c" + i, randomFrom(ParquetColumn.Type.values())));
+        }
+        List<Object[]> rows = new ArrayList<>();
+        int numRows = randomIntBetween(0, 500);
+        for (int i = 0; i < numRows; i++) {
+            Object[] row = new Object[numColumns];
+            for (int c = 0; c < numColumns; c++) {
+                row[c] = randomValue(columns.get(c).type());
+            }
+            rows.add(row);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParquetWriter writer = new ParquetWriter(
+            out,
+            columns,
+            randomFrom(ParquetWriter.Compression.values()),
+            RamAccounting.NO_ACCOUNTING,
+            randomIntBetween(16, 4096),
+            randomIntBetween(64, 64 * 1024))) {
+            for (Object[] row : rows) {
+                writer.write(row);
+            }
+        }
+
+        List<Object[]> readRows = new ArrayList<>();
+        try (ParquetReader reader = open(out.toByteArray(), null)) {
+            assertThat(reader.columns(), is(columns));
+            while (reader.nextRow()) {
+                Object[] row = new Object[numColumns];
+                for (int c = 0; c < numColumns; c++) {
+                    row[c] = reader.get(c);
+                }
+                readRows.add(row);
+            }
+        }
+        assertThat(readRows.size(), is(numRows));
+        for (int i = 0; i < numRows; i++) {
+            assertThat(readRows.get(i), is(rows.get(i)));
+        }
+    }
+
+    @Test
+    public void test_corrupt_files_fail_with_io_exception_and_release_accounted_memory() throws Exception {
+        byte[] file = write(100, randomFrom(ParquetWriter.Compression.values()));
+        AtomicLong reservedBytes = new AtomicLong();
+        long limit = 1024 * 1024;
+        for (int i = 0; i < 200; i++) {
+            byte[] corrupt;
+            if (randomBoolean()) {
+                corrupt = Arrays.copyOf(file, randomIntBetween(0, file.length - 1));
+            } else {
+                corrupt = file.clone();
+                int numFlips = randomIntBetween(1, 5);
+                for (int f = 0; f < numFlips; f++) {
+                    corrupt[randomIntBetween(0, corrupt.length - 1)] = randomByte();
+                }
+            }
+            RamAccounting ramAccounting = new BlockBasedRamAccounting(bytes -> {
+                if (reservedBytes.addAndGet(bytes) > limit) {
+                    reservedBytes.addAndGet(-bytes);
+                    throw new CircuitBreakingException("Too many bytes accounted");
+                }
+            }, 1024);
+            try (ParquetReader reader = open(corrupt, null, ramAccounting)) {
+                while (reader.nextRow()) {
+                    for (int c = 0; c < COLUMNS.size(); c++) {
+                        reader.get(c);
+                    }
+                }
+            } catch (IOException | CircuitBreakingException e) {
+                // expected, as long as it is not any other exception
+            }
+            assertThat(ramAccounting.totalBytes(), is(0L));
+            ramAccounting.release();
+        }
+    }
+
+    @Test
+    public void test_buffers_and_pages_are_accounted_until_they_are_released() throws Exception {
+        RamAccounting writerAccounting = new BlockBasedRamAccounting(bytes -> { }, 1024);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ParquetWriter writer = new ParquetWriter(
+            out, COLUMNS, ParquetWriter.Compression.GZIP, writerAccounting, 128, 64 * 1024)) {
+            for (int i = 0; i < 100; i++) {
+                writer.write(row(i));
+            }
+            assertThat(writerAccounting.totalBytes(), greaterThan(0L));
+        }
+        assertThat(writerAccounting.totalBytes(), is(0L));
+
+        RamAccounting readerAccounting = new BlockBasedRamAccounting(bytes -> { }, 1024);
+        try (ParquetReader reader = open(out.toByteArray(), null, readerAccounting)) {
+            assertThat(reader.nextRow(), is(true));
+            assertThat(readerAccounting.totalBytes(), greaterThan(0L));
+        }
+        assertThat(readerAccounting.totalBytes(), is(0L));
+    }
+
+    @Test
+    public void test_only_selected_columns_are_read() throws Exception {
+        byte[] file = write(20, ParquetWriter.Compression.UNCOMPRESSED);
+        try (ParquetReader reader = open(file, Set.of("s", "i", "does_not_exist"))) {
+            assertThat(reader.columns(), contains(COLUMNS.get(1), COLUMNS.get(6)));
+            List<Object> values = new ArrayList<>();
+            while (reader.nextRow()) {
+                values.add(reader.get(0));
+            }
+            assertThat(values.size(), is(20));
+            assertThat(values.get(3), is(3));
+        }
+    }
+
+    @Test
+    public void test_row_groups_are_read_once_when_file_is_split_into_ranges() throws Exception {
+        byte[] file = write(300, ParquetWriter.Compression.UNCOMPRESSED);
+        int splitSize = file.length / 5;
+        int numRows = 0;
+        for (long start = 0; start < file.length; start += splitSize) {
+            try (ParquetReader reader = open(file, Set.of("i"))) {
+                reader.selectRowGroups(start, Math.min(file.length, start + splitSize));
+                while (reader.nextRow()) {
+                    numRows++;
+                }
+            }
+        }
+        assertThat(numRows, is(300));
+    }
+
+    @Test
+    public void test_dictionary_encoded_values_of_data_page_v2_can_be_read() throws Exception {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(ParquetMetadata.MAGIC);
+
+        // dictionary page with the values "a" and "b"
+        byte[] dictionary = {1, 0, 0, 0, 'a', 1, 0, 0, 0, 'b'};
+        ThriftCompactWriter writer = new ThriftCompactWriter(file);
+        writer.writeStructBegin();
+        writer.writeI32Field(1, ParquetMetadata.DICTIONARY_PAGE);
+        writer.writeI32Field(2, dictionary.length);
+        writer.writeI32Field(3, dictionary.length);
+        writer.writeStructFieldBegin(7);
+        writer.writeI32Field(1, 2);
+        writer.writeI32Field(2, ParquetMetadata.PLAIN);
+        writer.writeStructEnd();
+        writer.writeStructEnd();
+        file.write(dictionary);
+
+        // data page containing "b", null, "a", "b"
+        ByteArrayOutputStream levels = new ByteArrayOutputStream();
+        RleBitPackedHybrid.encode(new int[]{1, 0, 1, 1}, 4, 1, levels);
+        ByteArrayOutputStream indices = new ByteArrayOutputStream();
+        indices.write(1);
+        RleBitPackedHybrid.encode(new int[]{1, 0, 1}, 3, 1, indices);
+        int pageSize = levels.size() + indices.size();
+        writer.writeStructBegin();
+        writer.writeI32Field(1, ParquetMetadata.DATA_PAGE_V2);
+        writer.writeI32Field(2, pageSize);
+        writer.writeI32Field(3, pageSize);
+        writer.writeStructFieldBegin(8);
+        writer.writeI32Field(1, 4);
+        writer.writeI32Field(2, 1);
+        writer.writeI32Field(3, 4);
+        writer.writeI32Field(4, ParquetMetadata.RLE_DICTIONARY);
+        writer.writeI32Field(5, levels.size());
+        writer.writeI32Field(6, 0);
+        writer.writeBoolField(7, false);
+        writer.writeStructEnd();
+        writer.writeStructEnd();
+        levels.writeTo(file);
+        indices.writeTo(file);
+
+        ColumnChunk chunk = new ColumnChunk();
+        chunk.type = ParquetMetadata.BYTE_ARRAY;
+        chunk.encodings.add(ParquetMetadata.RLE_DICTIONARY);
+        chunk.path.add("s");
+        chunk.codec = ParquetMetadata.UNCOMPRESSED;
+        chunk.numValues = 4;
+        chunk.totalCompressedSize = file.size() - 4;
+        chunk.totalUncompressedSize = file.size() - 4;
+        // Like older writers the data page offset points to the dictionary page
+        chunk.dataPageOffset = 4;
+        writeFooter(file, List.of(stringElement("s")), List.of(chunk), 4);
+
+        byte[] bytes = file.toByteArray();
+        List<Object> values = new ArrayList<>();
+        try (ParquetReader reader = open(bytes, null)) {
+            assertThat(reader.columns(), contains(new ParquetColumn("s", ParquetColumn.Type.STRING)));
+            while (reader.nextRow()) {
+                values.add(reader.get(0));
+            }
+        }
+        assertThat(values, is(Arrays.asList("b", null, "a", "b")));
+    }
+
+    @Test
+    public void test_nested_columns_are_rejected_unless_they_are_not_selected() throws Exception {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(ParquetMetadata.MAGIC);
+        SchemaElement group = new SchemaElement();
+        group.name = "obj";
+        group.repetition = ParquetMetadata.OPTIONAL;
+        group.numChildren = 1;
+        writeFooter(file, List.of(group, stringElement("x"), stringElement("s")), List.of(), 0);
+        byte[] bytes = file.toByteArray();
+
+        try (ParquetReader reader = open(bytes, Set.of("s"))) {
+            assertThat(reader.columns(), contains(new ParquetColumn("s", ParquetColumn.Type.STRING)));
+            assertThat(reader.nextRow(), is(false));
+        }
+        expectedException.expect(UnsupportedFeatureException.class);
+        expectedException.expectMessage("Nested or repeated parquet column `obj` is not supported");
+        open(bytes, null);
+    }
+
+    @Test
+    public void test_repeated_columns_are_rejected() throws Exception {
+        SchemaElement element = stringElement("s");
+        element.repetition = ParquetMetadata.REPEATED;
+        byte[] file = singlePageFile(element, ParquetMetadata.PLAIN, ParquetMetadata.UNCOMPRESSED);
+
+        expectedException.expect(UnsupportedFeatureException.class);
+        expectedException.expectMessage("Nested or repeated parquet column `s` is not supported");
+        open(file, null);
+    }
+
+    @Test
+    public void test_delta_encodings_are_rejected() throws Exception {
+        for (int encoding : List.of(ParquetMetadata.DELTA_BINARY_PACKED,
+                                    ParquetMetadata.DELTA_LENGTH_BYTE_ARRAY,
+                                    ParquetMetadata.DELTA_BYTE_ARRAY)) {
+            byte[] file = singlePageFile(stringElement("s"), encoding, ParquetMetadata.UNCOMPRESSED);
+            RamAccounting ramAccounting = new BlockBasedRamAccounting(bytes -> { }, 1024);
+            try (ParquetReader reader = open(file, null, ramAccounting)) {
+                reader.nextRow();
+                fail("Encoding " + ParquetMetadata.encodingName(encoding) + " must be rejected");
+            } catch (UnsupportedFeatureException e) {
+                String name = ParquetMetadata.encodingName(encoding);
+                assertThat(e.getMessage(), is("Unsupported parquet encoding: " + name));
+            }
+            assertThat(ramAccounting.totalBytes(), is(0L));
+        }
+    }
+
+    @Test
+    public void test_zstd_and_lz4_compressed_columns_are_rejected() throws Exception {
+        byte[] zstd = singlePageFile(stringElement("s"), ParquetMetadata.PLAIN, ParquetMetadata.ZSTD);
+        UnsupportedFeatureException e = expectThrows(UnsupportedFeatureException.class, () -> open(zstd, null));
+        assertThat(e.getMessage(), is("Unsupported parquet compression codec: ZSTD"));
+
+        byte[] lz4 = singlePageFile(stringElement("s"), ParquetMetadata.PLAIN, ParquetMetadata.LZ4);
+        e = expectThrows(UnsupportedFeatureException.class, () -> open(lz4, null));
+        assertThat(e.getMessage(), is("Unsupported parquet compression codec: LZ4"));
+
+        // Columns which are not selected are not decompressed
+        try (ParquetReader reader = open(lz4, Set.of("other"))) {
+            assertThat(reader.columns().isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void test_int96_columns_are_rejected() throws Exception {
+        SchemaElement element = new SchemaElement();
+        element.name = "ts";
+        element.type = ParquetMetadata.INT96;
+        element.repetition = ParquetMetadata.OPTIONAL;
+        byte[] file = singlePageFile(element, ParquetMetadata.PLAIN, ParquetMetadata.UNCOMPRESSED);
+
+        expectedException.expect(UnsupportedFeatureException.class);
+        expectedException.expectMessage("Parquet column `ts` has the deprecated INT96 type which is not supported");
+        open(file, null);
+    }
+
+    @Test
+    public void test_decimal_columns_are_rejected() throws Exception {
+        for (int physicalType : List.of(ParquetMetadata.INT32, ParquetMetadata.INT64, ParquetMetadata.BYTE_ARRAY)) {
+            SchemaElement element = new SchemaElement();
+            element.name = "price";
+            element.type = physicalType;
+            element.repetition = ParquetMetadata.OPTIONAL;
+            if (randomBoolean()) {
+                element.convertedType = ParquetMetadata.CONVERTED_DECIMAL;
+            } else {
+                element.logicalType = ParquetMetadata.LOGICAL_DECIMAL;
+            }
+            byte[] file = singlePageFile(element, ParquetMetadata.PLAIN, ParquetMetadata.UNCOMPRESSED);
+
+            UnsupportedFeatureException e = expectThrows(UnsupportedFeatureException.class, () -> open(file, null));
+            assertThat(e.getMessage(), is("Parquet column `price` has the DECIMAL type which is not supported"));
+        }
+    }
+
+    /**
+     * Writes a file with a single column chunk of the given column which contains a data page of version 1 with a
+     * single value, encoded and compressed as announced.
+     */
+    private static byte[] singlePageFile(SchemaElement element, int encoding, int codec) throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(ParquetMetadata.MAGIC);
+
+        // The values are never decoded, only the encoding and the codec are checked
+        byte[] page = new byte[16];
+        ThriftCompactWriter writer = new ThriftCompactWriter(file);
+        writer.writeStructBegin();
+        writer.writeI32Field(1, ParquetMetadata.DATA_PAGE);
+        writer.writeI32Field(2, page.length);
+        writer.writeI32Field(3, page.length);
+        writer.writeStructFieldBegin(5);
+        writer.writeI32Field(1, 1);
+        writer.writeI32Field(2, encoding);
+        writer.writeI32Field(3, ParquetMetadata.RLE);
+        writer.writeI32Field(4, ParquetMetadata.RLE);
+        writer.writeStructEnd();
+        writer.writeStructEnd();
+        // definition levels: a single RLE run of the value 1
+        page[0] = 2;
+        page[4] = 2;
+        page[5] = 1;
+        file.write(page);
+
+        ColumnChunk chunk = new ColumnChunk();
+        chunk.type = element.type;
+        chunk.encodings.add(encoding);
+        chunk.path.add(element.name);
+        chunk.codec = codec;
+        chunk.numValues = 1;
+        chunk.totalCompressedSize = file.size() - 4;
+        chunk.totalUncompressedSize = file.size() - 4;
+        chunk.dataPageOffset = 4;
+        writeFooter(file, List.of(element), List.of(chunk), 1);
+        return file.toByteArray();
+    }
+
+    private static SchemaElement stringElement(String name) {
+        SchemaElement element = new SchemaElement();
+        element.name = name;
+        element.type = ParquetMetadata.BYTE_ARRAY;
+        element.repetition = ParquetMetadata.OPTIONAL;
+        element.convertedType = ParquetMetadata.CONVERTED_UTF8;
+        return element;
+    }
+
+    /**
+     * Writes the footer of a file whose top-level fields are all fields in the given schema, except the children of
+     * groups.
+     */
+    private static void writeFooter(ByteArrayOutputStream file,
+                                    List<SchemaElement> fields,
+                                    List<ColumnChunk> chunks,
+                                    long numRows) throws IOException {
+        FileMetadata metadata = new FileMetadata();
+        SchemaElement root = new SchemaElement();
+        root.name = "schema";
+        int numChildren = 0;
+        int childrenToSkip = 0;
+        for (SchemaElement field : fields) {
+            if (childrenToSkip > 0) {
+                childrenToSkip--;
+            } else {
+                numChildren++;
+                childrenToSkip = field.numChildren;
+            }
+        }
+        root.numChildren = numChildren;
+        metadata.schema.add(root);
+        metadata.schema.addAll(fields);
+        metadata.numRows = numRows;
+        if (!chunks.isEmpty()) {
+            RowGroup rowGroup = new RowGroup();
+            rowGroup.columns.addAll(chunks);
+            rowGroup.numRows = numRows;
+            metadata.rowGroups.add(rowGroup);
+        }
+        ByteArrayOutputStream footer = new ByteArrayOutputStream();
+        metadata.write(footer);
+        footer.writeTo(file);
+        int length = footer.size();
+        file.write(new byte[]{(byte) length, (byte) (length >>> 8), (byte) (length >>> 16), (byte) (length >>> 24)});
+        file.write("PAR1".getBytes(StandardCharsets.US_ASCII));
+    }
+}
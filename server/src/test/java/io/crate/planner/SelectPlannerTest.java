@@ -789,6 +789,33 @@ public class SelectPlannerTest extends CrateDummyClusterServiceUnitTest {
         assertThat(collect.nodeIds().size(), is(2));
     }
 
+    @Test
+    public void test_window_agg_over_rows_sorted_by_previous_window_agg_uses_sorted_source() {
+        Collect collect = e.plan(
+            "select row_number() over (partition by col1 order by col2), sum(col2) over (partition by col1) " +
+            "from unnest([1, 2], [3, 4]) as t (col1, col2)");
+        List<WindowAggProjection> windowAggs = collect.collectPhase().projections().stream()
+            .filter(WindowAggProjection.class::isInstance)
+            .map(WindowAggProjection.class::cast)
+            .collect(Collectors.toList());
+        assertThat(windowAggs.size(), is(2));
+        assertThat(windowAggs.get(0).sourceIsOrdered(), is(false));
+        assertThat(windowAggs.get(1).sourceIsOrdered(), is(true));
+    }
+
+    @Test
+    public void test_window_agg_with_different_partition_by_than_previous_window_agg_sorts_source() {
+        Collect collect = e.plan(
+            "select row_number() over (partition by col1 order by col2), sum(col2) over (partition by col2) " +
+            "from unnest([1, 2], [3, 4]) as t (col1, col2)");
+        List<WindowAggProjection> windowAggs = collect.collectPhase().projections().stream()
+            .filter(WindowAggProjection.class::isInstance)
+            .map(WindowAggProjection.class::cast)
+            .collect(Collectors.toList());
+        assertThat(windowAggs.size(), is(2));
+        assertThat(windowAggs.get(1).sourceIsOrdered(), is(false));
+    }
+
     @Test
     public void testSeqNoAndPrimaryTermFilteringRequirePrimaryKey() {
         expectedException.expect(VersioninigValidationException.class);
@@ -30,12 +30,15 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 public class JoinOrderingTest {
@@ -79,4 +82,78 @@ public class JoinOrderingTest {
         );
         assertThat(qualifiedNames, contains(T3.T1, T3.T2, T3.T3));
     }
+
+    @Test
+    public void testOrderByCostJoinsRelationsWithSmallestJoinResultFirst() {
+        // SELECT * FROM t1, t2, t3 WHERE t1.id = t2.id AND t2.id = t3.id
+        List<RelationName> orderedRelations = JoinOrdering.orderByCost(
+            List.of(T3.T1, T3.T2, T3.T3),
+            Map.of(T3.T1, 1_000_000L, T3.T2, 1_000_000L, T3.T3, 10L),
+            Map.of(
+                Set.of(T3.T1, T3.T2), 0.000001,
+                Set.of(T3.T2, T3.T3), 0.000001
+            )
+        );
+        assertThat(orderedRelations, contains(T3.T2, T3.T3, T3.T1));
+    }
+
+    @Test
+    public void testOrderByCostAvoidsCrossJoins() {
+        // SELECT * FROM t1, t2, t3 WHERE t1.id = t2.id AND t2.id = t3.id
+        // A cross join of t1 and t3 would be the smallest intermediate result, but is avoided.
+        List<RelationName> orderedRelations = JoinOrdering.orderByCost(
+            List.of(T3.T1, T3.T2, T3.T3),
+            Map.of(T3.T1, 2L, T3.T2, 1_000L, T3.T3, 2L),
+            Map.of(
+                Set.of(T3.T1, T3.T2), 0.5,
+                Set.of(T3.T2, T3.T3), 0.5
+            )
+        );
+        assertThat(orderedRelations, contains(T3.T1, T3.T2, T3.T3));
+    }
+
+    @Test
+    public void testOrderByCostKeepsOriginalOrderOnEqualCosts() {
+        List<RelationName> orderedRelations = JoinOrdering.orderByCost(
+            List.of(T3.T1, T3.T2, T3.T3),
+            Map.of(T3.T1, 100L, T3.T2, 100L, T3.T3, 100L),
+            Map.of(
+                Set.of(T3.T1, T3.T2), 0.01,
+                Set.of(T3.T2, T3.T3), 0.01,
+                Set.of(T3.T1, T3.T3), 0.01
+            )
+        );
+        assertThat(orderedRelations, contains(T3.T1, T3.T2, T3.T3));
+    }
+
+    @Test
+    public void testOrderByCostReturnsNullIfNumberOfRowsIsUnknown() {
+        List<RelationName> orderedRelations = JoinOrdering.orderByCost(
+            List.of(T3.T1, T3.T2, T3.T3),
+            Map.of(T3.T1, 100L, T3.T2, -1L, T3.T3, 100L),
+            Map.of(Set.of(T3.T1, T3.T2), 0.01)
+        );
+        assertThat(orderedRelations, nullValue());
+    }
+
+    @Test
+    public void testOrderByCostUsesGreedyOrderingForLargeJoinGraphs() {
+        List<RelationName> relations = new ArrayList<>();
+        Map<RelationName, Long> numRowsByRelation = new HashMap<>();
+        Map<Set<RelationName>, Double> selectivities = new HashMap<>();
+        int numRelations = JoinOrdering.MAX_RELATIONS_FOR_EXHAUSTIVE_SEARCH + 2;
+        for (int i = 0; i < numRelations; i++) {
+            RelationName relation = new RelationName("doc", "t" + i);
+            relations.add(relation);
+            numRowsByRelation.put(relation, (long) (numRelations - i) * 1000);
+            if (i > 0) {
+                selectivities.put(Set.of(relations.get(i - 1), relation), 0.001);
+            }
+        }
+        // chain t0 - t1 - ... - tn, the last relations are the smallest ones
+        List<RelationName> orderedRelations = JoinOrdering.orderByCost(relations, numRowsByRelation, selectivities);
+        assertThat(orderedRelations.size(), is(numRelations));
+        assertThat(orderedRelations.get(0), is(relations.get(numRelations - 2)));
+        assertThat(orderedRelations.get(1), is(relations.get(numRelations - 1)));
+    }
 }
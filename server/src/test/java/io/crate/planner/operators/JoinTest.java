@@ -107,7 +107,8 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
             mss.where(),
             mss.joinPairs(),
             rel -> logicalPlanner.plan(rel, plannerCtx, subqueryPlanner, Set.of()),
-            txnCtx.sessionContext().isHashJoinEnabled()
+            txnCtx.sessionContext().isHashJoinEnabled(),
+            tableStats
         );
     }
 
@@ -197,7 +198,8 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
             mss.where(),
             mss.joinPairs(),
             rel -> logicalPlanner.plan(rel, plannerCtx, subqueryPlanner, Set.of()),
-            false
+            false,
+            tableStats
         );
         Join nl = (Join) operator.build(
             context, projectionBuilder, -1, 0, null, null, Row.EMPTY, SubQueryResults.EMPTY);
@@ -247,11 +249,11 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
         assertThat(((HashJoin) operator).concreteRelation.toString(), is("DocTableRelation{doc.locations}"));
 
         Join join = buildJoin(operator);
-        assertThat(((Collect) join.left()).collectPhase().toCollect().get(1), isReference("other_id"));
+        assertThat(((Collect) join.left()).collectPhase().toCollect().get(1), isReference("loc"));
     }
 
     @Test
-    public void testHashJoin_TablesSwitchWhenRightBiggerThanLeft() {
+    public void testHashJoin_TablesNotSwitchedWhenLeftIsSmallerThanRight() {
         QueriedSelectRelation mss = e.analyze("select users.name, locations.id " +
                                               "from users " +
                                               "join locations on users.id = locations.id");
@@ -267,7 +269,31 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
         assertThat(((HashJoin) operator).concreteRelation.toString(), is("DocTableRelation{doc.locations}"));
 
         Join join = buildJoin(operator);
-        assertThat(((Collect) join.left()).collectPhase().toCollect().get(1), isReference("loc"));
+        assertThat(((Collect) join.left()).collectPhase().toCollect().get(1), isReference("other_id"));
+    }
+
+    @Test
+    public void testHashJoin_RelationsAreOrderedByCost() {
+        QueriedSelectRelation mss = e.analyze("select * " +
+                                              "from t1 inner join t2 on t1.a = t2.b " +
+                                              "inner join t3 on t3.c = t2.b");
+
+        TableStats tableStats = new TableStats();
+        Map<RelationName, Stats> rowCountByTable = new HashMap<>();
+        rowCountByTable.put(T3.T1, new Stats(1_000_000, 0, Map.of()));
+        rowCountByTable.put(T3.T2, new Stats(1_000_000, 0, Map.of()));
+        rowCountByTable.put(T3.T3, new Stats(10, 0, Map.of()));
+        tableStats.updateTableStats(rowCountByTable);
+
+        // joining t2 with t3 is expected to produce 10 rows, t1 with t2 1_000_000 rows, so t2 and t3 must be joined first
+        LogicalPlan operator = createLogicalPlan(mss, tableStats);
+        assertThat(operator, instanceOf(HashJoin.class));
+        HashJoin join = (HashJoin) operator;
+        assertThat(join.rhs.baseTables().get(0).relationName(), is(T3.T1));
+        assertThat(join.lhs, instanceOf(HashJoin.class));
+        HashJoin leftJoin = (HashJoin) join.lhs;
+        assertThat(leftJoin.lhs.baseTables().get(0).relationName(), is(T3.T2));
+        assertThat(leftJoin.rhs.baseTables().get(0).relationName(), is(T3.T3));
     }
 
     @Test
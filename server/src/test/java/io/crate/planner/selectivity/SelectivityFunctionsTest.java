@@ -27,6 +27,7 @@ import io.crate.data.Row1;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.ColumnIdent;
 import io.crate.statistics.ColumnStats;
+import io.crate.statistics.MostCommonValues;
 import io.crate.statistics.Stats;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SqlExpressions;
@@ -123,4 +124,93 @@ public class SelectivityFunctionsTest extends CrateDummyClusterServiceUnitTest {
         Stats stats = new Stats(100, 16, Map.of(new ColumnIdent("x"), columnStats));
         assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(50L));
     }
+
+    @Test
+    public void test_range_selectivity_is_based_on_histogram() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("x < 5001");
+        var numbers = IntStream.range(1, 20_001)
+            .boxed()
+            .collect(Collectors.toList());
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, 20_000L);
+        Stats stats = new Stats(20_000, 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(5000L));
+    }
+
+    @Test
+    public void test_lower_and_upper_bound_on_same_column_are_combined_to_range() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("x between 5001 and 10000");
+        var numbers = IntStream.range(1, 20_001)
+            .boxed()
+            .collect(Collectors.toList());
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, 20_000L);
+        Stats stats = new Stats(20_000, 16, Map.of(new ColumnIdent("x"), columnStats));
+        // 20_000 * 0.75 * 0.5 = 7500 if the bounds were treated as independent
+        assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(4999L));
+    }
+
+    @Test
+    public void test_range_selectivity_includes_matching_mcv_frequencies() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("x >= 5");
+        var columnStats = new ColumnStats<>(
+            0.0,
+            4,
+            3,
+            DataTypes.INTEGER,
+            new MostCommonValues(new Object[] { 1, 5, 10 }, new double[] { 0.25, 0.25, 0.5 }),
+            List.of()
+        );
+        Stats stats = new Stats(16, 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(12L));
+    }
+
+    @Test
+    public void test_in_list_selectivity_is_the_sum_of_eq_selectivities() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.normalize(expressions.asSymbol("x in (1, 5)"));
+        var columnStats = new ColumnStats<>(
+            0.0,
+            4,
+            3,
+            DataTypes.INTEGER,
+            new MostCommonValues(new Object[] { 1, 5, 10 }, new double[] { 0.25, 0.25, 0.5 }),
+            List.of()
+        );
+        Stats stats = new Stats(16, 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(8L));
+    }
+
+    @Test
+    public void test_not_eq_excludes_null_values() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("x != 10");
+        var columnStats = new ColumnStats<>(
+            0.25,
+            4,
+            3,
+            DataTypes.INTEGER,
+            new MostCommonValues(new Object[] { 1, 5, 10 }, new double[] { 0.25, 0.25, 0.25 }),
+            List.of()
+        );
+        Stats stats = new Stats(100, 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(50L));
+    }
+
+    @Test
+    public void test_like_with_prefix_uses_histogram_range_of_prefix() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("a like 'b%'");
+        var columnStats = new ColumnStats<>(
+            0.0,
+            4,
+            100,
+            DataTypes.STRING,
+            MostCommonValues.EMPTY,
+            List.of("a", "b", "c", "d", "e")
+        );
+        Stats stats = new Stats(100, 16, Map.of(new ColumnIdent("a"), columnStats));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(25L));
+    }
 }
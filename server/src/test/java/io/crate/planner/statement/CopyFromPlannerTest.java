@@ -26,6 +26,7 @@ import io.crate.analyze.AnalyzedCopyFrom;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.FileUriCollectPhase;
 import io.crate.execution.dsl.projection.SourceIndexWriterProjection;
+import io.crate.execution.engine.collect.files.StdinStreams;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.Reference;
@@ -41,6 +42,7 @@ import java.io.IOException;
 import java.util.List;
 
 import static io.crate.analyze.TableDefinitions.USER_TABLE_DEFINITION;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
@@ -125,6 +127,16 @@ public class CopyFromPlannerTest extends CrateDummyClusterServiceUnitTest {
         plan("copy users from '/path/to/file.ext' with (bulk_size=-28)");
     }
 
+    @Test
+    public void testCopyFromStdinIsReadOnHandlerNode() {
+        Collect collect = plan("copy users from stdin");
+        FileUriCollectPhase collectPhase = (FileUriCollectPhase) collect.collectPhase();
+        assertThat(collectPhase.nodeIds(), contains(plannerContext.handlerNode()));
+        assertThat(
+            ((Literal) collectPhase.targetUri()).value(),
+            is(StdinStreams.uri(plannerContext.jobId())));
+    }
+
     @Test
     public void testNodeFiltersNoMatch() {
         Collect cm = plan("copy users from '/path' with (node_filters={name='foobar'})");
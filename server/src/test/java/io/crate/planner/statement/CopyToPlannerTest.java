@@ -23,16 +23,19 @@
 package io.crate.planner.statement;
 
 import com.carrotsearch.randomizedtesting.RandomizedTest;
+import io.crate.analyze.BoundCopyTo;
 import io.crate.analyze.TableDefinitions;
 import io.crate.data.Row;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
 import io.crate.execution.dsl.projection.WriterProjection;
 import io.crate.execution.dsl.projection.builder.ProjectionBuilder;
+import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.PartitionName;
 import io.crate.metadata.Reference;
 import io.crate.metadata.RelationName;
 import io.crate.metadata.doc.DocSysColumns;
 import io.crate.planner.Merge;
+import io.crate.planner.PlannerContext;
 import io.crate.planner.node.dql.Collect;
 import io.crate.planner.operators.SubQueryResults;
 import io.crate.statistics.TableStats;
@@ -45,8 +48,10 @@ import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static io.crate.testing.SymbolMatchers.isReference;
 import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 
 public class CopyToPlannerTest extends CrateDummyClusterServiceUnitTest {
@@ -127,6 +132,31 @@ public class CopyToPlannerTest extends CrateDummyClusterServiceUnitTest {
         );
     }
 
+    @Test
+    public void testCopyToStdoutCollectsPartitionColumnsInsteadOfWritingFiles() {
+        CopyToPlan plan = e.plan("copy parted to stdout");
+        PlannerContext plannerContext = e.getPlannerContext(clusterService.state());
+        BoundCopyTo boundCopyTo = CopyToPlan.bind(
+            plan.copyTo(),
+            plannerContext.transactionContext(),
+            plannerContext.nodeContext(),
+            Row.EMPTY,
+            SubQueryResults.EMPTY);
+        List<ColumnIdent> overwriteColumns = List.copyOf(boundCopyTo.overwrites().keySet());
+        assertThat(overwriteColumns, contains(new ColumnIdent("date")));
+
+        Merge merge = (Merge) CopyToPlan.planCopyToStdoutExecution(
+            boundCopyTo,
+            overwriteColumns,
+            plannerContext,
+            new TableStats(),
+            new ProjectionBuilder(e.nodeCtx),
+            Row.EMPTY);
+        RoutedCollectPhase collectPhase = (RoutedCollectPhase) ((Collect) merge.subPlan()).collectPhase();
+        assertThat(collectPhase.toCollect(), contains(isReference("_doc"), isReference("date")));
+        assertThat(collectPhase.projections(), empty());
+    }
+
     @Test
     public void testCopyToWithInvalidPartitionInWhereClause() {
         expectedException.expect(IllegalArgumentException.class);
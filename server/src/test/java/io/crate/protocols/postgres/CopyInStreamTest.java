@@ -0,0 +1,193 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.apache.logging.log4j.LogManager;
+import org.elasticsearch.common.breaker.MemoryCircuitBreaker;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.core.Is.is;
+
+public class CopyInStreamTest extends ESTestCase {
+
+    private EmbeddedChannel channel;
+    private MemoryCircuitBreaker breaker;
+
+    @Before
+    public void setUpChannel() {
+        channel = new EmbeddedChannel();
+        breaker = new MemoryCircuitBreaker(
+            new ByteSizeValue(10, ByteSizeUnit.MB), 1.0, LogManager.getLogger(CopyInStreamTest.class));
+    }
+
+    @After
+    public void closeChannel() {
+        channel.finishAndReleaseAll();
+    }
+
+    private static ByteBuf chunk(String data) {
+        return Unpooled.copiedBuffer(data, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testReadsAllChunksUntilCopyDone() throws Exception {
+        CopyInStream stream = new CopyInStream(channel.config(), breaker);
+        stream.add(chunk("{\"x\": 1}\r\n{\"x\""));
+        stream.add(chunk(": 2}\n{\"x\": 3}"));
+        stream.finish();
+
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = stream.poll()) != null) {
+            lines.add(line);
+        }
+        assertThat(lines, contains("{\"x\": 1}", "{\"x\": 2}", "{\"x\": 3}"));
+        assertThat(stream.isFinished(), is(true));
+        stream.close();
+    }
+
+    @Test
+    public void test_poll_does_not_block_and_signals_when_a_line_is_complete() throws Exception {
+        CopyInStream stream = new CopyInStream(channel.config(), breaker);
+        stream.add(chunk("{\"x\""));
+        assertThat(stream.poll(), nullValue());
+        assertThat(stream.isFinished(), is(false));
+
+        CompletableFuture<?> readable = stream.whenReadable();
+        assertThat(readable.isDone(), is(false));
+        stream.add(chunk(": 1}\n"));
+        assertThat(readable.isDone(), is(true));
+        assertThat(stream.poll(), is("{\"x\": 1}"));
+
+        readable = stream.whenReadable();
+        assertThat(readable.isDone(), is(false));
+        stream.finish();
+        assertThat(readable.isDone(), is(true));
+        assertThat(stream.poll(), nullValue());
+        assertThat(stream.isFinished(), is(true));
+        stream.close();
+    }
+
+    @Test
+    public void testAutoReadIsDisabledAboveHighWatermarkAndResumedBelowLowWatermark() throws Exception {
+        CopyInStream stream = new CopyInStream(channel.config(), breaker);
+        String line = "x".repeat(1023);
+        int numLines = CopyInStream.HIGH_WATERMARK / 1024;
+        for (int i = 0; i < numLines; i++) {
+            stream.add(chunk(line + "\n"));
+        }
+        assertThat(channel.config().isAutoRead(), is(false));
+        assertThat(breaker.getUsed(), is((long) CopyInStream.HIGH_WATERMARK));
+
+        for (int i = 0; i < numLines - CopyInStream.LOW_WATERMARK / 1024; i++) {
+            assertThat(stream.poll(), is(line));
+        }
+        assertThat(channel.config().isAutoRead(), is(true));
+        assertThat(breaker.getUsed(), is((long) CopyInStream.LOW_WATERMARK));
+        stream.close();
+        assertThat(breaker.getUsed(), is(0L));
+    }
+
+    @Test
+    public void test_line_spanning_many_small_copy_data_messages_does_not_pause_reading() throws Exception {
+        CopyInStream stream = new CopyInStream(channel.config(), breaker);
+        int numChunks = 2 * CopyInStream.HIGH_WATERMARK / 1024;
+        String part = "x".repeat(1024);
+        for (int i = 0; i < numChunks; i++) {
+            stream.add(chunk(part));
+            assertThat(stream.poll(), nullValue());
+            assertThat(stream.whenReadable().isDone(), is(false));
+            assertThat(channel.config().isAutoRead(), is(true));
+        }
+        CompletableFuture<?> readable = stream.whenReadable();
+        stream.add(chunk("\nx\n"));
+        assertThat(readable.isDone(), is(true));
+        assertThat(stream.poll(), is(part.repeat(numChunks)));
+        assertThat(stream.poll(), is("x"));
+        assertThat(breaker.getUsed(), is(0L));
+        stream.close();
+    }
+
+    @Test
+    public void test_buffered_data_exceeding_the_circuit_breaker_limit_fails_the_copy() throws Exception {
+        breaker = new MemoryCircuitBreaker(
+            new ByteSizeValue(10, ByteSizeUnit.BYTES), 1.0, LogManager.getLogger(CopyInStreamTest.class));
+        CopyInStream stream = new CopyInStream(channel.config(), breaker);
+        stream.add(chunk("{\"x\""));
+        CompletableFuture<?> readable = stream.whenReadable();
+        ByteBuf data = chunk(": 1234567890}\n");
+        stream.add(data);
+        assertThat(data.refCnt(), is(0));
+        assertThat(readable.isDone(), is(true));
+        assertThat(breaker.getUsed(), is(0L));
+
+        UncheckedIOException e = expectThrows(UncheckedIOException.class, stream::poll);
+        assertThat(e.getMessage(), containsString("Data too large"));
+        stream.close();
+    }
+
+    @Test
+    public void testCopyFailAbortsReading() throws Exception {
+        CopyInStream stream = new CopyInStream(channel.config(), breaker);
+        ByteBuf data = chunk("x");
+        stream.add(data);
+        CompletableFuture<?> readable = stream.whenReadable();
+        stream.fail("aborted by client");
+        assertThat(data.refCnt(), is(0));
+        assertThat(readable.isDone(), is(true));
+        assertThat(breaker.getUsed(), is(0L));
+
+        expectThrows(UncheckedIOException.class, stream::poll);
+    }
+
+    @Test
+    public void testDataIsReleasedOnClose() {
+        CopyInStream stream = new CopyInStream(channel.config(), breaker);
+        ByteBuf data = chunk("x");
+        stream.add(data);
+        stream.close();
+        assertThat(data.refCnt(), is(0));
+
+        ByteBuf dataAfterClose = chunk("y");
+        stream.add(dataAfterClose);
+        assertThat(dataAfterClose.refCnt(), is(0));
+        assertThat(stream.isClosed(), is(true));
+    }
+}
@@ -32,6 +32,7 @@ import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.http.BindHttpException;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.transport.BindTransportException;
 import org.junit.Test;
 
@@ -85,6 +86,7 @@ public class PostgresNettyPublishPortTest extends ESTestCase {
             networkService,
             new AlwaysOKNullAuthentication(),
             new EventLoopGroups(),
+            new NoneCircuitBreakerService(),
             mock(SslContextProvider.class));
         try {
             psql.doStart();
@@ -105,6 +107,7 @@ public class PostgresNettyPublishPortTest extends ESTestCase {
             networkService,
             new AlwaysOKNullAuthentication(),
             new EventLoopGroups(),
+            new NoneCircuitBreakerService(),
             mock(SslContextProvider.class));
         try {
             psql.doStart();
@@ -130,6 +133,7 @@ public class PostgresNettyPublishPortTest extends ESTestCase {
             networkService,
             new AlwaysOKNullAuthentication(),
             new EventLoopGroups(),
+            new NoneCircuitBreakerService(),
             mock(SslContextProvider.class));
         try {
             psql.doStart();
@@ -155,6 +159,7 @@ public class PostgresNettyPublishPortTest extends ESTestCase {
             networkService,
             new AlwaysOKNullAuthentication(),
             new EventLoopGroups(),
+            new NoneCircuitBreakerService(),
             mock(SslContextProvider.class));
         try {
             psql.doStart();
@@ -23,6 +23,7 @@
 package io.crate.protocols.postgres;
 
 import io.crate.action.sql.DescribeResult;
+import io.crate.action.sql.PlanCache;
 import io.crate.action.sql.SQLOperations;
 import io.crate.action.sql.Session;
 import io.crate.action.sql.SessionContext;
@@ -36,6 +37,7 @@ import io.crate.exceptions.JobKilledException;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.planner.DependencyCarrier;
 import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.statistics.TableStats;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import io.crate.types.DataTypes;
@@ -46,6 +48,7 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.embedded.EmbeddedChannel;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.inject.Provider;
 import org.elasticsearch.common.settings.SecureString;
 import org.elasticsearch.common.settings.Settings;
@@ -95,7 +98,8 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
             new JobsLogs(() -> true),
             Settings.EMPTY,
             clusterService,
-            USER_MANAGER_PROVIDER
+            USER_MANAGER_PROVIDER,
+            new PlanCache(Settings.EMPTY, clusterService, new TableStats())
         ) {
             @Override
             public Session createSession(@Nullable String defaultSchema, @Nullable User user) {
@@ -122,6 +126,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
                 mock(SQLOperations.class),
                 sessionContext -> AccessControl.DISABLED,
                 new AlwaysOKNullAuthentication(),
+                NoopCircuitBreaker::new,
                 null);
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
 
@@ -164,6 +169,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
                 sqlOperations,
                 sessionContext -> AccessControl.DISABLED,
                 new AlwaysOKNullAuthentication(),
+                NoopCircuitBreaker::new,
                 null);
         AtomicBoolean flushed = new AtomicBoolean(false);
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler) {
@@ -192,6 +198,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
                 sqlOperations,
                 sessionContext -> AccessControl.DISABLED,
                 new AlwaysOKNullAuthentication(),
+                NoopCircuitBreaker::new,
                 null);
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
 
@@ -217,6 +224,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
                 sqlOperations,
                 sessionContext -> AccessControl.DISABLED,
                 new AlwaysOKNullAuthentication(),
+                NoopCircuitBreaker::new,
                 null);
 
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
@@ -275,6 +283,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
                 sqlOperations,
                 sessionContext -> AccessControl.DISABLED,
                 new AlwaysOKNullAuthentication(),
+                NoopCircuitBreaker::new,
                 null);
 
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
@@ -337,6 +346,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
                 mock(SQLOperations.class),
                 sessionContext -> AccessControl.DISABLED,
                 new AlwaysOKNullAuthentication(),
+                NoopCircuitBreaker::new,
                 null);
 
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
@@ -363,7 +373,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
     @Test
     public void testCrateServerVersionIsReceivedOnStartup() throws Exception {
         PostgresWireProtocol ctx = new PostgresWireProtocol(
-            sqlOperations, sessionContext -> AccessControl.DISABLED, new AlwaysOKNullAuthentication(), null);
+            sqlOperations, sessionContext -> AccessControl.DISABLED, new AlwaysOKNullAuthentication(), NoopCircuitBreaker::new, null);
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
 
         ByteBuf buf = Unpooled.buffer();
@@ -417,6 +427,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
                         };
                     }
                 },
+                NoopCircuitBreaker::new,
                 null);
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
 
@@ -454,6 +465,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
                 sqlOperations,
                 sessionContext -> AccessControl.DISABLED,
                 new AlwaysOKNullAuthentication(),
+                NoopCircuitBreaker::new,
                 null);
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
 
@@ -504,6 +516,7 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
                 sqlOperations,
                 sessionCtx -> AccessControl.DISABLED,
                 new AlwaysOKNullAuthentication(),
+                NoopCircuitBreaker::new,
                 null);
         channel = new EmbeddedChannel(ctx.decoder, ctx.handler);
 
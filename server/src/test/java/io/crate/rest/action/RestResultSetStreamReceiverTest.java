@@ -0,0 +1,174 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.data.RowN;
+import io.crate.expression.symbol.ScopedSymbol;
+import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.ColumnIdent;
+import io.crate.metadata.RelationName;
+import io.crate.types.DataTypes;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import org.elasticsearch.http.netty4.cors.Netty4CorsConfigBuilder;
+import org.elasticsearch.test.ESTestCase;
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class RestResultSetStreamReceiverTest extends ESTestCase {
+
+    private final List<Symbol> fields = List.of(
+        new ScopedSymbol(new RelationName("doc", "dummy"), ColumnIdent.fromPath("col_a"), DataTypes.STRING),
+        new ScopedSymbol(new RelationName("doc", "dummy"), ColumnIdent.fromPath("col_b"), DataTypes.INTEGER)
+    );
+    private final EmbeddedChannel channel = new EmbeddedChannel();
+    private final AtomicInteger fetchMoreCalls = new AtomicInteger(0);
+
+    @After
+    public void closeChannel() throws Exception {
+        channel.finishAndReleaseAll();
+    }
+
+    private RestResultSetStreamReceiver newReceiver(RestResultSetStreamReceiver.Format format) throws Exception {
+        return new RestResultSetStreamReceiver(
+            channel,
+            new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/_sql?stream"),
+            Netty4CorsConfigBuilder.forAnyOrigin().build(),
+            format,
+            fields,
+            false,
+            System.nanoTime(),
+            receiver -> fetchMoreCalls.incrementAndGet()
+        );
+    }
+
+    private String readStreamedContent(String expectedMediaType) {
+        HttpResponse response = channel.readOutbound();
+        assertThat(response.status(), is(HttpResponseStatus.OK));
+        assertThat(response.headers().get(HttpHeaderNames.CONTENT_TYPE), is(expectedMediaType));
+        assertThat(HttpUtil.isTransferEncodingChunked(response), is(true));
+        StringBuilder content = new StringBuilder();
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            ByteBuf buf = ((HttpContent) msg).content();
+            content.append(buf.toString(StandardCharsets.UTF_8));
+            buf.release();
+            if (msg instanceof LastHttpContent) {
+                break;
+            }
+        }
+        assertThat("response must end with the last chunk", msg, instanceOf(LastHttpContent.class));
+        return content.toString();
+    }
+
+    @Test
+    public void test_json_stream_has_same_structure_as_regular_response() throws Exception {
+        RestResultSetStreamReceiver receiver = newReceiver(RestResultSetStreamReceiver.Format.JSON);
+        receiver.setNextRow(new RowN("foo", 1));
+        receiver.batchFinished();
+        receiver.setNextRow(new RowN("bar", 2));
+        receiver.allFinished(false);
+
+        String content = readStreamedContent("application/json; charset=UTF-8");
+        assertThat(
+            content.replaceAll(",\"duration\":[^,}]+", ""),
+            is("{\"cols\":[\"col_a\",\"col_b\"],\"rows\":[[\"foo\",1],[\"bar\",2]],\"rowcount\":2}"));
+        assertThat(receiver.completionFuture().isDone(), is(true));
+    }
+
+    @Test
+    public void test_ndjson_writes_one_object_per_line() throws Exception {
+        RestResultSetStreamReceiver receiver = newReceiver(RestResultSetStreamReceiver.Format.NDJSON);
+        receiver.setNextRow(new RowN("foo", 1));
+        receiver.setNextRow(new RowN(null, 2));
+        receiver.allFinished(false);
+
+        assertThat(
+            readStreamedContent("application/x-ndjson"),
+            is("{\"col_a\":\"foo\",\"col_b\":1}\n{\"col_a\":null,\"col_b\":2}\n"));
+    }
+
+    @Test
+    public void test_csv_writes_header_and_escapes_values() throws Exception {
+        RestResultSetStreamReceiver receiver = newReceiver(RestResultSetStreamReceiver.Format.CSV);
+        receiver.setNextRow(new RowN("foo, \"bar\"", 1));
+        receiver.setNextRow(new RowN(null, 2));
+        receiver.allFinished(false);
+
+        assertThat(
+            readStreamedContent("text/csv; charset=UTF-8"),
+            is("col_a,col_b\n\"foo, \"\"bar\"\"\",1\n,2\n"));
+    }
+
+    @Test
+    public void test_batch_finished_flushes_rows_and_fetches_more() throws Exception {
+        RestResultSetStreamReceiver receiver = newReceiver(RestResultSetStreamReceiver.Format.NDJSON);
+        receiver.setNextRow(new RowN("foo", 1));
+        receiver.batchFinished();
+
+        assertThat(receiver.isResponseStarted(), is(true));
+        assertThat(channel.outboundMessages().size(), is(2));
+        channel.runPendingTasks();
+        assertThat(fetchMoreCalls.get(), is(1));
+    }
+
+    @Test
+    public void test_failure_before_response_started_sends_nothing() throws Exception {
+        RestResultSetStreamReceiver receiver = newReceiver(RestResultSetStreamReceiver.Format.JSON);
+        receiver.setNextRow(new RowN("foo", 1));
+        receiver.fail(new IllegalStateException("dummy"));
+
+        assertThat(receiver.isResponseStarted(), is(false));
+        assertThat(channel.readOutbound(), nullValue());
+        assertThat(channel.isOpen(), is(true));
+        assertThat(receiver.completionFuture().isCompletedExceptionally(), is(true));
+    }
+
+    @Test
+    public void test_failure_after_response_started_closes_channel() throws Exception {
+        RestResultSetStreamReceiver receiver = newReceiver(RestResultSetStreamReceiver.Format.JSON);
+        receiver.setNextRow(new RowN("foo", 1));
+        receiver.batchFinished();
+        receiver.fail(new IllegalStateException("dummy"));
+
+        assertThat(channel.isOpen(), is(false));
+        assertThat(receiver.completionFuture().isCompletedExceptionally(), is(true));
+    }
+}